@@ -1,36 +1,69 @@
 package com.basiscomponents.bridge;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
 
 import com.basiscomponents.db.DataRow;
 import com.basiscomponents.db.ResultSet;
 import com.basiscomponents.db.util.DataRowJsonMapper;
+import com.basiscomponents.util.HttpHelper;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.gson.JsonParser;
 
+/**
+ * A client session of the bridge: collects variables, operations and return
+ * values and sends them to the bridge servlet with {@link #exec()}.
+ * 
+ * The requests go over kept-alive HTTP connections, so the TCP and TLS setup
+ * is only paid once per connection. {@link #execAsync()} pipelines batches,
+ * {@link #setRawJson(boolean)} and {@link #setGzip(boolean)} shrink the
+ * requests if the server supports them.
+ */
 public class Session {
 
+	public static Boolean DEBUG = false;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	// sends the batches; a Session only occupies a thread while it sends
+	private static final ExecutorService executor = HttpHelper.newDaemonThreadPool("Session");
+
 	private List<SessionExecuteEntity> Ex;
 	private List<String> Ret;
 	private List<SessionVarEntity> Vars;
 	private Map<String, Object> Result;
-	private String SessionID;
+	// written by the thread sending the batches
+	private volatile String SessionID;
 	private String BaseUrl;
-	private String lastError;
+	private volatile String lastError;
+	private volatile boolean rawJson;
+	private volatile boolean gzip;
+	// the last batch sent, the next one waits for it
+	private CompletableFuture<?> pipeline = CompletableFuture.completedFuture(null);
 
 	public Session(String url) {
 		BaseUrl = url;
@@ -38,7 +71,7 @@ public class Session {
 		Ret = new ArrayList<String>();
 		Vars = new ArrayList<SessionVarEntity>();
 		SessionID = new String();
-		Result = new HashMap<>();
+		Result = new ConcurrentHashMap<>();
 	}
 
 	public String getSessionID() {
@@ -81,152 +114,196 @@ public class Session {
 		this.Ex.add(in);
 	}
 
-	public void reset() {
+	public synchronized void reset() {
 		Ex = new ArrayList<SessionExecuteEntity>();
 		Ret = new ArrayList<String>();
 		Vars = new ArrayList<SessionVarEntity>();
 		lastError = null;
 	}
 
-	private String getJson() {
-		String json = "{";
-
-		if (!this.SessionID.isEmpty())
-			json += "\"ses\":\"" + this.getSessionID() + "\"";
-
-		if (this.Vars.size() > 0) {
-			if (json.length() > 1)
-				json += ',';
-			json += "\"vars\":[";
-			java.util.Iterator<SessionVarEntity> it = Vars.iterator();
-			Boolean first = true;
-			while (it.hasNext()) {
-				if (!first)
-					json += ',';
-				else
-					first = false;
-				json += it.next().toJson();
-			}
-			json += "]";
+	/**
+	 * The variables, operations and return values of one {@link #exec()}.
+	 */
+	private static final class Batch {
+
+		private final List<SessionVarEntity> vars;
+
+		private final List<SessionExecuteEntity> ex;
+
+		private final List<String> ret;
 
+		Batch(List<SessionVarEntity> vars, List<SessionExecuteEntity> ex, List<String> ret) {
+			this.vars = vars;
+			this.ex = ex;
+			this.ret = ret;
 		}
 
-		if (this.Ex.size() > 0) {
-			if (json.length() > 1)
-				json += ',';
-			json += "\"ex\":[";
-			java.util.Iterator<SessionExecuteEntity> it = Ex.iterator();
-			Boolean first = true;
-			while (it.hasNext()) {
-				if (!first)
-					json += ',';
-				else
-					first = false;
-				json += it.next().toJson();
+		void writeJson(JsonGenerator generator, String sessionID) throws IOException {
+			generator.writeStartObject();
+			if (!sessionID.isEmpty())
+				generator.writeStringField("ses", sessionID);
+			if (!vars.isEmpty()) {
+				generator.writeArrayFieldStart("vars");
+				for (SessionVarEntity var : vars) {
+					var.writeJson(generator);
+				}
+				generator.writeEndArray();
+			}
+			if (!ex.isEmpty()) {
+				generator.writeArrayFieldStart("ex");
+				for (SessionExecuteEntity entity : ex) {
+					entity.writeJson(generator);
+				}
+				generator.writeEndArray();
 			}
-			json += "]";
+			if (!ret.isEmpty()) {
+				generator.writeArrayFieldStart("ret");
+				for (String name : ret) {
+					generator.writeString(name);
+				}
+				generator.writeEndArray();
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	/**
+	 * Returns the form encoded request, its length has to be known as the whole
+	 * JSON is URL encoded.
+	 */
+	private byte[] getFormRequestBody(Batch batch) throws IOException {
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+			batch.writeJson(generator, SessionID);
+		}
+		if (DEBUG)
+			System.out.println("Request: " + writer);
+		return ("ex=" + URLEncoder.encode(writer.toString(), "UTF-8")).getBytes(StandardCharsets.US_ASCII);
+	}
 
+	/**
+	 * Writes the raw JSON request to the connection while it is generated.
+	 */
+	private void writeRawRequestBody(Batch batch, OutputStream out) throws IOException {
+		if (gzip)
+			out = new GZIPOutputStream(out);
+		// the generator writes to a Writer, so DataRows and ResultSets can be
+		// streamed behind it; closing it finishes the gzip stream and closes
+		// the output stream of the connection
+		try (JsonGenerator generator = JSON_FACTORY
+				.createGenerator(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+			batch.writeJson(generator, SessionID);
 		}
+		if (DEBUG)
+			System.out.println("Request: streamed");
+	}
 
-		if (this.Ret.size() > 0) {
-			if (json.length() > 1)
-				json += ',';
-			json += "\"ret\":[";
-			java.util.Iterator<String> it = Ret.iterator();
-			Boolean first = true;
-			while (it.hasNext()) {
-				if (!first)
-					json += ',';
-				else
-					first = false;
-				json += "\"" + it.next() + "\"";
+	private String postRequest(Batch batch) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(BaseUrl).openConnection();
+		connection.setRequestMethod("POST");
+		if (rawJson) {
+			connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+			if (gzip)
+				connection.setRequestProperty("Content-Encoding", "gzip");
+		} else {
+			connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+		}
+		if (gzip)
+			connection.setRequestProperty("Accept-Encoding", "gzip");
+		connection.setRequestProperty("Content-Language", "en-US");
+		connection.setUseCaches(false);
+		connection.setDoInput(true);
+		connection.setDoOutput(true);
+
+		if (rawJson) {
+			// the request is sent in chunks while it is generated, it is
+			// never held in memory as a whole
+			connection.setChunkedStreamingMode(0);
+			writeRawRequestBody(batch, connection.getOutputStream());
+		} else {
+			byte[] body = getFormRequestBody(batch);
+			connection.setFixedLengthStreamingMode(body.length);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body);
 			}
-			json += "]";
+		}
 
+		InputStream is;
+		try {
+			is = connection.getInputStream();
+		} catch (IOException e) {
+			HttpHelper.drainErrorStream(connection);
+			throw e;
 		}
 
-		json += "}";
+		// the platform charset if the response doesn't name one
+		try (Reader reader = HttpHelper.getResponseReader(connection, is, Charset.defaultCharset())) {
+			StringBuilder response = new StringBuilder();
+			char[] buffer = new char[8192];
+			int count;
+			while ((count = reader.read(buffer)) != -1) {
+				response.append(buffer, 0, count);
+			}
+			return response.toString();
+		}
+	}
 
-		// replace the special chars
+	/**
+	 * Sends the pushed variables, operations and return values and waits for
+	 * the results. On a remote error {@link #getLastError()} returns the error.
+	 */
+	public void exec() {
 		try {
-			// the url encoder is a bit overdoing stuff, resulting in request
-			// strings longer than necessary...
-			// TODO ponder if we should only pick a few chars like %,& etc to
-			// encode
-			json = java.net.URLEncoder.encode(json, "UTF-8");
-		} catch (UnsupportedEncodingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			execAsync().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			lastError = e.toString();
+		} catch (ExecutionException e) {
+			// lastError is set by the failed batch
 		}
-
-		return json;
 	}
 
-	private String postRequest(String req) {
+	/**
+	 * Sends the pushed variables, operations and return values without waiting
+	 * for the results, so the next batch can be prepared and sent while the
+	 * server is still working on this one. The batches of a Session are sent in
+	 * order over a kept-alive connection, each one after the response to the
+	 * previous one.
+	 * 
+	 * @return The future of the results of this batch, which are also available
+	 *         by {@link #getResult(String)} once it completed. It completes
+	 *         exceptionally on a remote or transport error.
+	 */
+	public synchronized CompletableFuture<Map<String, Object>> execAsync() {
+		Batch batch = new Batch(Vars, Ex, Ret);
+		Vars = new ArrayList<SessionVarEntity>();
+		Ex = new ArrayList<SessionExecuteEntity>();
+		Ret = new ArrayList<String>();
 
-		{
-			URL url;
-			HttpURLConnection connection = null;
-			req = "ex=" + req;
+		CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+		pipeline.whenCompleteAsync((result, error) -> {
 			try {
-				// Create connection
-				url = new URL(BaseUrl);
-				connection = (HttpURLConnection) url.openConnection();
-				connection.setRequestMethod("POST");
-				connection.setRequestProperty("Content-Type",
-						"application/x-www-form-urlencoded");
-
-				connection.setRequestProperty("Content-Length",
-						"" + Integer.toString(req.getBytes().length));
-				connection.setRequestProperty("Content-Language", "en-US");
-
-				connection.setUseCaches(false);
-				connection.setDoInput(true);
-				connection.setDoOutput(true);
-
-				// Send request
-				DataOutputStream wr = new DataOutputStream(
-						connection.getOutputStream());
-				wr.writeBytes(req);
-				wr.flush();
-				wr.close();
-
-				// Get Response
-				InputStream is = connection.getInputStream();
-				BufferedReader rd = new BufferedReader(
-						new InputStreamReader(is));
-				String line;
-				StringBuffer response = new StringBuffer();
-				while ((line = rd.readLine()) != null) {
-					response.append(line);
-					response.append('\r');
-				}
-				rd.close();
-				return response.toString();
-
+				future.complete(send(batch));
 			} catch (Exception e) {
-
-				e.printStackTrace();
-				return null;
-
-			} finally {
-
-				if (connection != null) {
-					connection.disconnect();
-				}
+				future.completeExceptionally(e);
 			}
-		}
-
+		}, executor);
+		pipeline = future;
+		return future;
 	}
 
-	public void exec()   {
-
+	private Map<String, Object> send(Batch batch) throws Exception {
 		lastError = null;
-		String req = getJson();
-
-		System.out.println("Request: " + java.net.URLDecoder.decode(req));
-		String ret = this.postRequest(req);
-		System.out.println("Answer:  " + ret);
+		String ret;
+		try {
+			ret = this.postRequest(batch);
+		} catch (IOException e) {
+			e.printStackTrace();
+			lastError = e.toString();
+			throw e;
+		}
+		if (DEBUG)
+			System.out.println("Answer:  " + ret);
 
 		JsonElement jelement = new JsonParser().parse(ret);
 		JsonObject jobject = jelement.getAsJsonObject();
@@ -234,7 +311,7 @@ public class Session {
 		if (jobject.get("err") != null) {
 			lastError = jobject.get("err").getAsString();
 			System.err.println("received remote error: " + lastError);
-			return;
+			throw new Exception(lastError);
 		}
 
 		if (this.SessionID.isEmpty())
@@ -243,6 +320,7 @@ public class Session {
 //			System.out.println("got session "+this.SessionID);
 		}
 		
+		Map<String, Object> results = new HashMap<>();
 		Set<Entry<String, JsonElement>> es = jobject.entrySet();
 		java.util.Iterator<Entry<String, JsonElement>> it = es.iterator();
 		while (it.hasNext()) {
@@ -287,16 +365,43 @@ public class Session {
 					// TODO: even better move this section to ResultSet
 
 				}
-				this.Result.put(key, rs);
+				results.put(key, rs);
 			}
 			else{
-				this.Result.put(key,el.getAsString());
+				results.put(key,el.getAsString());
 			}
 		}
-		this.Vars.clear();
-		this.Ex.clear();
-		this.Ret.clear();
+		this.Result.putAll(results);
+		return results;
+	}
+
+	/**
+	 * Sends the request as raw JSON body instead of the form parameter
+	 * <code>ex</code>, which has to be URL encoded. The server has to accept
+	 * <code>application/json</code> requests.
+	 * 
+	 * @param rawJson true for raw JSON, false for form data (the default).
+	 */
+	public void setRawJson(boolean rawJson) {
+		this.rawJson = rawJson;
+	}
+
+	public boolean isRawJson() {
+		return rawJson;
+	}
+
+	/**
+	 * Accepts gzip compressed responses and, with {@link #setRawJson(boolean)},
+	 * compresses the requests.
+	 * 
+	 * @param gzip true to compress, false otherwise (the default).
+	 */
+	public void setGzip(boolean gzip) {
+		this.gzip = gzip;
+	}
 
+	public boolean isGzip() {
+		return gzip;
 	}
 
 	public Object getResult(String name) {
@@ -1,5 +1,9 @@
 package com.basiscomponents.bridge;
 
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
 class SessionCreateClassEntity extends SessionExecuteEntity {
 	private String var;
 	private String classname;
@@ -16,9 +20,12 @@ class SessionCreateClassEntity extends SessionExecuteEntity {
 	}
 
 	@Override
-	public String toJson() {
-		return "{\"op\":\"create\",\"var\":\"" + var + "\",\"class\":\""
-				+ classname + "\"}";
+	public void writeJson(JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("op", "create");
+		generator.writeStringField("var", var);
+		generator.writeStringField("class", classname);
+		generator.writeEndObject();
 	}
 
 }
@@ -1,7 +1,31 @@
 package com.basiscomponents.bridge;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
 abstract class SessionExecuteEntity {
 
-	public abstract String toJson();
+	/**
+	 * Writes the operation as JSON object.
+	 * 
+	 * @param generator The generator of the request.
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	public abstract void writeJson(JsonGenerator generator) throws IOException;
+
+	public String toJson() {
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+			writeJson(generator);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
+	}
 
 }
@@ -1,5 +1,9 @@
 package com.basiscomponents.bridge;
 
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
 class SessionInvokeEntity extends SessionExecuteEntity {
 	private String var, retvar, method;
 	private String[] args;
@@ -18,27 +22,20 @@ class SessionInvokeEntity extends SessionExecuteEntity {
 	}
 
 	@Override
-	public String toJson() {
-
-		String json = "{\"op\":\"invoke\",\"var\":\"" + var
-				+ "\",\"retvar\":\"" + retvar + "\",\"method\":\"" + method
-				+ "\"";
-
+	public void writeJson(JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("op", "invoke");
+		generator.writeStringField("var", var);
+		generator.writeStringField("retvar", retvar);
+		generator.writeStringField("method", method);
 		if (args.length > 0) {
-			json += ",\"args\":[";
-			Boolean first = true;
-			for (int i = 0; i < args.length; i++) {
-				if (!first)
-					json += ',';
-				else
-					first = false;
-				json += "\"" + args[i] + "\"";
+			generator.writeArrayFieldStart("args");
+			for (String arg : args) {
+				generator.writeString(arg);
 			}
-			json += "]";
+			generator.writeEndArray();
 		}
-		json += "}";
-
-		return json;
+		generator.writeEndObject();
 	}
 
 }
@@ -1,7 +1,15 @@
 package com.basiscomponents.bridge;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
 import com.basiscomponents.db.DataRow;
 import com.basiscomponents.db.ResultSet;
+import com.basiscomponents.db.util.ResultSetJsonMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 class SessionVarEntity {
 	private String name, type;
@@ -37,24 +45,54 @@ class SessionVarEntity {
 		this.val = val;
 	}
 
-	public String toJson() {
-		String json = "{\"n\":\"" + name + "\",\"t\":\"" + type + "\",\"v\":";
+	/**
+	 * Writes the variable as JSON object. A DataRow or ResultSet is streamed
+	 * row by row to the Writer of the generator.
+	 * 
+	 * @param generator The generator of the request, created for a Writer.
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	public void writeJson(JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("n", name);
+		generator.writeStringField("t", type);
+		generator.writeFieldName("v");
 		switch (type) {
 		case "str":
-			json += "\"" + val + "\"";
+			generator.writeString(String.valueOf(val));
 			break;
 		case "num":
-			json += val.toString();
+			generator.writeNumber(val.toString());
 			break;
 		case "dr":
-			json += ((DataRow) val).toJsonElement();
+			ResultSet rs = new ResultSet();
+			rs.add((DataRow) val);
+			writeResultSet(generator, rs);
 			break;
 		case "rs":
-			json += ((ResultSet) val).toJsonElement();
+			writeResultSet(generator, (ResultSet) val);
 			break;
 		}
-		json += "}";
-		return json;
+		generator.writeEndObject();
+	}
+
+	private static void writeResultSet(JsonGenerator generator, ResultSet rs) throws IOException {
+		// an empty raw value lets the generator write the separator, the rows
+		// follow it directly on the Writer
+		generator.writeRawValue("");
+		generator.flush();
+		ResultSetJsonMapper.writeJson(rs, (Writer) generator.getOutputTarget(), true, null, true, false);
+	}
+
+	public String toJson() {
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+			writeJson(generator);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
 	}
 
 }
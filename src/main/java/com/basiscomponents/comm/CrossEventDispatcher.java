@@ -8,17 +8,41 @@ import com.basis.startup.type.BBjVector;
 
 import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
+/**
+ * Hands the messages of the WebSocket clients off to the interpreters as
+ * custom events. Every registered tag has an {@link EventQueue}, so
+ * {@link #postPriorityCustomEvent(String, String)} returns without waiting for
+ * the interpreter and bursts of messages are handed off in batches.
+ */
 public class CrossEventDispatcher  {
 	
+	// read by the WebSocket worker threads, so the maps are concurrent
 	private Map<String, BBjAPI> InterpreterMap;
 	private Map<Integer, String> PIDMap;
+	private Map<String, EventQueue> Queues;
 	protected static SecureRandom random = new SecureRandom();
 	public static Boolean DEBUG = false;
+
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	// drains the queues; a queue only occupies a thread while it has events
+	private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "CrossEventDispatcher-" + threadNumber.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	});
+
+	private volatile int queueCapacity = EventQueue.DEFAULT_CAPACITY;
+	private volatile int batchSize = EventQueue.DEFAULT_BATCH_SIZE;
+	private volatile String coalescingDelimiter;
 	
 	
 	public static Object getInstance(BBjAPI api)  {
@@ -40,9 +64,10 @@ public class CrossEventDispatcher  {
 		return ed;
 	}
 	
-	private CrossEventDispatcher() {
-		InterpreterMap = new HashMap<>();
-		PIDMap = new HashMap<>();
+	CrossEventDispatcher() {
+		InterpreterMap = new ConcurrentHashMap<>();
+		PIDMap = new ConcurrentHashMap<>();
+		Queues = new ConcurrentHashMap<>();
 	}
 	
 	public synchronized String register(BBjAPI api) {
@@ -50,7 +75,7 @@ public class CrossEventDispatcher  {
 		//first do a self-healing cleanup of garbage
 		cleanup(api);
 		
-        String tag= Long.toString( Math.abs( random.nextLong() ), 256 )+Long.toString( Math.abs( random.nextLong() ), 256 )+System.currentTimeMillis();
+		String tag = register(api::postPriorityCustomEvent);
 		InterpreterMap.put(tag, api);
 		try {
 			PIDMap.put(api.getCurrentSessionInfo().getSessionID(), tag);
@@ -61,25 +86,100 @@ public class CrossEventDispatcher  {
 		
 		return tag;
 	}
-	
+
+	/**
+	 * Registers a receiver of events which isn't an interpreter.
+	 * 
+	 * @param sink The receiver of the events.
+	 * 
+	 * @return The tag to post the events to.
+	 */
+	public String register(EventSink sink) {
+		String tag= Long.toString( Math.abs( random.nextLong() ), 256 )+Long.toString( Math.abs( random.nextLong() ), 256 )+System.currentTimeMillis();
+		EventQueue queue = new EventQueue(tag, sink, executor);
+		queue.setCapacity(queueCapacity);
+		queue.setBatchSize(batchSize);
+		queue.setCoalescingDelimiter(coalescingDelimiter);
+		Queues.put(tag, queue);
+		return tag;
+	}
+
+	/**
+	 * Queues the payload as custom event for the interpreter registered with
+	 * the tag and returns immediately. Payloads for unknown tags are ignored,
+	 * payloads for a full queue are dropped and counted, see
+	 * {@link #getQueue(String)}.
+	 * 
+	 * @param tag     The tag of the interpreter.
+	 * @param payload The payload of the event.
+	 */
 	public void postPriorityCustomEvent(String tag, String payload) throws Exception {
 		if (DEBUG)
 			System.out.println("postPriorityCustomEvent");
 		
-		BBjAPI api = InterpreterMap.get(tag);
+		EventQueue queue = Queues.get(tag);
 
-		if (api != null) {
-			api.postPriorityCustomEvent(tag, payload);
+		if (queue != null) {
+			boolean queued = queue.offer(payload);
 			if (DEBUG)
-				System.out.println("posting Event to "+tag);
+				System.out.println((queued ? "queued Event for " : "dropped Event for ")+tag);
 		}
 	}
+
+	/**
+	 * Returns the queue of the tag with its depth, drop count and handoff
+	 * latency.
+	 * 
+	 * @param tag The tag of the interpreter.
+	 * 
+	 * @return The queue, {@code null} if the tag isn't registered.
+	 */
+	public EventQueue getQueue(String tag) {
+		return Queues.get(tag);
+	}
+
+	/**
+	 * Sets the capacity of the queues registered afterwards.
+	 * 
+	 * @param capacity The capacity, see {@link EventQueue#setCapacity(int)}.
+	 */
+	public void setQueueCapacity(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity must be positive");
+		this.queueCapacity = capacity;
+	}
+
+	/**
+	 * Sets the batch size of the queues registered afterwards.
+	 * 
+	 * @param batchSize The batch size, see {@link EventQueue#setBatchSize(int)}.
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the coalescing delimiter of the queues registered afterwards.
+	 * 
+	 * @param delimiter The delimiter, see
+	 *                  {@link EventQueue#setCoalescingDelimiter(String)}.
+	 */
+	public void setCoalescingDelimiter(String delimiter) {
+		this.coalescingDelimiter = delimiter;
+	}
 	
 	public String toString() {
-		return PIDMap.size()+" sessions in map";
+		StringBuilder sb = new StringBuilder();
+		sb.append(PIDMap.size()).append(" sessions in map");
+		for (EventQueue queue : Queues.values()) {
+			sb.append('\n').append(queue);
+		}
+		return sb.toString();
 	}
 	
-	public void cleanup(BBjAPI api) {
+	public synchronized void cleanup(BBjAPI api) {
 		
 		ArrayList<Integer> pidlist = new ArrayList<>();
 		ArrayList<Integer> dellist = new ArrayList<>();
@@ -115,6 +215,7 @@ public class CrossEventDispatcher  {
 			String tag = PIDMap.get(pid);
 			PIDMap.remove(pid);
 			InterpreterMap.remove(tag);
+			Queues.remove(tag);
 		}
 
 	}
@@ -0,0 +1,278 @@
+package com.basiscomponents.comm;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The events of one tag on their way to its {@link EventSink}. Any number of
+ * threads offer payloads without blocking, a single drain task at a time hands
+ * them off in batches on the given Executor, so the events of a tag keep their
+ * order. With a coalescing delimiter the payloads of a batch are joined into
+ * one event.
+ * 
+ * A full queue drops the offered payload and counts it instead of blocking
+ * the caller.
+ */
+public class EventQueue {
+
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private static final class Event {
+
+		final String payload;
+
+		final long enqueued;
+
+		Event(String payload, long enqueued) {
+			this.payload = payload;
+			this.enqueued = enqueued;
+		}
+	}
+
+	private final String tag;
+
+	private final EventSink sink;
+
+	private final Executor executor;
+
+	// lock-free, the producers never block each other or the drain task
+	private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger depth = new AtomicInteger();
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private volatile int capacity = DEFAULT_CAPACITY;
+
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+	private volatile String coalescingDelimiter;
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	// only written by the drain task
+	private final AtomicLong handedOff = new AtomicLong();
+
+	private final AtomicLong events = new AtomicLong();
+
+	private final AtomicLong totalLatency = new AtomicLong();
+
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	public EventQueue(String tag, EventSink sink, Executor executor) {
+		this.tag = tag;
+		this.sink = sink;
+		this.executor = executor;
+	}
+
+	public String getTag() {
+		return tag;
+	}
+
+	/**
+	 * Queues the payload for the sink and returns immediately.
+	 * 
+	 * @param payload The payload of the event.
+	 * 
+	 * @return true if the payload was queued, false if it was dropped because
+	 *         the queue is full.
+	 */
+	public boolean offer(String payload) {
+		if (depth.incrementAndGet() > capacity) {
+			depth.decrementAndGet();
+			dropped.increment();
+			return false;
+		}
+		queue.offer(new Event(payload, System.nanoTime()));
+		scheduleDrain();
+		return true;
+	}
+
+	private void scheduleDrain() {
+		if (draining.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::drain);
+			} catch (RuntimeException e) {
+				draining.set(false);
+				throw e;
+			}
+		}
+	}
+
+	private void drain() {
+		try {
+			int max = batchSize;
+			String delimiter = coalescingDelimiter;
+			Event event;
+			// one batch per run, other tags sharing the Executor get their turn
+			if (delimiter == null) {
+				for (int i = 0; i < max && (event = queue.poll()) != null; i++) {
+					depth.decrementAndGet();
+					handOff(event.payload, event.enqueued, event.enqueued, 1);
+				}
+			} else {
+				StringBuilder payload = null;
+				long first = 0;
+				long enqueued = 0;
+				int count = 0;
+				while (count < max && (event = queue.poll()) != null) {
+					depth.decrementAndGet();
+					if (payload == null) {
+						payload = new StringBuilder(event.payload);
+						first = event.enqueued;
+					} else {
+						payload.append(delimiter).append(event.payload);
+					}
+					enqueued += event.enqueued;
+					count++;
+				}
+				if (payload != null)
+					handOff(payload.toString(), first, enqueued, count);
+			}
+		} finally {
+			draining.set(false);
+		}
+		if (!queue.isEmpty())
+			scheduleDrain();
+	}
+
+	/**
+	 * Posts the payload of count offers, first is the time of the oldest offer
+	 * and enqueued the sum of the times of all offers.
+	 */
+	private void handOff(String payload, long first, long enqueued, int count) {
+		try {
+			sink.post(tag, payload);
+		} catch (Exception e) {
+			failed.add(count);
+			e.printStackTrace();
+			return;
+		}
+		long now = System.nanoTime();
+		// the latency of every payload, from its offer until the sink accepted it
+		totalLatency.addAndGet(count * now - enqueued);
+		if (now - first > maxLatency.get())
+			maxLatency.set(now - first);
+		handedOff.addAndGet(count);
+		events.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of payloads waiting for the sink.
+	 * 
+	 * @return The queue depth.
+	 */
+	public int getDepth() {
+		return depth.get();
+	}
+
+	/**
+	 * @return The number of payloads dropped because the queue was full.
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return The number of payloads the sink failed to post.
+	 */
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * @return The number of payloads handed off to the sink.
+	 */
+	public long getHandedOff() {
+		return handedOff.get();
+	}
+
+	/**
+	 * @return The number of events posted to the sink, lower than
+	 *         {@link #getHandedOff()} if payloads were coalesced.
+	 */
+	public long getEvents() {
+		return events.get();
+	}
+
+	/**
+	 * Returns the mean time between offering a payload and the sink accepting
+	 * it.
+	 * 
+	 * @return The mean handoff latency in nanoseconds.
+	 */
+	public long getMeanLatency() {
+		long count = handedOff.get();
+		return count == 0 ? 0 : totalLatency.get() / count;
+	}
+
+	/**
+	 * @return The maximum handoff latency in nanoseconds.
+	 */
+	public long getMaxLatency() {
+		return maxLatency.get();
+	}
+
+	/**
+	 * Sets the number of payloads which may wait for the sink, further payloads
+	 * are dropped.
+	 * 
+	 * @param capacity The capacity, {@link #DEFAULT_CAPACITY} by default.
+	 */
+	public void setCapacity(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity must be positive");
+		this.capacity = capacity;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Sets the maximum number of payloads handed off by one run of the drain
+	 * task, or coalesced into one event.
+	 * 
+	 * @param batchSize The batch size, {@link #DEFAULT_BATCH_SIZE} by default.
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("The batch size must be positive");
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the delimiter which joins the payloads of a batch into one event.
+	 * 
+	 * @param delimiter The delimiter, {@code null} to post every payload as its
+	 *                  own event (the default).
+	 */
+	public void setCoalescingDelimiter(String delimiter) {
+		this.coalescingDelimiter = delimiter;
+	}
+
+	public String getCoalescingDelimiter() {
+		return coalescingDelimiter;
+	}
+
+	@Override
+	public String toString() {
+		return tag + ": depth " + getDepth() + ", handed off " + getHandedOff() + " in " + getEvents()
+				+ " events, dropped " + getDropped() + ", failed " + getFailed() + ", latency mean "
+				+ getMeanLatency() / 1000 + "us max " + getMaxLatency() / 1000 + "us";
+	}
+
+}
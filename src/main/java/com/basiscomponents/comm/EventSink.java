@@ -0,0 +1,20 @@
+package com.basiscomponents.comm;
+
+/**
+ * The receiver of the events which the {@link CrossEventDispatcher} hands off
+ * for a tag, usually the interpreter registered with
+ * {@link CrossEventDispatcher#register(com.basis.bbj.proxies.BBjAPI)}.
+ */
+public interface EventSink {
+
+	/**
+	 * Posts the payload as a custom event.
+	 * 
+	 * @param tag     The tag of the interpreter.
+	 * @param payload The payload of the event.
+	 * 
+	 * @throws Exception if the event could not be posted
+	 */
+	void post(String tag, String payload) throws Exception;
+
+}
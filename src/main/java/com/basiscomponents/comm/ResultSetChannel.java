@@ -0,0 +1,307 @@
+package com.basiscomponents.comm;
+
+import com.basiscomponents.bc.BusinessComponent;
+import com.basiscomponents.db.DataField;
+import com.basiscomponents.db.DataRow;
+import com.basiscomponents.db.ResultSet;
+import com.basiscomponents.db.util.ResultSetJsonMapper;
+import com.basiscomponents.json.ComponentsCharacterEscapes;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The live data of a {@link WsServer} tag: keeps the last published ResultSet
+ * as snapshot and turns every new ResultSet into a delta of the inserted,
+ * updated and deleted rows, identified by their row key.
+ *
+ * The row key is built from the key columns given to the constructor, else
+ * from the key columns of the published ResultSet, else it is the row key of
+ * the DataRow. The messages are JSON objects:
+ *
+ * <pre>
+ * {"type":"snapshot","version":1,"rows":[{"_key":"1","ID":1,"NAME":"A",...}]}
+ * {"type":"delta","version":2,"inserted":[{"_key":"2",...}],
+ *  "updated":[{"_key":"1","NAME":"B"}],"deleted":["3"]}
+ * </pre>
+ *
+ * The snapshot contains the meta data, the rows of a delta don't. An updated
+ * row only contains its changed fields, a removed field is sent as null. A
+ * delta with version n applies to the snapshot with version n-1. Deltas don't
+ * carry the order of the rows.
+ *
+ * The channel takes ownership of the published ResultSets, they must not be
+ * modified afterwards.
+ */
+public class ResultSetChannel {
+
+	public static final String KEY_FIELD = "_key";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	static {
+		JSON_FACTORY.setCharacterEscapes(new ComponentsCharacterEscapes());
+	}
+
+	private final String tag;
+
+	private final List<String> keyColumns;
+
+	private final BusinessComponent businessComponent;
+
+	// the rows of the last published ResultSet by row key, in their order
+	private Map<String,DataRow> rows = Collections.emptyMap();
+
+	private ResultSet snapshot;
+
+	private String snapshotMessage;
+
+	private long version;
+
+	// written by the publishing threads, read by the flush of WsServer
+	private ResultSet pending;
+
+	private boolean refreshPending;
+
+	private boolean flushScheduled;
+
+	public ResultSetChannel(String tag) {
+		this(tag, null, Collections.<String>emptyList());
+	}
+
+	/**
+	 * @param tag               The tag, i.e. the resource path the clients
+	 *                          connect to.
+	 * @param businessComponent The BusinessComponent which is retrieved on a
+	 *                          refresh, {@code null} if the ResultSets are only
+	 *                          published.
+	 * @param keyColumns        The columns which build the row key, empty to use
+	 *                          the key columns of the ResultSets.
+	 */
+	public ResultSetChannel(String tag, BusinessComponent businessComponent, Collection<String> keyColumns) {
+		this.tag = tag;
+		this.businessComponent = businessComponent;
+		this.keyColumns = new ArrayList<>(keyColumns);
+	}
+
+	public String getTag() {
+		return tag;
+	}
+
+	public BusinessComponent getBusinessComponent() {
+		return businessComponent;
+	}
+
+	/**
+	 * Returns the version of the snapshot, 0 before the first ResultSet was
+	 * published.
+	 *
+	 * @return The version.
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the last published ResultSet.
+	 *
+	 * @return The snapshot, {@code null} before the first ResultSet was published.
+	 */
+	public synchronized ResultSet getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the snapshot message for a client which joins the tag, it is built
+	 * once per version.
+	 *
+	 * @return The snapshot message, {@code null} before the first ResultSet was
+	 *         published.
+	 *
+	 * @throws IOException if the snapshot could not be written as JSON
+	 */
+	public synchronized String getSnapshotMessage() throws IOException {
+		if (snapshotMessage == null && snapshot != null) {
+			StringWriter writer = new StringWriter();
+			try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+				generator.writeStartObject();
+				generator.writeStringField("type", "snapshot");
+				generator.writeNumberField("version", version);
+				generator.writeFieldName("rows");
+				generator.writeRawValue(ResultSetJsonMapper.toJson(snapshot, true, KEY_FIELD, true, false));
+				generator.writeEndObject();
+			}
+			snapshotMessage = writer.toString();
+		}
+		return snapshotMessage;
+	}
+
+	/**
+	 * Replaces the snapshot by the given ResultSet and returns the delta message
+	 * between them.
+	 *
+	 * @param rs The new ResultSet.
+	 *
+	 * @return The delta message, {@code null} if no row changed.
+	 *
+	 * @throws IOException              if the delta could not be written as JSON
+	 * @throws IllegalArgumentException if a row has no key or two rows have the
+	 *                                  same key
+	 */
+	public synchronized String update(ResultSet rs) throws IOException {
+		List<String> columns = keyColumns.isEmpty() ? rs.getKeyColumns() : keyColumns;
+		Map<String,DataRow> newRows = new LinkedHashMap<>(rs.size() * 4 / 3 + 1);
+		ResultSet inserted = new ResultSet();
+		ResultSet updated = new ResultSet();
+		for (DataRow row : rs.getDataRows()) {
+			String key = getKey(row, columns);
+			if (newRows.put(key, row) != null)
+				throw new IllegalArgumentException("Duplicate row key " + key + " in the ResultSet of " + tag);
+			if (!key.equals(row.getRowKey()))
+				row.setRowKey(key);
+			DataRow old = rows.get(key);
+			if (old == null) {
+				inserted.add(row);
+			} else {
+				DataRow changes = getChanges(old, row);
+				if (changes != null)
+					updated.add(changes);
+			}
+		}
+		List<String> deleted = new ArrayList<>();
+		for (String key : rows.keySet()) {
+			if (!newRows.containsKey(key))
+				deleted.add(key);
+		}
+
+		rows = newRows;
+		snapshot = rs;
+		snapshotMessage = null;
+		version++;
+
+		if (inserted.size() == 0 && updated.size() == 0 && deleted.isEmpty())
+			return null;
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+			generator.writeStartObject();
+			generator.writeStringField("type", "delta");
+			generator.writeNumberField("version", version);
+			generator.writeFieldName("inserted");
+			generator.writeRawValue(ResultSetJsonMapper.toJson(inserted, false, KEY_FIELD, true, false));
+			generator.writeFieldName("updated");
+			generator.writeRawValue(ResultSetJsonMapper.toJson(updated, false, KEY_FIELD, true, false));
+			generator.writeArrayFieldStart("deleted");
+			for (String key : deleted) {
+				generator.writeString(key);
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		return writer.toString();
+	}
+
+	private String getKey(DataRow row, List<String> columns) {
+		if (columns.isEmpty()) {
+			String key = row.getRowKey();
+			if (key.isEmpty())
+				throw new IllegalArgumentException("The ResultSet of " + tag + " has neither key columns nor row keys");
+			return key;
+		}
+		if (columns.size() == 1)
+			return row.getFieldAsString(columns.get(0));
+		StringBuilder key = new StringBuilder();
+		for (String column : columns) {
+			if (key.length() > 0)
+				key.append('\u001f');
+			key.append(row.getFieldAsString(column));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns a DataRow with the fields of the new row which differ from the old
+	 * row, and the fields of the old row which were removed as null.
+	 */
+	private static DataRow getChanges(DataRow old, DataRow row) {
+		DataRow changes = null;
+		for (String name : row.getFieldNames()) {
+			DataField field = row.getField(name, true);
+			DataField oldField = old.getField(name, true);
+			if (oldField != null && Objects.deepEquals(value(oldField), value(field)))
+				continue;
+			if (changes == null)
+				changes = new DataRow();
+			changes.addDataField(name, row.getFieldType(name), field);
+		}
+		for (String name : old.getFieldNames()) {
+			if (row.getField(name, true) != null)
+				continue;
+			if (changes == null)
+				changes = new DataRow();
+			changes.addDataField(name, old.getFieldType(name), new DataField(null));
+		}
+		if (changes != null)
+			changes.setRowKey(row.getRowKey());
+		return changes;
+	}
+
+	private static Object value(DataField field) {
+		return field == null ? null : field.getValue();
+	}
+
+	// the pending publication, guarded by the channel
+
+	synchronized void setPending(ResultSet rs) {
+		pending = rs;
+		refreshPending = false;
+	}
+
+	synchronized void setRefreshPending() {
+		pending = null;
+		refreshPending = true;
+	}
+
+	/**
+	 * Marks the flush as scheduled.
+	 *
+	 * @return true if the caller has to schedule the flush, false if it is
+	 *         already scheduled.
+	 */
+	synchronized boolean scheduleFlush() {
+		if (flushScheduled)
+			return false;
+		flushScheduled = true;
+		return true;
+	}
+
+	/**
+	 * Takes the pending publication, retrieving the BusinessComponent for a
+	 * pending refresh.
+	 *
+	 * @return The ResultSet to publish, {@code null} if nothing is pending.
+	 */
+	ResultSet takePending() throws Exception {
+		boolean refresh;
+		ResultSet rs;
+		synchronized (this) {
+			flushScheduled = false;
+			refresh = refreshPending;
+			rs = pending;
+			refreshPending = false;
+			pending = null;
+		}
+		if (refresh && businessComponent != null)
+			rs = businessComponent.retrieve();
+		return rs;
+	}
+
+}
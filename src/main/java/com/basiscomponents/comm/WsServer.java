@@ -27,41 +27,115 @@ package com.basiscomponents.comm;
 import com.basis.bbj.proxies.BBjAPI;
 import com.basis.bbj.proxies.BBjNamespace;
 import com.basis.startup.type.BBjException;
+import com.basiscomponents.bc.BusinessComponent;
+import com.basiscomponents.db.ResultSet;
+import org.java_websocket.FragmentOutputStream;
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A simple WebSocketServer implementation. Keeps track of a "chatroom".
  */
 public class WsServer extends WebSocketServer {
 	
-	private HashMap<String,ArrayList<WebSocket>> ConList;
+	// registered connections by tag; written on the selector thread, read by
+	// the BBj threads calling send(), so the sets are copy-on-write
+	private final ConcurrentHashMap<String,Set<WebSocket>> ConList = new ConcurrentHashMap<>();
 	private CrossEventDispatcher EDispatcher;
+	// the live ResultSets by tag, see publish()
+	private final ConcurrentHashMap<String,ResultSetChannel> Channels = new ConcurrentHashMap<>();
+	private volatile long coalescingWindow = DEFAULT_COALESCING_WINDOW;
+	private ScheduledExecutorService publishScheduler;
+	// serializes the ResultSets streamed to several connections, see send()
+	private final Object streamLock = new Object();
 	public static Boolean DEBUG = false;  
 
+	// the outgoing queue limits of limitWriteBuffers()
+	public static final long WRITE_BUFFER_LOW_WATERMARK = 4L * 1024 * 1024;
+	public static final long WRITE_BUFFER_HIGH_WATERMARK = 16L * 1024 * 1024;
+
+	// publications of a tag within this many milliseconds are sent as one delta
+	public static final long DEFAULT_COALESCING_WINDOW = 100;
+
 	public WsServer( int port ) throws UnknownHostException {
-		super( new InetSocketAddress( port ) );
-		ConList = new HashMap<>();
+		this( new InetSocketAddress( port ) );
 	}
 
+	/**
+	 * Creates a server with the defaults of WebSocketServer. The onMessage
+	 * callbacks of a connection run on the worker it is pinned to, so a slow
+	 * one, e.g. of a subclass, delays all connections of that worker; call
+	 * setDispatchStrategy(new ExecutorDispatchStrategy()) before the server is
+	 * started to let it only delay its own connection.
+	 */
 	public WsServer( InetSocketAddress address ) {
 		super( address );
-		ConList = new HashMap<>();
+	}
+
+	/**
+	 * Creates a server which offers permessage-deflate if compression is
+	 * enabled. Large ResultSet messages compress well; clients without
+	 * compression fall back to plain RFC 6455 framing.
+	 * 
+	 * @param address The address to listen on.
+	 * @param compression Whether to offer permessage-deflate.
+	 */
+	public WsServer( InetSocketAddress address, boolean compression ) {
+		super( address, compression ? createDrafts() : null );
+	}
+
+	/**
+	 * Disconnects a client which doesn't read its messages once
+	 * WRITE_BUFFER_HIGH_WATERMARK bytes are queued for it, instead of letting
+	 * the server buffer until it runs out of memory. Without this a send to
+	 * such a client is queued without a limit. Has to be called before the
+	 * server is started.
+	 */
+	public void limitWriteBuffers() {
+		setWriteBufferWatermarks( WRITE_BUFFER_LOW_WATERMARK, WRITE_BUFFER_HIGH_WATERMARK );
+		setBackpressurePolicy( WebSocketImpl.BackpressurePolicy.CLOSE );
+	}
+
+	private static List<Draft> createDrafts() {
+		// without context takeover every message is compressed on its own, so a
+		// tag broadcast is still compressed once for all subscribers
+		PerMessageDeflateExtension deflate = new PerMessageDeflateExtension();
+		deflate.setServerNoContextTakeover(true);
+		return Collections.<Draft>singletonList(new Draft_6455(deflate));
 	}
 
 	@Override
@@ -70,36 +144,132 @@ public class WsServer extends WebSocketServer {
 		if (DEBUG)
 			System.out.println("onOpen "+conn.getResourceDescriptor());
 		
-		registerConnection(conn);
+		ResultSetChannel channel = Channels.get(getTag(conn.getResourceDescriptor()));
+		if (channel == null) {
+			registerConnection(conn);
+			return;
+		}
+		// a late joiner gets the current snapshot and then the deltas to it; the
+		// lock keeps a concurrent flush from sending it a delta to another version
+		synchronized (channel) {
+			registerConnection(conn);
+			try {
+				String snapshot = channel.getSnapshotMessage();
+				if (snapshot != null)
+					conn.send(snapshot);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 	}
 
 	private void registerConnection(WebSocket conn) {
 		String tag = getTag(conn.getResourceDescriptor());
-		ArrayList<WebSocket> al;
-		al = ConList.get(tag);
-		if (al==null) {
-			al = new ArrayList<>();
-			ConList.put(tag, al);
-		}
-		al.add(conn);
+		// compute() keeps a concurrent deregistration from dropping the set we add to
+		ConList.compute(tag, (key, connections) -> {
+			if (connections == null)
+				connections = new CopyOnWriteArraySet<>();
+			connections.add(conn);
+			return connections;
+		});
 
 		if (DEBUG)
 			System.out.println("registered: "+ConList);
 
 	}
+
+	private void deregisterConnection(WebSocket conn) {
+		if (conn.getResourceDescriptor() == null)
+			return;
+		String tag = getTag(conn.getResourceDescriptor());
+		ConList.computeIfPresent(tag, (key, connections) -> {
+			connections.remove(conn);
+			return connections.isEmpty() ? null : connections;
+		});
+
+		if (DEBUG)
+			System.out.println("deregistered: "+ConList);
+	}
+
+	/**
+	 * Returns the number of open connections registered for the given tag.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connected to.
+	 * 
+	 * @return The number of connections.
+	 */
+	public int getConnectionCount(String tag) {
+		Set<WebSocket> connections = ConList.get(tag);
+		return connections == null ? 0 : connections.size();
+	}
+
+	/**
+	 * Returns the number of open connections for every tag with at least one
+	 * connection.
+	 * 
+	 * @return A map of the tags to their number of connections.
+	 */
+	public Map<String,Integer> getConnectionCounts() {
+		HashMap<String,Integer> counts = new HashMap<>();
+		for (Map.Entry<String,Set<WebSocket>> entry : ConList.entrySet()) {
+			int count = entry.getValue().size();
+			if (count > 0)
+				counts.put(entry.getKey(), count);
+		}
+		return counts;
+	}
 	
+	/**
+	 * Returns the number of bytes queued for, but not yet written to, the
+	 * connections registered for the given tag. Producers can use it to throttle
+	 * their updates.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connected to.
+	 * 
+	 * @return The number of queued bytes.
+	 */
+	public long getQueuedBytes(String tag) {
+		Set<WebSocket> connections = ConList.get(tag);
+		long queued = 0;
+		if (connections != null) {
+			for (WebSocket conn : connections) {
+				if (conn instanceof WebSocketImpl)
+					queued += ((WebSocketImpl) conn).getQueuedBytes();
+			}
+		}
+		return queued;
+	}
+
+	/**
+	 * Returns true if all connections registered for the given tag accept
+	 * messages without backpressure, false if at least one of them has reached
+	 * its high watermark.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connected to.
+	 * 
+	 * @return true if the tag is writable, false otherwise.
+	 */
+	public boolean isWritable(String tag) {
+		Set<WebSocket> connections = ConList.get(tag);
+		if (connections != null) {
+			for (WebSocket conn : connections) {
+				if (!conn.isWritable())
+					return false;
+			}
+		}
+		return true;
+	}
+
 	public void setEventDispatcher(CrossEventDispatcher ed) {
 		this.EDispatcher = ed;
 	}
 
 	@Override
 	public void onClose( WebSocket conn, int code, String reason, boolean remote ) {
-		//TODO: add a self-healing cleanup; check all connections for being closed and delete them
-		// to keep the ConLinst clean!
-		
 		if (DEBUG)
 			System.out.println("onClose "+conn.getResourceDescriptor());
 		
+		deregisterConnection(conn);
 	}
 
 	@Override
@@ -152,25 +322,206 @@ public class WsServer extends WebSocketServer {
 		if (DEBUG)
 			System.out.println( "send message to "+tag +": "+ message.toString() );
 
+		Set<WebSocket> connections = ConList.get(tag);
+		if (connections!=null) {
+			// encodes the message once per draft and shares the encoded
+			// frames between the connections
+			broadcast(message, connections);
+			
+			if (DEBUG)
+				System.out.println( "-sent to "+connections.size()+" connections" );
+		}
 		
-		ArrayList<WebSocket> al;
-		al = ConList.get(tag);
-		if (al!=null) {
-			Iterator<WebSocket> it = al.iterator();
-			while (it.hasNext()) {
-				WebSocket conn = it.next();
-				if (!conn.isClosed() || !conn.isClosing())
-					conn.send(message);
-				
-				if (DEBUG)
-					System.out.println( "-sent to "+conn.getResourceDescriptor()+" "+conn.getRemoteSocketAddress().toString() );
+	}
 
-				
+
+	/**
+	 * Sends the given ResultSet as JSON to the connections registered for the
+	 * given tag. The JSON is written once and streamed to every connection as a
+	 * fragmented text message while it is written, so the JSON String of a
+	 * large ResultSet is never built in memory. Other messages to a connection
+	 * wait until its message is complete.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connected to.
+	 * @param rs  The ResultSet to send.
+	 * @param meta if MetaData should be sent
+	 * 
+	 * @throws Exception if the ResultSet could not be written as JSON
+	 */
+	public void send(String tag, ResultSet rs, boolean meta) throws Exception {
+		Set<WebSocket> connections = ConList.get(tag);
+		if (connections == null)
+			return;
+		// the streams hold the message locks of all the connections until the
+		// message is complete, one such send at a time can't deadlock
+		synchronized (streamLock) {
+			try (Writer writer = new OutputStreamWriter(new FanOutOutputStream(connections), StandardCharsets.UTF_8)) {
+				rs.writeJson(writer, meta, null, true, false);
 			}
 		}
-		
+		if (DEBUG)
+			System.out.println( "-sent ResultSet to "+connections.size()+" connections" );
+	}
+
+	/**
+	 * Binds the given BusinessComponent to the tag: every {@link #publish(String)}
+	 * retrieves it and sends the changed rows to the clients of the tag, see
+	 * {@link #publish(String, ResultSet)}. The rows are identified by the key
+	 * columns of the retrieved ResultSet, or by their row key.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connect to.
+	 * @param bc  The BusinessComponent with the filter, field selection and scope
+	 *            of the query.
+	 */
+	public void bind(String tag, BusinessComponent bc) {
+		bind(tag, bc, Collections.<String>emptyList());
+	}
+
+	/**
+	 * Binds the given BusinessComponent to the tag, the rows are identified by
+	 * the given key columns.
+	 * 
+	 * @param tag        The tag, i.e. the resource path the clients connect to.
+	 * @param bc         The BusinessComponent with the filter, field selection
+	 *                   and scope of the query.
+	 * @param keyColumns The columns which build the row key.
+	 * 
+	 * @see #bind(String, BusinessComponent)
+	 */
+	public void bind(String tag, BusinessComponent bc, Collection<String> keyColumns) {
+		Channels.put(tag, new ResultSetChannel(tag, bc, keyColumns));
+	}
+
+	/**
+	 * Removes the snapshot and the binding of the tag. Connected clients are kept
+	 * but don't receive any further deltas.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connected to.
+	 */
+	public void unbind(String tag) {
+		Channels.remove(tag);
+	}
+
+	/**
+	 * Returns the live ResultSet of the tag.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connect to.
+	 * 
+	 * @return The channel, {@code null} if nothing was bound or published to the
+	 *         tag.
+	 */
+	public ResultSetChannel getChannel(String tag) {
+		return Channels.get(tag);
+	}
+
+	/**
+	 * Retrieves the BusinessComponent bound to the tag and sends the inserted,
+	 * updated and deleted rows to the clients of the tag, see
+	 * {@link #publish(String, ResultSet)}. Several calls within the coalescing
+	 * window retrieve the BusinessComponent only once.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connected to.
+	 * 
+	 * @throws Exception if no BusinessComponent is bound to the tag, or
+	 *                   retrieving it fails without a coalescing window
+	 */
+	public void publish(String tag) throws Exception {
+		ResultSetChannel channel = Channels.get(tag);
+		if (channel == null || channel.getBusinessComponent() == null)
+			throw new IllegalStateException("No BusinessComponent is bound to " + tag);
+		channel.setRefreshPending();
+		schedule(channel);
+	}
+
+	/**
+	 * Publishes the given ResultSet as the new state of the tag. The clients of
+	 * the tag receive the rows which were inserted, updated or deleted since the
+	 * last publication as one compact delta message, clients which connect later
+	 * receive the whole ResultSet as snapshot once. The message formats are
+	 * described at {@link ResultSetChannel}.
+	 * 
+	 * Publications within the coalescing window are combined: only the last
+	 * ResultSet is compared to the snapshot and sent, so a burst of updates
+	 * doesn't flood slow clients.
+	 * 
+	 * @param tag The tag, i.e. the resource path the clients connected to.
+	 * @param rs  The ResultSet, it must not be modified afterwards.
+	 * 
+	 * @throws Exception if the delta could not be computed without a coalescing
+	 *                   window, e.g. because a row has no key
+	 */
+	public void publish(String tag, ResultSet rs) throws Exception {
+		ResultSetChannel channel = Channels.computeIfAbsent(tag, ResultSetChannel::new);
+		channel.setPending(rs);
+		schedule(channel);
+	}
+
+	/**
+	 * Sets the time in milliseconds for which publications of a tag are collected
+	 * before the delta is sent, 0 sends every publication immediately on the
+	 * calling thread.
+	 * 
+	 * @param millis The coalescing window, {@link #DEFAULT_COALESCING_WINDOW} by
+	 *               default.
+	 */
+	public void setCoalescingWindow(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("The coalescing window must not be negative");
+		this.coalescingWindow = millis;
+	}
+
+	public long getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	private void schedule(ResultSetChannel channel) throws Exception {
+		long window = coalescingWindow;
+		if (window == 0) {
+			channel.scheduleFlush();
+			flush(channel);
+		} else if (channel.scheduleFlush()) {
+			getPublishScheduler().schedule(() -> {
+				try {
+					flush(channel);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}, window, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private synchronized ScheduledExecutorService getPublishScheduler() {
+		if (publishScheduler == null) {
+			publishScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "WsServer-publish");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return publishScheduler;
+	}
+
+	private void flush(ResultSetChannel channel) throws Exception {
+		ResultSet rs = channel.takePending();
+		if (rs == null)
+			return;
+		synchronized (channel) {
+			String delta = channel.update(rs);
+			if (delta != null)
+				send(channel.getTag(), delta);
+		}
 	}
 
+	@Override
+	public void stop(int timeout) throws InterruptedException {
+		super.stop(timeout);
+		synchronized (this) {
+			if (publishScheduler != null) {
+				publishScheduler.shutdownNow();
+				publishScheduler = null;
+			}
+		}
+	}
 
 //	public static void main( String[] args ) throws InterruptedException , IOException {
 //		WebSocketImpl.DEBUG = false;
@@ -197,8 +548,9 @@ public class WsServer extends WebSocketServer {
 	@Override
 	public void onError( WebSocket conn, Exception ex ) {
 		ex.printStackTrace();
-		if( conn != null ) {
-			// some errors like port binding failed may not be assignable to a specific websocket
+		// some errors like port binding failed may not be assignable to a specific websocket
+		if( conn != null && !conn.isOpen() ) {
+			deregisterConnection(conn);
 		}
 	}
 
@@ -264,4 +616,74 @@ public class WsServer extends WebSocketServer {
 		return ed;
 	}
 	
+
+	/**
+	 * Copies the written data to a fragmented message per connection. A
+	 * connection which is closed while the message is sent is left out, the
+	 * others still get the whole message.
+	 */
+	private static class FanOutOutputStream extends OutputStream {
+
+		private final List<OutputStream> streams = new ArrayList<>();
+
+		FanOutOutputStream(Collection<WebSocket> connections) {
+			for (WebSocket conn : connections)
+				streams.add(new FragmentOutputStream(conn, Framedata.Opcode.TEXT));
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			Iterator<OutputStream> it = streams.iterator();
+			while (it.hasNext()) {
+				OutputStream out = it.next();
+				try {
+					out.write(b, off, len);
+				} catch (IOException e) {
+					it.remove();
+					closeQuietly(out, e);
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			Iterator<OutputStream> it = streams.iterator();
+			while (it.hasNext()) {
+				OutputStream out = it.next();
+				try {
+					out.flush();
+				} catch (IOException e) {
+					it.remove();
+					closeQuietly(out, e);
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			for (OutputStream out : streams)
+				closeQuietly(out, null);
+			streams.clear();
+		}
+
+		private static void closeQuietly(OutputStream out, IOException cause) {
+			try {
+				// releases the message lock of the connection
+				out.close();
+			} catch (IOException e) {
+				if (cause == null)
+					cause = e;
+			}
+			// the connection was closed while the message was sent
+			if (cause != null && DEBUG)
+				cause.printStackTrace();
+		}
+
+	}
+
 }
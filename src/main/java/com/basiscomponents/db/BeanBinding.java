@@ -0,0 +1,484 @@
+package com.basiscomponents.db;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Converts between Java beans and DataRows without reflection per row. The
+ * properties of a bean class are introspected once, and their getters, setters
+ * and the no-arg constructor are bound to lambdas generated by the
+ * {@link LambdaMetafactory}, so a conversion costs about as much as calling the
+ * accessors directly. Beans which aren't public or not visible to this class
+ * loader are bound with plain {@link MethodHandle}s instead.
+ *
+ * The bindings are cached per class, see {@link #forClass(Class)}.
+ *
+ * @see DataRow#toBean(Class)
+ * @see DataRow#fromBean(Object)
+ * @see ResultSet#toBeans(Class)
+ * @see ResultSet#fromBeans(List)
+ */
+public final class BeanBinding<T> {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final ClassValue<BeanBinding<?>> BINDINGS = new ClassValue<BeanBinding<?>>() {
+		@Override
+		protected BeanBinding<?> computeValue(Class<?> type) {
+			return new BeanBinding<>(type);
+		}
+	};
+
+	/**
+	 * A bean property mapped to the field with its name.
+	 */
+	private static final class Property {
+
+		final String name;
+
+		final Class<?> type;
+
+		final int sqlType;
+
+		final boolean primitive;
+
+		// null if the property is write-only or read-only respectively
+		final Function<Object, Object> getter;
+
+		final BiConsumer<Object, Object> setter;
+
+		Property(String name, Class<?> type, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+			this.name = name;
+			this.type = box(type);
+			this.primitive = type.isPrimitive();
+			// java.util.Date values are stored as Timestamp, Character values as String
+			if (this.type == java.util.Date.class)
+				this.sqlType = java.sql.Types.TIMESTAMP;
+			else
+				this.sqlType = DataRow.getSqlType(type);
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		/**
+		 * Returns the value of the bean as it is stored in a DataField.
+		 */
+		Object get(Object bean) {
+			Object value = getter.apply(bean);
+			if (value == null)
+				return null;
+			if (type == java.util.Date.class && value.getClass() == java.util.Date.class)
+				return new java.sql.Timestamp(((java.util.Date) value).getTime());
+			if (type == Character.class)
+				return value.toString();
+			return value;
+		}
+
+		/**
+		 * Sets the value of a DataField to the bean, converted to the type of the
+		 * property. A null value leaves a primitive property unchanged.
+		 */
+		void set(Object bean, Object value) {
+			if (value == null) {
+				if (!primitive)
+					setter.accept(bean, null);
+				return;
+			}
+			if (!type.isInstance(value))
+				value = convert(value, type);
+			setter.accept(bean, value);
+		}
+	}
+
+	private final Class<T> beanClass;
+
+	private final Supplier<Object> constructor;
+
+	private final Property[] readable;
+
+	private final Property[] writable;
+
+	private final List<String> names;
+
+	private BeanBinding(Class<T> beanClass) {
+		this.beanClass = beanClass;
+		BeanInfo info;
+		try {
+			info = Introspector.getBeanInfo(beanClass, Object.class);
+		} catch (IntrospectionException e) {
+			throw new IllegalArgumentException("Could not introspect " + beanClass.getName(), e);
+		}
+		List<Property> readable = new ArrayList<>();
+		List<Property> writable = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		for (PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
+			Method read = descriptor.getReadMethod();
+			Method write = descriptor.getWriteMethod();
+			if (descriptor.getPropertyType() == null || (read == null && write == null))
+				continue;
+			Property property = new Property(descriptor.getName(), descriptor.getPropertyType(),
+					read == null ? null : getter(read), write == null ? null : setter(write));
+			if (read != null)
+				readable.add(property);
+			if (write != null)
+				writable.add(property);
+			names.add(property.name);
+		}
+		this.readable = readable.toArray(new Property[0]);
+		this.writable = writable.toArray(new Property[0]);
+		this.names = Collections.unmodifiableList(names);
+		this.constructor = constructor(beanClass);
+	}
+
+	/**
+	 * Returns the binding of the given bean class, which is created on first use.
+	 *
+	 * @param beanClass The class of the beans.
+	 * @param <T>       The type of the beans.
+	 *
+	 * @return The binding.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> BeanBinding<T> forClass(Class<T> beanClass) {
+		return (BeanBinding<T>) BINDINGS.get(beanClass);
+	}
+
+	public Class<T> getBeanClass() {
+		return beanClass;
+	}
+
+	/**
+	 * Returns the names of the bound properties, which are the field names of the
+	 * DataRows.
+	 *
+	 * @return The property names in alphabetical order.
+	 */
+	public List<String> getPropertyNames() {
+		return names;
+	}
+
+	/**
+	 * Creates a bean with the values of the fields of the DataRow which have the
+	 * name of a writable property. Other fields are ignored.
+	 *
+	 * @param dr The DataRow.
+	 *
+	 * @return The new bean.
+	 *
+	 * @throws IllegalArgumentException if the bean class has no accessible
+	 *                                  no-arg constructor, or a value can't be
+	 *                                  converted to the type of its property
+	 */
+	public T toBean(DataRow dr) {
+		Object bean = newBean();
+		for (Property property : writable) {
+			DataField field = dr.getDataField(property.name);
+			if (field != null)
+				property.set(bean, field.getValue());
+		}
+		return beanClass.cast(bean);
+	}
+
+	/**
+	 * Creates a bean for every DataRow of the ResultSet.
+	 *
+	 * @param rs The ResultSet.
+	 *
+	 * @return The beans in the order of the rows.
+	 */
+	public List<T> toBeans(ResultSet rs) {
+		// resolve the column of every property once, properties without a
+		// column are skipped for all rows
+		Property[] properties = new Property[writable.length];
+		ColumnHandle[] handles = new ColumnHandle[writable.length];
+		int count = 0;
+		for (Property property : writable) {
+			int column = rs.getColumnIndex(property.name);
+			if (column != -1) {
+				properties[count] = property;
+				handles[count++] = rs.getColumnHandle(column);
+			}
+		}
+		List<DataRow> rows = rs.getDataRows();
+		List<T> beans = new ArrayList<>(rows.size());
+		for (DataRow dr : rows) {
+			Object bean = newBean();
+			// a row added from another ResultSet has its own column indexes
+			boolean indexed = dr.isRowOf(rs);
+			for (int i = 0; i < count; i++) {
+				DataField field = indexed ? dr.getDataField(handles[i]) : dr.getDataField(handles[i].getName());
+				if (field != null)
+					properties[i].set(bean, field.getValue());
+			}
+			beans.add(beanClass.cast(bean));
+		}
+		return beans;
+	}
+
+	private Object newBean() {
+		if (constructor == null)
+			throw new IllegalArgumentException(beanClass.getName() + " has no accessible no-arg constructor");
+		return constructor.get();
+	}
+
+	/**
+	 * Creates a DataRow with a field for every readable property of the bean.
+	 *
+	 * @param bean The bean.
+	 *
+	 * @return The new DataRow.
+	 */
+	public DataRow fromBean(T bean) {
+		DataRow dr = new DataRow();
+		for (Property property : readable) {
+			dr.addDataField(property.name, property.sqlType, new DataField(property.get(bean)));
+		}
+		return dr;
+	}
+
+	/**
+	 * Creates a ResultSet with a column for every readable property and a
+	 * DataRow for every bean. The columns are added once, all DataRows share
+	 * them.
+	 *
+	 * @param beans The beans.
+	 *
+	 * @return The new ResultSet.
+	 */
+	public ResultSet fromBeans(List<? extends T> beans) {
+		ResultSet rs = new ResultSet();
+		for (Property property : readable) {
+			int column = rs.addColumn(property.name);
+			rs.setColumnType(column, property.sqlType);
+		}
+		// like the ResultSetPopulator, build the lazily created index up front
+		if (readable.length > 0)
+			rs.getColumnIndex(readable[0].name);
+		int row = 0;
+		for (T bean : beans) {
+			DataRow dr = DataRow.newInstance(rs);
+			for (Property property : readable) {
+				dr.putDataField(property.name, new DataField(property.get(bean)));
+			}
+			rs.appendPopulatedRow(dr, row++);
+		}
+		return rs;
+	}
+
+	// accessors
+
+	private static boolean canGenerate(Class<?> cls, int modifiers) {
+		if (!Modifier.isPublic(modifiers) || !Modifier.isPublic(cls.getModifiers()))
+			return false;
+		// the generated lambdas are defined in the class loader of this class
+		try {
+			return Class.forName(cls.getName(), false, BeanBinding.class.getClassLoader()) == cls;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Function<Object, Object> getter(Method method) {
+		try {
+			Class<?> cls = method.getDeclaringClass();
+			if (canGenerate(cls, method.getModifiers())) {
+				MethodHandle handle = LOOKUP.unreflect(method);
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+						MethodType.methodType(Object.class, Object.class), handle,
+						MethodType.methodType(box(method.getReturnType()), cls));
+				return (Function<Object, Object>) site.getTarget().invokeExact();
+			}
+			method.setAccessible(true);
+			MethodHandle handle = LOOKUP.unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+			return bean -> {
+				try {
+					return (Object) handle.invokeExact(bean);
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new IllegalStateException(e);
+				}
+			};
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalArgumentException("Could not bind " + method, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static BiConsumer<Object, Object> setter(Method method) {
+		try {
+			Class<?> cls = method.getDeclaringClass();
+			if (canGenerate(cls, method.getModifiers())) {
+				MethodHandle handle = LOOKUP.unreflect(method);
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+						MethodType.methodType(BiConsumer.class),
+						MethodType.methodType(void.class, Object.class, Object.class), handle,
+						MethodType.methodType(void.class, cls, box(method.getParameterTypes()[0])));
+				return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+			}
+			method.setAccessible(true);
+			MethodHandle handle = LOOKUP.unreflect(method)
+					.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			return (bean, value) -> {
+				try {
+					handle.invokeExact(bean, value);
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new IllegalStateException(e);
+				}
+			};
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalArgumentException("Could not bind " + method, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Supplier<Object> constructor(Class<?> cls) {
+		Constructor<?> constructor;
+		try {
+			constructor = cls.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+		if (Modifier.isAbstract(cls.getModifiers()))
+			return null;
+		try {
+			if (canGenerate(cls, constructor.getModifiers())) {
+				MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+						MethodType.methodType(Object.class), handle, MethodType.methodType(cls));
+				return (Supplier<Object>) site.getTarget().invokeExact();
+			}
+			constructor.setAccessible(true);
+			MethodHandle handle = LOOKUP.unreflectConstructor(constructor)
+					.asType(MethodType.methodType(Object.class));
+			return () -> {
+				try {
+					return (Object) handle.invokeExact();
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new IllegalStateException(e);
+				}
+			};
+		} catch (RuntimeException e) {
+			// e.g. the module of the class doesn't allow the access
+			return null;
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+	// conversions
+
+	private static Class<?> box(Class<?> type) {
+		if (!type.isPrimitive())
+			return type;
+		if (type == int.class)
+			return Integer.class;
+		if (type == long.class)
+			return Long.class;
+		if (type == double.class)
+			return Double.class;
+		if (type == boolean.class)
+			return Boolean.class;
+		if (type == float.class)
+			return Float.class;
+		if (type == short.class)
+			return Short.class;
+		if (type == byte.class)
+			return Byte.class;
+		if (type == char.class)
+			return Character.class;
+		return Void.class;
+	}
+
+	/**
+	 * Converts a DataField value to the (boxed) type of a property, e.g. the
+	 * BigDecimal of a numeric column to an int property.
+	 */
+	static Object convert(Object value, Class<?> type) {
+		if (type == String.class)
+			return value.toString();
+		if (value instanceof Number) {
+			Number number = (Number) value;
+			if (type == Integer.class)
+				return number.intValue();
+			if (type == Long.class)
+				return number.longValue();
+			if (type == Double.class)
+				return number.doubleValue();
+			if (type == Float.class)
+				return number.floatValue();
+			if (type == Short.class)
+				return number.shortValue();
+			if (type == Byte.class)
+				return number.byteValue();
+			if (type == BigDecimal.class)
+				return new BigDecimal(number.toString());
+			if (type == BigInteger.class)
+				return new BigDecimal(number.toString()).toBigInteger();
+			if (type == Boolean.class)
+				return number.intValue() != 0;
+		}
+		if (value instanceof String) {
+			String s = ((String) value).trim();
+			if (type == Integer.class)
+				return Integer.valueOf(s);
+			if (type == Long.class)
+				return Long.valueOf(s);
+			if (type == Double.class)
+				return Double.valueOf(s);
+			if (type == Float.class)
+				return Float.valueOf(s);
+			if (type == Short.class)
+				return Short.valueOf(s);
+			if (type == Byte.class)
+				return Byte.valueOf(s);
+			if (type == BigDecimal.class)
+				return new BigDecimal(s);
+			if (type == BigInteger.class)
+				return new BigInteger(s);
+			if (type == Boolean.class)
+				return s.equals("1") || s.equalsIgnoreCase("true");
+			if (type == Character.class && !s.isEmpty())
+				return ((String) value).charAt(0);
+		}
+		if (value instanceof java.util.Date) {
+			long time = ((java.util.Date) value).getTime();
+			if (type == java.sql.Timestamp.class)
+				return new java.sql.Timestamp(time);
+			if (type == java.sql.Date.class)
+				return new java.sql.Date(time);
+			if (type == java.sql.Time.class)
+				return new java.sql.Time(time);
+		}
+		throw new IllegalArgumentException(
+				"Cannot convert " + value.getClass().getName() + " value to " + type.getName());
+	}
+
+}
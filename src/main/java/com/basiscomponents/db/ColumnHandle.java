@@ -0,0 +1,60 @@
+package com.basiscomponents.db;
+
+/**
+ * A resolved reference to a column of a ResultSet. The handle carries the
+ * column's name, index and SQL type, so that the typed accessors of
+ * {@link DataRow} and {@link ResultSet} which take a ColumnHandle don't have to
+ * resolve the column name or look up the column metadata on every call.<br>
+ * <br>
+ * A handle is obtained via {@link ResultSet#getColumnHandle(String)} or
+ * {@link DataRow#getColumnHandle(String)}. Handles should be resolved once
+ * before iterating over the rows and should be re-resolved after the columns of
+ * the ResultSet have been changed.
+ */
+public final class ColumnHandle {
+
+	private final String name;
+
+	private final int column;
+
+	private final int type;
+
+	ColumnHandle(String name, int column, int type) {
+		this.name = name;
+		this.column = column;
+		this.type = type;
+	}
+
+	/**
+	 * Returns the name of the column.
+	 *
+	 * @return the column's name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the index of the column at the time the handle was resolved.
+	 *
+	 * @return the column's index
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Returns the SQL type of the column at the time the handle was resolved.
+	 *
+	 * @return the column's SQL type
+	 */
+	public int getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return name + "(" + column + ")";
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.basiscomponents.db;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The ColumnMetaData class is an immutable, typed snapshot of the metadata of a
+ * single column of a {@link ResultSet}. The SQL type, precision, scale and the
+ * boolean properties of the column are held in primitive fields, all remaining
+ * String valued metadata entries (like custom attributes) are held in an
+ * unmodifiable attribute map. Equal attribute maps are interned, so that
+ * ResultSets with the same structure share the same map instances.<br>
+ * <br>
+ * Instances are created by a {@link Schema}, see {@link ResultSet#getSchema()}.
+ */
+public final class ColumnMetaData {
+
+	private static final int AUTO_INCREMENT = 1;
+	private static final int CASE_SENSITIVE = 1 << 1;
+	private static final int CURRENCY = 1 << 2;
+	private static final int DEFINITELY_WRITABLE = 1 << 3;
+	private static final int READ_ONLY = 1 << 4;
+	private static final int SEARCHABLE = 1 << 5;
+	private static final int SIGNED = 1 << 6;
+	private static final int WRITABLE = 1 << 7;
+
+	private static final Map<Map<String, String>, WeakReference<Map<String, String>>> INTERNED = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	private final String name;
+
+	private final int type;
+
+	private final int precision;
+
+	private final int scale;
+
+	private final int displaySize;
+
+	private final int nullable;
+
+	private final int flags;
+
+	private final Map<String, String> attributes;
+
+	ColumnMetaData(Map<String, Object> metaData) {
+		this.name = stringOf(metaData.get("ColumnName"));
+		this.type = intOf(metaData.get("ColumnType"), 0);
+		this.precision = intOf(metaData.get("Precision"), 0);
+		this.scale = intOf(metaData.get("Scale"), 0);
+		this.displaySize = intOf(metaData.get("ColumnDisplaySize"), 10);
+		this.nullable = intOf(metaData.get("Nullable"), java.sql.ResultSetMetaData.columnNullableUnknown);
+		int f = 0;
+		f |= flagOf(metaData.get("AutoIncrement"), AUTO_INCREMENT);
+		f |= flagOf(metaData.get("CaseSensitive"), CASE_SENSITIVE);
+		f |= flagOf(metaData.get("Currency"), CURRENCY);
+		f |= flagOf(metaData.get("DefinitelyWritable"), DEFINITELY_WRITABLE);
+		f |= flagOf(metaData.get("ReadOnly"), READ_ONLY);
+		f |= flagOf(metaData.get("Searchable"), SEARCHABLE);
+		f |= flagOf(metaData.get("Signed"), SIGNED);
+		f |= flagOf(metaData.get("Writable"), WRITABLE);
+		this.flags = f;
+
+		Map<String, String> attr = new HashMap<>();
+		for (Map.Entry<String, Object> entry : metaData.entrySet()) {
+			if (entry.getValue() instanceof String)
+				attr.put(entry.getKey(), (String) entry.getValue());
+		}
+		this.attributes = intern(attr);
+	}
+
+	private static Map<String, String> intern(Map<String, String> map) {
+		synchronized (INTERNED) {
+			WeakReference<Map<String, String>> ref = INTERNED.get(map);
+			Map<String, String> interned = ref == null ? null : ref.get();
+			if (interned == null) {
+				interned = Collections.unmodifiableMap(map);
+				INTERNED.put(interned, new WeakReference<>(interned));
+			}
+			return interned;
+		}
+	}
+
+	private static String stringOf(Object o) {
+		return o == null ? "" : o.toString();
+	}
+
+	private static int intOf(Object o, int defaultValue) {
+		if (o instanceof Number)
+			return ((Number) o).intValue();
+		if (o instanceof String) {
+			try {
+				return Integer.parseInt(((String) o).trim());
+			} catch (NumberFormatException e) {
+				return defaultValue;
+			}
+		}
+		return defaultValue;
+	}
+
+	private static int flagOf(Object o, int flag) {
+		if (o instanceof Boolean)
+			return (Boolean) o ? flag : 0;
+		if (o instanceof String)
+			return Boolean.parseBoolean((String) o) ? flag : 0;
+		return 0;
+	}
+
+	/**
+	 * Returns the name of the column, or an empty String if it isn't set.
+	 *
+	 * @return the column's name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the SQL type of the column, or 0 if it isn't set.
+	 *
+	 * @return the column's SQL type
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the precision of the column, or 0 if it isn't set.
+	 *
+	 * @return the column's precision
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Returns the scale of the column, or 0 if it isn't set.
+	 *
+	 * @return the column's scale
+	 */
+	public int getScale() {
+		return scale;
+	}
+
+	/**
+	 * Returns the display size of the column, or 10 if it isn't set.
+	 *
+	 * @return the column's display size
+	 */
+	public int getDisplaySize() {
+		return displaySize;
+	}
+
+	/**
+	 * Returns the nullability of the column as defined in
+	 * {@link java.sql.ResultSetMetaData}.
+	 *
+	 * @return the column's nullability
+	 */
+	public int getNullable() {
+		return nullable;
+	}
+
+	public boolean isAutoIncrement() {
+		return (flags & AUTO_INCREMENT) != 0;
+	}
+
+	public boolean isCaseSensitive() {
+		return (flags & CASE_SENSITIVE) != 0;
+	}
+
+	public boolean isCurrency() {
+		return (flags & CURRENCY) != 0;
+	}
+
+	public boolean isDefinitelyWritable() {
+		return (flags & DEFINITELY_WRITABLE) != 0;
+	}
+
+	public boolean isReadOnly() {
+		return (flags & READ_ONLY) != 0;
+	}
+
+	public boolean isSearchable() {
+		return (flags & SEARCHABLE) != 0;
+	}
+
+	public boolean isSigned() {
+		return (flags & SIGNED) != 0;
+	}
+
+	public boolean isWritable() {
+		return (flags & WRITABLE) != 0;
+	}
+
+	/**
+	 * Returns the value of the String valued metadata entry with the given name,
+	 * or null if no such entry exists.
+	 *
+	 * @param name The attribute's name.
+	 *
+	 * @return the attribute's value or null
+	 */
+	public String getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	/**
+	 * Returns the unmodifiable map of all String valued metadata entries of the
+	 * column. Columns with equal attributes share the same map instance.
+	 *
+	 * @return the column's attributes
+	 */
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public String toString() {
+		return name + "(" + type + ")";
+	}
+
+}
@@ -39,7 +39,8 @@ public class DataField implements java.io.Serializable {
 	@Expose
 	private Object Value;
 
-	private Map<String, Attribute> attributes = new HashMap<>();
+	// allocated on first use, most fields never carry attributes
+	private Map<String, Attribute> attributes;
 	private static final Logger LOGGER = Logger.getLogger(DataField.class.getName());
 	/**
 	 * Creates the DataField object with the given object as the DataField's value
@@ -137,7 +138,8 @@ public class DataField implements java.io.Serializable {
 	 *            The object to set as the DataField's value
 	 */
 	public void setValue(Object value) {
-		this.attributes.remove("ETAG");
+		if (this.attributes != null)
+			this.attributes.remove("ETAG");
 		this.Value = value;
 	}
 
@@ -416,7 +418,7 @@ public class DataField implements java.io.Serializable {
 	}
 
 	public String getEtag() {
-		if (this.attributes.containsKey("ETAG")) {
+		if (this.attributes != null && this.attributes.containsKey("ETAG")) {
 			return this.attributes.get("ETAG").getValue();
 		}
 		return createEtag();
@@ -432,10 +434,12 @@ public class DataField implements java.io.Serializable {
 	 *            The attribute's value.
 	 */
 	public void setAttribute(String attributeName, String attributeValue) {
-		this.attributes.put(attributeName, Attribute.createString(attributeValue));
+		setAttribute(attributeName, Attribute.createString(attributeValue));
 	}
 
 	public void setAttribute(String attributeName, Attribute attributeValue) {
+		if (this.attributes == null)
+			this.attributes = new HashMap<>();
 		this.attributes.put(attributeName, attributeValue);
 	}
 
@@ -448,6 +452,8 @@ public class DataField implements java.io.Serializable {
 	 * @return attributeValue The attribute's value.
 	 */
 	public String getAttribute(String attributeName) {
+		if (this.attributes == null)
+			return null;
 		Attribute at = this.attributes.get(attributeName);
 		if (at == null)
 			return null;
@@ -463,6 +469,8 @@ public class DataField implements java.io.Serializable {
 	 *         the DataField's attributes and their values.
 	 */
 	public Map<String, String> getAttributes() {
+		if (this.attributes == null)
+			return new HashMap<>();
 		return this.attributes.entrySet().stream()
 				.collect(Collectors.toMap(Entry::getKey, e -> e.getValue().getValue()));
 
@@ -488,7 +496,8 @@ public class DataField implements java.io.Serializable {
 	 *            The name of the attribute to remove.
 	 */
 	public void removeAttribute(String attributeName) {
-		this.attributes.remove(attributeName);
+		if (this.attributes != null)
+			this.attributes.remove(attributeName);
 	}
 
 	@Override
@@ -501,8 +510,8 @@ public class DataField implements java.io.Serializable {
 			e.printStackTrace();
 		}
 
-		if (f != null) {
-			for (Entry<String, Attribute> e : attributes.entrySet()) {
+		if (f != null && this.attributes != null) {
+			for (Entry<String, Attribute> e : this.attributes.entrySet()) {
 				f.setAttribute(e.getKey(), e.getValue());
 			}
 		}
@@ -528,7 +537,7 @@ public class DataField implements java.io.Serializable {
 	}
 
 	public Map<String, Attribute> getAttributes2() {
-		return new HashMap<>(this.attributes);
+		return this.attributes == null ? new HashMap<>() : new HashMap<>(this.attributes);
 	}
 
 	public String createEtag() {
@@ -538,7 +547,7 @@ public class DataField implements java.io.Serializable {
 			MessageDigest md = MessageDigest.getInstance("MD5");
 			byte[] thedigest = md.digest(baos.toByteArray());
 			String etag = DatatypeConverter.printHexBinary(thedigest);
-			this.attributes.put("ETAG", Attribute.createString(etag));
+			setAttribute("ETAG", Attribute.createString(etag));
 
 			return DatatypeConverter.printHexBinary(thedigest);
 		} catch (NoSuchAlgorithmException | IOException e) {
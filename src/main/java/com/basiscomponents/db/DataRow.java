@@ -42,10 +42,16 @@ public class DataRow implements java.io.Serializable {
 
 	private final Map<String, DataField> dataFields = new HashMap<>();
 
-	private final Map<String, String> attributes = new HashMap<>();
+	// allocated on first use
+	private Map<String, String> attributes;
 
 	private final ResultSet resultSet; // containing this row
 
+	// the fields by column index, see getField(ColumnHandle, boolean)
+	private transient DataField[] columnFields;
+
+	private transient int columnFieldsVersion;
+
 	private byte[] rowKey = new byte[0];
 
 	private int rowID;
@@ -182,7 +188,7 @@ public class DataRow implements java.io.Serializable {
 	 *         field name, false otherwise.
 	 */
 	public Boolean contains(String name) {
-		return this.resultSet.getColumnNames().contains(name);
+		return this.resultSet.getColumnIndex(name) != -1;
 	}
 
 	/**
@@ -195,6 +201,8 @@ public class DataRow implements java.io.Serializable {
 	 */
 	public void setAttribute(String name, String value) {
 		templateChanged = true;
+		if (this.attributes == null)
+			this.attributes = new HashMap<>();
 		this.attributes.put(name, value);
 	}
 
@@ -208,7 +216,7 @@ public class DataRow implements java.io.Serializable {
 	 *         exists
 	 */
 	public String getAttribute(String name) {
-		return this.attributes.get(name);
+		return this.attributes == null ? null : this.attributes.get(name);
 	}
 
 	/**
@@ -217,7 +225,7 @@ public class DataRow implements java.io.Serializable {
 	 * @return attributesMap The java.util.HashMap with this DataRow's attributes
 	 */
 	public HashMap<String, String> getAttributes() {
-		return new HashMap<>(attributes);
+		return this.attributes == null ? new HashMap<>() : new HashMap<>(this.attributes);
 	}
 
 	/**
@@ -229,7 +237,8 @@ public class DataRow implements java.io.Serializable {
 	 */
 	public void removeAttribute(String name) {
 		templateChanged = true;
-		this.attributes.remove(name);
+		if (this.attributes != null)
+			this.attributes.remove(name);
 	}
 
 	@Override
@@ -264,11 +273,8 @@ public class DataRow implements java.io.Serializable {
 	 */
 	public void setFieldValue(final String name, Object value) throws ParseException {
 
-		if (value != null) {
-			String c = value.getClass().getCanonicalName();
-			if (c.contains("BBjNumber") || c.contains("BBjInt")) {
-				value = Double.parseDouble(value.toString());
-			}
+		if (value != null && DataFieldConverter.isBBjNumber(value.getClass())) {
+			value = Double.parseDouble(value.toString());
 		}
 
 		DataField field = null;
@@ -318,13 +324,8 @@ public class DataRow implements java.io.Serializable {
 
 		DataField field = null;
 
-		String c = "";
-
 		value = DataField.convertType(value, type);
-		if (value != null) {
-			c = value.getClass().getCanonicalName();
-		}
-		if (c.contains("BBjNumber") || c.contains("BBjInt")) {
+		if (value != null && DataFieldConverter.isBBjNumber(value.getClass())) {
 			value = Double.parseDouble(value.toString());
 		}
 
@@ -501,6 +502,369 @@ public class DataRow implements java.io.Serializable {
 		return DataFieldConverter.fieldToNumber(resultSet, field, column, type);
 	}
 
+	/**
+	 * Returns a {@link ColumnHandle} for the column with the specified name. The
+	 * handle can be passed to the typed getters and setters of this DataRow (and
+	 * of all other DataRows of the same ResultSet) to skip the column lookup.
+	 *
+	 * @param name
+	 *            The name of the column
+	 * @return handle The ColumnHandle for the column
+	 *
+	 * @throws DataFieldNotFoundException
+	 *             The specified column name doesn't exist
+	 */
+	public ColumnHandle getColumnHandle(String name) {
+		return this.resultSet.getColumnHandle(name);
+	}
+
+	/**
+	 * Returns the value of the field at the specified column index as a primitive
+	 * int. A <code>null</code> value is returned as 0.
+	 *
+	 * @param column
+	 *            The column index
+	 * @return value The field's value as int
+	 */
+	public int getInt(int column) {
+		return getInt(columnHandle(column));
+	}
+
+	/**
+	 * Returns the value of the field referenced by the given handle as a primitive
+	 * int. A <code>null</code> value is returned as 0.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @return value The field's value as int
+	 */
+	public int getInt(ColumnHandle handle) {
+		DataField field = getField(handle, false);
+		Object value = field.getValue();
+		if (value instanceof Number)
+			return ((Number) value).intValue();
+		return (int) toDouble(field, handle);
+	}
+
+	/**
+	 * Returns the value of the field at the specified column index as a primitive
+	 * long. A <code>null</code> value is returned as 0.
+	 *
+	 * @param column
+	 *            The column index
+	 * @return value The field's value as long
+	 */
+	public long getLong(int column) {
+		return getLong(columnHandle(column));
+	}
+
+	/**
+	 * Returns the value of the field referenced by the given handle as a primitive
+	 * long. A <code>null</code> value is returned as 0.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @return value The field's value as long
+	 */
+	public long getLong(ColumnHandle handle) {
+		DataField field = getField(handle, false);
+		Object value = field.getValue();
+		if (value instanceof Number)
+			return ((Number) value).longValue();
+		return (long) toDouble(field, handle);
+	}
+
+	/**
+	 * Returns the value of the field at the specified column index as a primitive
+	 * double. A <code>null</code> value is returned as 0.
+	 *
+	 * @param column
+	 *            The column index
+	 * @return value The field's value as double
+	 */
+	public double getDouble(int column) {
+		return getDouble(columnHandle(column));
+	}
+
+	/**
+	 * Returns the value of the field referenced by the given handle as a primitive
+	 * double. A <code>null</code> value is returned as 0.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @return value The field's value as double
+	 */
+	public double getDouble(ColumnHandle handle) {
+		DataField field = getField(handle, false);
+		Object value = field.getValue();
+		if (value instanceof Number)
+			return ((Number) value).doubleValue();
+		return toDouble(field, handle);
+	}
+
+	/**
+	 * Returns the value of the field at the specified column index as a primitive
+	 * boolean. A <code>null</code> value is returned as false.
+	 *
+	 * @param column
+	 *            The column index
+	 * @return value The field's value as boolean
+	 */
+	public boolean getBoolean(int column) {
+		return getBoolean(columnHandle(column));
+	}
+
+	/**
+	 * Returns the value of the field referenced by the given handle as a primitive
+	 * boolean. A <code>null</code> value is returned as false.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @return value The field's value as boolean
+	 */
+	public boolean getBoolean(ColumnHandle handle) {
+		DataField field = getField(handle, false);
+		Object value = field.getValue();
+		if (value instanceof Boolean)
+			return (Boolean) value;
+		if (value == null)
+			return false;
+		Boolean b = field.getBoolean();
+		return b != null && b;
+	}
+
+	/**
+	 * Sets the given int value for the field with the specified name. In case no
+	 * field with the specified name exists, it will be created as INTEGER field.
+	 *
+	 * @param name
+	 *            The name of the field
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setInt(String name, int value) {
+		setPrimitive(name, java.sql.Types.INTEGER, Integer.valueOf(value));
+	}
+
+	/**
+	 * Sets the given int value for the field at the specified column index.
+	 *
+	 * @param column
+	 *            The column index
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setInt(int column, int value) {
+		setInt(columnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given int value for the field referenced by the given handle.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setInt(ColumnHandle handle, int value) {
+		setPrimitive(handle, java.sql.Types.INTEGER, Integer.valueOf(value));
+	}
+
+	/**
+	 * Sets the given long value for the field with the specified name. In case no
+	 * field with the specified name exists, it will be created as BIGINT field.
+	 *
+	 * @param name
+	 *            The name of the field
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setLong(String name, long value) {
+		setPrimitive(name, java.sql.Types.BIGINT, Long.valueOf(value));
+	}
+
+	/**
+	 * Sets the given long value for the field at the specified column index.
+	 *
+	 * @param column
+	 *            The column index
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setLong(int column, long value) {
+		setLong(columnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given long value for the field referenced by the given handle.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setLong(ColumnHandle handle, long value) {
+		setPrimitive(handle, java.sql.Types.BIGINT, Long.valueOf(value));
+	}
+
+	/**
+	 * Sets the given double value for the field with the specified name. In case
+	 * no field with the specified name exists, it will be created as DOUBLE field.
+	 *
+	 * @param name
+	 *            The name of the field
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setDouble(String name, double value) {
+		setPrimitive(name, java.sql.Types.DOUBLE, Double.valueOf(value));
+	}
+
+	/**
+	 * Sets the given double value for the field at the specified column index.
+	 *
+	 * @param column
+	 *            The column index
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setDouble(int column, double value) {
+		setDouble(columnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given double value for the field referenced by the given handle.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setDouble(ColumnHandle handle, double value) {
+		setPrimitive(handle, java.sql.Types.DOUBLE, Double.valueOf(value));
+	}
+
+	/**
+	 * Sets the given boolean value for the field with the specified name. In case
+	 * no field with the specified name exists, it will be created as BOOLEAN
+	 * field.
+	 *
+	 * @param name
+	 *            The name of the field
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setBoolean(String name, boolean value) {
+		setPrimitive(name, java.sql.Types.BOOLEAN, Boolean.valueOf(value));
+	}
+
+	/**
+	 * Sets the given boolean value for the field at the specified column index.
+	 *
+	 * @param column
+	 *            The column index
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setBoolean(int column, boolean value) {
+		setBoolean(columnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given boolean value for the field referenced by the given handle.
+	 *
+	 * @param handle
+	 *            The column handle
+	 * @param value
+	 *            The value of the field
+	 */
+	public void setBoolean(ColumnHandle handle, boolean value) {
+		setPrimitive(handle, java.sql.Types.BOOLEAN, Boolean.valueOf(value));
+	}
+
+	private ColumnHandle columnHandle(int column) {
+		return this.resultSet.getColumnHandle(column);
+	}
+
+	/*
+	 * Returns the field of the handle's column by its index. The index of the
+	 * fields is rebuilt after the fields of this row changed, or the columns of
+	 * the ResultSet were moved.
+	 */
+	private DataField getField(ColumnHandle handle, boolean silent) {
+		DataField[] fields = this.columnFields;
+		if (fields == null || this.columnFieldsVersion != this.resultSet.getColumnsVersion())
+			fields = indexFields();
+		int column = handle.getColumn();
+		DataField field = column < fields.length ? fields[column] : null;
+		if (field == null) {
+			// a column added to the ResultSet after the index was built
+			field = getField(handle.getName(), silent);
+		}
+		return field;
+	}
+
+	/*
+	 * Returns the field of the handle's column, or null if this row has no such
+	 * field. The handle has to be resolved on the ResultSet containing this row,
+	 * see isRowOf(ResultSet).
+	 */
+	DataField getDataField(ColumnHandle handle) {
+		return getField(handle, true);
+	}
+
+	/*
+	 * Returns whether this row belongs to the given ResultSet, i.e. whether the
+	 * handles resolved on it refer to the columns of this row. A row added to
+	 * another ResultSet keeps the columns of its own.
+	 */
+	boolean isRowOf(ResultSet rs) {
+		return this.resultSet == rs;
+	}
+
+	private DataField[] indexFields() {
+		List<String> names = this.resultSet.getColumnNames();
+		DataField[] fields = new DataField[names.size()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = this.dataFields.get(names.get(i));
+		}
+		this.columnFields = fields;
+		this.columnFieldsVersion = this.resultSet.getColumnsVersion();
+		return fields;
+	}
+
+	private double toDouble(DataField field, ColumnHandle handle) {
+		if (field.getValue() == null)
+			return 0;
+		Double d = DataFieldConverter.fieldToNumber(this.resultSet, field, handle.getColumn(), handle.getType());
+		return d == null ? 0 : d;
+	}
+
+	/*
+	 * The value only has to be converted in case the column has a different
+	 * type than the primitive, the BBj number checks of setFieldValue don't apply
+	 * here.
+	 */
+	private void setPrimitive(String name, int nativeType, Object value) {
+		DataField field = this.dataFields.get(name);
+		if (field == null) {
+			addDataField(name, nativeType, new DataField(value));
+			return;
+		}
+		int type = getFieldType(name);
+		field.setValue(type == nativeType ? value : DataFieldConverter.convertType(value, type));
+	}
+
+	private void setPrimitive(ColumnHandle handle, int nativeType, Object value) {
+		DataField field = getField(handle, true);
+		if (field == null) {
+			setPrimitive(handle.getName(), nativeType, value);
+			return;
+		}
+		int type = handle.getType();
+		field.setValue(type == nativeType ? value : DataFieldConverter.convertType(value, type));
+	}
+
 	/**
 	 * Returns the index of the column with the specified name.<br>
 	 * <br>
@@ -855,6 +1219,7 @@ public class DataRow implements java.io.Serializable {
 			this.resultSet.removeColumn(column);
 
 		this.dataFields.remove(fieldName);
+		this.columnFields = null;
 
 	}
 
@@ -1003,9 +1368,21 @@ public class DataRow implements java.io.Serializable {
 	 */
 	public void addDataField(String fieldName, DataField dataField) {
 		Object o = dataField.getObject(); // default
+		int type = getSqlType(o.getClass());
+		addDataField(fieldName, type, dataField);
+	}
+
+	/**
+	 * Returns the SQL type of a field holding values of the given class.
+	 *
+	 * @param cls
+	 *            The class of the values
+	 * @return type The SQL type, {@link java.sql.Types#OTHER} for an unknown class
+	 */
+	static int getSqlType(Class<?> cls) {
 		int type;
 
-		String typeName = o.getClass().getCanonicalName();
+		String typeName = cls.getCanonicalName();
 		if (typeName != null && typeName.startsWith("[")) {
 			if (typeName.contains("byte"))
 				type = java.sql.Types.ARRAY;
@@ -1093,7 +1470,7 @@ public class DataRow implements java.io.Serializable {
 		} else {
 			type = java.sql.Types.OTHER;
 		}
-		addDataField(fieldName, type, dataField);
+		return type;
 	}
 
 	/**
@@ -1119,6 +1496,19 @@ public class DataRow implements java.io.Serializable {
 			this.resultSet.setColumnType(column, sqlType);
 		}
 		this.dataFields.put(fieldName, dataField);
+		this.columnFields = null;
+	}
+
+	/**
+	 * Adds the given DataField without looking up the column in the ResultSet.
+	 * Used when the column is known to exist, e.g. by the worker threads of a
+	 * pipelined {@link ResultSet#populate(java.sql.ResultSet, Boolean, int)},
+	 * which must not modify the ResultSet.
+	 */
+	void putDataField(String fieldName, DataField dataField) {
+		this.templateChanged = true;
+		this.dataFields.put(fieldName, dataField);
+		this.columnFields = null;
 	}
 
 	/**
@@ -1421,6 +1811,34 @@ public class DataRow implements java.io.Serializable {
 		return null;
 	}
 
+	/**
+	 * Creates a bean of the given class with the values of the fields which have
+	 * the name of one of its properties.
+	 *
+	 * @param beanClass
+	 *            The class of the bean, with a no-arg constructor
+	 * @return bean The new bean
+	 *
+	 * @see BeanBinding
+	 */
+	public <T> T toBean(Class<T> beanClass) {
+		return BeanBinding.forClass(beanClass).toBean(this);
+	}
+
+	/**
+	 * Creates a DataRow with a field for every property of the given bean.
+	 *
+	 * @param bean
+	 *            The bean
+	 * @return dataRow The new DataRow
+	 *
+	 * @see BeanBinding
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static DataRow fromBean(Object bean) {
+		return ((BeanBinding) BeanBinding.forClass(bean.getClass())).fromBean(bean);
+	}
+
 	/**
 	 * Returns this DataRow as a JRDataSource
 	 * 
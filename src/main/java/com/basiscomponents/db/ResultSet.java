@@ -3,6 +3,7 @@ package com.basiscomponents.db;
 import static com.basiscomponents.util.StringHelper.invert;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Array;
@@ -17,6 +18,7 @@ import java.sql.Timestamp;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -30,6 +32,7 @@ import java.util.logging.Logger;
 import com.basis.util.common.BasisNumber;
 import com.basis.util.common.Template;
 import com.basis.util.common.TemplateInfo;
+import com.basiscomponents.db.exception.DataFieldNotFoundException;
 import com.basiscomponents.db.sql.SQLResultSet;
 import com.basiscomponents.db.util.BBTemplateProvider;
 import com.basiscomponents.db.util.JRDataSourceAdapter;
@@ -65,6 +68,16 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	private ArrayList<DataRow> DataRows = new ArrayList<>();
 	private ArrayList<String> FieldSelection;
 
+	// typed view of MetaData, null entries are rebuilt on demand
+	private transient ArrayList<ColumnMetaData> columnMetaData;
+	private transient HashMap<String, Integer> columnIndex;
+	private transient int indexedColumns;
+	private transient Schema schema;
+	// the handles by column, null entries are resolved on demand
+	private transient ArrayList<ColumnHandle> columnHandles;
+	// counts the changes which move columns, see DataRow#getField(ColumnHandle, boolean)
+	private transient int columnsVersion;
+
 	private ArrayList<String> KeyColumns = new ArrayList<>();
 	private String KeyTemplateString = "";
 	private Template KeyTemplate = null;
@@ -109,13 +122,38 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return
 	 */
 	public ResultSet clone(Boolean fDeepClone) {
-		if (!fDeepClone)
-			return new ResultSet(MetaData, ColumnNames, DataRows, KeyColumns);
-		ResultSet rs = new ResultSet();
+		if (!fDeepClone) {
+			ResultSet rs = new ResultSet(MetaData, ColumnNames, DataRows, KeyColumns);
+			copyMetaDataTo(rs);
+			return rs;
+		}
+		ResultSet rs = createEmptyCopy();
 		this.DataRows.stream().map(DataRow::clone).forEach(rs::add);
 		return rs;
 	}
 
+	/**
+	 * Creates an empty ResultSet with a copy of this ResultSet's metadata and key
+	 * columns.
+	 * 
+	 * @return the empty ResultSet
+	 */
+	ResultSet createEmptyCopy() {
+		ResultSet rs = new ResultSet(this.MetaData, this.ColumnNames, this.KeyColumns);
+		copyMetaDataTo(rs);
+		return rs;
+	}
+
+	/**
+	 * Returns a {@link ResultSetView} on all DataRows of this ResultSet. Views can
+	 * be sorted, filtered and paged without copying the DataRows.
+	 * 
+	 * @return a view on this ResultSet
+	 */
+	public ResultSetView view() {
+		return new ResultSetView(this);
+	}
+
 
 	/**
 	 * re-orders a result set according to an ORDER BY clause like in SQL ORDER BY:
@@ -126,9 +164,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @throws Exception
 	 */
 	public ResultSet orderBy(String orderByClause) throws Exception {
-		ResultSet rs = this.clone();
-		rs.orderByColumn(new DataRowMultifieldComparator(orderByClause));
-		return rs;
+		return view().orderBy(orderByClause).materialize(true);
 	}
 
 	/**
@@ -197,14 +233,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public ResultSet filterBy(String QueryClause, final boolean caseSensitive, final boolean trimmed) throws Exception{
 		LOGGER.warning("WARNING: using experimental method implementation filterBy clause on ResultSet");
-		ResultSet r = new ResultSet(this.MetaData, this.ColumnNames, this.KeyColumns);
-		Iterator<DataRow> it = this.iterator();
-		while (it.hasNext()) {
-			DataRow dr = it.next();
-			if (DataRowQueryMatcher.matches(QueryClause, dr, caseSensitive, trimmed))
-				r.add(dr);
-		}
-		return r;
+		return view().filterBy(QueryClause, caseSensitive, trimmed).materialize();
 	}
 
 	/**
@@ -218,20 +247,24 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return a ResultSet with the DataRows found in the current instance.
 	 */
 	public ResultSet filterBy(DataRow simpleFilterCondition) throws Exception {
-		ResultSet resultSet = new ResultSet(this.MetaData, this.ColumnNames, this.KeyColumns);
-		if (size() == 0) {
-			return resultSet;
-		}
-		final SimpleFilterHelper sfh = new SimpleFilterHelper(simpleFilterCondition, get(0));
+		return view().filterBy(simpleFilterCondition).materialize();
+	}
 
-		Iterator<DataRow> dataRowIterator = this.iterator();
-		while (dataRowIterator.hasNext()) {
-			DataRow dataRow = dataRowIterator.next();
-			if (sfh.matches(dataRow)) {
-				resultSet.add(dataRow);
-			}
-		}
-		return resultSet;
+	/**
+	 * Matches a single DataRow, used by the filter methods of ResultSet and
+	 * ResultSetView.
+	 */
+	@FunctionalInterface
+	interface RowMatcher {
+		boolean matches(DataRow dataRow) throws Exception;
+	}
+
+	RowMatcher queryMatcher(String queryClause, final boolean caseSensitive, final boolean trimmed) {
+		return dataRow -> DataRowQueryMatcher.matches(queryClause, dataRow, caseSensitive, trimmed);
+	}
+
+	RowMatcher simpleFilterMatcher(DataRow simpleFilterCondition, DataRow metadata) throws Exception {
+		return new SimpleFilterHelper(simpleFilterCondition, metadata)::matches;
 	}
 
 	private class SimpleFilterHelper {
@@ -328,8 +361,35 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @param defaultMetaData
 	 * @throws Exception
 	 */
-	// NOTE: java.sql.ResultSet is 1-based, ours is 0-based
 	public void populate(java.sql.ResultSet rs, Boolean defaultMetaData) throws Exception {
+		populate(rs, defaultMetaData, 1);
+	}
+
+	/**
+	 * Iterates over the given {@code java.sql.ResultSet} object and adds a DataRow
+	 * object for each record of it to this ResultSet, see
+	 * {@link #populate(java.sql.ResultSet, Boolean)}.
+	 * 
+	 * If more than one thread is requested, the population is pipelined: the
+	 * calling thread only reads the raw column values from the cursor into
+	 * batches, while a pool of worker threads creates the DataRow objects, calls
+	 * the {@link ResultSetListener} and builds the row keys. The batches are
+	 * appended in cursor order and the number of batches in flight is bounded, so
+	 * the cursor waits when the workers fall behind.<br>
+	 * <br>
+	 * <b>Note: </b>When pipelined, a registered ResultSetListener is called
+	 * concurrently from the worker threads and must be thread-safe. The row ID
+	 * passed to the listener is the position of the record in the cursor; the
+	 * final row ID is assigned when the row is appended.
+	 * 
+	 * @param rs The java.sql.ResultSet to read the records from.
+	 * @param defaultMetaData Whether to use the metadata of the java.sql.ResultSet.
+	 * @param threads The number of worker threads, 1 or less for serial population.
+	 * 
+	 * @throws Exception
+	 */
+	// NOTE: java.sql.ResultSet is 1-based, ours is 0-based
+	public void populate(java.sql.ResultSet rs, Boolean defaultMetaData, int threads) throws Exception {
 		java.sql.ResultSetMetaData rsmd = rs.getMetaData();
 		int cc = rsmd.getColumnCount();
 		String name;
@@ -382,6 +442,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 				
 				this.MetaData.add(colMap);
 			}
+			columnsChanged();
 		} else {
 			for (String col : ColumnNames) {
 				columns.put(columns.size() + 1, col);
@@ -421,6 +482,36 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		} catch (Exception e) {
 			// do nothing
 		}
+		if (threads > 1) {
+			String[] names = new String[columns.size()];
+			int[] sourceColumns = new int[columns.size()];
+			column = 0;
+			for (HashMap.Entry<Integer, String> entry : columns.entrySet()) {
+				names[column] = entry.getValue();
+				sourceColumns[column] = entry.getKey();
+				column++;
+			}
+			new ResultSetPopulator(this, names, sourceColumns, threads).populate(rs);
+		} else {
+			populateSerial(rs, columns, defaultMetaData ? types : null);
+		}
+
+		// Add meta data to the first row only
+		if (!DataRows.isEmpty() && fieldAttributes.size() > 0) {
+			DataRow dr = DataRows.get(0);
+			Iterator<String> it = dr.getFieldNames().iterator();
+			while (it.hasNext()) {
+				String fieldName = it.next();
+				dr.setFieldAttributes(fieldName, fieldAttributes.get(fieldName));
+			}
+		}
+	}
+
+	private void populateSerial(java.sql.ResultSet rs, Map<Integer, String> columns, List<Integer> types)
+			throws Exception {
+		String name;
+		int type;
+		int column;
 		int rowId = 0;
 		while (rs.next()) {
 			DataRow dr = DataRow.newInstance(this);
@@ -432,7 +523,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 				HashMap.Entry<Integer, String> entry = it.next();
 				name = entry.getValue();
 				DataField field = new DataField(rs.getObject(entry.getKey()));
-				type = defaultMetaData? types.get(column - 1) : getColumnType(column - 1);
+				type = types != null ? types.get(column - 1) : getColumnType(column - 1);
 				dr.addDataField(name, type, field);
 			}
 
@@ -451,16 +542,18 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 				rowId++;
 			}
 		}
+	}
 
-		// Add meta data to the first row only
-		if (!DataRows.isEmpty() && fieldAttributes.size() > 0) {
-			DataRow dr = DataRows.get(0);
-			Iterator<String> it = dr.getFieldNames().iterator();
-			while (it.hasNext()) {
-				String fieldName = it.next();
-				dr.setFieldAttributes(fieldName, new HashMap<String, String>(fieldAttributes.get(fieldName)));
-			}
-		}
+	/**
+	 * Appends DataRows created by a {@link ResultSetPopulator}, in cursor order.
+	 */
+	void appendPopulatedRow(DataRow dr, int rowId) {
+		dr.setRowID(rowId);
+		this.DataRows.add(dr);
+	}
+
+	ResultSetListener getResultSetListener() {
+		return this.mListener;
 	}
 
 	/**
@@ -568,6 +661,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		colMap.put("ColumnName", name);
 		this.ColumnNames.add(name);
 		this.MetaData.add(colMap);
+		columnAdded(name);
 		return this.MetaData.size() - 1;
 	}
 
@@ -583,6 +677,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		colMap.put("ColumnName", name);
 		this.ColumnNames.add(name);
 		this.MetaData.add(colMap);
+		columnAdded(name);
 		return this.MetaData.size() - 1;
 	}
 
@@ -594,12 +689,17 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setColumnMetaData(String name, HashMap<String, Object> colMap) {
 		int column = getColumnIndex(name);
-		if (column != -1)
+		if (column != -1) {
 			this.MetaData.set(column, colMap);
+			metaDataChanged(column);
+		}
 	}
 
 	/**
-	 * Returns the metadata of the column with the specified name.
+	 * Returns the metadata of the column with the specified name.<br>
+	 * <br>
+	 * <b>Note: </b>The returned map is the ResultSet's own metadata map. Prefer
+	 * {@link #getSchema()} for read-only access.
 	 * 
 	 * @param name The name of the column.
 	 * 
@@ -607,12 +707,105 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public HashMap<String, Object> getColumnMetaData(String name) {
 		int column = getColumnIndex(name);
-		if (column != -1)
+		if (column != -1) {
+			// the map may be modified by the caller
+			metaDataChanged(column);
 			return this.MetaData.get(column);
+		}
 		else
 			return null;
 	}
 
+	/**
+	 * Returns the immutable, typed column metadata of this ResultSet. The Schema is
+	 * shared by all DataRows of this ResultSet and is rebuilt lazily after the
+	 * metadata has been changed, so callers should not hold on to it across
+	 * metadata changes.
+	 * 
+	 * @return the ResultSet's schema
+	 */
+	public Schema getSchema() {
+		if (this.schema == null || this.schema.getColumnCount() != this.MetaData.size()) {
+			int count = this.MetaData.size();
+			List<ColumnMetaData> columns = new ArrayList<>(count);
+			for (int column = 0; column < count; column++) {
+				columns.add(getTypedMetaData(column));
+			}
+			this.schema = new Schema(columns, this.ColumnNames);
+		}
+		return this.schema;
+	}
+
+	/**
+	 * Returns the typed metadata of the column at the given index.
+	 * 
+	 * @param column The column index.
+	 * 
+	 * @return the column's typed metadata.
+	 */
+	private ColumnMetaData getTypedMetaData(int column) {
+		if (this.columnMetaData == null || this.columnMetaData.size() != this.MetaData.size()) {
+			this.columnMetaData = new ArrayList<>(Collections.nCopies(this.MetaData.size(), null));
+			this.schema = null;
+		}
+		ColumnMetaData cmd = this.columnMetaData.get(column);
+		if (cmd == null) {
+			cmd = new ColumnMetaData(this.MetaData.get(column));
+			this.columnMetaData.set(column, cmd);
+		}
+		return cmd;
+	}
+
+	private void metaDataChanged(int column) {
+		if (this.columnMetaData != null && column < this.columnMetaData.size())
+			this.columnMetaData.set(column, null);
+		if (this.columnHandles != null && column < this.columnHandles.size())
+			this.columnHandles.set(column, null);
+		this.schema = null;
+	}
+
+	private void columnAdded(String name) {
+		if (this.columnMetaData != null && this.columnMetaData.size() == this.MetaData.size() - 1)
+			this.columnMetaData.add(null);
+		if (this.columnIndex != null && this.indexedColumns == this.ColumnNames.size() - 1) {
+			this.columnIndex.putIfAbsent(name, this.indexedColumns);
+			this.indexedColumns++;
+		}
+		if (this.columnHandles != null && this.columnHandles.size() == this.ColumnNames.size() - 1)
+			this.columnHandles.add(null);
+		this.schema = null;
+	}
+
+	private void columnsChanged() {
+		this.columnMetaData = null;
+		this.columnIndex = null;
+		this.columnHandles = null;
+		this.columnsVersion++;
+		this.schema = null;
+	}
+
+	/**
+	 * Returns the number of changes which moved the columns to other indexes,
+	 * the DataRows index their fields by column until it changes.
+	 */
+	int getColumnsVersion() {
+		return this.columnsVersion;
+	}
+
+	/**
+	 * Hands a copy of this ResultSet's metadata over to the given ResultSet. The
+	 * typed column metadata is immutable and therefore shared.
+	 */
+	private void copyMetaDataTo(ResultSet rs) {
+		rs.MetaData = new ArrayList<>(this.MetaData.size());
+		for (HashMap<String, Object> colMap : this.MetaData) {
+			rs.MetaData.add(new HashMap<>(colMap));
+		}
+		if (this.columnMetaData != null && this.columnMetaData.size() == this.MetaData.size())
+			rs.columnMetaData = new ArrayList<>(this.columnMetaData);
+		rs.schema = this.schema;
+	}
+
 	/**
 	 * Returns the index of the column with the specified name, or -1
 	 * in case no column exists for the given name.
@@ -622,7 +815,21 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return the column's index or -1 if the column doesn't exist.
 	 */
 	public int getColumnIndex(String name) {
-		return this.ColumnNames.indexOf(name);
+		if (this.columnIndex == null || this.indexedColumns != this.ColumnNames.size()) {
+			this.columnIndex = new HashMap<>();
+			for (int i = 0; i < this.ColumnNames.size(); i++) {
+				this.columnIndex.putIfAbsent(this.ColumnNames.get(i), i);
+			}
+			this.indexedColumns = this.ColumnNames.size();
+		}
+		Integer column = this.columnIndex.get(name);
+		// the column name list is handed out by getColumnNames(), so verify the hit
+		if (column != null && this.ColumnNames.get(column).equals(name))
+			return column;
+		int idx = this.ColumnNames.indexOf(name);
+		if (idx != -1)
+			this.columnIndex = null;
+		return idx;
 	}
 
 	/**
@@ -875,6 +1082,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		if (!name.isEmpty()) {
 			this.ColumnNames.remove(column);
 			this.MetaData.remove(column);
+			columnsChanged();
 			if (this.KeyColumns != null && this.KeyColumns.contains(name))
 				this.KeyColumns.remove(name);
 		}
@@ -1000,10 +1208,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the CatalogName property of the column.
 	 */
 	public String getCatalogName(int column) {
-		String name = (String) this.MetaData.get(column).get("CatalogName");
-		if (name == null)
-			name = "";
-		return name;
+		return getAttribute(column, "CatalogName");
 	}
 
 	/**
@@ -1015,10 +1220,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the ColumnClassName property of the column.
 	 */
 	public String getColumnClassName(int column) {
-		String name = (String) this.MetaData.get(column).get("ColumnClassName");
-		if (name == null)
-			name = "";
-		return name;
+		return getAttribute(column, "ColumnClassName");
 	}
 
 	/**
@@ -1030,13 +1232,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the ColumnDisplaySize property of the column.
 	 */
 	public int getColumnDisplaySize(int column) {
-		Integer size = (Integer) this.MetaData.get(column).get("ColumnDisplaySize");
-		
-		if (size == null)
-			size = 10;
-			// 	guessing a useful default
-		
-		return size.intValue();
+		return getTypedMetaData(column).getDisplaySize();
 	}
 
 	/**
@@ -1048,10 +1244,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the ColumnLabel property of the column.
 	 */
 	public String getColumnLabel(int column) {
-		String label = (String) this.MetaData.get(column).get("ColumnLabel");
-		if (label == null)
-			label = "";
-		return label;
+		return getAttribute(column, "ColumnLabel");
 	}
 
 	/**
@@ -1063,10 +1256,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the ColumnName property of the column.
 	 */
 	public String getColumnName(int column) {
-		String name = (String) this.MetaData.get(column).get("ColumnName");
-		if (name == null)
-			name = "";
-		return name;
+		return getTypedMetaData(column).getName();
 	}
 
 	/**
@@ -1078,20 +1268,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the ColumnType property of the column.
 	 */
 	public int getColumnType(int column) {
-		Integer type;
-		
-		// FIXME this separate handling shouldn't be necessary but
-		// in when a new DataRow gets added, the ResultSet inherits the attributes from the DataRow
-		// in mergeDataRowFields -> so that is the place where we need to put a real fix!
-		
-		if ((this.MetaData.get(column).get("ColumnType")).getClass().equals(java.lang.String.class)) {
-			type= Integer.parseInt((String) this.MetaData.get(column).get("ColumnType"));
-		}
-		else
-			type = (Integer) this.MetaData.get(column).get("ColumnType");
-		if (type == null)
-			type = 0;
-		return type.intValue();
+		return getTypedMetaData(column).getType();
 	}
 
 	/**
@@ -1103,10 +1280,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the ColumnTypeName property of the column.
 	 */
 	public String getColumnTypeName(int column) {
-		String name = (String) this.MetaData.get(column).get("ColumnTypeName");
-		if (name == null)
-			name = "";
-		return name;
+		return getAttribute(column, "ColumnTypeName");
 	}
 
 	/**
@@ -1118,10 +1292,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the Precision property of the column.
 	 */
 	public int getPrecision(int column) {
-		Integer prec = (Integer) this.MetaData.get(column).get("Precision");
-		if (prec == null)
-			prec = 0;
-		return prec.intValue();
+		return getTypedMetaData(column).getPrecision();
 	}
 
 	/**
@@ -1133,10 +1304,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the Scale property of the column.
 	 */
 	public int getScale(int column) {
-		Integer scale = (Integer) this.MetaData.get(column).get("Scale");
-		if (scale == null)
-			scale = 0;
-		return scale.intValue();
+		return getTypedMetaData(column).getScale();
 	}
 
 	/**
@@ -1148,10 +1316,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the SchemaName property of the column.
 	 */
 	public String getSchemaName(int column) {
-		String name = (String) this.MetaData.get(column).get("SchemaName");
-		if (name == null)
-			name = "";
-		return name;
+		return getAttribute(column, "SchemaName");
 	}
 
 	/**
@@ -1163,10 +1328,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the TableName property of the column.
 	 */
 	public String getTableName(int column) {
-		String name = (String) this.MetaData.get(column).get("TableName");
-		if (name == null)
-			name = "";
-		return name;
+		return getAttribute(column, "TableName");
 	}
 
 	/**
@@ -1178,10 +1340,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the AutoIncrement property of the column.
 	 */
 	public Boolean isAutoIncrement(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("AutoIncrement");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isAutoIncrement();
 	}
 
 	/**
@@ -1193,10 +1352,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the CaseSensitive property of the column.
 	 */
 	public Boolean isCaseSensitive(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("CaseSensitive");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isCaseSensitive();
 	}
 
 	/**
@@ -1208,10 +1364,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the Currency property of the column.
 	 */
 	public Boolean isCurrency(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("Currency");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isCurrency();
 	}
 
 	/**
@@ -1223,10 +1376,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the DefinitelyWritable property of the column.
 	 */
 	public Boolean isDefinitelyWritable(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("DefinitelyWritable");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isDefinitelyWritable();
 	}
 
 	/**
@@ -1238,10 +1388,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the Nullable property of the column.
 	 */
 	public int isNullable(int column) {
-		Integer nullable = (Integer) this.MetaData.get(column).get("Nullable");
-		if (nullable == null)
-			nullable = java.sql.ResultSetMetaData.columnNullableUnknown;
-		return nullable.intValue();
+		return getTypedMetaData(column).getNullable();
 	}
 
 	/**
@@ -1253,10 +1400,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the ReadOnly property of the column.
 	 */
 	public Boolean isReadOnly(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("ReadOnly");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isReadOnly();
 	}
 
 	/**
@@ -1268,10 +1412,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the Searchable property of the column.
 	 */
 	public Boolean isSearchable(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("Searchable");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isSearchable();
 	}
 
 	/**
@@ -1283,10 +1424,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the Signed property of the column.
 	 */
 	public Boolean isSigned(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("Signed");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isSigned();
 	}
 
 	/**
@@ -1298,10 +1436,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The value of the Writable property of the column.
 	 */
 	public Boolean isWritable(int column) {
-		Boolean flag = (Boolean) this.MetaData.get(column).get("Writable");
-		if (flag == null)
-			flag = false;
-		return flag;
+		return getTypedMetaData(column).isWritable();
 	}
 
 	/**
@@ -1314,7 +1449,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 * @return The attribute's value, or empty String in case the attribute doesn't exist.
 	 */
 	public String getAttribute(int column, String name) {
-		String value = (String) this.MetaData.get(column).get(name);
+		String value = getTypedMetaData(column).getAttribute(name);
 		if (value == null)
 			value = "";
 		return value;
@@ -1347,6 +1482,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	// MetaData set methods (0-based)
 	public void setCatalogName(int column, String catalogName) {
 		this.MetaData.get(column).put("CatalogName", catalogName);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1358,6 +1494,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setColumnClassName(int column, String className) {
 		this.MetaData.get(column).put("ColumnClassName", className);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1369,6 +1506,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setColumnDisplaySize(int column, int displaySize) {
 		this.MetaData.get(column).put("ColumnDisplaySize", displaySize);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1380,6 +1518,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setColumnLabel(int column, String label) {
 		this.MetaData.get(column).put("ColumnLabel", label);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1394,6 +1533,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 			throw new IllegalArgumentException("Column name may not be empty");
 		}
 		this.MetaData.get(column).put("ColumnName", name);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1422,6 +1562,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 			setColumnTypeName(column, typeName);
 		}
 		this.MetaData.get(column).put("ColumnType", type);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1433,6 +1574,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setColumnTypeName(int column, String typeName) {
 		this.MetaData.get(column).put("ColumnTypeName", typeName);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1446,6 +1588,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		if (precision < getScale(column))
 			throw new Exception("Precision must be >= scale");
 		this.MetaData.get(column).put("Precision", precision);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1459,6 +1602,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		if (scale > getPrecision(column))
 			throw new Exception("Scale must be <= precision");
 		this.MetaData.get(column).put("Scale", scale);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1470,6 +1614,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setSchemaName(int column, String schemaName) {
 		this.MetaData.get(column).put("SchemaName", schemaName);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1481,6 +1626,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setTableName(int column, String tableName) {
 		this.MetaData.get(column).put("TableName", tableName);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1492,6 +1638,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setAutoIncrement(int column, Boolean flag) {
 		this.MetaData.get(column).put("AutoIncrement", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1503,6 +1650,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setCaseSensitive(int column, Boolean flag) {
 		this.MetaData.get(column).put("CaseSensitive", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1514,6 +1662,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setCurrency(int column, Boolean flag) {
 		this.MetaData.get(column).put("Currency", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1525,6 +1674,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setDefinitelyWritable(int column, Boolean flag) {
 		this.MetaData.get(column).put("DefinitelyWritable", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1548,6 +1698,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 				&& nullable != java.sql.ResultSetMetaData.columnNullableUnknown)
 			throw new IllegalArgumentException("Invalid nullable value " + nullable);
 		this.MetaData.get(column).put("Nullable", nullable);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1559,6 +1710,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setReadOnly(int column, Boolean flag) {
 		this.MetaData.get(column).put("ReadOnly", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1570,6 +1722,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setSearchable(int column, Boolean flag) {
 		this.MetaData.get(column).put("Searchable", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1581,6 +1734,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setSigned(int column, Boolean flag) {
 		this.MetaData.get(column).put("Signed", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1592,6 +1746,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setWritable(int column, Boolean flag) {
 		this.MetaData.get(column).put("Writable", flag);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1604,6 +1759,7 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	 */
 	public void setAttribute(int column, String name, String value) {
 		this.MetaData.get(column).put(name, value);
+		metaDataChanged(column);
 	}
 
 	/**
@@ -1949,6 +2105,9 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	}
 
 	public ArrayList<HashMap<String, Object>> getMetaData() {
+		// the maps may be modified by the caller
+		this.columnMetaData = null;
+		this.schema = null;
 		return new ArrayList<>(MetaData);
 	}
 
@@ -2020,6 +2179,175 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		return field.getURL();
 	}
 
+	/**
+	 * Returns a {@link ColumnHandle} for the column with the given name. The handle
+	 * can be used with the primitive getters and setters of the ResultSet and of
+	 * its DataRows to skip the column name lookup on every call.
+	 * 
+	 * @param name The name of the column.
+	 * 
+	 * @return The ColumnHandle for the column.
+	 * 
+	 * @throws DataFieldNotFoundException Gets thrown in case the column doesn't exist.
+	 */
+	public ColumnHandle getColumnHandle(String name) {
+		int column = getColumnIndex(name);
+		if (column == -1)
+			throw new DataFieldNotFoundException("Field " + name + " does not exist");
+		return getColumnHandle(column);
+	}
+
+	/**
+	 * Returns the {@link ColumnHandle} for the column at the given index. The
+	 * handles are cached until the column's metadata or the columns change.
+	 * 
+	 * @param column The column index.
+	 * 
+	 * @return The ColumnHandle for the column.
+	 */
+	ColumnHandle getColumnHandle(int column) {
+		if (this.columnHandles == null || this.columnHandles.size() != this.ColumnNames.size())
+			this.columnHandles = new ArrayList<>(Collections.nCopies(this.ColumnNames.size(), null));
+		ColumnHandle handle = this.columnHandles.get(column);
+		if (handle == null) {
+			handle = new ColumnHandle(this.ColumnNames.get(column), column, getColumnType(column));
+			this.columnHandles.set(column, handle);
+		}
+		return handle;
+	}
+
+	/**
+	 * Returns the value of the current DataRow for the given column as primitive int.
+	 * 
+	 * @see com.basiscomponents.db.DataRow#getInt(ColumnHandle)
+	 * 
+	 * @param handle The column handle.
+	 * 
+	 * @return The value as int, 0 in case the value is null.
+	 */
+	public int getInt(ColumnHandle handle) {
+		return this.currentDataRow.getInt(handle);
+	}
+
+	/**
+	 * Returns the value of the current DataRow for the given column as primitive long.
+	 * 
+	 * @see com.basiscomponents.db.DataRow#getLong(ColumnHandle)
+	 * 
+	 * @param handle The column handle.
+	 * 
+	 * @return The value as long, 0 in case the value is null.
+	 */
+	public long getLong(ColumnHandle handle) {
+		return this.currentDataRow.getLong(handle);
+	}
+
+	/**
+	 * Returns the value of the current DataRow for the given column as primitive double.
+	 * 
+	 * @see com.basiscomponents.db.DataRow#getDouble(ColumnHandle)
+	 * 
+	 * @param handle The column handle.
+	 * 
+	 * @return The value as double, 0 in case the value is null.
+	 */
+	public double getDouble(ColumnHandle handle) {
+		return this.currentDataRow.getDouble(handle);
+	}
+
+	/**
+	 * Returns the value of the current DataRow for the given column as primitive boolean.
+	 * 
+	 * @see com.basiscomponents.db.DataRow#getBoolean(ColumnHandle)
+	 * 
+	 * @param handle The column handle.
+	 * 
+	 * @return The value as boolean, false in case the value is null.
+	 */
+	public boolean getBoolean(ColumnHandle handle) {
+		return this.currentDataRow.getBoolean(handle);
+	}
+
+	/**
+	 * Sets the given int value in the current DataRow for the column at the specified index.
+	 * 
+	 * @param column The column's index.
+	 * @param value The value to set.
+	 */
+	public void setInt(int column, int value) {
+		this.currentDataRow.setInt(getColumnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given int value in the current DataRow for the given column.
+	 * 
+	 * @param handle The column handle.
+	 * @param value The value to set.
+	 */
+	public void setInt(ColumnHandle handle, int value) {
+		this.currentDataRow.setInt(handle, value);
+	}
+
+	/**
+	 * Sets the given long value in the current DataRow for the column at the specified index.
+	 * 
+	 * @param column The column's index.
+	 * @param value The value to set.
+	 */
+	public void setLong(int column, long value) {
+		this.currentDataRow.setLong(getColumnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given long value in the current DataRow for the given column.
+	 * 
+	 * @param handle The column handle.
+	 * @param value The value to set.
+	 */
+	public void setLong(ColumnHandle handle, long value) {
+		this.currentDataRow.setLong(handle, value);
+	}
+
+	/**
+	 * Sets the given double value in the current DataRow for the column at the specified index.
+	 * 
+	 * @param column The column's index.
+	 * @param value The value to set.
+	 */
+	public void setDouble(int column, double value) {
+		this.currentDataRow.setDouble(getColumnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given double value in the current DataRow for the given column.
+	 * 
+	 * @param handle The column handle.
+	 * @param value The value to set.
+	 */
+	public void setDouble(ColumnHandle handle, double value) {
+		this.currentDataRow.setDouble(handle, value);
+	}
+
+	/**
+	 * Sets the given boolean value in the current DataRow for the column at the specified index.
+	 * 
+	 * @param column The column's index.
+	 * @param value The value to set.
+	 */
+	public void setBoolean(int column, boolean value) {
+		this.currentDataRow.setBoolean(getColumnHandle(column), value);
+	}
+
+	/**
+	 * Sets the given boolean value in the current DataRow for the given column.
+	 * 
+	 * @param handle The column handle.
+	 * @param value The value to set.
+	 */
+	public void setBoolean(ColumnHandle handle, boolean value) {
+		this.currentDataRow.setBoolean(handle, value);
+	}
+
 	/**
 	 * Sets the list of field names to be imported into the ResultSet when calling the
 	 * {@link #populate(java.sql.ResultSet, Boolean) populate(java.sql.ResultSet, Boolean)}
@@ -2090,6 +2418,24 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 			createIndex();
 		return ResultSetJsonMapper.toJson(this, meta, addIndexColumn, trimStrings, writeDataRowAttributes);
 	}
+
+	/**
+	 * Writes this ResultSet as JSON to the given Writer row by row, without
+	 * building the JSON String in memory first. The Writer is flushed but not
+	 * closed.
+	 *
+	 * @param writer The Writer to write the JSON to
+	 * @param meta if MetaData should be printed
+	 * @param addIndexColumn The Index column which is generated (@Code{null} if it doesn't exist)
+	 * @param trimStrings if Strings should be trimmed
+	 * @param writeDataRowAttributes if the attributes of the DataRows should be written
+	 * @throws Exception
+	 */
+	public void writeJson(Writer writer, boolean meta, String addIndexColumn, boolean trimStrings, boolean writeDataRowAttributes) throws Exception {
+		if (addIndexColumn!=null)
+			createIndex();
+		ResultSetJsonMapper.writeJson(this, writer, meta, addIndexColumn, trimStrings, writeDataRowAttributes);
+	}
 	/**
 	 * Returns this ResultSet as a JRDataSource
 	 * 
@@ -2156,6 +2502,50 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		return null;
 	}
 
+	/**
+	 * Creates a bean of the given class for every DataRow.
+	 * 
+	 * @param beanClass The class of the beans, with a no-arg constructor.
+	 * 
+	 * @return The beans in the order of the DataRows.
+	 * 
+	 * @see BeanBinding
+	 */
+	public <T> List<T> toBeans(Class<T> beanClass) {
+		return BeanBinding.forClass(beanClass).toBeans(this);
+	}
+
+	/**
+	 * Creates a ResultSet with a column for every property of the given beans.
+	 * 
+	 * @param beans     The beans.
+	 * @param beanClass The class of the beans.
+	 * 
+	 * @return The new ResultSet.
+	 * 
+	 * @see BeanBinding
+	 */
+	public static <T> ResultSet fromBeans(List<? extends T> beans, Class<T> beanClass) {
+		return BeanBinding.forClass(beanClass).fromBeans(beans);
+	}
+
+	/**
+	 * Creates a ResultSet with a column for every property of the given beans,
+	 * which are of the class of the first one.
+	 * 
+	 * @param beans The beans.
+	 * 
+	 * @return The new ResultSet, without columns if the list is empty.
+	 * 
+	 * @see BeanBinding
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static ResultSet fromBeans(List<?> beans) {
+		if (beans.isEmpty())
+			return new ResultSet();
+		return BeanBinding.forClass((Class) beans.get(0).getClass()).fromBeans(beans);
+	}
+
 	/*
 	 * JDBC Types Mapped to Java Object Types CHAR String VARCHAR String
 	 * LONGVARCHAR String NUMERIC java.math.BigDecimal DECIMAL
@@ -2612,9 +3002,6 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 	public void buildRowKey(java.sql.ResultSet rs, DataRow dr)
 			throws NoSuchFieldException, SQLException {
 
-		String stringVal = "";
-		byte[] bytes;
-
 		if (KeyColumns != null && KeyColumns.size() > 0) {
 			if (KeyTemplate == null) {
 				KeyTemplate = TemplateInfo.createTemplate(getKeyTemplate());
@@ -2625,141 +3012,147 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 			while (it.hasNext()) {
 				String colName = it.next();
 				int col = getColumnIndex(colName);
-				Integer colType = getColumnType(col);
+				int colType = getColumnType(col);
 				col++; // java.sql.ResultSet 1-based
-				switch (colType) {
-				case java.sql.Types.NULL: // C(1)
-					KeyTemplate.setString(colName, "");
-					break;
-				case java.sql.Types.CHAR: // C(n)
-				case java.sql.Types.VARCHAR: // C(n*)
-				case java.sql.Types.LONGVARCHAR: // C(n*)
-					stringVal = rs.getString(col);
-					if (stringVal != null)
-						KeyTemplate.setString(colName, stringVal);
-					break;
-				case java.sql.Types.NCHAR: // C(n)
-				case java.sql.Types.NVARCHAR: // C(n+=10)
-				case java.sql.Types.LONGNVARCHAR: // C(n+=10)
-					stringVal = rs.getNString(col);
-					if (stringVal != null)
-						KeyTemplate.setString(colName, stringVal);
-					break;
-				case java.sql.Types.INTEGER: // I(4)/U(4)
-					KeyTemplate.setInt(colName, rs.getInt(col));
-					break;
-				case java.sql.Types.TINYINT: // I(1)/U(1)
-					KeyTemplate.setInt(colName, rs.getInt(col));
-					break;
-				case java.sql.Types.SMALLINT: // I(2)/U(2)
-					KeyTemplate.setInt(colName, rs.getShort(col));
-					break;
-				case java.sql.Types.BIGINT: // I(8)/U(8)
-					KeyTemplate.setLong(colName, rs.getLong(col));
-					break;
-				case java.sql.Types.DECIMAL: // N(n*)/N(n*=)
-				case java.sql.Types.NUMERIC: // N(n*)/N(n*=)
-					java.math.BigDecimal decVal = rs.getBigDecimal(col);
-					if (decVal != null) {
-						decVal = decVal.setScale(15, java.math.BigDecimal.ROUND_HALF_EVEN);
-						KeyTemplate.setBasisNumber(colName, new BasisNumber(decVal));
-					}
-					break;
-				case java.sql.Types.DOUBLE: // Y
-				case java.sql.Types.FLOAT: // F
-					KeyTemplate.setDouble(colName, rs.getDouble(col));
-					break;
-				case java.sql.Types.REAL: // B
-					KeyTemplate.setFloat(colName, rs.getFloat(col));
-					break;
-				case java.sql.Types.DATE: // I(4) Julian
-					java.sql.Date dateVal = rs.getDate(col);
-					if (dateVal == null)
-						KeyTemplate.setInt(colName, -1);
-					else
-						KeyTemplate.setInt(colName, com.basis.util.BasisDate.jul(dateVal));
-					break;
-				case java.sql.Types.TIME: // C(23)
-					java.sql.Time time = rs.getTime(col);
-					if (time != null)
-						KeyTemplate.setString(colName, time.toString());
-					break;
-				case java.sql.Types.TIMESTAMP: // C(23)
-					java.sql.Timestamp timestamp = rs.getTimestamp(col);
-					if (timestamp != null)
-						KeyTemplate.setString(colName, timestamp.toString());
-					break;
-				case java.sql.Types.BINARY: // O(n)
-				case java.sql.Types.VARBINARY: // O(n)
-				case java.sql.Types.LONGVARBINARY: // O(n)
-					bytes = rs.getBytes(col);
-					if (bytes != null)
-						KeyTemplate.setBytes(colName, bytes);
-					break;
-				case java.sql.Types.BLOB: // O(n)
-					Blob blob = rs.getBlob(col);
-					if (blob != null) {
-						int len = (int) blob.length();
-						KeyTemplate.setBytes(colName, blob.getBytes(1, len));
-					}
-					break;
-				case java.sql.Types.BIT: // N(1)
-				case java.sql.Types.BOOLEAN: // N(1)
-					KeyTemplate.setBasisNumber(colName, rs.getBoolean(col) ? BasisNumber.ONE : BasisNumber.ZERO);
-					break;
-				case java.sql.Types.CLOB: // C(n+=10)
-					Clob clob = rs.getClob(col);
-					if (clob != null) {
-						int len = (int) clob.length();
-						KeyTemplate.setString(colName, clob.getSubString(1, len));
-					}
-					break;
-				case java.sql.Types.NCLOB: // C(n+=10)
-					NClob nclob = rs.getNClob(col);
-					if (nclob != null) {
-						int len = (int) nclob.length();
-						KeyTemplate.setString(colName, nclob.getSubString(1, len));
-					}
-					break;
-				case java.sql.Types.DATALINK: // C(n*)
-					java.net.URL url = rs.getURL(col);
-					if (url != null)
-						KeyTemplate.setString(colName, url.toString());
-					break;
-				case java.sql.Types.ARRAY: // O(n)
-					java.sql.Array array = rs.getArray(col);
-					if (array != null) {
-						// TODO
-					}
-					break;
-				case java.sql.Types.JAVA_OBJECT: // O(n)
-				case java.sql.Types.OTHER: // O(n)
-					java.lang.Object object = rs.getObject(col);
-					if (object != null) {
-						// TODO
-					}
-					break;
-				case java.sql.Types.REF: // O(n)
-					java.sql.Ref ref = rs.getRef(col);
-					if (ref != null) {
-						// TODO
-					}
-					break;
-				case java.sql.Types.DISTINCT: // O(n)
-				case java.sql.Types.STRUCT: // O(n)
-				case java.sql.Types.ROWID: // O(n)
-				case java.sql.Types.SQLXML: // O(n)
-				default: // O(n)
-					bytes = rs.getBytes(col);
-					if (bytes != null)
-						KeyTemplate.setBytes(colName, bytes);
-					break;
-				}
+				setKeyValue(KeyTemplate, colName, colType, readKeyValue(rs, col, colType));
 			}
 			dr.addBytesToRowKey(KeyTemplate.getBytes());
 		}
 	}
 
+	/**
+	 * Reads the value of a key column from the current record of the cursor, in
+	 * the form expected by {@link #setKeyValue(Template, String, int, Object)}.
+	 * Returns null if nothing is to be set in the key template.
+	 */
+	static Object readKeyValue(java.sql.ResultSet rs, int col, int colType) throws SQLException {
+		switch (colType) {
+		case java.sql.Types.NULL: // C(1)
+			return "";
+		case java.sql.Types.CHAR: // C(n)
+		case java.sql.Types.VARCHAR: // C(n*)
+		case java.sql.Types.LONGVARCHAR: // C(n*)
+			return rs.getString(col);
+		case java.sql.Types.NCHAR: // C(n)
+		case java.sql.Types.NVARCHAR: // C(n+=10)
+		case java.sql.Types.LONGNVARCHAR: // C(n+=10)
+			return rs.getNString(col);
+		case java.sql.Types.INTEGER: // I(4)/U(4)
+		case java.sql.Types.TINYINT: // I(1)/U(1)
+			return rs.getInt(col);
+		case java.sql.Types.SMALLINT: // I(2)/U(2)
+			return (int) rs.getShort(col);
+		case java.sql.Types.BIGINT: // I(8)/U(8)
+			return rs.getLong(col);
+		case java.sql.Types.DECIMAL: // N(n*)/N(n*=)
+		case java.sql.Types.NUMERIC: // N(n*)/N(n*=)
+			java.math.BigDecimal decVal = rs.getBigDecimal(col);
+			if (decVal != null)
+				decVal = decVal.setScale(15, java.math.BigDecimal.ROUND_HALF_EVEN);
+			return decVal;
+		case java.sql.Types.DOUBLE: // Y
+		case java.sql.Types.FLOAT: // F
+			return rs.getDouble(col);
+		case java.sql.Types.REAL: // B
+			return rs.getFloat(col);
+		case java.sql.Types.DATE: // I(4) Julian
+			java.sql.Date dateVal = rs.getDate(col);
+			if (dateVal == null)
+				return -1;
+			return com.basis.util.BasisDate.jul(dateVal);
+		case java.sql.Types.TIME: // C(23)
+			java.sql.Time time = rs.getTime(col);
+			return time == null ? null : time.toString();
+		case java.sql.Types.TIMESTAMP: // C(23)
+			java.sql.Timestamp timestamp = rs.getTimestamp(col);
+			return timestamp == null ? null : timestamp.toString();
+		case java.sql.Types.BINARY: // O(n)
+		case java.sql.Types.VARBINARY: // O(n)
+		case java.sql.Types.LONGVARBINARY: // O(n)
+			return rs.getBytes(col);
+		case java.sql.Types.BLOB: // O(n)
+			Blob blob = rs.getBlob(col);
+			if (blob != null) {
+				int len = (int) blob.length();
+				return blob.getBytes(1, len);
+			}
+			return null;
+		case java.sql.Types.BIT: // N(1)
+		case java.sql.Types.BOOLEAN: // N(1)
+			return rs.getBoolean(col);
+		case java.sql.Types.CLOB: // C(n+=10)
+			Clob clob = rs.getClob(col);
+			if (clob != null) {
+				int len = (int) clob.length();
+				return clob.getSubString(1, len);
+			}
+			return null;
+		case java.sql.Types.NCLOB: // C(n+=10)
+			NClob nclob = rs.getNClob(col);
+			if (nclob != null) {
+				int len = (int) nclob.length();
+				return nclob.getSubString(1, len);
+			}
+			return null;
+		case java.sql.Types.DATALINK: // C(n*)
+			java.net.URL url = rs.getURL(col);
+			return url == null ? null : url.toString();
+		case java.sql.Types.ARRAY: // O(n)
+		case java.sql.Types.JAVA_OBJECT: // O(n)
+		case java.sql.Types.OTHER: // O(n)
+		case java.sql.Types.REF: // O(n)
+			// TODO
+			return null;
+		case java.sql.Types.DISTINCT: // O(n)
+		case java.sql.Types.STRUCT: // O(n)
+		case java.sql.Types.ROWID: // O(n)
+		case java.sql.Types.SQLXML: // O(n)
+		default: // O(n)
+			return rs.getBytes(col);
+		}
+	}
+
+	/**
+	 * Sets a key column value read by {@link #readKeyValue(java.sql.ResultSet, int, int)}
+	 * in the given key template.
+	 */
+	static void setKeyValue(Template template, String colName, int colType, Object value) {
+		if (value == null)
+			return;
+		switch (colType) {
+		case java.sql.Types.INTEGER:
+		case java.sql.Types.TINYINT:
+		case java.sql.Types.SMALLINT:
+		case java.sql.Types.DATE:
+			template.setInt(colName, (Integer) value);
+			break;
+		case java.sql.Types.BIGINT:
+			template.setLong(colName, (Long) value);
+			break;
+		case java.sql.Types.DECIMAL:
+		case java.sql.Types.NUMERIC:
+			template.setBasisNumber(colName, new BasisNumber((BigDecimal) value));
+			break;
+		case java.sql.Types.DOUBLE:
+		case java.sql.Types.FLOAT:
+			template.setDouble(colName, (Double) value);
+			break;
+		case java.sql.Types.REAL:
+			template.setFloat(colName, (Float) value);
+			break;
+		case java.sql.Types.BIT:
+		case java.sql.Types.BOOLEAN:
+			template.setBasisNumber(colName, (Boolean) value ? BasisNumber.ONE : BasisNumber.ZERO);
+			break;
+		default:
+			if (value instanceof byte[])
+				template.setBytes(colName, (byte[]) value);
+			else
+				template.setString(colName, (String) value);
+			break;
+		}
+	}
+
 	/**
 	 * Creates and returns simplified BB template definition based on the key
 	 * columns
@@ -2931,4 +3324,4 @@ public class ResultSet implements java.io.Serializable, Iterable<DataRow> {
 		//optimization potential: always search in the smaller ResultSet
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
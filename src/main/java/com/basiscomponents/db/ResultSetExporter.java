@@ -436,7 +436,7 @@ public class ResultSetExporter {
 	 *                   a JSON String.
 	 */
 	public static void writeJSON(ResultSet resultSet, Writer writer) throws Exception {
-		writer.write(resultSet.toJson());
+		resultSet.writeJson(writer, true, null, true, false);
 	}
 
 	/**
@@ -449,7 +449,7 @@ public class ResultSetExporter {
 	 *                   a JSON String.
 	 */
 	public static void writeJSON(ResultSet resultSet, Writer writer, Boolean fMeta) throws Exception {
-		writer.write(resultSet.toJson(fMeta));
+		resultSet.writeJson(writer, fMeta, null, true, false);
 	}
 
 	/**
@@ -0,0 +1,211 @@
+package com.basiscomponents.db;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.basis.util.common.Template;
+import com.basis.util.common.TemplateInfo;
+
+/**
+ * Pipelined population of a {@link ResultSet} from a {@code java.sql.ResultSet}.
+ * The calling thread reads the raw column values of the cursor into reusable
+ * batches, which are converted into DataRows by a pool of worker threads. The
+ * converted batches are appended to the ResultSet in cursor order. At most two
+ * batches per worker are in flight, so the cursor waits for the workers when
+ * they fall behind.
+ *
+ * @see ResultSet#populate(java.sql.ResultSet, Boolean, int)
+ */
+class ResultSetPopulator {
+
+	static final int BATCH_SIZE = 256;
+
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	private final ResultSet resultSet;
+
+	private final String[] names;
+
+	private final int[] sourceColumns;
+
+	private final int threads;
+
+	private final String[] keyNames;
+
+	private final int[] keyColumns;
+
+	private final int[] keyTypes;
+
+	private final String keyTemplate;
+
+	private final ResultSetListener listener;
+
+	private int appended;
+
+	/**
+	 * A batch of raw records read from the cursor. Batches are reused once their
+	 * rows have been appended.
+	 */
+	private static final class Batch {
+		final Object[][] values;
+		final Object[][] keyValues;
+		int size;
+		int firstRow;
+
+		Batch(int columns, int keyColumns) {
+			this.values = new Object[BATCH_SIZE][columns];
+			this.keyValues = keyColumns > 0 ? new Object[BATCH_SIZE][keyColumns] : null;
+		}
+	}
+
+	ResultSetPopulator(ResultSet resultSet, String[] names, int[] sourceColumns, int threads) {
+		this.resultSet = resultSet;
+		this.names = names;
+		this.sourceColumns = sourceColumns;
+		this.threads = threads;
+		this.listener = resultSet.getResultSetListener();
+
+		List<String> keys = resultSet.getKeyColumns();
+		// like ResultSet.buildRowKey, no row keys are built if a key column is missing
+		if (keys != null && !keys.isEmpty() && keys.stream().allMatch(k -> resultSet.getColumnIndex(k) != -1)) {
+			this.keyNames = keys.toArray(new String[0]);
+			this.keyColumns = new int[this.keyNames.length];
+			this.keyTypes = new int[this.keyNames.length];
+			for (int i = 0; i < this.keyNames.length; i++) {
+				int column = resultSet.getColumnIndex(this.keyNames[i]);
+				this.keyTypes[i] = resultSet.getColumnType(column);
+				this.keyColumns[i] = column + 1; // java.sql.ResultSet 1-based
+			}
+			this.keyTemplate = resultSet.getKeyTemplate();
+		} else {
+			this.keyNames = new String[0];
+			this.keyColumns = new int[0];
+			this.keyTypes = new int[0];
+			this.keyTemplate = null;
+		}
+		// the workers only read the column index and the metadata, so build
+		// the lazily created structures up front
+		resultSet.getSchema();
+		if (names.length > 0)
+			resultSet.getColumnIndex(names[0]);
+	}
+
+	void populate(java.sql.ResultSet rs) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads, r -> {
+			Thread t = new Thread(r, "ResultSetPopulator-" + threadNumber.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		int maxInFlight = this.threads * 2;
+		ArrayDeque<Batch> freeBatches = new ArrayDeque<>();
+		ArrayDeque<Batch> batches = new ArrayDeque<>();
+		ArrayDeque<Future<List<DataRow>>> results = new ArrayDeque<>();
+		try {
+			int row = 0;
+			boolean more = true;
+			while (more) {
+				Batch batch = freeBatches.isEmpty() ? new Batch(this.names.length, this.keyNames.length)
+						: freeBatches.poll();
+				batch.firstRow = row;
+				batch.size = 0;
+				while (batch.size < BATCH_SIZE && (more = rs.next())) {
+					read(rs, batch);
+					batch.size++;
+				}
+				row += batch.size;
+				if (batch.size > 0) {
+					batches.add(batch);
+					results.add(executor.submit(() -> convert(batch)));
+				}
+				while (!results.isEmpty() && (results.size() >= maxInFlight || !more)) {
+					append(results.poll());
+					freeBatches.add(batches.poll());
+				}
+			}
+		} finally {
+			for (Future<List<DataRow>> result : results) {
+				result.cancel(true);
+			}
+			executor.shutdownNow();
+		}
+	}
+
+	private void read(java.sql.ResultSet rs, Batch batch) throws Exception {
+		Object[] values = batch.values[batch.size];
+		for (int i = 0; i < this.sourceColumns.length; i++) {
+			values[i] = rs.getObject(this.sourceColumns[i]);
+		}
+		if (batch.keyValues != null) {
+			Object[] keyValues = batch.keyValues[batch.size];
+			for (int i = 0; i < this.keyColumns.length; i++) {
+				try {
+					keyValues[i] = ResultSet.readKeyValue(rs, this.keyColumns[i], this.keyTypes[i]);
+				} catch (Exception e) {
+					keyValues[i] = null;
+				}
+			}
+		}
+	}
+
+	private List<DataRow> convert(Batch batch) {
+		List<DataRow> rows = new ArrayList<>(batch.size);
+		Template template = null;
+		if (batch.keyValues != null) {
+			try {
+				template = TemplateInfo.createTemplate(this.keyTemplate);
+			} catch (Exception e) {
+				template = null;
+			}
+		}
+		for (int r = 0; r < batch.size; r++) {
+			DataRow dr = DataRow.newInstance(this.resultSet);
+			Object[] values = batch.values[r];
+			for (int i = 0; i < this.names.length; i++) {
+				dr.putDataField(this.names[i], new DataField(values[i]));
+				values[i] = null;
+			}
+			if (template != null) {
+				try {
+					template.clear();
+					Object[] keyValues = batch.keyValues[r];
+					for (int i = 0; i < this.keyNames.length; i++) {
+						ResultSet.setKeyValue(template, this.keyNames[i], this.keyTypes[i], keyValues[i]);
+						keyValues[i] = null;
+					}
+					dr.addBytesToRowKey(template.getBytes());
+				} catch (Exception e) {
+				}
+			}
+			dr.setRowID(batch.firstRow + r);
+			if (this.listener != null) {
+				dr = this.listener.processRow(dr);
+			}
+			if (dr != null) {
+				rows.add(dr);
+			}
+		}
+		return rows;
+	}
+
+	private void append(Future<List<DataRow>> result) throws Exception {
+		List<DataRow> rows;
+		try {
+			rows = result.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			throw e;
+		}
+		for (DataRow dr : rows) {
+			this.resultSet.appendPopulatedRow(dr, this.appended++);
+		}
+	}
+
+}
@@ -0,0 +1,353 @@
+package com.basiscomponents.db;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A ResultSetView is a lightweight, read-mostly view on the DataRows of a
+ * {@link ResultSet}. Instead of copying the DataRows, a view only stores the
+ * positions of the rows it shows: a sorted view is a permutation of the row
+ * positions, a filtered view is a selection of them. Views can be sorted,
+ * filtered and paged any number of times without copying a single DataRow, so
+ * they are well suited for grids which re-sort or page through large, cached
+ * ResultSets.<br>
+ * <br>
+ * The DataRows returned by {@link #get(int)} are shared with the underlying
+ * ResultSet and must be treated as read-only. To modify a row through the view,
+ * use {@link #edit(int)}, which copies the row on first use (copy-on-write) and
+ * leaves the underlying ResultSet untouched. {@link #materialize()} creates a
+ * regular ResultSet from the view.<br>
+ * <br>
+ * <b>Note: </b>A view stores row positions, so rows must not be added to or
+ * removed from the underlying ResultSet while the view is in use. Doing so
+ * causes a {@link ConcurrentModificationException} on the next access.
+ */
+public class ResultSetView implements Iterable<DataRow> {
+
+	private final ResultSet resultSet;
+
+	private final int sourceSize;
+
+	private final int[] index;
+
+	// copies of rows edited through this view, keyed by the source row position
+	private Map<Integer, DataRow> copies;
+
+	ResultSetView(ResultSet resultSet) {
+		this.resultSet = resultSet;
+		this.sourceSize = resultSet.size();
+		this.index = new int[this.sourceSize];
+		for (int i = 0; i < this.index.length; i++) {
+			this.index[i] = i;
+		}
+	}
+
+	private ResultSetView(ResultSetView view, int[] index) {
+		this.resultSet = view.resultSet;
+		this.sourceSize = view.sourceSize;
+		this.index = index;
+		if (view.copies != null)
+			this.copies = new HashMap<>(view.copies);
+	}
+
+	/**
+	 * Returns the ResultSet this view was created from.
+	 *
+	 * @return the underlying ResultSet.
+	 */
+	public ResultSet getResultSet() {
+		return this.resultSet;
+	}
+
+	/**
+	 * Returns the number of DataRows in this view.
+	 *
+	 * @return the number of DataRows in this view.
+	 */
+	public int size() {
+		return this.index.length;
+	}
+
+	/**
+	 * Returns true if this view doesn't contain any DataRow, false otherwise.
+	 *
+	 * @return true if this view doesn't contain any DataRow, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return this.index.length == 0;
+	}
+
+	/**
+	 * Returns the position of the view's DataRow at the given index in the
+	 * underlying ResultSet.
+	 *
+	 * @param row The index of the DataRow in this view.
+	 *
+	 * @return The position of the DataRow in the underlying ResultSet.
+	 */
+	public int getSourceRow(int row) {
+		return this.index[row];
+	}
+
+	/**
+	 * Returns the DataRow at the given index of this view. The DataRow is shared
+	 * with the underlying ResultSet unless it has been copied by
+	 * {@link #edit(int)}, so it must not be modified.
+	 *
+	 * @param row The index of the DataRow in this view.
+	 *
+	 * @return The DataRow at the specified index.
+	 */
+	public DataRow get(int row) {
+		return sourceRow(this.index[row]);
+	}
+
+	/**
+	 * Returns a modifiable DataRow for the given index of this view. On the first
+	 * call for a row, the row is cloned and the clone replaces the shared row in
+	 * this view, so changes made to it are neither visible in the underlying
+	 * ResultSet nor in other views.
+	 *
+	 * @param row The index of the DataRow in this view.
+	 *
+	 * @return The view's own copy of the DataRow at the specified index.
+	 */
+	public DataRow edit(int row) {
+		int source = this.index[row];
+		if (this.copies == null)
+			this.copies = new HashMap<>();
+		DataRow dr = this.copies.get(source);
+		if (dr == null) {
+			dr = sourceRow(source).clone();
+			this.copies.put(source, dr);
+		}
+		return dr;
+	}
+
+	private DataRow sourceRow(int source) {
+		if (this.resultSet.size() != this.sourceSize)
+			throw new ConcurrentModificationException("The ResultSet was modified after the view was created");
+		if (this.copies != null) {
+			DataRow dr = this.copies.get(source);
+			if (dr != null)
+				return dr;
+		}
+		return this.resultSet.get(source);
+	}
+
+	/**
+	 * Returns a view with the DataRows of this view ordered according to an ORDER
+	 * BY clause like in SQL ORDER BY: e.g. (ORDER BY) NAME, FIRST_NAME DESC, ZIP
+	 * NOTE: Only ASC and DESC are allowed!
+	 *
+	 * @param orderByClause The order by clause.
+	 *
+	 * @return the ordered view.
+	 * @throws Exception
+	 */
+	public ResultSetView orderBy(String orderByClause) throws Exception {
+		return orderBy(new DataRowMultifieldComparator(orderByClause));
+	}
+
+	/**
+	 * Returns a view with the DataRows of this view ordered by the given
+	 * Comparator. The sort is stable.
+	 *
+	 * @param comparator The comparator used to order the DataRows.
+	 *
+	 * @return the ordered view.
+	 */
+	public ResultSetView orderBy(Comparator<DataRow> comparator) {
+		int n = this.index.length;
+		// the rows are resolved once, the sort compares them by position
+		DataRow[] rows = new DataRow[n];
+		int[] positions = new int[n];
+		for (int i = 0; i < n; i++) {
+			rows[i] = sourceRow(this.index[i]);
+			positions[i] = i;
+		}
+		mergeSort(positions.clone(), positions, 0, n, rows, comparator);
+		int[] sorted = new int[n];
+		for (int i = 0; i < n; i++) {
+			sorted[i] = this.index[positions[i]];
+		}
+		return new ResultSetView(this, sorted);
+	}
+
+	private static final int INSERTION_SORT_THRESHOLD = 7;
+
+	/*
+	 * Sorts dst[from, to) stably by the rows at the positions, src holds the
+	 * same positions on entry and is used as the buffer.
+	 */
+	private static void mergeSort(int[] src, int[] dst, int from, int to, DataRow[] rows,
+			Comparator<DataRow> comparator) {
+		int length = to - from;
+		if (length < INSERTION_SORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				int p = dst[i];
+				int j = i;
+				while (j > from && comparator.compare(rows[dst[j - 1]], rows[p]) > 0) {
+					dst[j] = dst[j - 1];
+					j--;
+				}
+				dst[j] = p;
+			}
+			return;
+		}
+
+		// the halves are sorted into src and merged back into dst
+		int mid = (from + to) >>> 1;
+		mergeSort(dst, src, from, mid, rows, comparator);
+		mergeSort(dst, src, mid, to, rows, comparator);
+		if (comparator.compare(rows[src[mid - 1]], rows[src[mid]]) <= 0) {
+			System.arraycopy(src, from, dst, from, length);
+			return;
+		}
+		for (int i = from, l = from, r = mid; i < to; i++) {
+			if (r >= to || (l < mid && comparator.compare(rows[src[l]], rows[src[r]]) <= 0))
+				dst[i] = src[l++];
+			else
+				dst[i] = src[r++];
+		}
+	}
+
+	/**
+	 * Returns a view with the DataRows of this view that match the given clause.
+	 * The clause syntax is similar to an SQL WHERE clause.
+	 *
+	 * @see ResultSet#filterBy(String)
+	 *
+	 * @param queryClause The query.
+	 *
+	 * @return the filtered view.
+	 * @throws Exception
+	 */
+	public ResultSetView filterBy(String queryClause) throws Exception {
+		return filterBy(queryClause, true, false);
+	}
+
+	/**
+	 * Returns a view with the DataRows of this view that match the given clause.
+	 * The clause syntax is similar to an SQL WHERE clause.
+	 *
+	 * @see ResultSet#filterBy(String, boolean, boolean)
+	 *
+	 * @param queryClause The query.
+	 * @param caseSensitive whether the filter query should be case sensitive or not
+	 * @param trimmed {@code true} if the query paramters should get trimmed
+	 *
+	 * @return the filtered view.
+	 * @throws Exception
+	 */
+	public ResultSetView filterBy(String queryClause, final boolean caseSensitive, final boolean trimmed)
+			throws Exception {
+		return filter(this.resultSet.queryMatcher(queryClause, caseSensitive, trimmed));
+	}
+
+	/**
+	 * Returns a view with the DataRows of this view that contain the values of the
+	 * given DataRow.
+	 *
+	 * @see ResultSet#filterBy(DataRow)
+	 *
+	 * @param simpleFilterCondition A DataRow with the values to search for.
+	 *
+	 * @return the filtered view.
+	 * @throws Exception
+	 */
+	public ResultSetView filterBy(DataRow simpleFilterCondition) throws Exception {
+		if (isEmpty())
+			return this;
+		return filter(this.resultSet.simpleFilterMatcher(simpleFilterCondition, get(0)));
+	}
+
+	private ResultSetView filter(ResultSet.RowMatcher matcher) throws Exception {
+		BitSet selection = new BitSet(this.index.length);
+		for (int i = 0; i < this.index.length; i++) {
+			if (matcher.matches(get(i)))
+				selection.set(i);
+		}
+		int[] selected = new int[selection.cardinality()];
+		int n = 0;
+		for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1)) {
+			selected[n++] = this.index[i];
+		}
+		return new ResultSetView(this, selected);
+	}
+
+	/**
+	 * Returns a view with the DataRows of this view from the given start index
+	 * (inclusive) to the given end index (exclusive), e.g. for paging.
+	 *
+	 * @param fromIndex The index of the first DataRow.
+	 * @param toIndex The index after the last DataRow.
+	 *
+	 * @return the view on the given range.
+	 */
+	public ResultSetView subView(int fromIndex, int toIndex) {
+		return new ResultSetView(this, Arrays.copyOfRange(this.index, fromIndex, toIndex));
+	}
+
+	/**
+	 * Creates a ResultSet with the metadata of the underlying ResultSet and the
+	 * DataRows of this view, in the order of this view. The DataRows are shared
+	 * with the underlying ResultSet, except for the rows copied by
+	 * {@link #edit(int)}.
+	 *
+	 * @return the ResultSet with the DataRows of this view.
+	 */
+	public ResultSet materialize() {
+		return materialize(false);
+	}
+
+	/**
+	 * Creates a ResultSet with the metadata of the underlying ResultSet and the
+	 * DataRows of this view, in the order of this view.
+	 *
+	 * @param fDeepClone set to true to clone the DataRows, false to share them
+	 *            with the underlying ResultSet
+	 *
+	 * @return the ResultSet with the DataRows of this view.
+	 */
+	public ResultSet materialize(Boolean fDeepClone) {
+		ResultSet rs = this.resultSet.createEmptyCopy();
+		for (int i = 0; i < this.index.length; i++) {
+			DataRow dr = get(i);
+			rs.add(fDeepClone ? dr.clone() : dr);
+		}
+		return rs;
+	}
+
+	@Override
+	public Iterator<DataRow> iterator() {
+		return new Iterator<DataRow>() {
+
+			private int current;
+
+			@Override
+			public boolean hasNext() {
+				return current < size();
+			}
+
+			@Override
+			public DataRow next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return get(current++);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "ResultSetView with " + size() + " of " + this.sourceSize + " entries";
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.basiscomponents.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Schema class is an immutable, typed view of the column metadata of a
+ * {@link ResultSet}. It is shared by all DataRows of the ResultSet and is
+ * rebuilt by the ResultSet whenever its metadata is changed, so a Schema
+ * instance obtained via {@link ResultSet#getSchema()} always reflects the
+ * metadata at the time it was obtained.
+ */
+public final class Schema {
+
+	private final List<ColumnMetaData> columns;
+
+	private final List<String> columnNames;
+
+	private final Map<String, Integer> columnIndex;
+
+	Schema(List<ColumnMetaData> columns, List<String> columnNames) {
+		this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+		this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+		Map<String, Integer> index = new HashMap<>();
+		for (int i = 0; i < columnNames.size(); i++) {
+			// keep the first occurrence, like List.indexOf
+			index.putIfAbsent(columnNames.get(i), i);
+		}
+		this.columnIndex = index;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 *
+	 * @return the number of columns
+	 */
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	/**
+	 * Returns the metadata of the column at the given index.
+	 *
+	 * @param column The column index.
+	 *
+	 * @return the column's metadata
+	 */
+	public ColumnMetaData getColumn(int column) {
+		return columns.get(column);
+	}
+
+	/**
+	 * Returns the metadata of the column with the given name, or null if no
+	 * column with that name exists.
+	 *
+	 * @param name The column name.
+	 *
+	 * @return the column's metadata or null
+	 */
+	public ColumnMetaData getColumn(String name) {
+		int column = getColumnIndex(name);
+		return column == -1 ? null : columns.get(column);
+	}
+
+	/**
+	 * Returns the index of the column with the given name, or -1 if no column with
+	 * that name exists.
+	 *
+	 * @param name The column name.
+	 *
+	 * @return the column's index or -1
+	 */
+	public int getColumnIndex(String name) {
+		Integer column = columnIndex.get(name);
+		return column == null ? -1 : column;
+	}
+
+	/**
+	 * Returns the unmodifiable list of the column names.
+	 *
+	 * @return the column names
+	 */
+	public List<String> getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * Returns the unmodifiable list of the column metadata.
+	 *
+	 * @return the column metadata
+	 */
+	public List<ColumnMetaData> getColumns() {
+		return columns;
+	}
+
+}
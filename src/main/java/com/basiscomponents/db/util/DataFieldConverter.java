@@ -7,214 +7,163 @@ import java.math.BigDecimal;
 import java.sql.Time;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 
 public class DataFieldConverter {
-	private static final String JAVA_MATH_BIG_DECIMAL = "java.math.BigDecimal";
 	private static final String BBJ_INT = "BBjInt";
 	private static final String BBJ_NUMBER = "BBjNumber";
-	private static final String JAVA_LANG_DOUBLE = "java.lang.Double";
-	private static final String JAVA_LANG_INTEGER = "java.lang.Integer";
-	private static final String JAVA_LANG_BOOLEAN = "java.lang.Boolean";
-	private static final String JAVA_LANG_STRING = "java.lang.String";
+
+	/*
+	 * Conversion targets. java.sql.Types values are mapped onto one of these
+	 * families, each family owns one slot in the per-class converter table.
+	 */
+	private static final int TARGET_BINARY = 0;
+	private static final int TARGET_STRING = 1;
+	private static final int TARGET_BOOLEAN = 2;
+	private static final int TARGET_INTEGER = 3;
+	private static final int TARGET_DECIMAL = 4;
+	private static final int TARGET_DOUBLE = 5;
+	private static final int TARGET_NUMERIC = 6;
+	private static final int TARGET_DATE = 7;
+	private static final int TARGET_TIME = 8;
+	private static final int TARGET_TIMESTAMP = 9;
+	private static final int TARGET_OTHER = 10;
+	private static final int TARGET_COUNT = 11;
+
+	/*
+	 * The class a value of the given target family already has when no
+	 * conversion is needed. Checked before the table lookup.
+	 */
+	private static final Class<?>[] NATIVE_CLASSES = new Class<?>[TARGET_COUNT];
+	static {
+		NATIVE_CLASSES[TARGET_STRING] = String.class;
+		NATIVE_CLASSES[TARGET_BOOLEAN] = Boolean.class;
+		NATIVE_CLASSES[TARGET_INTEGER] = Integer.class;
+		NATIVE_CLASSES[TARGET_DECIMAL] = BigDecimal.class;
+		NATIVE_CLASSES[TARGET_DOUBLE] = Double.class;
+		NATIVE_CLASSES[TARGET_NUMERIC] = BigDecimal.class;
+		NATIVE_CLASSES[TARGET_DATE] = java.sql.Date.class;
+		NATIVE_CLASSES[TARGET_TIME] = Time.class;
+		NATIVE_CLASSES[TARGET_TIMESTAMP] = java.sql.Timestamp.class;
+	}
+
+	/**
+	 * Converts a value of a known source class into a value for a target type.
+	 */
+	@FunctionalInterface
+	private interface Converter {
+		Object convert(Object o, int targetType);
+	}
+
+	private static final Converter IDENTITY = (o, targetType) -> o;
+
+	private static final Converter UNSUPPORTED = (o, targetType) -> {
+		throw new IllegalArgumentException("Setting a DataField into a DataField is not supported");
+	};
+
+	/*
+	 * Per source class: one converter for every target family. Resolved once per
+	 * class, so the class name checks are not repeated on every conversion.
+	 */
+	private static final ClassValue<Converter[]> CONVERTERS = new ClassValue<Converter[]>() {
+		@Override
+		protected Converter[] computeValue(Class<?> type) {
+			return createConverters(type);
+		}
+	};
+
+	private static final ClassValue<Boolean> BBJ_NUMERIC = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			String c = type.getCanonicalName();
+			return c != null && (c.contains(BBJ_NUMBER) || c.contains(BBJ_INT));
+		}
+	};
 
 	private DataFieldConverter() {
 	}
+
 	public static Object convertType(Object o, int targetType) {
 
 		if (o == null)
 			return null;
 
-		String classname = o.getClass().getName();
-		String tmpstr = o.toString();
+		int target = targetOf(targetType);
+		Class<?> type = o.getClass();
+		if (type == NATIVE_CLASSES[target])
+			return o;
+		return CONVERTERS.get(type)[target].convert(o, targetType);
+	}
 
-		if (classname.contains("DataField")) {
-			throw new IllegalArgumentException("Setting a DataField into a DataField is not supported");
-		}
+	/**
+	 * Returns true if the given class is one of the BBj number types (BBjNumber,
+	 * BBjInt) which have to be turned into a Double before they are stored.
+	 * 
+	 * @param type
+	 *            The class of the value.
+	 * @return true if the class is a BBj number type
+	 */
+	public static boolean isBBjNumber(Class<?> type) {
+		return BBJ_NUMERIC.get(type);
+	}
 
+	private static int targetOf(int targetType) {
 		switch (targetType) {
-		// NOOP types first
-
 		case java.sql.Types.BINARY:
 		case java.sql.Types.VARBINARY:
 		case java.sql.Types.LONGVARBINARY:
-			if (!classname.equals(JAVA_LANG_STRING)) {
-				return o.toString().getBytes();
-			}
-			return ((String) o).getBytes();
+			return TARGET_BINARY;
 		case java.sql.Types.CHAR:
 		case java.sql.Types.VARCHAR:
 		case java.sql.Types.LONGVARCHAR:
-			// make Boolean special, for compatibility with BBj IF statements
-			// want true as "1" and false as "0"
-			if (classname.equals(JAVA_LANG_BOOLEAN))
-				return (Boolean) o ? "1" : "0";
-			if (classname.equals(JAVA_MATH_BIG_DECIMAL))
-				return ((BigDecimal) o).stripTrailingZeros().toPlainString();
-			if (!classname.equals(JAVA_LANG_STRING))
-				return o.toString();
-			else
-				return o;
+			return TARGET_STRING;
 		case java.sql.Types.BIT:
 		case java.sql.Types.BOOLEAN:
-			if (classname.equals(JAVA_LANG_BOOLEAN))
-				return o;
-			if (classname.equals(JAVA_LANG_STRING)) {
-				String c = o.toString().toLowerCase();
-				return c.equals("true") || c.equals(".t.") || c.equals("1");
-			}
-			if (classname.equals(JAVA_LANG_INTEGER))
-				return (Integer) o > 0;
-			if (classname.equals(JAVA_LANG_DOUBLE))
-				return (Double) o > 0;
-			if (classname.contains(BBJ_NUMBER) || classname.contains(BBJ_INT))
-				return Double.parseDouble(o.toString()) > 0;
-			break;
-
+			return TARGET_BOOLEAN;
 		case java.sql.Types.TINYINT:
 		case java.sql.Types.BIGINT:
 		case java.sql.Types.SMALLINT:
 		case java.sql.Types.INTEGER:
-			if (classname.equals(JAVA_LANG_INTEGER))
-				return o;
-			if (classname.equals(JAVA_LANG_BOOLEAN))
-				return (Boolean) o ? 1 : 0;
-			if (classname.equals(JAVA_LANG_DOUBLE))
-				return ((Double) o).intValue();
-			if (tmpstr.isEmpty())
-				tmpstr = "0";
-			return (Integer.parseInt(tmpstr));
-
+			return TARGET_INTEGER;
 		case java.sql.Types.DECIMAL:
-			if (classname.equals(JAVA_LANG_DOUBLE))
-				return BigDecimal.valueOf((double) o);
-			if (classname.equals(JAVA_LANG_INTEGER))
-				return BigDecimal.valueOf((int) o);
-			if (tmpstr.isEmpty())
-				tmpstr = "0";
-			return new BigDecimal(tmpstr);
-
+			return TARGET_DECIMAL;
 		case java.sql.Types.REAL:
 		case java.sql.Types.DOUBLE:
-			if (classname.equals(JAVA_LANG_DOUBLE))
-				return o;
-			if (classname.equals(JAVA_LANG_BOOLEAN))
-				return (Boolean) o ? 1.0 : 0.0;
-			if (tmpstr.isEmpty())
-				tmpstr = "0.0";
-			return (Double.parseDouble(tmpstr));
+			return TARGET_DOUBLE;
 		case java.sql.Types.NUMERIC:
-			if (tmpstr.isEmpty())
-				tmpstr = "0.0";
-			return new java.math.BigDecimal(tmpstr);
+			return TARGET_NUMERIC;
 		case java.sql.Types.DATE:
-			if (classname.equals("java.sql.Date"))
-				return o;
-			if (classname.contains("com.basis.util.common.BasisNumber")
-					|| classname.contains("com.basis.startup.type.BBjNumber")) {
-				com.basis.util.common.BasisNumber val = com.basis.util.common.BasisNumber
-						.getBasisNumber((com.basis.startup.type.BBjNumber) o);
-				Date d = com.basis.util.BasisDate.date(val.intValueExact());
-				if (d != null)
-					return new java.sql.Date(d.getTime());
-				else
-					return null;
-			}
-			if (classname.equals(JAVA_LANG_INTEGER)) {
-				Date d = com.basis.util.BasisDate.date((Integer) o);
-				if (d != null)
-					return new java.sql.Date(d.getTime());
-				else
-					return null;
-			}
-			if (classname.equals(JAVA_LANG_DOUBLE)) {
-				Date d = com.basis.util.BasisDate.date(((Double) o).intValue());
-				if (d != null)
-					return new java.sql.Date(d.getTime());
-				else
-					return null;
-			}
-			if (classname.equals("java.lang.Long")) {
-				return new java.sql.Date((long) o);
-			}
-			if (classname.equals(JAVA_LANG_STRING))
-				if (tmpstr.isEmpty())
-					return null;
-				else {
-					try {
-						StringBuilder format;
-						format = new StringBuilder("yyyy-MM-dd");
-						if(tmpstr.contains("T")){
-							format.append("'T'");
-						}else{
-							format.append(' ');
-						}
-						if(tmpstr.contains(":")){
-							format.append("HH:mm:ss");
-						}
-						if (tmpstr.contains(".")){
-							format.append(".SSS");
-						}
-						if(tmpstr.matches("\\d{4}-\\d{2}-\\d{2}[T\\s]+.*-\\d{2}:\\d{2}")){
-							format.append('X');
-						}
-						String formatString = format.toString().trim();
-						final SimpleDateFormat sdf = new SimpleDateFormat(formatString);
-						final Date date = sdf.parse(tmpstr);
-						long time = date.getTime();
-						return new java.sql.Date(time);
-
-					} catch (ParseException e) {
-						throw new IllegalStateException("Date [" + o + "] could not be parsed", e);
-					}
-				}
-			break;
-
+			return TARGET_DATE;
 		case java.sql.Types.TIME:
-			if (classname.equals("java.sql.Time"))
-				return o;
-			if (classname.equals(JAVA_LANG_STRING))
-				try {
-					return new java.sql.Time(new SimpleDateFormat("HH:mm:ss").parse((String) o).getTime());
-				} catch (ParseException e) {
-					throw new IllegalStateException("Time [" + o + "] could not be parsed", e);
-				}
-			break;
+			return TARGET_TIME;
 		case java.sql.Types.TIMESTAMP:
-			if (classname.equals("java.sql.Timestamp"))
-				return o;
-			if (classname.equals(JAVA_LANG_INTEGER))
-				return new java.sql.Timestamp(com.basis.util.BasisDate.date((Integer) o).getTime());
-			if (classname.equals(JAVA_LANG_DOUBLE))
-				return new java.sql.Timestamp(com.basis.util.BasisDate.date(((Double) o).intValue()).getTime());
-			if (classname.equals(JAVA_LANG_STRING)) {
-				String p = ((String) o).replaceFirst("T", " ");
-				if (tmpstr.isEmpty())
-					return null;
-				
-				// split off timezone
-				// TODO: detect timezone by offset and adjust the timestamp accordingly
-				// TODO: find a better performing implementation
-
-				String tz_offs = "";
-				if (p.contains("+")) {
-					tz_offs = tmpstr.substring(p.indexOf('+'));
-					p = p.substring(0, p.indexOf('+'));
-				}
-				p = p.replaceFirst("-", "X");
-				p = p.replaceFirst("-", "X");
-				if (p.contains("-")) {
-					tz_offs = p.substring(p.indexOf('-'));
-					p = p.substring(0, p.indexOf('-'));
-				}
-				p = p.replaceFirst("X", "-");
-				p = p.replaceFirst("X", "-");
-				return java.sql.Timestamp.valueOf(p);
-			}
-
-			break;
+			return TARGET_TIMESTAMP;
 		default:
+			return TARGET_OTHER;
+		}
+	}
+
+	private static Converter[] createConverters(Class<?> type) {
+		Converter[] converters = new Converter[TARGET_COUNT];
+		String classname = type.getName();
+
+		if (classname.contains("DataField")) {
+			Arrays.fill(converters, UNSUPPORTED);
+			return converters;
+		}
 
+		converters[TARGET_BINARY] = binaryConverter(type);
+		converters[TARGET_STRING] = stringConverter(type);
+		converters[TARGET_BOOLEAN] = booleanConverter(type, classname);
+		converters[TARGET_INTEGER] = integerConverter(type);
+		converters[TARGET_DECIMAL] = decimalConverter(type);
+		converters[TARGET_DOUBLE] = doubleConverter(type);
+		converters[TARGET_NUMERIC] = numericConverter(type);
+		converters[TARGET_DATE] = dateConverter(type, classname);
+		converters[TARGET_TIME] = timeConverter(type);
+		converters[TARGET_TIMESTAMP] = timestampConverter(type);
+		converters[TARGET_OTHER] = (o, targetType) -> {
 			String typeName = ResultSet.getSQLTypeName(targetType);
 			if (typeName != null) {
 				System.out.println("warning: unclear type conversion for type " + targetType + "(" + typeName
@@ -223,9 +172,189 @@ public class DataFieldConverter {
 				System.out
 						.println("warning: unclear type conversion for type " + targetType + " and class " + classname);
 			}
+			return o;
+		};
+		return converters;
+	}
+
+	private static Converter binaryConverter(Class<?> type) {
+		if (type == String.class)
+			return (o, targetType) -> ((String) o).getBytes();
+		return (o, targetType) -> o.toString().getBytes();
+	}
+
+	private static Converter stringConverter(Class<?> type) {
+		// make Boolean special, for compatibility with BBj IF statements
+		// want true as "1" and false as "0"
+		if (type == Boolean.class)
+			return (o, targetType) -> (Boolean) o ? "1" : "0";
+		if (type == BigDecimal.class)
+			return (o, targetType) -> ((BigDecimal) o).stripTrailingZeros().toPlainString();
+		if (type == String.class)
+			return IDENTITY;
+		return (o, targetType) -> o.toString();
+	}
+
+	private static Converter booleanConverter(Class<?> type, String classname) {
+		if (type == Boolean.class)
+			return IDENTITY;
+		if (type == String.class)
+			return (o, targetType) -> {
+				String c = o.toString().toLowerCase();
+				return c.equals("true") || c.equals(".t.") || c.equals("1");
+			};
+		if (type == Integer.class)
+			return (o, targetType) -> (Integer) o > 0;
+		if (type == Double.class)
+			return (o, targetType) -> (Double) o > 0;
+		if (classname.contains(BBJ_NUMBER) || classname.contains(BBJ_INT))
+			return (o, targetType) -> Double.parseDouble(o.toString()) > 0;
+		return IDENTITY;
+	}
+
+	private static Converter integerConverter(Class<?> type) {
+		if (type == Integer.class)
+			return IDENTITY;
+		if (type == Boolean.class)
+			return (o, targetType) -> (Boolean) o ? 1 : 0;
+		if (type == Double.class)
+			return (o, targetType) -> ((Double) o).intValue();
+		return (o, targetType) -> Integer.parseInt(orDefault(o.toString(), "0"));
+	}
+
+	private static Converter decimalConverter(Class<?> type) {
+		if (type == Double.class)
+			return (o, targetType) -> BigDecimal.valueOf((double) o);
+		if (type == Integer.class)
+			return (o, targetType) -> BigDecimal.valueOf((int) o);
+		return (o, targetType) -> new BigDecimal(orDefault(o.toString(), "0"));
+	}
+
+	private static Converter doubleConverter(Class<?> type) {
+		if (type == Double.class)
+			return IDENTITY;
+		if (type == Boolean.class)
+			return (o, targetType) -> (Boolean) o ? 1.0 : 0.0;
+		return (o, targetType) -> Double.parseDouble(orDefault(o.toString(), "0.0"));
+	}
+
+	private static Converter numericConverter(Class<?> type) {
+		return (o, targetType) -> new BigDecimal(orDefault(o.toString(), "0.0"));
+	}
+
+	private static Converter dateConverter(Class<?> type, String classname) {
+		if (type == java.sql.Date.class)
+			return IDENTITY;
+		if (classname.contains("com.basis.util.common.BasisNumber")
+				|| classname.contains("com.basis.startup.type.BBjNumber"))
+			return (o, targetType) -> {
+				com.basis.util.common.BasisNumber val = com.basis.util.common.BasisNumber
+						.getBasisNumber((com.basis.startup.type.BBjNumber) o);
+				return toSqlDate(com.basis.util.BasisDate.date(val.intValueExact()));
+			};
+		if (type == Integer.class)
+			return (o, targetType) -> toSqlDate(com.basis.util.BasisDate.date((Integer) o));
+		if (type == Double.class)
+			return (o, targetType) -> toSqlDate(com.basis.util.BasisDate.date(((Double) o).intValue()));
+		if (type == Long.class)
+			return (o, targetType) -> new java.sql.Date((long) o);
+		if (type == String.class)
+			return (o, targetType) -> parseDate((String) o);
+		return IDENTITY;
+	}
+
+	private static Converter timeConverter(Class<?> type) {
+		if (type == Time.class)
+			return IDENTITY;
+		if (type == String.class)
+			return (o, targetType) -> {
+				try {
+					return new java.sql.Time(new SimpleDateFormat("HH:mm:ss").parse((String) o).getTime());
+				} catch (ParseException e) {
+					throw new IllegalStateException("Time [" + o + "] could not be parsed", e);
+				}
+			};
+		return IDENTITY;
+	}
+
+	private static Converter timestampConverter(Class<?> type) {
+		if (type == java.sql.Timestamp.class)
+			return IDENTITY;
+		if (type == Integer.class)
+			return (o, targetType) -> new java.sql.Timestamp(com.basis.util.BasisDate.date((Integer) o).getTime());
+		if (type == Double.class)
+			return (o, targetType) -> new java.sql.Timestamp(
+					com.basis.util.BasisDate.date(((Double) o).intValue()).getTime());
+		if (type == String.class)
+			return (o, targetType) -> parseTimestamp((String) o);
+		return IDENTITY;
+	}
+
+	private static String orDefault(String tmpstr, String defaultValue) {
+		return tmpstr.isEmpty() ? defaultValue : tmpstr;
+	}
+
+	private static java.sql.Date toSqlDate(Date d) {
+		if (d != null)
+			return new java.sql.Date(d.getTime());
+		else
+			return null;
+	}
+
+	private static java.sql.Date parseDate(String tmpstr) {
+		if (tmpstr.isEmpty())
+			return null;
+		try {
+			StringBuilder format;
+			format = new StringBuilder("yyyy-MM-dd");
+			if(tmpstr.contains("T")){
+				format.append("'T'");
+			}else{
+				format.append(' ');
+			}
+			if(tmpstr.contains(":")){
+				format.append("HH:mm:ss");
+			}
+			if (tmpstr.contains(".")){
+				format.append(".SSS");
+			}
+			if(tmpstr.matches("\\d{4}-\\d{2}-\\d{2}[T\\s]+.*-\\d{2}:\\d{2}")){
+				format.append('X');
+			}
+			String formatString = format.toString().trim();
+			final SimpleDateFormat sdf = new SimpleDateFormat(formatString);
+			final Date date = sdf.parse(tmpstr);
+			long time = date.getTime();
+			return new java.sql.Date(time);
+
+		} catch (ParseException e) {
+			throw new IllegalStateException("Date [" + tmpstr + "] could not be parsed", e);
+		}
+	}
+
+	private static java.sql.Timestamp parseTimestamp(String tmpstr) {
+		String p = tmpstr.replaceFirst("T", " ");
+		if (tmpstr.isEmpty())
+			return null;
+
+		// split off timezone
+		// TODO: detect timezone by offset and adjust the timestamp accordingly
+		// TODO: find a better performing implementation
 
+		String tz_offs = "";
+		if (p.contains("+")) {
+			tz_offs = tmpstr.substring(p.indexOf('+'));
+			p = p.substring(0, p.indexOf('+'));
+		}
+		p = p.replaceFirst("-", "X");
+		p = p.replaceFirst("-", "X");
+		if (p.contains("-")) {
+			tz_offs = p.substring(p.indexOf('-'));
+			p = p.substring(0, p.indexOf('-'));
 		}
-		return o;
+		p = p.replaceFirst("X", "-");
+		p = p.replaceFirst("X", "-");
+		return java.sql.Timestamp.valueOf(p);
 	}
 
 	public static Double fieldToNumber(ResultSet resultSet, DataField field, int column, int type) {
@@ -9,9 +9,15 @@ import com.basiscomponents.json.ComponentsCharacterEscapes;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.HashMap;
@@ -54,12 +60,72 @@ public class ResultSetJsonMapper {
 		return rs;
 	}
 
+	/**
+	 * Reads a ResultSet from a JSON array, e.g. the body of an HTTP response, row
+	 * by row: only the JSON of the current row is held in memory, the DataRows
+	 * are created like by {@link #fromJson(String)}, with the meta data of the
+	 * first row.
+	 * 
+	 * @param reader The Reader to read the JSON array from, it is not closed.
+	 * 
+	 * @return The ResultSet, empty for an empty array.
+	 * 
+	 * @throws IOException    if reading fails
+	 * @throws ParseException if the JSON is not an array of objects
+	 */
+	public static ResultSet fromJson(Reader reader) throws IOException, ParseException {
+		ResultSet rs = new ResultSet();
+		ObjectMapper mapper = new ObjectMapper();
+		// numbers are passed on as written
+		mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+		JsonFactory jf = mapper.getFactory();
+		jf.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		jf.enable(JsonParser.Feature.ALLOW_UNQUOTED_CONTROL_CHARS);
+		try (JsonParser parser = jf.createParser(reader)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY)
+				throw new ParseException("Invalid JSON array", 0);
+			DataRow metaRow = null;
+			JsonToken token;
+			while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+				String rowJson = parser.readValueAsTree().toString();
+				if (metaRow == null)
+					metaRow = DataRowJsonMapper.fromJson(rowJson);
+				rs.add(DataRowJsonMapper.fromJson(rowJson, metaRow));
+			}
+			if (token != JsonToken.END_ARRAY)
+				throw new ParseException("Invalid JSON array", 0);
+		}
+		return rs;
+	}
+
 	public static String toJson(ResultSet rs, boolean meta, String addIndexColumn, boolean f_trimStrings,
 			boolean writeDataRowAttributes) throws IOException {
+		StringWriter writer = new StringWriter();
+		writeJson(rs, writer, meta, addIndexColumn, f_trimStrings, writeDataRowAttributes);
+		return writer.toString();
+	}
+
+	/**
+	 * Writes the JSON representation of the given ResultSet to the given Writer
+	 * row by row, without building the whole JSON String in memory. The Writer is
+	 * flushed but not closed.
+	 * 
+	 * @param rs                     The ResultSet to write.
+	 * @param writer                 The Writer to write the JSON to.
+	 * @param meta                   if MetaData should be written
+	 * @param addIndexColumn         The index column which is generated
+	 *                               ({@code null} if it doesn't exist)
+	 * @param f_trimStrings          if Strings should be trimmed
+	 * @param writeDataRowAttributes if the attributes of the DataRows should be
+	 *                               written
+	 * @throws IOException if writing to the Writer fails
+	 */
+	public static void writeJson(ResultSet rs, Writer writer, boolean meta, String addIndexColumn,
+			boolean f_trimStrings, boolean writeDataRowAttributes) throws IOException {
 
 		JsonFactory jf = new JsonFactory();
 		jf.setCharacterEscapes(new ComponentsCharacterEscapes());
-		StringWriter writer = new StringWriter();
+		jf.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 		try (JsonGenerator jsonGenerator = jf.createGenerator(writer)) {
 			jsonGenerator.configure(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN, true);
 			// g.useDefaultPrettyPrinter();
@@ -93,8 +159,6 @@ public class ResultSetJsonMapper {
 
 			jsonGenerator.writeEndArray();
 		}
-
-		return writer.toString();
 	}
 
 	private static void writeDataRowAttributes(HashMap<String, String> attributes, JsonGenerator jsonGenerator)
@@ -1,10 +1,19 @@
 package com.basiscomponents.lucene;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
@@ -29,33 +38,73 @@ import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.FuzzyQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.LockObtainFailedException;
 
-public class BBjSearchGizmo {
+/**
+ * Indexes and searches documents in a Lucene index directory.
+ *
+ * The index is opened on first use and kept open: one IndexWriter per
+ * directory is shared by all gizmos on that directory, and searches use a
+ * near-real-time searcher of that writer, so they see the added and removed
+ * documents without a commit. The changes are committed every
+ * {@link #setCommitInterval(long)} milliseconds, on {@link #commit()}, and
+ * when the last gizmo on the directory is closed. Changes which weren't
+ * committed are lost if the gizmos aren't closed.
+ *
+ * The methods are thread safe.
+ */
+public class BBjSearchGizmo implements Closeable {
+
+	public static final long DEFAULT_COMMIT_INTERVAL = 5000;
+
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	private static final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "BBjSearchGizmo-" + threadNumber.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	});
+
+	// the open indexes by directory, guarded by the map
+	private static final Map<String,Index> indexes = new HashMap<>();
+
 	private String directoryName;
 	private String taxoDirectoryName;
 
 	private Analyzer analyzer;
 
+	private long commitInterval = DEFAULT_COMMIT_INTERVAL;
+
+	private Index index;
+
+	private boolean closed;
+
 	public BBjSearchGizmo(String directory) {
 		this.directoryName = directory;
 		analyzer = new WhitespaceAnalyzer();
 	}
 
-	public void addDocument(BBjSearchGizmoDoc doc) throws IOException {
-
-		try {
-			removeDocument(doc.getId());
-		} catch (ParseException e) {
-			e.printStackTrace();
-		}
+	/**
+	 * Sets the interval of the periodic commit, it applies when the index of the
+	 * directory is opened.
+	 *
+	 * @param commitInterval The interval in milliseconds,
+	 *                       {@link #DEFAULT_COMMIT_INTERVAL} by default, 0 to
+	 *                       only commit on {@link #commit()} and
+	 *                       {@link #close()}.
+	 */
+	public void setCommitInterval(long commitInterval) {
+		if (commitInterval < 0)
+			throw new IllegalArgumentException("The commit interval must not be negative");
+		this.commitInterval = commitInterval;
+	}
 
-		FSDirectory indexdirectory = FSDirectory.open(FileSystems.getDefault().getPath(directoryName));
-		IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
-		IndexWriter writer = new IndexWriter(indexdirectory, iwc);
+	public void addDocument(BBjSearchGizmoDoc doc) throws IOException {
 		/*
 		 * Document lucene_doc_taxo2= new Document(); lucene_doc_taxo2.add(new
 		 * FacetField("id","2")); lucene_doc_taxo2.add(new FacetField("color","red"));
@@ -77,101 +126,115 @@ public class BBjSearchGizmo {
 
 		}
 
-		try {
-			writer.addDocument(luceneDoc);
-		} catch (Exception ex) {
-			writer.close();
-			// taxoWriter.commit();
-
-			indexdirectory.close();
-
-			throw ex;
-		}
-
-		writer.close();
-		// taxoWriter.commit();
-
-		indexdirectory.close();
+		// replaces the document with the same id atomically
+		Index index = getIndex();
+		index.writer.updateDocument(new Term("id", doc.getInternalId()), luceneDoc);
+		index.changed();
 	}
 
 	public void removeDocument(String id) throws IOException, LockObtainFailedException, ParseException {
 
 		String id2 = new String(java.util.Base64.getEncoder().encode(id.getBytes()));
 
-		FSDirectory indexdirectory = FSDirectory.open(FileSystems.getDefault().getPath(directoryName));
-
-		IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
-		try (IndexWriter writer = new IndexWriter(indexdirectory, iwc)) {
+		Index index = getIndex();
+		index.writer.deleteDocuments(new Term("id", id2));
+		index.changed();
+	}
 
-		writer.deleteDocuments(new org.apache.lucene.index.Term("id", id2));
+	/**
+	 * Commits the added and removed documents to the index directory.
+	 *
+	 * @throws IOException if the commit failed
+	 */
+	public void commit() throws IOException {
+		getIndex().commit();
+	}
 
-		indexdirectory.close();
+	/**
+	 * Releases the index, the last gizmo on the directory commits and closes it.
+	 *
+	 * @throws IOException if the index could not be committed or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		Index index;
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			index = this.index;
+			this.index = null;
 		}
+		if (index != null)
+			release(index);
 	}
 
 	public ArrayList<String> doSearch(String searchTerm, String[] fields) throws IOException, ParseException {
-		FSDirectory indexdirectory = FSDirectory.open(FileSystems.getDefault().getPath(directoryName));
-		IndexReader reader = DirectoryReader.open(indexdirectory);
-		IndexSearcher searcher = new IndexSearcher(reader);
-
-		if (reader.numDocs() < 1) {
-			return new ArrayList<>();
-		}
-
-		TopScoreDocCollector collector = TopScoreDocCollector.create(reader.numDocs());
+		Index index = getIndex();
+		IndexSearcher searcher = index.acquire();
+		try {
+			IndexReader reader = searcher.getIndexReader();
 
-		MultiFieldQueryParser queryparser = new MultiFieldQueryParser(fields, analyzer);
-		queryparser.setAllowLeadingWildcard(true);
-		Query query = queryparser.parse(searchTerm.toLowerCase());
-		searcher.search(query, collector);
-		ScoreDoc[] hits = collector.topDocs().scoreDocs;
+			if (reader.numDocs() < 1) {
+				return new ArrayList<>();
+			}
 
-		ArrayList<String> result = new ArrayList<>();
+			TopScoreDocCollector collector = TopScoreDocCollector.create(reader.numDocs());
 
-		for (int i = 0; i < hits.length; ++i) {
-			int docId = hits[i].doc;
-			Document d = searcher.doc(docId);
-			String s = d.get("id");
-			s = new String(java.util.Base64.getDecoder().decode(s));
-			result.add(s);
+			MultiFieldQueryParser queryparser = new MultiFieldQueryParser(fields, analyzer);
+			queryparser.setAllowLeadingWildcard(true);
+			Query query = queryparser.parse(searchTerm.toLowerCase());
+			searcher.search(query, collector);
+			ScoreDoc[] hits = collector.topDocs().scoreDocs;
+
+			ArrayList<String> result = new ArrayList<>();
+
+			for (int i = 0; i < hits.length; ++i) {
+				int docId = hits[i].doc;
+				Document d = searcher.doc(docId);
+				String s = d.get("id");
+				s = new String(java.util.Base64.getDecoder().decode(s));
+				result.add(s);
+			}
+
+			return result;
+		} finally {
+			index.searcherManager.release(searcher);
 		}
-		reader.close();
-		indexdirectory.close();
-
-		return result;
 	}
 
 	public ArrayList<String> doFuzzySearch(String searchTerm, String field) throws IOException {
-		FSDirectory indexdirectory = FSDirectory.open(FileSystems.getDefault().getPath(directoryName));
-		IndexReader reader = DirectoryReader.open(indexdirectory);
-		IndexSearcher searcher = new IndexSearcher(reader);
-		TopScoreDocCollector collector = TopScoreDocCollector.create(1000);
-
-		searchTerm = searchTerm + "~";
-		Term fuzzyclientsearch = new Term(field, searchTerm);
-		FuzzyQuery fuzzyquery = new FuzzyQuery(fuzzyclientsearch);
-		searcher.search(fuzzyquery, collector);
-		ScoreDoc[] hits = collector.topDocs().scoreDocs;
-
-		ArrayList<String> result = new ArrayList<String>();
-
-		for (int i = 0; i < hits.length; ++i) {
-			int docId = hits[i].doc;
-			Document d = searcher.doc(docId);
-			result.add(d.get("id"));
+		Index index = getIndex();
+		IndexSearcher searcher = index.acquire();
+		try {
+			TopScoreDocCollector collector = TopScoreDocCollector.create(1000);
+
+			searchTerm = searchTerm + "~";
+			Term fuzzyclientsearch = new Term(field, searchTerm);
+			FuzzyQuery fuzzyquery = new FuzzyQuery(fuzzyclientsearch);
+			searcher.search(fuzzyquery, collector);
+			ScoreDoc[] hits = collector.topDocs().scoreDocs;
+
+			ArrayList<String> result = new ArrayList<String>();
+
+			for (int i = 0; i < hits.length; ++i) {
+				int docId = hits[i].doc;
+				Document d = searcher.doc(docId);
+				result.add(d.get("id"));
+			}
+			return result;
+		} finally {
+			index.searcherManager.release(searcher);
 		}
-		indexdirectory.close();
-		return result;
 	}
 
 	public List<FacetResult> facetsWithSearch(String searchTerm, String[] fields) throws IOException, ParseException {
 
-		try (FSDirectory indexdirectory = FSDirectory.open(FileSystems.getDefault().getPath(directoryName));
-				FSDirectory indextaxodirectory = FSDirectory.open(FileSystems.getDefault().getPath(taxoDirectoryName));
-				IndexReader reader = DirectoryReader.open(indexdirectory);
+		Index index = getIndex();
+		IndexSearcher searcher = index.acquire();
+		try (FSDirectory indextaxodirectory = FSDirectory.open(FileSystems.getDefault().getPath(taxoDirectoryName));
 				TaxonomyReader taxoreader = new DirectoryTaxonomyReader(indextaxodirectory);) {
 
-			IndexSearcher searcher = new IndexSearcher(reader);
 			MultiFieldQueryParser queryparser = new MultiFieldQueryParser(fields, analyzer);
 			queryparser.setAllowLeadingWildcard(true);
 			Query query = queryparser.parse(searchTerm.toLowerCase());
@@ -186,7 +249,156 @@ public class BBjSearchGizmo {
 			results.add(facets.getTopChildren(3, "color"));
 
 			return results;
+		} finally {
+			index.searcherManager.release(searcher);
+		}
+	}
+
+	private synchronized Index getIndex() throws IOException {
+		if (closed)
+			throw new IllegalStateException("The search gizmo on " + directoryName + " is closed");
+		if (index == null)
+			index = acquire(directoryName, analyzer, commitInterval);
+		return index;
+	}
+
+	private static Index acquire(String directoryName, Analyzer analyzer, long commitInterval) throws IOException {
+		String key = FileSystems.getDefault().getPath(directoryName).toAbsolutePath().normalize().toString();
+		synchronized (indexes) {
+			Index index = indexes.get(key);
+			if (index == null) {
+				index = new Index(key, analyzer);
+				if (commitInterval > 0)
+					index.scheduleCommit(commitInterval);
+				indexes.put(key, index);
+			}
+			index.references++;
+			return index;
+		}
+	}
+
+	private static void release(Index index) throws IOException {
+		synchronized (indexes) {
+			if (--index.references > 0)
+				return;
+			indexes.remove(index.key);
+		}
+		index.close();
+	}
+
+	/**
+	 * The open index of a directory: the writer, and the manager of the
+	 * near-real-time searchers on it.
+	 */
+	private static class Index {
+
+		private final String key;
+
+		private final FSDirectory directory;
+
+		private final IndexWriter writer;
+
+		private final SearcherManager searcherManager;
+
+		// counts the changes of the writer
+		private final AtomicLong changes = new AtomicLong();
+
+		// the changes seen by the searcher of the running refresh, guarded by
+		// the refresh lock of the searcher manager
+		private long refreshing;
+
+		// the changes seen by the current searcher
+		private volatile long searched;
+
+		private ScheduledFuture<?> commitTask;
+
+		// guarded by indexes
+		private int references;
+
+		Index(String key, Analyzer analyzer) throws IOException {
+			this.key = key;
+			directory = FSDirectory.open(FileSystems.getDefault().getPath(key));
+			try {
+				IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
+				iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+				writer = new IndexWriter(directory, iwc);
+				try {
+					// an empty directory becomes an index, readers can open it
+					if (!DirectoryReader.indexExists(directory))
+						writer.commit();
+					searcherManager = new SearcherManager(writer, true, null);
+					searcherManager.addListener(new ReferenceManager.RefreshListener() {
+						@Override
+						public void beforeRefresh() {
+							// the refreshed searcher sees all changes made so far
+							refreshing = changes.get();
+						}
+
+						@Override
+						public void afterRefresh(boolean didRefresh) {
+							// called after the new searcher was swapped in
+							searched = refreshing;
+						}
+					});
+				} catch (IOException | RuntimeException e) {
+					writer.rollback();
+					throw e;
+				}
+			} catch (IOException | RuntimeException e) {
+				directory.close();
+				throw e;
+			}
 		}
+
+		void scheduleCommit(long interval) {
+			commitTask = committer.scheduleWithFixedDelay(() -> {
+				try {
+					commit();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}, interval, interval, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * Records a change of the writer, it has to be called after the change.
+		 */
+		void changed() {
+			changes.incrementAndGet();
+		}
+
+		/**
+		 * Acquires a searcher which sees all changes of the writer, it has to be
+		 * released to the searcher manager.
+		 */
+		IndexSearcher acquire() throws IOException {
+			// a refresh started before the last change doesn't see it, it is
+			// waited for and another one is done
+			if (searched < changes.get())
+				searcherManager.maybeRefreshBlocking();
+			return searcherManager.acquire();
+		}
+
+		void commit() throws IOException {
+			if (writer.isOpen() && writer.hasUncommittedChanges())
+				writer.commit();
+		}
+
+		void close() throws IOException {
+			if (commitTask != null)
+				commitTask.cancel(false);
+			try {
+				searcherManager.close();
+			} finally {
+				try {
+					// commits the pending changes
+					writer.close();
+				} finally {
+					directory.close();
+				}
+			}
+		}
+
 	}
 
 }
@@ -1,19 +1,42 @@
 package com.basiscomponents.rest;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.Base64;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import com.basiscomponents.db.DataRow;
 import com.basiscomponents.db.ResultSet;
 import com.basiscomponents.db.util.ResultSetJsonMapper;
+import com.basiscomponents.util.HttpHelper;
 
+/**
+ * A client for REST endpoints which return a JSON array of records.
+ *
+ * The connections are kept alive between requests, gzip compressed responses
+ * are accepted, and the response is parsed into DataRows while it is read.
+ * Paginated endpoints can be fetched with several requests in parallel, see
+ * {@link #getPaged(String, String, int)}.
+ */
 public class RestClient {
 	
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
+	// fetches the pages; the number of pages in flight is bounded per call
+	private static final ExecutorService executor = HttpHelper.newDaemonThreadPool("RestClient");
+
 	private String endpoint;
 	private String user;
 	private String password;
+	private boolean gzip = true;
+	private String offsetParameter = "offset";
+	private String limitParameter = "limit";
+	private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
 		
 	public void setEndpoint(String endpoint) {
 		this.endpoint = endpoint;
@@ -30,7 +53,131 @@ public class RestClient {
 		
 	}
 
+	/**
+	 * @param gzip true to accept gzip compressed responses (the default), false
+	 *             otherwise.
+	 */
+	public void setGzip(boolean gzip) {
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Sets the names of the request parameters for the index of the first record
+	 * and the number of records of a page, see
+	 * {@link #getPaged(String, String, int)}.
+	 *
+	 * @param offsetParameter The offset parameter, <code>offset</code> by default.
+	 * @param limitParameter  The limit parameter, <code>limit</code> by default.
+	 */
+	public void setPagingParameters(String offsetParameter, String limitParameter) {
+		this.offsetParameter = offsetParameter;
+		this.limitParameter = limitParameter;
+	}
+
+	/**
+	 * Sets the maximum number of pages requested at the same time by
+	 * {@link #getPaged(String, String, int)}. The JDK keeps at most
+	 * <code>http.maxConnections</code> (5 by default) idle connections per
+	 * server alive.
+	 *
+	 * @param maxConcurrentRequests The maximum, {@link #DEFAULT_MAX_CONCURRENT_REQUESTS}
+	 *                              by default.
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		if (maxConcurrentRequests < 1)
+			throw new IllegalArgumentException("The maximum number of concurrent requests must be positive");
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+
 	public ResultSet get(String path, String request_parms) throws Exception {
+		return get(path, request_parms, null);
+	}
+
+	/**
+	 * Fetches all records of a paginated endpoint, which accepts the offset and
+	 * limit parameters (see {@link #setPagingParameters(String, String)}), and
+	 * merges the pages into one ResultSet in order.
+	 *
+	 * The first page is fetched alone. If its response has an
+	 * <code>X-Total-Count</code> header, the remaining pages are known and
+	 * fetched in parallel. Otherwise pages are fetched ahead until a page has
+	 * fewer records than the page size. At most
+	 * {@link #setMaxConcurrentRequests(int)} pages are requested at the same
+	 * time.
+	 *
+	 * @param path          The path of the endpoint.
+	 * @param request_parms The other request parameters, may be null.
+	 * @param pageSize      The number of records per page.
+	 *
+	 * @return The records of all pages.
+	 *
+	 * @throws Exception if a page could not be fetched
+	 */
+	public ResultSet getPaged(String path, String request_parms, int pageSize) throws Exception {
+		if (pageSize < 1)
+			throw new IllegalArgumentException("The page size must be positive");
+		long[] totalCount = new long[] { -1 };
+		ResultSet rs = get(path, pageParameters(request_parms, 0, pageSize), totalCount);
+		if (rs.size() < pageSize || (totalCount[0] >= 0 && totalCount[0] <= pageSize))
+			return rs;
+
+		long total = totalCount[0];
+		ArrayDeque<Future<ResultSet>> pages = new ArrayDeque<>();
+		long offset = pageSize;
+		boolean more = true;
+		try {
+			while (more || !pages.isEmpty()) {
+				// keep the window of requests full
+				while (more && pages.size() < maxConcurrentRequests && (total < 0 || offset < total)) {
+					String parms = pageParameters(request_parms, offset, pageSize);
+					pages.add(executor.submit(() -> get(path, parms, null)));
+					offset += pageSize;
+				}
+				if (total >= 0 && offset >= total)
+					more = false;
+				if (pages.isEmpty())
+					break;
+				ResultSet page = getPage(pages.poll());
+				for (DataRow dr : page.getDataRows()) {
+					rs.add(dr);
+				}
+				if (page.size() < pageSize && total < 0) {
+					// the last page, the pages requested after it are empty
+					more = false;
+					break;
+				}
+			}
+		} finally {
+			for (Future<ResultSet> page : pages) {
+				page.cancel(true);
+			}
+		}
+		return rs;
+	}
+
+	private static ResultSet getPage(Future<ResultSet> page) throws Exception {
+		try {
+			return page.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			throw e;
+		}
+	}
+
+	private String pageParameters(String request_parms, long offset, int limit) {
+		String parms = this.offsetParameter + "=" + offset + "&" + this.limitParameter + "=" + limit;
+		if (request_parms != null && request_parms.length() > 0)
+			parms = request_parms + "&" + parms;
+		return parms;
+	}
+
+	/**
+	 * Fetches the records, totalCount[0] is set to the X-Total-Count of the
+	 * response if the header is present.
+	 */
+	private ResultSet get(String path, String request_parms, long[] totalCount) throws Exception {
 		
 		String u = this.endpoint + path;
 		if (request_parms != null && request_parms.length()>0)
@@ -43,26 +190,36 @@ public class RestClient {
 		
 		conn.setRequestProperty("Authorization", "Basic " + encoding);		
 		conn.setRequestProperty("Accept", "application/json");
+		if (this.gzip)
+			conn.setRequestProperty("Accept-Encoding", "gzip");
 
 
 		if (conn.getResponseCode() != 200) {
+			HttpHelper.drainErrorStream(conn);
 			throw new RuntimeException("Failed : HTTP error code : "
 					+ conn.getResponseCode());
 		}
 
-		BufferedReader br = new BufferedReader(new InputStreamReader(
-			(conn.getInputStream())));
-		
-		StringBuilder sb = new StringBuilder();
-		String output;
-		while ((output = br.readLine()) != null) {
-			sb.append(output);
+		if (totalCount != null) {
+			String total = conn.getHeaderField("X-Total-Count");
+			if (total != null) {
+				try {
+					totalCount[0] = Long.parseLong(total.trim());
+				} catch (NumberFormatException e) {
+					// not paginated by count
+				}
+			}
 		}
 
-		conn.disconnect();
-		ResultSet rs = ResultSetJsonMapper.fromJson(sb.toString());
-		
-		return rs;
+		// JSON defaults to UTF-8
+		try (Reader reader = HttpHelper.getResponseReader(conn, conn.getInputStream(), StandardCharsets.UTF_8)) {
+			ResultSet rs = ResultSetJsonMapper.fromJson(reader);
+			// consume what follows the array
+			char[] buffer = new char[256];
+			while (reader.read(buffer) != -1) {
+			}
+			return rs;
+		}
 	}
 
 }
@@ -0,0 +1,115 @@
+package com.basiscomponents.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Helpers for the HTTP clients, which send their requests over kept-alive
+ * {@link HttpURLConnection}s.
+ */
+public class HttpHelper {
+	private HttpHelper() {
+	}
+
+	/**
+	 * Returns a pool of daemon threads which are created on demand, for the
+	 * requests sent in the background.
+	 *
+	 * @param name
+	 *            The prefix of the thread names.
+	 *
+	 * @return The thread pool.
+	 */
+	public static ExecutorService newDaemonThreadPool(String name) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Reads and discards the error response of the connection, so the
+	 * connection can be reused.
+	 *
+	 * @param connection
+	 *            The connection with an error response.
+	 *
+	 * @throws IOException
+	 *             if the error response could not be read
+	 */
+	public static void drainErrorStream(HttpURLConnection connection) throws IOException {
+		InputStream es = connection.getErrorStream();
+		if (es != null) {
+			try (InputStream in = es) {
+				byte[] buffer = new byte[4096];
+				while (in.read(buffer) != -1) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a Reader of the response, decompressed if the response is gzip
+	 * encoded and decoded with the charset of its content type.
+	 *
+	 * The connection isn't disconnected: once the response is read completely,
+	 * it stays open for the next request to the server. So the Reader has to be
+	 * read to the end before it is closed.
+	 *
+	 * @param connection
+	 *            The connection.
+	 * @param in
+	 *            The input stream of the connection.
+	 * @param defaultCharset
+	 *            The charset if the content type has none or an unknown one.
+	 *
+	 * @return The Reader of the response.
+	 *
+	 * @throws IOException
+	 *             if the gzip header could not be read
+	 */
+	public static Reader getResponseReader(HttpURLConnection connection, InputStream in, Charset defaultCharset)
+			throws IOException {
+		if ("gzip".equalsIgnoreCase(connection.getContentEncoding()))
+			in = new GZIPInputStream(in);
+		return new InputStreamReader(in, getCharset(connection.getContentType(), defaultCharset));
+	}
+
+	/**
+	 * Returns the charset parameter of a content type.
+	 *
+	 * @param contentType
+	 *            The content type, may be null.
+	 * @param defaultCharset
+	 *            The charset if the content type has none or an unknown one.
+	 *
+	 * @return The charset.
+	 */
+	public static Charset getCharset(String contentType, Charset defaultCharset) {
+		if (contentType != null) {
+			int i = contentType.toLowerCase().indexOf("charset=");
+			if (i >= 0) {
+				String name = contentType.substring(i + 8).trim();
+				int end = name.indexOf(';');
+				if (end >= 0)
+					name = name.substring(0, end).trim();
+				try {
+					return Charset.forName(name.replace("\"", ""));
+				} catch (IllegalArgumentException e) {
+					// unsupported or illegal name
+				}
+			}
+		}
+		return defaultCharset;
+	}
+}
@@ -26,11 +26,12 @@
 package org.java_websocket;
 
 import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.util.HashedWheelTimer;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -51,15 +52,31 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
 	private boolean reuseAddr;
 
 	/**
-     * Attribute for a timer allowing to check for lost connections
-	 * @since 1.3.4
-     */
-    private Timer connectionLostTimer;
-    /**
-     * Attribute for a timertask allowing to check for lost connections
+	 * The tick of the connection lost timer, the accuracy of the pings and of the lost connection detection
+	 */
+	private static final long CONNECTION_LOST_TICK_MILLIS = 100;
+
+	/**
+	 * The number of buckets of the connection lost timer, one round of the wheel takes 51.2 seconds
+	 */
+	private static final int CONNECTION_LOST_TICKS_PER_WHEEL = 512;
+
+	/**
+     * Attribute for a timer allowing to check for lost connections, every connection has its own deadline in it
 	 * @since 1.3.4
      */
-    private TimerTask connectionLostTimerTask;
+    private volatile HashedWheelTimer connectionLostTimer;
+
+	/**
+	 * A timer shared with other endpoints which is used instead of an own timer, it is never stopped by this endpoint
+	 */
+	private HashedWheelTimer sharedConnectionLostTimer;
+
+	/**
+	 * Incremented whenever the connection lost timer is restarted or cancelled, so the checks of a shared timer notice
+	 * that they are outdated
+	 */
+	private volatile int connectionLostGeneration;
 
     /**
      * Attribute for the lost connection check interval
@@ -124,7 +141,7 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
 	 * @since 1.3.4
      */
     protected void stopConnectionLostTimer() {
-        if (connectionLostTimer != null ||connectionLostTimerTask != null) {
+        if (connectionLostTimer != null) {
 			this.websocketRunning = false;
             if( WebSocketImpl.DEBUG )
                 System.out.println( "Connection lost timer stopped" );
@@ -148,50 +165,126 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
     }
 
 	/**
-	 * This methods allows the reset of the connection lost timer in case of a changed parameter
+	 * This methods allows the reset of the connection lost timer in case of a changed parameter.
+	 * The checks of the existing connections are spread over the whole interval.
 	 * @since 1.3.4
 	 */
 	private void restartConnectionLostTimer() {
 		cancelConnectionLostTimer();
-		connectionLostTimer = new Timer("WebSocketTimer");
-		connectionLostTimerTask = new TimerTask() {
-
-			/**
-			 * Keep the connections in a separate list to not cause deadlocks
-			 */
-			private ArrayList<WebSocket> connections = new ArrayList<WebSocket>(  );
-			@Override
-			public void run() {
-				connections.clear();
-				try {
-					connections.addAll( getConnections() );
-					long current = ( System.currentTimeMillis() - ( connectionLostTimeout * 1500 ) );
-					WebSocketImpl webSocketImpl;
-					for( WebSocket conn : connections ) {
-						if( conn instanceof WebSocketImpl ) {
-							webSocketImpl = ( WebSocketImpl ) conn;
-							if( webSocketImpl.getLastPong() < current ) {
-								if( WebSocketImpl.DEBUG )
-									System.out.println( "Closing connection due to no pong received: " + conn.toString() );
-								webSocketImpl.closeConnection( CloseFrame.ABNORMAL_CLOSE, "The connection was closed because the other endpoint did not respond with a pong in time. For more information check: https://github.com/TooTallNate/Java-WebSocket/wiki/Lost-connection-detection" );
-							} else {
-								if( webSocketImpl.isOpen() ) {
-									webSocketImpl.sendPing();
-								} else {
-									if( WebSocketImpl.DEBUG )
-										System.out.println( "Trying to ping a non open connection: " + conn.toString() );
-								}
-							}
-						}
+		HashedWheelTimer timer = sharedConnectionLostTimer;
+		if( timer == null ) {
+			timer = createConnectionLostTimer();
+		}
+		connectionLostTimer = timer;
+		long interval = connectionLostTimeout * 1000L;
+		try {
+			for( WebSocket conn : getConnections() ) {
+				if( conn instanceof WebSocketImpl ) {
+					timer.newTimeout( new ConnectionLostCheck( timer, connectionLostGeneration, ( WebSocketImpl ) conn ), ThreadLocalRandom.current().nextLong( interval ), TimeUnit.MILLISECONDS );
+				}
+			}
+		} catch ( Exception e ) {
+			if (WebSocketImpl.DEBUG)
+				System.out.println("Exception during connection lost restart: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates a timer like the one this endpoint creates for its lost connection checks, to be shared by many endpoints
+	 * @return a new timer
+	 * @see #setSharedConnectionLostTimer(HashedWheelTimer)
+	 * @since 1.3.8
+	 */
+	public static HashedWheelTimer createConnectionLostTimer() {
+		return new HashedWheelTimer( "WebSocketTimer", CONNECTION_LOST_TICK_MILLIS, TimeUnit.MILLISECONDS, CONNECTION_LOST_TICKS_PER_WHEEL );
+	}
+
+	/**
+	 * Sets a timer shared with other endpoints for the lost connection checks, so not every endpoint starts its own timer thread.
+	 * The shared timer is not stopped when the checks of this endpoint are stopped.
+	 * Has to be called before the connection lost timer is started.
+	 * @param timer the shared timer, or null to use an own timer
+	 * @since 1.3.8
+	 */
+	protected void setSharedConnectionLostTimer( HashedWheelTimer timer ) {
+		this.sharedConnectionLostTimer = timer;
+	}
+
+	/**
+	 * Schedules the lost connection check of a new connection, if the connection lost timer is running
+	 * @param conn the connection which has been opened
+	 * @since 1.3.8
+	 */
+	protected void scheduleConnectionLostCheck( WebSocket conn ) {
+		HashedWheelTimer timer = connectionLostTimer;
+		if( timer != null && conn instanceof WebSocketImpl ) {
+			long interval = connectionLostTimeout * 1000L;
+			timer.newTimeout( new ConnectionLostCheck( timer, connectionLostGeneration, ( WebSocketImpl ) conn ), interval + jitter( interval ), TimeUnit.MILLISECONDS );
+		}
+	}
+
+	/**
+	 * @param interval the check interval in milliseconds
+	 * @return a random delay of up to a quarter of the interval, so connections opened together are not pinged together
+	 */
+	private static long jitter( long interval ) {
+		return ThreadLocalRandom.current().nextLong( interval / 4 + 1 );
+	}
+
+	/**
+	 * The deadline of one connection in the connection lost timer.
+	 * <p>
+	 * Any frame received from the connection moves its deadline, see {@link WebSocketImpl#updateLastPong()}. Instead of
+	 * rescheduling on every frame, the check reschedules itself for one interval after the last received frame, so an
+	 * active connection is never pinged. An idle connection is pinged one interval after its last frame and closed if it
+	 * did not answer within another half interval.
+	 */
+	private class ConnectionLostCheck implements Runnable {
+
+		private final HashedWheelTimer timer;
+
+		private final int generation;
+
+		private final WebSocketImpl conn;
+
+		ConnectionLostCheck( HashedWheelTimer timer, int generation, WebSocketImpl conn ) {
+			this.timer = timer;
+			this.generation = generation;
+			this.conn = conn;
+		}
+
+		@Override
+		public void run() {
+			if( generation != connectionLostGeneration || conn.isClosed() ) {
+				return;
+			}
+			long interval = connectionLostTimeout * 1000L;
+			long idle = System.currentTimeMillis() - conn.getLastPong();
+			long delay;
+			try {
+				if( idle > interval * 3 / 2 ) {
+					if( WebSocketImpl.DEBUG )
+						System.out.println( "Closing connection due to no pong received: " + conn.toString() );
+					conn.closeConnection( CloseFrame.ABNORMAL_CLOSE, "The connection was closed because the other endpoint did not respond with a pong in time. For more information check: https://github.com/TooTallNate/Java-WebSocket/wiki/Lost-connection-detection" );
+					return;
+				} else if( idle >= interval ) {
+					if( conn.isOpen() ) {
+						conn.sendPing();
+					} else {
+						if( WebSocketImpl.DEBUG )
+							System.out.println( "Trying to ping a non open connection: " + conn.toString() );
 					}
-				} catch ( Exception e ) {
-					if (WebSocketImpl.DEBUG)
-						System.out.println("Exception during connection lost ping: " + e.getMessage());
+					delay = interval * 3 / 2 - idle + 1;
+				} else {
+					delay = interval - idle + jitter( interval );
 				}
-				connections.clear();
+			} catch ( Exception e ) {
+				if (WebSocketImpl.DEBUG)
+					System.out.println("Exception during connection lost ping: " + e.getMessage());
+				delay = interval;
 			}
-		};
-		connectionLostTimer.scheduleAtFixedRate( connectionLostTimerTask,connectionLostTimeout * 1000, connectionLostTimeout * 1000 );
+			timer.newTimeout( this, delay, TimeUnit.MILLISECONDS );
+		}
 	}
 
 	/**
@@ -207,13 +300,11 @@ public abstract class AbstractWebSocket extends WebSocketAdapter {
      */
     private void cancelConnectionLostTimer() {
         if( connectionLostTimer != null ) {
-            connectionLostTimer.cancel();
+            connectionLostGeneration++;
+            if( connectionLostTimer != sharedConnectionLostTimer )
+                connectionLostTimer.stop();
             connectionLostTimer = null;
         }
-        if( connectionLostTimerTask != null ) {
-            connectionLostTimerTask.cancel();
-            connectionLostTimerTask = null;
-        }
     }
 
     /**
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.Framedata.Opcode;
+
+/**
+ * An OutputStream which sends the written data as one fragmented message, so a large message can be produced and sent
+ * piece by piece without building it in memory first.
+ * <p>
+ * The data is sent in fragments of the configured size, {@link #flush()} sends the buffered data as a fragment right
+ * away and {@link #close()} sends the last fragment. From the first fragment until the stream is closed, no other data
+ * message can be sent on the websocket, other senders wait until the stream is closed. Control frames like pings and
+ * close frames are not held back. The stream is not thread-safe and has to be closed in any case.
+ *
+ * @since 1.3.8
+ */
+public class FragmentOutputStream extends OutputStream {
+
+	/**
+	 * The default size of a fragment
+	 */
+	public static final int DEFAULT_FRAGMENT_SIZE = 64 * 1024;
+
+	/**
+	 * The websocket the message is sent on
+	 */
+	private final WebSocket conn;
+
+	/**
+	 * The opcode of the message
+	 */
+	private final Opcode opcode;
+
+	/**
+	 * The message lock of the websocket, null if it is not a WebSocketImpl
+	 */
+	private final ReentrantLock messageLock;
+
+	/**
+	 * The data of the current fragment
+	 */
+	private final byte[] buffer;
+
+	/**
+	 * The number of bytes in the buffer
+	 */
+	private int count;
+
+	/**
+	 * Whether the first fragment has been sent
+	 */
+	private boolean started;
+
+	/**
+	 * Whether the stream has been closed
+	 */
+	private boolean closed;
+
+	/**
+	 * Creates a stream for a message with the default fragment size
+	 *
+	 * @param conn   the websocket to send the message on
+	 * @param opcode the opcode of the message, {@link Opcode#TEXT} or {@link Opcode#BINARY}
+	 */
+	public FragmentOutputStream( WebSocket conn, Opcode opcode ) {
+		this( conn, opcode, DEFAULT_FRAGMENT_SIZE );
+	}
+
+	/**
+	 * Creates a stream for a message
+	 *
+	 * @param conn         the websocket to send the message on
+	 * @param opcode       the opcode of the message, {@link Opcode#TEXT} or {@link Opcode#BINARY}
+	 * @param fragmentSize the payload size of the fragments
+	 */
+	public FragmentOutputStream( WebSocket conn, Opcode opcode, int fragmentSize ) {
+		if( conn == null ) {
+			throw new IllegalArgumentException( "conn must not be null" );
+		}
+		if( opcode != Opcode.TEXT && opcode != Opcode.BINARY ) {
+			throw new IllegalArgumentException( "Only Opcode.BINARY or Opcode.TEXT are allowed" );
+		}
+		if( fragmentSize <= 0 ) {
+			throw new IllegalArgumentException( "fragmentSize must be positive" );
+		}
+		if( conn instanceof WebSocketClient ) {
+			conn = ( ( WebSocketClient ) conn ).getConnection();
+		}
+		this.conn = conn;
+		this.opcode = opcode;
+		this.messageLock = conn instanceof WebSocketImpl ? ( ( WebSocketImpl ) conn ).messageLock : null;
+		this.buffer = new byte[fragmentSize];
+	}
+
+	@Override
+	public void write( int b ) throws IOException {
+		ensureOpen();
+		if( count == buffer.length ) {
+			sendFragment( false );
+		}
+		buffer[count++] = ( byte ) b;
+	}
+
+	@Override
+	public void write( byte[] b, int off, int len ) throws IOException {
+		ensureOpen();
+		if( off < 0 || len < 0 || off + len > b.length ) {
+			throw new IndexOutOfBoundsException();
+		}
+		while( len > 0 ) {
+			if( count == buffer.length ) {
+				sendFragment( false );
+			}
+			int n = Math.min( len, buffer.length - count );
+			System.arraycopy( b, off, buffer, count, n );
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Sends the buffered data as a fragment
+	 *
+	 * @throws IOException if the websocket is not connected
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if( count > 0 ) {
+			sendFragment( false );
+		}
+	}
+
+	/**
+	 * Sends the buffered data as the last fragment of the message and lets other messages be sent again
+	 *
+	 * @throws IOException if the websocket is not connected
+	 */
+	@Override
+	public void close() throws IOException {
+		if( closed ) {
+			return;
+		}
+		closed = true;
+		try {
+			sendFragment( true );
+		} finally {
+			if( started && messageLock != null ) {
+				messageLock.unlock();
+			}
+		}
+	}
+
+	private void sendFragment( boolean fin ) throws IOException {
+		if( !started ) {
+			if( messageLock != null ) {
+				messageLock.lock();
+			}
+			started = true;
+		}
+		try {
+			// the payload is copied into the encoded frame, so the buffer can be reused right away
+			conn.sendFragmentedFrame( opcode, ByteBuffer.wrap( buffer, 0, count ), fin );
+		} catch ( WebsocketNotConnectedException e ) {
+			throw new IOException( e );
+		} finally {
+			count = 0;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if( closed ) {
+			throw new IOException( "Stream closed" );
+		}
+	}
+}
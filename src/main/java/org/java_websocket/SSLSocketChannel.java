@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.ExecutorService;
@@ -60,7 +61,7 @@ import java.util.concurrent.ExecutorService;
  *         <p>
  *         Permission for usage recieved at May 25, 2017 by Alex Karnezis
  */
-public class SSLSocketChannel implements WrappedByteChannel, ByteChannel {
+public class SSLSocketChannel implements WrappedByteChannel, ByteChannel, GatheringByteChannel {
 
 	/**
 	 * The underlaying socket channel
@@ -187,12 +188,23 @@ public class SSLSocketChannel implements WrappedByteChannel, ByteChannel {
 
 	@Override
 	public synchronized int write( ByteBuffer output ) throws IOException {
-		int num = 0;
-		while( output.hasRemaining() ) {
+		return ( int ) write( new ByteBuffer[]{ output }, 0, 1 );
+	}
+
+	/**
+	 * Writes the buffers as a sequence of TLS records. The engine packs small buffers into a shared record,
+	 * so several frames cost one record and one socket write.
+	 *
+	 * @return the number of bytes written to the socket channel
+	 */
+	@Override
+	public synchronized long write( ByteBuffer[] srcs, int offset, int length ) throws IOException {
+		long num = 0;
+		while( hasRemaining( srcs, offset, length ) ) {
 			// The loop has a meaning for (outgoing) messages larger than 16KB.
 			// Every wrap call will remove 16KB from the original message and send it to the remote peer.
 			myNetData.clear();
-			SSLEngineResult result = engine.wrap( output, myNetData );
+			SSLEngineResult result = engine.wrap( srcs, offset, length, myNetData );
 			switch(result.getStatus()) {
 				case OK:
 					myNetData.flip();
@@ -215,6 +227,20 @@ public class SSLSocketChannel implements WrappedByteChannel, ByteChannel {
 		return num;
 	}
 
+	@Override
+	public long write( ByteBuffer[] srcs ) throws IOException {
+		return write( srcs, 0, srcs.length );
+	}
+
+	private static boolean hasRemaining( ByteBuffer[] srcs, int offset, int length ) {
+		for( int i = offset; i < offset + length; i++ ) {
+			if( srcs[i].hasRemaining() ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Implements the handshake protocol between two peers, required for the establishment of the SSL/TLS connection.
 	 * During the handshake, encryption configuration information - such as the list of available cipher suites - will be exchanged
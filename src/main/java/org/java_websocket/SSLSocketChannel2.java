@@ -36,6 +36,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
@@ -45,11 +46,23 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.DirectByteBufferPool;
 
 /**
  * Implements the relevant portions of the SocketChannel interface with the SSLEngine wrapper.
+ * <p>
+ * The buffers are acquired from a {@link ByteBufferPool} when data has to be wrapped or unwrapped and are given back
+ * once they hold no pending data, so an idle connection does not keep any buffer. Buffers of blocking channels are
+ * kept for the lifetime of the channel.
  */
-public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
+public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel, GatheringByteChannel {
 
   /**
      * This object is used to feed the {@link SSLEngine}'s wrap and unwrap methods during the handshake phase.
@@ -58,15 +71,27 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
 
     protected ExecutorService exec;
 
+    /**
+     * The executor shared by all channels which are not given an own one, created on first use
+     */
+    private static ExecutorService sharedExecutor;
+
     protected List<Future<?>> tasks;
 
-    /** raw payload incomming */
+    /** raw payload incomming, null while there is nothing to read */
     protected ByteBuffer inData;
-    /** encrypted data outgoing */
+    /** encrypted data outgoing, null while there is nothing to write */
     protected ByteBuffer outCrypt;
-    /** encrypted data incoming */
+    /** encrypted data incoming, null while there is nothing to read */
     protected ByteBuffer inCrypt;
 
+    /** the pool of the buffers */
+    protected ByteBufferPool bufferPool;
+    /** the size of the buffers for encrypted data of the current session */
+    private int netBufferSize;
+    /** the size of the buffer for raw payload of the current session */
+    private int appBufferSize;
+
     /** the underlying channel */
     protected SocketChannel socketChannel;
     /** used to set interestOP SelectionKey.OP_WRITE for the underlying channel */
@@ -83,12 +108,26 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
     protected int bufferallocations = 0;
 
     public SSLSocketChannel2( SocketChannel channel , SSLEngine sslEngine , ExecutorService exec , SelectionKey key ) throws IOException {
-        if( channel == null || sslEngine == null || exec == null )
+        this( channel, sslEngine, exec, key, DirectByteBufferPool.getDefault() );
+    }
+
+    /**
+     * @param channel the underlying channel
+     * @param sslEngine the engine, configured for the client or the server mode
+     * @param exec the executor of the delegated tasks of the handshake, e.g. {@link #getSharedExecutor()}
+     * @param key the selection key of the channel, may be null
+     * @param bufferPool the pool of the buffers, e.g. a {@link org.java_websocket.util.HeapByteBufferPool} to disable pooling
+     * @throws IOException if the handshake can't be started
+     * @since 1.3.8
+     */
+    public SSLSocketChannel2( SocketChannel channel , SSLEngine sslEngine , ExecutorService exec , SelectionKey key , ByteBufferPool bufferPool ) throws IOException {
+        if( channel == null || sslEngine == null || exec == null || bufferPool == null )
             throw new IllegalArgumentException( "parameter must not be null" );
 
         this.socketChannel = channel;
         this.sslEngine = sslEngine;
         this.exec = exec;
+        this.bufferPool = bufferPool;
 
         readEngineResult = writeEngineResult = new SSLEngineResult( Status.BUFFER_UNDERFLOW, sslEngine.getHandshakeStatus(), 0, 0 ); // init to prevent NPEs
 
@@ -99,10 +138,38 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
         }
         createBuffers( sslEngine.getSession() );
         // kick off handshake
-        socketChannel.write( wrap( emptybuffer ) );// initializes res
+        wrap( emptybuffer );// initializes res
+        flush();
         processHandshake();
     }
 
+    /**
+     * Returns the executor which is shared by all channels for the delegated tasks of their handshakes.
+     * The tasks are CPU bound, so the executor runs up to one daemon thread per processor and queues further tasks,
+     * idle threads end after a minute. The executor must not be shut down.
+     *
+     * @return the shared executor
+     * @since 1.3.8
+     */
+    public static synchronized ExecutorService getSharedExecutor() {
+        if( sharedExecutor == null ) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread( Runnable r ) {
+                    Thread thread = new Thread( r, "SSLSocketChannel2-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+            executor.allowCoreThreadTimeOut( true );
+            sharedExecutor = executor;
+        }
+        return sharedExecutor;
+    }
+
     private void consumeFutureUninterruptible( Future<?> f ) {
         try {
             boolean interrupted = false;
@@ -128,6 +195,7 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
     private synchronized void processHandshake() throws IOException {
         if( sslEngine.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING )
             return; // since this may be called either from a reading or a writing thread and because this method is synchronized it is necessary to double check if we are still handshaking.
+        acquireBuffers(); // the buffers may have been released before a renegotiation
         if( !tasks.isEmpty() ) {
             Iterator<Future<?>> it = tasks.iterator();
             while ( it.hasNext() ) {
@@ -160,7 +228,8 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
         }
         consumeDelegatedTasks();
         if( tasks.isEmpty() || sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP ) {
-            socketChannel.write( wrap( emptybuffer ) );
+            wrap( emptybuffer );
+            flush();
             if( writeEngineResult.getHandshakeStatus() == HandshakeStatus.FINISHED ) {
                 createBuffers( sslEngine.getSession() );
                 return;
@@ -171,12 +240,26 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
         bufferallocations = 1; // look at variable declaration why this line exists and #190. Without this line buffers would not be be recreated when #190 AND a rehandshake occur.
     }
     private synchronized ByteBuffer wrap( ByteBuffer b ) throws SSLException {
+        if( outCrypt == null )
+            outCrypt = acquire( null, netBufferSize );
         outCrypt.compact();
         writeEngineResult = sslEngine.wrap( b, outCrypt );
         outCrypt.flip();
         return outCrypt;
     }
 
+    /**
+     * performs the wrap operation for several buffers at once, the engine packs them into as few records as possible
+     **/
+    private synchronized ByteBuffer wrap( ByteBuffer[] srcs, int offset, int length ) throws SSLException {
+        if( outCrypt == null )
+            outCrypt = acquire( null, netBufferSize );
+        outCrypt.compact();
+        writeEngineResult = sslEngine.wrap( srcs, offset, length, outCrypt );
+        outCrypt.flip();
+        return outCrypt;
+    }
+
     /**
      * performs the unwrap operation by unwrapping from {@link #inCrypt} to {@link #inData}
      **/
@@ -207,30 +290,76 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
     }
 
     protected void createBuffers( SSLSession session ) {
-        int netBufferMax = session.getPacketBufferSize();
-        int appBufferMax = Math.max(session.getApplicationBufferSize(), netBufferMax);
-
-        if( inData == null ) {
-            inData = ByteBuffer.allocate( appBufferMax );
-            outCrypt = ByteBuffer.allocate( netBufferMax );
-            inCrypt = ByteBuffer.allocate( netBufferMax );
-        } else {
-            if( inData.capacity() != appBufferMax )
-                inData = ByteBuffer.allocate( appBufferMax );
-            if( outCrypt.capacity() != netBufferMax )
-                outCrypt = ByteBuffer.allocate( netBufferMax );
-            if( inCrypt.capacity() != netBufferMax )
-                inCrypt = ByteBuffer.allocate( netBufferMax );
+        netBufferSize = session.getPacketBufferSize();
+        appBufferSize = Math.max( session.getApplicationBufferSize(), netBufferSize );
+        // buffers in use are enlarged if necessary, the data which arrived or was wrapped together with the last handshake message is kept
+        synchronized ( this ) {
+            if( inData != null ) {
+                inData = acquire( inData, appBufferSize );
+                inCrypt = acquire( inCrypt, netBufferSize );
+            }
+            if( outCrypt != null )
+                outCrypt = acquire( outCrypt, netBufferSize );
         }
-        inData.rewind();
-        inData.flip();
-        inCrypt.rewind();
-        inCrypt.flip();
-        outCrypt.rewind();
-        outCrypt.flip();
         bufferallocations++;
     }
 
+    private synchronized void acquireBuffers() {
+        inData = acquire( inData, appBufferSize );
+        inCrypt = acquire( inCrypt, netBufferSize );
+        outCrypt = acquire( outCrypt, netBufferSize );
+    }
+
+    /**
+     * Returns a buffer in read mode with at least the given capacity, a smaller buffer is replaced with a larger one which holds its remaining data
+     **/
+    private ByteBuffer acquire( ByteBuffer buffer, int capacity ) {
+        if( buffer != null && buffer.capacity() >= capacity )
+            return buffer;
+        ByteBuffer acquired = bufferPool.acquire( capacity );
+        if( buffer != null ) {
+            acquired.put( buffer );
+            bufferPool.release( buffer );
+        }
+        acquired.flip();
+        return acquired;
+    }
+
+    /**
+     * Gives the buffers of incoming data back to the pool if they hold no pending data.
+     * Only called by the reading thread, the buffers are kept for blocking channels and while handshaking.
+     **/
+    private void releaseInbound() {
+        if( inData != null && !inData.hasRemaining() && !inCrypt.hasRemaining() && !isBlocking() && isHandShakeComplete() ) {
+            bufferPool.release( inData );
+            bufferPool.release( inCrypt );
+            inData = null;
+            inCrypt = null;
+        }
+    }
+
+    /**
+     * Writes the wrapped data to the socket channel and gives the buffer back to the pool once it has been written.
+     * Synchronized with {@link #wrap(ByteBuffer)}, so a thread which closes the channel never writes from a released buffer.
+     *
+     * @return the number of bytes written to the socket channel
+     **/
+    private int flush() throws IOException {
+        if( isBlocking() ) {
+            return socketChannel.write( outCrypt ); // the buffers of blocking channels are never released
+        }
+        synchronized ( this ) {
+            if( outCrypt == null )
+                return 0;
+            int num = socketChannel.write( outCrypt );
+            if( !outCrypt.hasRemaining() && isHandShakeComplete() ) {
+                bufferPool.release( outCrypt );
+                outCrypt = null;
+            }
+            return num;
+        }
+    }
+
     public int write( ByteBuffer src ) throws IOException {
         if( !isHandShakeComplete() ) {
             processHandshake();
@@ -240,7 +369,8 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
         //if( bufferallocations <= 1 ) {
         //	createBuffers( sslEngine.getSession() );
         //}
-        int num = socketChannel.write( wrap( src ) );
+        wrap( src );
+        int num = flush();
         if (writeEngineResult.getStatus() == SSLEngineResult.Status.CLOSED) {
             throw new EOFException("Connection is closed");
         }
@@ -248,6 +378,40 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
 
     }
 
+    /**
+     * Writes the buffers as a sequence of TLS records, small buffers share a record instead of getting one each.
+     * Stops when the socket does not accept a whole record.
+     *
+     * @return the number of bytes written to the socket channel
+     **/
+    public long write( ByteBuffer[] srcs, int offset, int length ) throws IOException {
+        if( !isHandShakeComplete() ) {
+            processHandshake();
+            return 0;
+        }
+        long num = 0;
+        do {
+            wrap( srcs, offset, length );
+            num += flush();
+            if( writeEngineResult.getStatus() == SSLEngineResult.Status.CLOSED ) {
+                throw new EOFException( "Connection is closed" );
+            }
+        } while ( writeEngineResult.bytesConsumed() > 0 && !isNeedWrite() && hasRemaining( srcs, offset, length ) );
+        return num;
+    }
+
+    public long write( ByteBuffer[] srcs ) throws IOException {
+        return write( srcs, 0, srcs.length );
+    }
+
+    private static boolean hasRemaining( ByteBuffer[] srcs, int offset, int length ) {
+        for( int i = offset ; i < offset + length ; i++ ) {
+            if( srcs[i].hasRemaining() )
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Blocks when in blocking mode until at least one byte has been decoded.<br>
      * When not in blocking mode 0 may be returned.
@@ -274,12 +438,18 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
             //if( bufferallocations <= 1 ) {
             //	createBuffers( sslEngine.getSession() );
             //}
+            if (inData == null) {
+                inData = acquire(null, appBufferSize);
+                inCrypt = acquire(null, netBufferSize);
+            }
 		/* 1. When "dst" is smaller than "inData" readRemaining will fill "dst" with data decoded in a previous read call.
 		 * 2. When "inCrypt" contains more data than "inData" has remaining space, unwrap has to be called on more time(readRemaining)
 		 */
             int purged = readRemaining(dst);
-            if (purged != 0)
+            if (purged != 0) {
+                releaseInbound();
                 return purged;
+            }
 
 		/* We only continue when we really need more data from the network.
 		 * Thats the case if inData is empty or inCrypt holds to less data than necessary for decryption
@@ -303,6 +473,7 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
             if (transfered == 0 && isBlocking()) {
                 continue;
             }
+            releaseInbound();
             return transfered;
         }
     }
@@ -310,6 +481,9 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
      * {@link #read(ByteBuffer)} may not be to leave all buffers(inData, inCrypt)
      **/
     private int readRemaining( ByteBuffer dst ) throws SSLException {
+        if( inData == null ) {
+            return 0;
+        }
         if( inData.hasRemaining() ) {
             return transfereTo( inData, dst );
         }
@@ -335,8 +509,10 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
     public void close() throws IOException {
         sslEngine.closeOutbound();
         sslEngine.getSession().invalidate();
-        if( socketChannel.isOpen() )
-            socketChannel.write( wrap( emptybuffer ) );// FIXME what if not all bytes can be written
+        if( socketChannel.isOpen() ) {
+            wrap( emptybuffer );
+            flush();// FIXME what if not all bytes can be written
+        }
         socketChannel.close();
     }
 
@@ -372,22 +548,32 @@ public class SSLSocketChannel2 implements ByteChannel, WrappedByteChannel {
 
     @Override
     public boolean isNeedWrite() {
-        return outCrypt.hasRemaining() || !isHandShakeComplete(); // FIXME this condition can cause high cpu load during handshaking when network is slow
+        ByteBuffer out = outCrypt;
+        return ( out != null && out.hasRemaining() ) || !isHandShakeComplete(); // FIXME this condition can cause high cpu load during handshaking when network is slow
     }
 
+    /**
+     * Continues the handshake or writes the remaining encrypted data, which must not be wrapped a second time
+     **/
     @Override
     public void writeMore() throws IOException {
-        write( outCrypt );
+        if( !isHandShakeComplete() ) {
+            processHandshake();
+        } else {
+            flush();
+        }
     }
 
     @Override
     public boolean isNeedRead() {
-        return inData.hasRemaining() || ( inCrypt.hasRemaining() && readEngineResult.getStatus() != Status.BUFFER_UNDERFLOW && readEngineResult.getStatus() != Status.CLOSED );
+        return inData != null && ( inData.hasRemaining() || ( inCrypt.hasRemaining() && readEngineResult.getStatus() != Status.BUFFER_UNDERFLOW && readEngineResult.getStatus() != Status.CLOSED ) );
     }
 
     @Override
     public int readMore( ByteBuffer dst ) throws SSLException {
-        return readRemaining( dst );
+        int read = readRemaining( dst );
+        releaseInbound();
+        return read;
     }
 
     private int transfereTo( ByteBuffer from, ByteBuffer to ) {
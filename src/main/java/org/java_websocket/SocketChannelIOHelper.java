@@ -28,6 +28,9 @@ package org.java_websocket;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
 
 import org.java_websocket.WebSocket.Role;
 
@@ -65,6 +68,19 @@ public class SocketChannelIOHelper {
 		return channel.isNeedRead();
 	}
 
+	/**
+	 * Maximum number of queued buffers written with one gathering write
+	 * @since 1.3.8
+	 */
+	public static int GATHER_MAX_BUFFERS = 64;
+
+	/**
+	 * Number of bytes after which no further queued buffers are added to a gathering write.
+	 * A single buffer larger than this is still written at once.
+	 * @since 1.3.8
+	 */
+	public static int GATHER_MAX_BYTES = 256 * 1024;
+
 	/** Returns whether the whole outQueue has been flushed
 	 * @param ws The WebSocketImpl associated with the channels
 	 * @param sockchannel The channel to write to
@@ -72,26 +88,36 @@ public class SocketChannelIOHelper {
 	 * @return returns Whether there is more data to write
 	 */
 	public static boolean batch( WebSocketImpl ws, ByteChannel sockchannel ) throws IOException {
-		ByteBuffer buffer = ws.outQueue.peek();
 		WrappedByteChannel c = null;
+		// the backpressure policy may drop queued buffers, but never the one being written
+		synchronized( ws.outQueueLock ) {
+			ByteBuffer buffer = ws.outQueue.peek();
 
-		if( buffer == null ) {
-			if( sockchannel instanceof WrappedByteChannel ) {
-				c = (WrappedByteChannel) sockchannel;
-				if( c.isNeedWrite() ) {
-					c.writeMore();
+			if( buffer == null ) {
+				if( sockchannel instanceof WrappedByteChannel ) {
+					c = (WrappedByteChannel) sockchannel;
+					if( c.isNeedWrite() ) {
+						c.writeMore();
+					}
 				}
-			}
-		} else {
-			do {// FIXME writing as much as possible is unfair!!
-				/*int written = */sockchannel.write( buffer );
-				if( buffer.remaining() > 0 ) {
+			} else if( sockchannel instanceof GatheringByteChannel && GATHER_MAX_BUFFERS > 1 ) {
+				if( !gather( ws, (GatheringByteChannel) sockchannel ) ) {
 					return false;
-				} else {
-					ws.outQueue.poll(); // Buffer finished. Remove it.
-					buffer = ws.outQueue.peek();
 				}
-			} while ( buffer != null );
+			} else {
+				do {// FIXME writing as much as possible is unfair!!
+					int remaining = buffer.remaining();
+					sockchannel.write( buffer );
+					ws.onBytesWritten( remaining - buffer.remaining() );
+					if( buffer.remaining() > 0 ) {
+						return false;
+					} else {
+						ws.outQueue.poll(); // Buffer finished. Remove it.
+						ws.getBufferPool().release( buffer );
+						buffer = ws.outQueue.peek();
+					}
+				} while ( buffer != null );
+			}
 		}
 
 		if( ws != null && ws.outQueue.isEmpty() && ws.isFlushAndClose() && ws.getDraft() != null && ws.getDraft().getRole() != null && ws.getDraft().getRole() == Role.SERVER ) {//
@@ -101,4 +127,51 @@ public class SocketChannelIOHelper {
 		}
 		return c == null || !((WrappedByteChannel) sockchannel).isNeedWrite();
 	}
+
+	/**
+	 * Writes the queued buffers with as few gathering writes as possible, so that small frames share a write call
+	 * and a TCP segment. Each write takes up to {@link #GATHER_MAX_BUFFERS} buffers or {@link #GATHER_MAX_BYTES} bytes.
+	 * Must be called while holding the outQueueLock.
+	 *
+	 * @param ws The WebSocketImpl associated with the channel
+	 * @param channel The channel to write to
+	 * @return whether the whole outQueue has been written
+	 * @throws IOException May be thrown by the channel
+	 */
+	private static boolean gather( WebSocketImpl ws, GatheringByteChannel channel ) throws IOException {
+		ByteBuffer[] buffers = new ByteBuffer[Math.min( GATHER_MAX_BUFFERS, ws.outQueue.size() + 1 )];
+		while( true ) {
+			int count = 0;
+			long bytes = 0;
+			// only this thread removes buffers while the lock is held, so the iterator starts at the head
+			for( Iterator<ByteBuffer> it = ws.outQueue.iterator(); it.hasNext() && count < buffers.length && bytes < GATHER_MAX_BYTES; ) {
+				ByteBuffer buffer = it.next();
+				buffers[count++] = buffer;
+				bytes += buffer.remaining();
+			}
+			if( count == 0 ) {
+				return true;
+			}
+			if( count == 1 ) {
+				channel.write( buffers[0] );
+			} else {
+				channel.write( buffers, 0, count );
+			}
+			// the return value of wrapping channels counts encrypted bytes, so the buffers tell what was written
+			for( int i = 0 ; i < count ; i++ ) {
+				bytes -= buffers[i].remaining();
+			}
+			ws.onBytesWritten( (int) bytes );
+			for( int i = 0 ; i < count ; i++ ) {
+				ByteBuffer buffer = buffers[i];
+				if( buffer.hasRemaining() ) {
+					Arrays.fill( buffers, null );
+					return false;
+				}
+				buffers[i] = null;
+				ws.outQueue.poll(); // Buffer finished. Remove it.
+				ws.getBufferPool().release( buffer );
+			}
+		}
+	}
 }
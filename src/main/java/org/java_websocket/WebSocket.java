@@ -156,6 +156,16 @@ public interface WebSocket {
 	 */
 	boolean hasBufferedData();
 
+	/**
+	 * Checks if the websocket accepts further messages without backpressure, i.e. its outgoing queue has not reached the high watermark
+	 * The default implementation applies no backpressure and always returns <code>true</code>.
+	 * @return is the websocket writable
+	 * @since 1.3.8
+	 */
+	default boolean isWritable() {
+		return true;
+	}
+
 	/**
 	 * Returns the address of the endpoint this socket is connected to, or{@code null} if it is unconnected.
 	 *
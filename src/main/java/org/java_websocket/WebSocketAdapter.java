@@ -71,7 +71,6 @@ public abstract class WebSocketAdapter implements WebSocketListener {
 	 * @see org.java_websocket.WebSocketListener#onWebsocketMessageFragment(WebSocket, Framedata)
 	 */
 	@Override
-	@Deprecated
 	public void onWebsocketMessageFragment( WebSocket conn, Framedata frame ) {
 		//To overwrite
 	}
@@ -33,13 +33,19 @@ import org.java_websocket.exceptions.IncompleteHandshakeException;
 import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.exceptions.InvalidHandshakeException;
 import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.extensions.DefaultExtension;
+import org.java_websocket.extensions.IExtension;
 import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.framing.Framedata;
 import org.java_websocket.framing.Framedata.Opcode;
 import org.java_websocket.framing.PingFrame;
 import org.java_websocket.handshake.*;
+import org.java_websocket.server.WebSocketServer.SelectorThread;
 import org.java_websocket.server.WebSocketServer.WebSocketWorker;
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.ByteBufferUtils;
 import org.java_websocket.util.Charsetfunctions;
+import org.java_websocket.util.DirectByteBufferPool;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -51,9 +57,12 @@ import java.nio.channels.SelectionKey;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Represents one end (client or server) of a single WebSocketImpl connection.
@@ -63,6 +72,32 @@ import java.util.concurrent.LinkedBlockingQueue;
 public class WebSocketImpl implements WebSocket {
 	public static int RCVBUF = 16384;
 
+	/**
+	 * What happens to an outgoing message while more bytes than the high watermark are queued
+	 * @see #setWriteBufferWatermarks(long, long)
+	 * @since 1.3.8
+	 */
+	public enum BackpressurePolicy {
+		/**
+		 * The sending thread waits until the queue drained to the low watermark or the websocket closed
+		 */
+		BLOCK,
+		/**
+		 * Queued messages which have not been started to write yet are dropped, starting with the oldest one.
+		 * The queued frames are already encoded, so a connection which negotiated an extension, e.g. permessage-deflate
+		 * whose messages refer to the previous ones, drops the message to send instead like {@link #DROP_NEWEST}
+		 */
+		DROP_OLDEST,
+		/**
+		 * The message to send is dropped
+		 */
+		DROP_NEWEST,
+		/**
+		 * The websocket is closed with {@link CloseFrame#POLICY_VALIDATION} and the message is dropped
+		 */
+		CLOSE
+	}
+
 	/**
 	 * Activate debug mode for additional infos
 	 */
@@ -89,6 +124,10 @@ public class WebSocketImpl implements WebSocket {
 	 * Helper variable meant to store the thread which ( exclusively ) triggers this objects decode method.
 	 **/
 	public volatile WebSocketWorker workerThread; // TODO reset worker?
+	/**
+	 * The selector thread which exclusively reads from and writes to the channel, null if the server thread does
+	 */
+	public SelectorThread selectorThread;
 	/**
 	 * When true no further frames may be submitted to be sent
 	 */
@@ -131,9 +170,9 @@ public class WebSocketImpl implements WebSocket {
 	private String resourceDescriptor = null;
 
 	/**
-	 * Attribute, when the last pong was recieved
+	 * Attribute, when the last pong or any other frame was recieved
 	 */
-	private long lastPong = System.currentTimeMillis();
+	private volatile long lastPong = System.currentTimeMillis();
 
 	/**
 	 * Attribut to synchronize the write
@@ -145,12 +184,74 @@ public class WebSocketImpl implements WebSocket {
 	 */
 	private PingFrame pingFrame;
 
+	/**
+	 * The pool for the buffers of this websocket, handed to the draft in use
+	 */
+	private ByteBufferPool bufferPool = DirectByteBufferPool.getDefault();
+
 	/**
 	 * Attribute to store connection attachment
 	 * @since 1.3.7
 	 */
 	private Object attachment;
 
+	/**
+	 * Queued bytes at which the websocket becomes not writable, disabled by default
+	 */
+	private volatile long highWatermark = Long.MAX_VALUE;
+
+	/**
+	 * Queued bytes at which the websocket becomes writable again
+	 */
+	private volatile long lowWatermark = Long.MAX_VALUE;
+
+	/**
+	 * The policy for messages sent while the websocket is not writable
+	 */
+	private volatile BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+	/**
+	 * Attribute for the bytes in the outQueue which have not been written yet
+	 */
+	private final AtomicLong queuedBytes = new AtomicLong();
+
+	/**
+	 * Attribute for the highest value of queuedBytes
+	 */
+	private final AtomicLong peakQueuedBytes = new AtomicLong();
+
+	/**
+	 * Attribute for the frames dropped by the backpressure policy
+	 */
+	private final AtomicLong droppedFrames = new AtomicLong();
+
+	/**
+	 * Whether the websocket is writable, guarded by writabilityLock
+	 */
+	private volatile boolean writable = true;
+
+	/**
+	 * Attribute to synchronize the writability changes and the threads waiting for them
+	 */
+	private final Object writabilityLock = new Object();
+
+	/**
+	 * Attribute to synchronize the removal of buffers from the outQueue.
+	 * Held while a buffer is written, so that no partially written buffer is dropped
+	 */
+	final Object outQueueLock = new Object();
+
+	/**
+	 * Attribute to keep data messages from interleaving with a fragmented message which is sent piece by piece.
+	 * Held by the sender of the fragmented message from its first to its last fragment
+	 */
+	final ReentrantLock messageLock = new ReentrantLock();
+
+	/**
+	 * Whether received fragmented messages are delivered fragment by fragment
+	 */
+	private volatile boolean fragmentStreaming = false;
+
 	/**
 	 * Creates a websocket with server role
 	 *
@@ -182,8 +283,10 @@ public class WebSocketImpl implements WebSocket {
 		inQueue = new LinkedBlockingQueue<ByteBuffer>();
 		this.wsl = listener;
 		this.role = Role.CLIENT;
-		if( draft != null )
+		if( draft != null ) {
 			this.draft = draft.copyInstance();
+			this.draft.setBufferPool( bufferPool );
+		}
 	}
 
 	@Deprecated
@@ -205,7 +308,7 @@ public class WebSocketImpl implements WebSocket {
 		assert ( socketBuffer.hasRemaining() );
 
 		if( DEBUG )
-			System.out.println( "process(" + socketBuffer.remaining() + "): {" + ( socketBuffer.remaining() > 1000 ? "too big to display" : new String( socketBuffer.array(), socketBuffer.position(), socketBuffer.remaining() ) ) + '}' );
+			System.out.println( "process(" + socketBuffer.remaining() + "): {" + ( socketBuffer.remaining() > 1000 ? "too big to display" : new String( ByteBufferUtils.getBytes( socketBuffer ) ) ) + '}' );
 
 		if( getReadyState() != READYSTATE.NOT_YET_CONNECTED ) {
 			if( getReadyState() == READYSTATE.OPEN ) {
@@ -253,6 +356,7 @@ public class WebSocketImpl implements WebSocket {
 					if( draft == null ) {
 						for( Draft d : knownDrafts ) {
 							d = d.copyInstance();
+							d.setBufferPool( bufferPool );
 							try {
 								d.setParseMode( role );
 								socketBuffer.reset();
@@ -361,6 +465,10 @@ public class WebSocketImpl implements WebSocket {
 		List<Framedata> frames;
 		try {
 			frames = draft.translateFrame( socketBuffer );
+			if( !frames.isEmpty() ) {
+				// any received frame proves that the connection is alive
+				updateLastPong();
+			}
 			for( Framedata f : frames ) {
 				if( DEBUG )
 					System.out.println( "matched frame: " + f );
@@ -509,6 +617,8 @@ public class WebSocketImpl implements WebSocket {
 			draft.reset();
 		handshakerequest = null;
 		setReadyState( READYSTATE.CLOSED );
+		// the queued frames are never written, their buffers go back to the pool
+		discardOutQueue();
 	}
 
 	protected void closeConnection( int code, boolean remote ) {
@@ -610,18 +720,93 @@ public class WebSocketImpl implements WebSocket {
 		if( frames == null ) {
 			throw new IllegalArgumentException();
 		}
-		ArrayList<ByteBuffer> outgoingFrames = new ArrayList<ByteBuffer>();
+		if( frames.isEmpty() ) {
+			return;
+		}
+		Framedata first = frames.iterator().next();
+		Framedata last = first;
+		boolean control = true;
 		for( Framedata f : frames ) {
-			if( DEBUG )
-				System.out.println( "send frame: " + f );
-			outgoingFrames.add( draft.createBinaryFrame( f ) );
+			control &= isControlOpcode( f.getOpcode() );
+			last = f;
+		}
+		if( !control && !admit( frames.size(), first.getOpcode() != Opcode.CONTINUOUS && last.isFin() ) ) {
+			return;
+		}
+		if( !control ) {
+			messageLock.lock();
+		}
+		try {
+			// frames are encoded in the order they are queued, extensions like permessage-deflate depend on it
+			synchronized( synchronizeWriteObject ) {
+				ArrayList<ByteBuffer> outgoingFrames = new ArrayList<ByteBuffer>();
+				for( Framedata f : frames ) {
+					if( DEBUG )
+						System.out.println( "send frame: " + f );
+					outgoingFrames.add( draft.createBinaryFrame( f ) );
+				}
+				write( outgoingFrames );
+			}
+		} finally {
+			if( !control ) {
+				messageLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Send frames which have already been encoded by a draft equal to the draft of this websocket, e.g. to send the
+	 * same message to many connections without encoding it for every connection.
+	 * The buffers are shared through {@link ByteBufferPool#retain(ByteBuffer)}, so the caller still owns them.
+	 *
+	 * @param encodedFrames the frames in binary form, as created by {@link Draft#createBinaryFrame(Framedata)}
+	 * @throws WebsocketNotConnectedException websocket is not yet connected
+	 * @since 1.3.8
+	 */
+	public void sendEncodedFrames( Collection<ByteBuffer> encodedFrames ) {
+		if( !isOpen() ) {
+			throw new WebsocketNotConnectedException();
+		}
+		if( encodedFrames == null ) {
+			throw new IllegalArgumentException();
+		}
+		if( encodedFrames.isEmpty() ) {
+			return;
+		}
+		ByteBuffer first = encodedFrames.iterator().next();
+		ByteBuffer last = first;
+		boolean control = true;
+		for( ByteBuffer b : encodedFrames ) {
+			control &= ( b.get( b.position() ) & 0x08 ) != 0;
+			last = b;
+		}
+		if( !control && !admit( encodedFrames.size(), ( first.get( first.position() ) & 0x0F ) != 0 && ( last.get( last.position() ) & 0x80 ) != 0 ) ) {
+			return;
+		}
+		if( !control ) {
+			messageLock.lock();
+		}
+		try {
+			synchronized( synchronizeWriteObject ) {
+				for( ByteBuffer b : encodedFrames ) {
+					write( bufferPool.retain( b ) );
+				}
+			}
+		} finally {
+			if( !control ) {
+				messageLock.unlock();
+			}
 		}
-		write( outgoingFrames );
 	}
 
 	@Override
 	public void sendFragmentedFrame( Opcode op, ByteBuffer buffer, boolean fin ) {
-		send( draft.continuousFrame( op, buffer, fin ) );
+		messageLock.lock();
+		try {
+			send( draft.continuousFrame( op, buffer, fin ) );
+		} finally {
+			messageLock.unlock();
+		}
 	}
 
 	@Override
@@ -646,6 +831,282 @@ public class WebSocketImpl implements WebSocket {
 		return !this.outQueue.isEmpty();
 	}
 
+	private static boolean isControlOpcode( Opcode opcode ) {
+		return opcode == Opcode.PING || opcode == Opcode.PONG || opcode == Opcode.CLOSING;
+	}
+
+	/**
+	 * Applies the backpressure policy to an outgoing data message if the websocket is not writable.
+	 * Control frames are never held back.
+	 *
+	 * @param frameCount      the number of frames to send
+	 * @param completeMessage whether the frames form complete messages, only those can be dropped without breaking a fragmented message
+	 * @return true if the frames should be queued, false if they were dropped
+	 */
+	private boolean admit( int frameCount, boolean completeMessage ) {
+		if( writable ) {
+			return true;
+		}
+		switch( backpressurePolicy ) {
+			case BLOCK:
+				synchronized( writabilityLock ) {
+					while( !writable && isOpen() ) {
+						try {
+							// the timeout covers connections closed without draining the queue
+							writabilityLock.wait( 100 );
+						} catch ( InterruptedException e ) {
+							Thread.currentThread().interrupt();
+							return true;
+						}
+					}
+				}
+				if( !isOpen() ) {
+					throw new WebsocketNotConnectedException();
+				}
+				return true;
+			case DROP_OLDEST:
+				if( canDropEncodedFrames() ) {
+					dropOldest();
+					return true;
+				}
+				// the extension would lose track of the dropped frames, so the new ones are dropped instead
+				return dropNewest( frameCount, completeMessage );
+			case DROP_NEWEST:
+				return dropNewest( frameCount, completeMessage );
+			case CLOSE:
+			default:
+				droppedFrames.addAndGet( frameCount );
+				close( CloseFrame.POLICY_VALIDATION, "outgoing queue exceeded " + highWatermark + " bytes" );
+				return false;
+		}
+	}
+
+	/**
+	 * Drops the frames to send unless they are part of a fragmented message, which would be broken otherwise.
+	 *
+	 * @param frameCount      the number of frames to send
+	 * @param completeMessage whether the frames form complete messages
+	 * @return true if the frames should be queued, false if they were dropped
+	 */
+	private boolean dropNewest( int frameCount, boolean completeMessage ) {
+		if( !completeMessage ) {
+			return true;
+		}
+		droppedFrames.addAndGet( frameCount );
+		return false;
+	}
+
+	/**
+	 * @return whether encoded frames can be removed from the outQueue, which is only the case if no extension encoded them
+	 */
+	private boolean canDropEncodedFrames() {
+		if( !( draft instanceof Draft_6455 ) ) {
+			return true;
+		}
+		IExtension extension = ( ( Draft_6455 ) draft ).getExtension();
+		// compression extensions derive from DefaultExtension, so the class has to match exactly
+		return extension == null || extension.getClass() == DefaultExtension.class;
+	}
+
+	/**
+	 * Removes unfragmented data frames from the outQueue, oldest first, until less than the high watermark are queued.
+	 * The head of the queue may be partially written and is never removed.
+	 */
+	private void dropOldest() {
+		synchronized( outQueueLock ) {
+			Iterator<ByteBuffer> it = outQueue.iterator();
+			if( it.hasNext() ) {
+				it.next();
+			}
+			while( it.hasNext() && queuedBytes.get() >= highWatermark ) {
+				ByteBuffer b = it.next();
+				int b0 = b.get( b.position() );
+				int opcode = b0 & 0x0F;
+				// a fin frame of a new text or binary message is a whole message
+				if( ( b0 & 0x80 ) != 0 && ( opcode == 1 || opcode == 2 ) ) {
+					it.remove();
+					droppedFrames.incrementAndGet();
+					onBytesWritten( b.remaining() );
+					bufferPool.release( b );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all buffers from the outQueue without writing them and hands them back to the buffer pool.
+	 * Must be called instead of clearing the outQueue, otherwise the buffers shared by a broadcast are never released and the
+	 * queued bytes keep counting towards the watermarks.
+	 *
+	 * @since 1.3.8
+	 */
+	public void discardOutQueue() {
+		synchronized( outQueueLock ) {
+			ByteBuffer b;
+			while( ( b = outQueue.poll() ) != null ) {
+				onBytesWritten( b.remaining() );
+				bufferPool.release( b );
+			}
+		}
+	}
+
+	/**
+	 * Accounts bytes which have been taken off the outQueue, i.e. written to the channel.
+	 * Must be called by whoever drains the outQueue.
+	 *
+	 * @param bytes the number of bytes written
+	 * @since 1.3.8
+	 */
+	public void onBytesWritten( int bytes ) {
+		long queued = queuedBytes.addAndGet( -bytes );
+		if( !writable && queued <= lowWatermark ) {
+			updateWritability();
+		}
+	}
+
+	/**
+	 * Sets the writability according to the queued bytes and notifies the listener if it changed.
+	 * The queued bytes are read again after the websocket became not writable, because a concurrent
+	 * {@link #onBytesWritten(int)} may not have seen the change.
+	 * The listener is notified while holding the lock, so that the notifications are in order.
+	 */
+	private void updateWritability() {
+		synchronized( writabilityLock ) {
+			if( writable && queuedBytes.get() >= highWatermark ) {
+				writable = false;
+				if( queuedBytes.get() <= lowWatermark ) {
+					writable = true;
+					return;
+				}
+			} else if( !writable && queuedBytes.get() <= lowWatermark ) {
+				writable = true;
+				writabilityLock.notifyAll();
+			} else {
+				return;
+			}
+			try {
+				wsl.onWebsocketWritabilityChanged( this, writable );
+			} catch ( RuntimeException e ) {
+				wsl.onWebsocketError( this, e );
+			}
+		}
+	}
+
+	@Override
+	public boolean isWritable() {
+		return writable;
+	}
+
+	/**
+	 * Sets the watermarks for the bytes in the outgoing queue.
+	 * When the queued bytes reach the high watermark, the websocket becomes not writable and the {@link BackpressurePolicy}
+	 * applies to further messages, until the queue drained to the low watermark.
+	 * Both are {@link Long#MAX_VALUE} by default, which disables backpressure.
+	 *
+	 * @param lowWatermark  the queued bytes at which the websocket becomes writable again
+	 * @param highWatermark the queued bytes at which the websocket becomes not writable
+	 * @since 1.3.8
+	 */
+	public void setWriteBufferWatermarks( long lowWatermark, long highWatermark ) {
+		if( lowWatermark < 0 || highWatermark < lowWatermark ) {
+			throw new IllegalArgumentException( "watermarks must satisfy 0 <= lowWatermark <= highWatermark" );
+		}
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		updateWritability();
+	}
+
+	/**
+	 * @return the queued bytes at which the websocket becomes writable again
+	 * @since 1.3.8
+	 */
+	public long getLowWatermark() {
+		return lowWatermark;
+	}
+
+	/**
+	 * @return the queued bytes at which the websocket becomes not writable
+	 * @since 1.3.8
+	 */
+	public long getHighWatermark() {
+		return highWatermark;
+	}
+
+	/**
+	 * @return the policy for messages sent while the websocket is not writable
+	 * @since 1.3.8
+	 */
+	public BackpressurePolicy getBackpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	/**
+	 * Sets the policy for messages sent while the websocket is not writable
+	 * @param backpressurePolicy the policy
+	 * @since 1.3.8
+	 */
+	public void setBackpressurePolicy( BackpressurePolicy backpressurePolicy ) {
+		if( backpressurePolicy == null ) {
+			throw new IllegalArgumentException( "backpressurePolicy must not be null" );
+		}
+		this.backpressurePolicy = backpressurePolicy;
+	}
+
+	/**
+	 * @return whether received fragmented messages are delivered fragment by fragment
+	 * @since 1.3.8
+	 */
+	public boolean isFragmentStreaming() {
+		return fragmentStreaming;
+	}
+
+	/**
+	 * Sets whether received fragmented messages are delivered fragment by fragment through
+	 * {@link WebSocketListener#onWebsocketMessageFragment(WebSocket, Framedata)} instead of being reassembled into one
+	 * message first. The last fragment of a message has {@link Framedata#isFin()} set, the first one carries the opcode
+	 * of the message. The payload of a fragment is only valid during the callback.
+	 * Unfragmented messages are still delivered through onWebsocketMessage.
+	 * The setting takes effect with the next fragmented message.
+	 *
+	 * @param fragmentStreaming true to deliver fragmented messages fragment by fragment
+	 * @since 1.3.8
+	 */
+	public void setFragmentStreaming( boolean fragmentStreaming ) {
+		this.fragmentStreaming = fragmentStreaming;
+	}
+
+	/**
+	 * @return the bytes in the outgoing queue which have not been written yet
+	 * @since 1.3.8
+	 */
+	public long getQueuedBytes() {
+		return queuedBytes.get();
+	}
+
+	/**
+	 * @return the highest number of bytes which have been in the outgoing queue
+	 * @since 1.3.8
+	 */
+	public long getPeakQueuedBytes() {
+		return peakQueuedBytes.get();
+	}
+
+	/**
+	 * @return the number of buffers in the outgoing queue
+	 * @since 1.3.8
+	 */
+	public int getQueuedFrames() {
+		return outQueue.size();
+	}
+
+	/**
+	 * @return the number of frames dropped by the backpressure policy
+	 * @since 1.3.8
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames.get();
+	}
+
 	public void startHandshake( ClientHandshakeBuilder handshakedata ) throws InvalidHandshakeException {
 		// Store the Handshake Request we are about to send
 		this.handshakerequest = draft.postProcessHandshakeRequestAsClient( handshakedata );
@@ -670,9 +1131,19 @@ public class WebSocketImpl implements WebSocket {
 
 	private void write( ByteBuffer buf ) {
 		if( DEBUG )
-			System.out.println( "write(" + buf.remaining() + "): {" + ( buf.remaining() > 1000 ? "too big to display" : new String( buf.array() ) ) + '}' );
+			System.out.println( "write(" + buf.remaining() + "): {" + ( buf.remaining() > 1000 ? "too big to display" : new String( ByteBufferUtils.getBytes( buf ) ) ) + '}' );
 
+		long queued = queuedBytes.addAndGet( buf.remaining() );
+		peakQueuedBytes.accumulateAndGet( queued, Math::max );
 		outQueue.add( buf );
+		if( getReadyState() == READYSTATE.CLOSED ) {
+			// the connection was closed concurrently, nobody drains the queue anymore
+			discardOutQueue();
+			return;
+		}
+		if( writable && queued >= highWatermark ) {
+			updateWritability();
+		}
 		/*try {
 			outQueue.put( buf );
 		} catch ( InterruptedException e ) {
@@ -768,6 +1239,30 @@ public class WebSocketImpl implements WebSocket {
 		return draft;
 	}
 
+	/**
+	 * Returns the pool for the buffers of this websocket
+	 * @return the buffer pool
+	 * @since 1.3.8
+	 */
+	public ByteBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Sets the pool for the buffers of this websocket. Should be called before the handshake.
+	 * @param bufferPool the buffer pool
+	 * @since 1.3.8
+	 */
+	public void setBufferPool( ByteBufferPool bufferPool ) {
+		if( bufferPool == null ) {
+			throw new IllegalArgumentException( "bufferPool must not be null" );
+		}
+		this.bufferPool = bufferPool;
+		if( draft != null ) {
+			draft.setBufferPool( bufferPool );
+		}
+	}
+
 	@Override
 	public void close() {
 		close( CloseFrame.NORMAL );
@@ -781,14 +1276,14 @@ public class WebSocketImpl implements WebSocket {
 	/**
 	 * Getter for the last pong recieved
 	 *
-	 * @return the timestamp for the last recieved pong
+	 * @return the timestamp for the last recieved pong or other frame
 	 */
 	long getLastPong() {
 		return lastPong;
 	}
 
 	/**
-	 * Update the timestamp when the last pong was received
+	 * Update the timestamp when the last pong or other frame was received
 	 */
 	public void updateLastPong() {
 		this.lastPong = System.currentTimeMillis();
@@ -112,14 +112,14 @@ public interface WebSocketListener {
 	void onWebsocketMessage( WebSocket conn, ByteBuffer blob );
 
 	/**
-	 * Called when a frame fragment has been recieved
+	 * Called when a frame fragment has been recieved, only if fragment streaming is enabled.
+	 * Otherwise the fragments are reassembled and passed to the respective onWebsocketMessage method.
 	 *
-	 * This method will be removed in a future version since the lib will also call the respective onWebsocketMessage method
 	 * @param conn
 	 *            The <tt>WebSocket</tt> instance this event is occurring on.
 	 * @param frame The fragmented frame
+	 * @see WebSocketImpl#setFragmentStreaming(boolean)
 	 */
-	@Deprecated
 	void onWebsocketMessageFragment( WebSocket conn, Framedata frame );
 
 	/**
@@ -193,6 +193,19 @@ public interface WebSocketListener {
 	 */
 	void onWriteDemand( WebSocket conn );
 
+	/**
+	 * Called when the outgoing queue of a connection crosses its high watermark (not writable) or drains to its low watermark (writable again).
+	 * The default implementation does not do anything.
+	 * @see WebSocketImpl#setWriteBufferWatermarks(long, long)
+	 *
+	 * @param conn The <tt>WebSocket</tt> instance this event is occuring on.
+	 * @param writable Whether the connection accepts further frames without backpressure.
+	 * @since 1.3.8
+	 */
+	default void onWebsocketWritabilityChanged( WebSocket conn, boolean writable ) {
+		//To overwrite
+	}
+
 	/**
 	 * @see  WebSocket#getLocalSocketAddress()
 	 *
@@ -25,6 +25,7 @@
 
 package org.java_websocket.client;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -34,6 +35,7 @@ import java.net.Socket;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.SocketChannel;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -45,6 +47,7 @@ import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLSocketFactory;
 
 import org.java_websocket.AbstractWebSocket;
+import org.java_websocket.SocketChannelIOHelper;
 import org.java_websocket.WebSocket;
 import org.java_websocket.WebSocketImpl;
 import org.java_websocket.drafts.Draft;
@@ -56,6 +59,10 @@ import org.java_websocket.framing.Framedata.Opcode;
 import org.java_websocket.handshake.HandshakeImpl1Client;
 import org.java_websocket.handshake.Handshakedata;
 import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.ByteBufferUtils;
+import org.java_websocket.util.DirectByteBufferPool;
+import org.java_websocket.util.HeapByteBufferPool;
 
 /**
  * A subclass must implement at least <var>onOpen</var>, <var>onClose</var>, and <var>onMessage</var> to be
@@ -71,6 +78,11 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	/**
 	 * The underlying engine
 	 */
+	/**
+	 * The client writes to a blocking OutputStream which needs heap buffers
+	 */
+	private static final ByteBufferPool STREAM_BUFFER_POOL = new HeapByteBufferPool();
+
 	private WebSocketImpl engine = null;
 
 	/**
@@ -98,6 +110,16 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 */
 	private Thread connectReadThread;
 
+	/**
+	 * The selector which handles the connection instead of the read and write thread, if any
+	 */
+	private WebSocketClientSelector clientSelector;
+
+	/**
+	 * The selector thread of the current connection, if a client selector is used
+	 */
+	private volatile WebSocketClientSelector.SelectorThread selectorThread;
+
 	/**
 	 * The draft to use
 	 */
@@ -192,6 +214,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		setTcpNoDelay( false );
 		setReuseAddr( false );
 		this.engine = new WebSocketImpl( this, protocolDraft );
+		this.engine.setBufferPool( STREAM_BUFFER_POOL );
 	}
 
 	/**
@@ -245,7 +268,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 */
 	private void reset() {
 		Thread current = Thread.currentThread();
-		if (current == writeThread || current == connectReadThread) {
+		if (current == writeThread || current == connectReadThread || (clientSelector != null && clientSelector.isSelectorThread( current ))) {
 			throw new IllegalStateException("You cannot initialize a reconnect out of the websocket thread. Use reconnect in another thread to insure a successful cleanup.");
 		}
 		try {
@@ -258,6 +281,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 				this.connectReadThread.interrupt();
 				this.connectReadThread = null;
 			}
+			this.selectorThread = null;
 			this.draft.reset();
 			if( this.socket != null ) {
 				this.socket.close();
@@ -271,19 +295,45 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		connectLatch = new CountDownLatch( 1 );
 		closeLatch = new CountDownLatch( 1 );
 		this.engine = new WebSocketImpl( this, this.draft );
+		this.engine.setBufferPool( STREAM_BUFFER_POOL );
 	}
 
 	/**
 	 * Initiates the websocket connection. This method does not block.
 	 */
 	public void connect() {
-		if( connectReadThread != null )
+		if( connectReadThread != null || selectorThread != null )
 			throw new IllegalStateException( "WebSocketClient objects are not reuseable" );
+		if( clientSelector != null ) {
+			connectWithSelector();
+			return;
+		}
 		connectReadThread = new Thread( this );
 		connectReadThread.setName( "WebSocketConnectReadThread-" + connectReadThread.getId() );
 		connectReadThread.start();
 	}
 
+	/**
+	 * Connects a non-blocking channel which is handled by a thread of the client selector
+	 */
+	private void connectWithSelector() {
+		if( socket != null || proxy != Proxy.NO_PROXY ) {
+			throw new IllegalStateException( "a client selector does not support a socket or proxy set by setSocket or setProxy" );
+		}
+		// the frames are written to a channel
+		engine.setBufferPool( DirectByteBufferPool.getDefault() );
+		try {
+			SocketChannel channel = clientSelector.open( this, new InetSocketAddress( uri.getHost(), getPort() ) );
+			engine.channel = channel;
+			socket = channel.socket();
+			selectorThread = clientSelector.nextThread();
+			clientSelector.register( this, selectorThread, connectTimeout );
+		} catch ( Exception e ) {
+			onWebsocketError( engine, e );
+			engine.closeConnection( CloseFrame.NEVER_CONNECTED, e.getMessage() );
+		}
+	}
+
 	/**
 	 * Same as <code>connect</code> but blocks until the websocket connected or failed to do so.<br>
 	 * @return Returns whether it succeeded or not.
@@ -314,7 +364,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 * In oder to make sure the connection is closed use <code>closeBlocking</code>
 	 */
 	public void close() {
-		if( writeThread != null ) {
+		if( writeThread != null || selectorThread != null ) {
 			engine.close( CloseFrame.NORMAL );
 		}
 	}
@@ -397,7 +447,8 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 			}
 
 			istream = socket.getInputStream();
-			ostream = socket.getOutputStream();
+			// buffered, so that frames queued together go out in one socket write
+			ostream = new BufferedOutputStream( socket.getOutputStream(), WebSocketImpl.RCVBUF );
 
 			sendHandshake();
 		} catch ( /*IOException | SecurityException | UnresolvedAddressException | InvalidHandshakeException | ClosedByInterruptException | SocketTimeoutException */Exception e ) {
@@ -431,7 +482,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 * Extract the specified port
 	 * @return the specified port or the default port for the specific scheme
 	 */
-	private int getPort() {
+	int getPort() {
 		int port = uri.getPort();
 		if( port == -1 ) {
 			String scheme = uri.getScheme();
@@ -450,7 +501,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 * Create and send the handshake to the other endpoint
 	 * @throws InvalidHandshakeException  a invalid handshake was created
 	 */
-	private void sendHandshake() throws InvalidHandshakeException {
+	void sendHandshake() throws InvalidHandshakeException {
 		String path;
 		String part1 = uri.getRawPath();
 		String part2 = uri.getRawQuery();
@@ -535,7 +586,11 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 
 	@Override
 	public final void onWriteDemand( WebSocket conn ) {
-		// nothing to do
+		WebSocketClientSelector.SelectorThread thread = selectorThread;
+		if( thread != null ) {
+			thread.writeDemand( engine );
+		}
+		// otherwise the write thread takes the frames from the outQueue
 	}
 
 	@Override
@@ -568,6 +623,36 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		//To overwrite
 	}
 
+	@Override
+	public void onWebsocketWritabilityChanged( WebSocket conn, boolean writable ) {
+		onWritabilityChanged( writable );
+	}
+
+	/**
+	 * Called when the outgoing queue crosses its high watermark (not writable) or drains to its low watermark (writable again)
+	 * @see WebSocketImpl#setWriteBufferWatermarks(long, long)
+	 *
+	 * @param writable Whether further frames are accepted without backpressure
+	 */
+	public void onWritabilityChanged( boolean writable ) {
+		//To overwrite
+	}
+
+	@Override
+	public boolean isWritable() {
+		return engine.isWritable();
+	}
+
+	/**
+	 * Sets whether fragmented messages are delivered fragment by fragment through {@link #onFragment(Framedata)}
+	 * @param fragmentStreaming true to deliver fragmented messages fragment by fragment
+	 * @see WebSocketImpl#setFragmentStreaming(boolean)
+	 * @since 1.3.8
+	 */
+	public void setFragmentStreaming( boolean fragmentStreaming ) {
+		engine.setFragmentStreaming( fragmentStreaming );
+	}
+
 	/**
 	 * Getter for the engine
 	 * @return the engine
@@ -640,11 +725,12 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	}
 
 	/**
-	 * Callback for fragmented frames
+	 * Callback for the fragments of a fragmented message, only called if fragment streaming is enabled.
+	 * The payload of the fragment is only valid during the callback, the last fragment has {@link Framedata#isFin()} set.
+	 * @see #setFragmentStreaming(boolean)
 	 * @see WebSocket#sendFragmentedFrame(org.java_websocket.framing.Framedata.Opcode, ByteBuffer, boolean)
 	 * @param frame The fragmented frame
 	 */
-	@Deprecated
 	public void onFragment( Framedata frame ) {
 		//To overwrite
 	}
@@ -657,12 +743,17 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 				try {
 					while( !Thread.interrupted() ) {
 						ByteBuffer buffer = engine.outQueue.take();
-						ostream.write( buffer.array(), 0, buffer.limit() );
+						write( buffer );
+						for( int i = 1 ; i < SocketChannelIOHelper.GATHER_MAX_BUFFERS && ( buffer = engine.outQueue.poll() ) != null ; i++ ) {
+							write( buffer );
+						}
 						ostream.flush();
 					}
 				} catch ( InterruptedException e ) {
-					for (ByteBuffer buffer : engine.outQueue) {
-						ostream.write( buffer.array(), 0, buffer.limit() );
+					// the buffers are taken off the queue, so that each one is released once
+					ByteBuffer buffer;
+					while( ( buffer = engine.outQueue.poll() ) != null ) {
+						write( buffer );
 						ostream.flush();
 					}
 				}
@@ -673,6 +764,22 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 				writeThread = null;
 			}
 		}
+
+		/**
+		 * Writes the buffer to the output stream and hands it back to the buffer pool
+		 * @param buffer the buffer to write, may be a direct buffer
+		 * @throws IOException if the write fails
+		 */
+		private void write( ByteBuffer buffer ) throws IOException {
+			int length = buffer.remaining();
+			if( buffer.hasArray() ) {
+				ostream.write( buffer.array(), buffer.arrayOffset() + buffer.position(), length );
+			} else {
+				ostream.write( ByteBufferUtils.getBytes( buffer ) );
+			}
+			engine.onBytesWritten( length );
+			engine.getBufferPool().release( buffer );
+		}
 	}
 
 	/**
@@ -688,6 +795,22 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 		}
 	}
 
+	/**
+	 * Sets the selector which handles the connection of this client together with the connections of other clients,
+	 * instead of a read and a write thread per client. The callbacks then run on the selector thread of the client.
+	 * Does not support {@link #setSocket(Socket)} and {@link #setProxy(Proxy)}.
+	 * This method must be called before <code>connect</code>.
+	 * @param clientSelector the selector, or null to use a read and a write thread
+	 * @since 1.3.8
+	 */
+	public void setClientSelector( WebSocketClientSelector clientSelector ) {
+		if( connectReadThread != null || selectorThread != null ) {
+			throw new IllegalStateException( "the client selector has to be set before connect" );
+		}
+		this.clientSelector = clientSelector;
+		setSharedConnectionLostTimer( clientSelector != null ? clientSelector.getConnectionLostTimer() : null );
+	}
+
 	/**
 	 * Method to set a proxy for this connection
 	 * @param proxy the proxy to use for this websocket client
@@ -796,7 +919,7 @@ public abstract class WebSocketClient extends AbstractWebSocket implements Runna
 	 * Method to give some additional info for specific IOExceptions
 	 * @param e the IOException causing a eot.
 	 */
-	private void handleIOException( IOException e ) {
+	void handleIOException( IOException e ) {
 		if (e instanceof SSLException) {
 			onError( e );
 		}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.java_websocket.AbstractWebSocket;
+import org.java_websocket.SSLSocketChannel2;
+import org.java_websocket.SocketChannelIOHelper;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.WrappedByteChannel;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.util.HashedWheelTimer;
+
+/**
+ * Multiplexes the connections of many {@link WebSocketClient}s over a few selector threads.
+ * <p>
+ * By default every client connects with a blocking socket and runs a read and a write thread of its own. A client which
+ * is given a selector by {@link WebSocketClient#setClientSelector(WebSocketClientSelector)} instead connects a
+ * non-blocking channel, which is handled by one of the selector threads: the thread finishes the connect, runs the TLS
+ * handshake through a {@link SSLSocketChannel2} for <code>wss</code> URIs, reads and decodes the received data and
+ * writes the queued frames. The lost connection checks of all clients share one timer.
+ * <p>
+ * The callbacks of the clients, e.g. {@link WebSocketClient#onMessage(String)}, run on the selector thread of the client,
+ * a blocking callback delays all clients of the thread.
+ *
+ * @since 1.3.8
+ */
+public class WebSocketClientSelector {
+
+	private final List<SelectorThread> threads;
+
+	private final AtomicInteger nextThread = new AtomicInteger();
+
+	private final HashedWheelTimer timer = AbstractWebSocket.createConnectionLostTimer();
+
+	/**
+	 * The context of the <code>wss</code> connections, created on first use if none is set
+	 */
+	private SSLContext sslContext;
+
+	private volatile boolean stopped = false;
+
+	/**
+	 * Creates a selector with one selector thread per available processor
+	 *
+	 * @throws IOException if a selector could not be opened
+	 */
+	public WebSocketClientSelector() throws IOException {
+		this( Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * @param threadCount the number of selector threads
+	 * @throws IOException if a selector could not be opened
+	 */
+	public WebSocketClientSelector( int threadCount ) throws IOException {
+		if( threadCount < 1 ) {
+			throw new IllegalArgumentException( "you need at least 1 selector thread" );
+		}
+		threads = new ArrayList<SelectorThread>( threadCount );
+		for( int i = 0 ; i < threadCount ; i++ ) {
+			SelectorThread thread = new SelectorThread();
+			threads.add( thread );
+			thread.start();
+		}
+	}
+
+	/**
+	 * Sets the context for the TLS connections of <code>wss</code> URIs, e.g. to trust a self-signed certificate.
+	 * Has to be called before the first <code>wss</code> client connects.
+	 *
+	 * @param sslContext the context, or null for a default context
+	 */
+	public synchronized void setSSLContext( SSLContext sslContext ) {
+		this.sslContext = sslContext;
+	}
+
+	/**
+	 * Closes the connections of all clients without a close handshake and stops the selector threads
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the selector threads
+	 */
+	public void stop() throws InterruptedException {
+		stopped = true;
+		for( SelectorThread thread : threads ) {
+			thread.interrupt();
+		}
+		for( SelectorThread thread : threads ) {
+			thread.join();
+		}
+		timer.stop();
+	}
+
+	/**
+	 * @return the number of selector threads
+	 */
+	public int getThreadCount() {
+		return threads.size();
+	}
+
+	HashedWheelTimer getConnectionLostTimer() {
+		return timer;
+	}
+
+	boolean isSelectorThread( Thread thread ) {
+		return thread instanceof SelectorThread && threads.contains( thread );
+	}
+
+	/**
+	 * Opens a non-blocking channel for the client and starts to connect it.
+	 * The address of the server is resolved by the calling thread.
+	 */
+	SocketChannel open( WebSocketClient client, InetSocketAddress address ) throws IOException {
+		if( stopped ) {
+			throw new IllegalStateException( "the client selector has been stopped" );
+		}
+		SocketChannel channel = SocketChannel.open();
+		try {
+			channel.configureBlocking( false );
+			channel.socket().setTcpNoDelay( client.isTcpNoDelay() );
+			channel.socket().setReuseAddress( client.isReuseAddr() );
+			channel.socket().setKeepAlive( true );
+			channel.connect( address );
+		} catch ( IOException e ) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	/**
+	 * @return the selector thread for the next client, the threads are assigned round-robin
+	 */
+	SelectorThread nextThread() {
+		return threads.get( ( nextThread.getAndIncrement() & Integer.MAX_VALUE ) % threads.size() );
+	}
+
+	/**
+	 * Hands the channel opened by {@link #open(WebSocketClient, InetSocketAddress)} to the selector thread of the client
+	 */
+	void register( WebSocketClient client, SelectorThread thread, int connectTimeout ) {
+		final SocketChannel channel = (SocketChannel) ( (WebSocketImpl) client.getConnection() ).channel;
+		final WebSocketImpl engine = (WebSocketImpl) client.getConnection();
+		if( connectTimeout > 0 ) {
+			timer.newTimeout( new Runnable() {
+				@Override
+				public void run() {
+					if( channel.isOpen() && !channel.isConnected() ) {
+						engine.closeConnection( CloseFrame.NEVER_CONNECTED, "connect timed out" );
+					}
+				}
+			}, connectTimeout, TimeUnit.MILLISECONDS );
+		}
+		thread.register( client );
+	}
+
+	private synchronized SSLContext getSSLContext() throws GeneralSecurityException {
+		if( sslContext == null ) {
+			sslContext = SSLContext.getInstance( "TLS" );
+			sslContext.init( null, null, null );
+		}
+		return sslContext;
+	}
+
+	/**
+	 * A selector thread which connects, reads from and writes to the channels of its clients. Only this thread
+	 * registers the channels with its selector and changes their interest ops, other threads hand over new clients and
+	 * write demands through queues.
+	 */
+	class SelectorThread extends Thread {
+
+		private final Selector selector;
+
+		private final Queue<WebSocketClient> registrations = new ConcurrentLinkedQueue<WebSocketClient>();
+
+		private final Queue<WebSocketImpl> writeDemands = new ConcurrentLinkedQueue<WebSocketImpl>();
+
+		/**
+		 * The buffer the received data is read into and decoded from, the data is decoded before the next read
+		 */
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect( WebSocketImpl.RCVBUF );
+
+		SelectorThread() throws IOException {
+			selector = Selector.open();
+			setName( "WebSocketClientSelector-" + getId() );
+			setDaemon( true );
+		}
+
+		void register( WebSocketClient client ) {
+			registrations.add( client );
+			selector.wakeup();
+		}
+
+		void writeDemand( WebSocketImpl conn ) {
+			if( Thread.currentThread() == this ) {
+				addWriteInterest( conn );
+				return;
+			}
+			writeDemands.add( conn );
+			selector.wakeup();
+		}
+
+		private void addWriteInterest( WebSocketImpl conn ) {
+			SelectionKey key = conn.key;
+			// the write interest of a connecting channel is added once it is connected
+			if( key == null || ( key.interestOps() & SelectionKey.OP_CONNECT ) != 0 )
+				return;
+			try {
+				key.interestOps( key.interestOps() | SelectionKey.OP_WRITE );
+			} catch ( CancelledKeyException e ) {
+				// the thread which cancels key is responsible for possible cleanup
+				conn.discardOutQueue();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while ( !isInterrupted() ) {
+					selector.select();
+					WebSocketClient client;
+					while ( ( client = registrations.poll() ) != null ) {
+						registerClient( client );
+					}
+					WebSocketImpl conn;
+					while ( ( conn = writeDemands.poll() ) != null ) {
+						addWriteInterest( conn );
+					}
+					Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+					while ( i.hasNext() ) {
+						SelectionKey key = i.next();
+						i.remove();
+						handleKey( key, (WebSocketClient) key.attachment() );
+					}
+				}
+			} catch ( IOException e ) {
+				// the selector failed, the connections are closed below
+			} finally {
+				for( SelectionKey key : selector.keys() ) {
+					WebSocketImpl conn = (WebSocketImpl) ( (WebSocketClient) key.attachment() ).getConnection();
+					conn.closeConnection( CloseFrame.ABNORMAL_CLOSE, "the client selector has been stopped" );
+				}
+				WebSocketClient client;
+				while ( ( client = registrations.poll() ) != null ) {
+					( (WebSocketImpl) client.getConnection() ).closeConnection( CloseFrame.NEVER_CONNECTED, "the client selector has been stopped" );
+				}
+				try {
+					selector.close();
+				} catch ( IOException e ) {
+					// there is nothing that must be done here
+				}
+			}
+		}
+
+		private void registerClient( WebSocketClient client ) {
+			WebSocketImpl engine = (WebSocketImpl) client.getConnection();
+			SocketChannel channel = (SocketChannel) engine.channel;
+			try {
+				engine.key = channel.register( selector, channel.isConnected() ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, client );
+				if( channel.isConnected() )
+					open( engine.key, client );
+			} catch ( IOException e ) {
+				// e.g. the channel was closed by the connect timeout
+				client.onWebsocketError( engine, e );
+				engine.closeConnection( CloseFrame.NEVER_CONNECTED, e.getMessage() );
+			}
+		}
+
+		private void handleKey( SelectionKey key, WebSocketClient client ) {
+			WebSocketImpl engine = (WebSocketImpl) client.getConnection();
+			try {
+				if( !key.isValid() )
+					return;
+				if( key.isConnectable() ) {
+					try {
+						if( ( (SocketChannel) key.channel() ).finishConnect() ) {
+							key.interestOps( SelectionKey.OP_READ );
+							open( key, client );
+						}
+					} catch ( IOException e ) {
+						client.onWebsocketError( engine, e );
+						engine.closeConnection( CloseFrame.NEVER_CONNECTED, e.getMessage() );
+					}
+					return;
+				}
+				if( key.isReadable() ) {
+					read( engine );
+				}
+				if( key.isValid() && key.isWritable() ) {
+					if( SocketChannelIOHelper.batch( engine, engine.channel ) && key.isValid() ) {
+						key.interestOps( SelectionKey.OP_READ );
+						// a frame queued after the batch would otherwise wait for the next read
+						if( !engine.outQueue.isEmpty() )
+							key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+					}
+					// a TLS handshake which is continued by the write may have read data no read event will announce anymore
+					readMore( engine );
+				}
+			} catch ( CancelledKeyException e ) {
+				// the connection has been closed
+			} catch ( IOException e ) {
+				client.handleIOException( e );
+			} catch ( RuntimeException e ) {
+				// this catch case covers internal errors only and indicates a bug in this websocket implementation
+				client.onError( e );
+				engine.closeConnection( CloseFrame.ABNORMAL_CLOSE, e.getMessage() );
+			}
+		}
+
+		/**
+		 * Wraps the connected channel for TLS if needed and sends the opening handshake
+		 */
+		private void open( SelectionKey key, WebSocketClient client ) throws IOException {
+			WebSocketImpl engine = (WebSocketImpl) client.getConnection();
+			SocketChannel channel = (SocketChannel) key.channel();
+			try {
+				if( "wss".equals( client.getURI().getScheme() ) ) {
+					SSLEngine sslEngine = getSSLContext().createSSLEngine( client.getURI().getHost(), client.getPort() );
+					sslEngine.setUseClientMode( true );
+					engine.channel = new SSLSocketChannel2( channel, sslEngine, SSLSocketChannel2.getSharedExecutor(), key );
+				}
+				client.sendHandshake();
+			} catch ( GeneralSecurityException e ) {
+				throw new IOException( e );
+			} catch ( org.java_websocket.exceptions.InvalidHandshakeException e ) {
+				throw new IOException( e );
+			}
+		}
+
+		private void read( WebSocketImpl engine ) throws IOException {
+			if( SocketChannelIOHelper.read( readBuffer, engine, engine.channel ) ) {
+				engine.decode( readBuffer );
+			}
+			readMore( engine );
+		}
+
+		private void readMore( WebSocketImpl engine ) throws IOException {
+			if( engine.channel instanceof WrappedByteChannel ) {
+				WrappedByteChannel channel = (WrappedByteChannel) engine.channel;
+				// e.g. decrypted data the TLS channel could not return with the last read
+				boolean more = channel.isNeedRead();
+				while ( more && !engine.isClosed() ) {
+					more = SocketChannelIOHelper.readMore( readBuffer, engine, channel );
+					// during the TLS handshake the channel may need to write before it can read on
+					if( !readBuffer.hasRemaining() )
+						break;
+					engine.decode( readBuffer );
+				}
+			}
+			// the TLS channel closes itself when it received the close_notify of the server
+			if( !engine.channel.isOpen() && !engine.isClosed() )
+				engine.eot();
+		}
+	}
+}
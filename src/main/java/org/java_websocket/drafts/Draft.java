@@ -44,10 +44,14 @@ import org.java_websocket.handshake.ClientHandshakeBuilder;
 import org.java_websocket.handshake.HandshakeBuilder;
 import org.java_websocket.handshake.HandshakeImpl1Client;
 import org.java_websocket.handshake.HandshakeImpl1Server;
+import org.java_websocket.handshake.HandshakedataImpl1;
 import org.java_websocket.handshake.Handshakedata;
+import org.java_websocket.handshake.HttpFields;
 import org.java_websocket.handshake.ServerHandshake;
 import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.util.ByteBufferPool;
 import org.java_websocket.util.Charsetfunctions;
+import org.java_websocket.util.DirectByteBufferPool;
 
 /**
  * Base class for everything of a websocket specification which is not common such as the way the handshake is read or frames are transfered.
@@ -78,6 +82,9 @@ public abstract class Draft {
 
 	protected Opcode continuousFrameType = null;
 
+	/** The pool for the buffers of encoded and decoded frames */
+	private ByteBufferPool bufferPool = DirectByteBufferPool.getDefault();
+
 	public static ByteBuffer readLine( ByteBuffer buf ) {
 		ByteBuffer sbuf = ByteBuffer.allocate( buf.remaining() );
 		byte prev;
@@ -103,60 +110,91 @@ public abstract class Draft {
 		return b == null ? null : Charsetfunctions.stringAscii( b.array(), 0, b.limit() );
 	}
 
+	/**
+	 * Parses a http handshake in a single pass over the buffer: the request or status line is split by the offsets of its
+	 * first two spaces and the header lines are parsed into {@link HttpFields}, which only materialize the values which
+	 * are looked up.
+	 * @param buf the buffer positioned at the handshake, it is positioned behind the handshake on success
+	 * @param role the role of the side which parses the handshake
+	 * @return the handshake
+	 * @throws InvalidHandshakeException if the data is no valid handshake
+	 * @throws IncompleteHandshakeException if the buffer ends before the handshake
+	 */
 	public static HandshakeBuilder translateHandshakeHttp( ByteBuffer buf, Role role ) throws InvalidHandshakeException , IncompleteHandshakeException {
-		HandshakeBuilder handshake;
-
-		String line = readStringLine( buf );
-		if( line == null )
+		HandshakedataImpl1 handshake;
+
+		// eg. HTTP/1.1 101 Switching the Protocols
+		int start = buf.position();
+		int end = -1;
+		int firstSpace = -1;
+		int secondSpace = -1;
+		byte prev = 0;
+		for( int i = start; i < buf.limit(); i++ ) {
+			byte cur = buf.get( i );
+			if( cur == '\n' && prev == '\r' ) {
+				end = i - 1;
+				break;
+			}
+			if( cur == ' ' ) {
+				if( firstSpace < 0 ) {
+					firstSpace = i;
+				} else if( secondSpace < 0 ) {
+					secondSpace = i;
+				}
+			}
+			prev = cur;
+		}
+		if( end < 0 )
 			throw new IncompleteHandshakeException( buf.capacity() + 128 );
-
-		String[] firstLineTokens = line.split( " ", 3 );// eg. HTTP/1.1 101 Switching the Protocols
-		if( firstLineTokens.length != 3 ) {
+		if( secondSpace < 0 ) {
 			throw new InvalidHandshakeException();
 		}
 
 		if( role == Role.CLIENT ) {
 			// translating/parsing the response from the SERVER
-			if (!"101".equals(firstLineTokens[1])) {
-				throw new InvalidHandshakeException( "Invalid status code received: " + firstLineTokens[1] + " Status line: " + line);
+			if( !regionMatches( buf, firstSpace + 1, secondSpace, "101" ) ) {
+				throw new InvalidHandshakeException( "Invalid status code received: " + Charsetfunctions.stringAscii( buf, firstSpace + 1, secondSpace ) + " Status line: " + Charsetfunctions.stringAscii( buf, start, end ) );
 			}
-			if (!"HTTP/1.1".equalsIgnoreCase(firstLineTokens[0])) {
-				throw new InvalidHandshakeException( "Invalid status line received: " + firstLineTokens[0] + " Status line: " + line);
+			if( !regionMatches( buf, start, firstSpace, "HTTP/1.1" ) ) {
+				throw new InvalidHandshakeException( "Invalid status line received: " + Charsetfunctions.stringAscii( buf, start, firstSpace ) + " Status line: " + Charsetfunctions.stringAscii( buf, start, end ) );
 			}
 
-			handshake = new HandshakeImpl1Server();
-			ServerHandshakeBuilder serverhandshake = (ServerHandshakeBuilder) handshake;
-			serverhandshake.setHttpStatus( Short.parseShort( firstLineTokens[ 1 ] ) );
-			serverhandshake.setHttpStatusMessage( firstLineTokens[ 2 ] );
+			HandshakeImpl1Server serverhandshake = new HandshakeImpl1Server();
+			serverhandshake.setHttpStatus( ( short ) 101 );
+			serverhandshake.setHttpStatusMessage( Charsetfunctions.stringAscii( buf, secondSpace + 1, end ) );
+			handshake = serverhandshake;
 		} else {
 			// translating/parsing the request from the CLIENT
-			if (!"GET".equalsIgnoreCase(firstLineTokens[0])) {
-				throw new InvalidHandshakeException( "Invalid request method received: " + firstLineTokens[0] + " Status line: " + line);
+			if( !regionMatches( buf, start, firstSpace, "GET" ) ) {
+				throw new InvalidHandshakeException( "Invalid request method received: " + Charsetfunctions.stringAscii( buf, start, firstSpace ) + " Status line: " + Charsetfunctions.stringAscii( buf, start, end ) );
 			}
-			if (!"HTTP/1.1".equalsIgnoreCase(firstLineTokens[2])) {
-				throw new InvalidHandshakeException( "Invalid status line received: " + firstLineTokens[2] + " Status line: " + line);
+			if( !regionMatches( buf, secondSpace + 1, end, "HTTP/1.1" ) ) {
+				throw new InvalidHandshakeException( "Invalid status line received: " + Charsetfunctions.stringAscii( buf, secondSpace + 1, end ) + " Status line: " + Charsetfunctions.stringAscii( buf, start, end ) );
 			}
-			ClientHandshakeBuilder clienthandshake = new HandshakeImpl1Client();
-			clienthandshake.setResourceDescriptor( firstLineTokens[ 1 ] );
+			HandshakeImpl1Client clienthandshake = new HandshakeImpl1Client();
+			clienthandshake.setResourceDescriptor( Charsetfunctions.stringAscii( buf, firstSpace + 1, secondSpace ) );
 			handshake = clienthandshake;
 		}
 
-		line = readStringLine( buf );
-		while ( line != null && line.length() > 0 ) {
-			String[] pair = line.split( ":", 2 );
-			if( pair.length != 2 )
-				throw new InvalidHandshakeException( "not an http header" );
-			// If the handshake contains already a specific key, append the new value
-			if ( handshake.hasFieldValue( pair[ 0 ] ) ) {
-				handshake.put( pair[0], handshake.getFieldValue( pair[ 0 ] ) + "; " + pair[1].replaceFirst( "^ +", "" ) );
-			} else {
-				handshake.put( pair[0], pair[1].replaceFirst( "^ +", "" ) );
+		buf.position( end + 2 );
+		handshake.setHttpFields( HttpFields.parse( buf ) );
+		return handshake;
+	}
+
+	/**
+	 * Compares the bytes between start and end case-insensitive with an ascii String
+	 */
+	private static boolean regionMatches( ByteBuffer buf, int start, int end, String s ) {
+		if( end - start != s.length() ) {
+			return false;
+		}
+		for( int i = 0; i < s.length(); i++ ) {
+			char c = ( char ) ( buf.get( start + i ) & 0xFF );
+			if( Character.toLowerCase( c ) != Character.toLowerCase( s.charAt( i ) ) ) {
+				return false;
 			}
-			line = readStringLine( buf );
 		}
-		if( line == null )
-			throw new IncompleteHandshakeException();
-		return handshake;
+		return true;
 	}
 
 	public abstract HandshakeState acceptHandshakeAsClient( ClientHandshake request, ServerHandshake response ) throws InvalidHandshakeException;
@@ -298,6 +336,27 @@ public abstract class Draft {
 		return role;
 	}
 
+	/**
+	 * Returns the pool used for the buffers of encoded and decoded frames
+	 * @return the buffer pool of this draft
+	 * @since 1.3.8
+	 */
+	public ByteBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Sets the pool used for the buffers of encoded and decoded frames
+	 * @param bufferPool the buffer pool, e.g. a {@link org.java_websocket.util.HeapByteBufferPool} to disable pooling
+	 * @since 1.3.8
+	 */
+	public void setBufferPool( ByteBufferPool bufferPool ) {
+		if( bufferPool == null ) {
+			throw new IllegalArgumentException( "bufferPool must not be null" );
+		}
+		this.bufferPool = bufferPool;
+	}
+
 	public String toString() {
 		return getClass().getSimpleName();
 	}
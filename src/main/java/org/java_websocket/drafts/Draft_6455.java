@@ -38,6 +38,7 @@ import org.java_websocket.util.Base64;
 
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
@@ -79,6 +80,21 @@ public class Draft_6455 extends Draft {
 	 */
 	private List<ByteBuffer> byteBufferList;
 
+	/**
+	 * Attribute for the decoder of the text of the current continuous frame, created on first use
+	 */
+	private Utf8Decoder textDecoder;
+
+	/**
+	 * Attribute whether the current continuous frame is delivered fragment by fragment
+	 */
+	private boolean streaming_continuous_frame;
+
+	/**
+	 * Attribute for the utf8 validation state of the streamed text fragments
+	 */
+	private int streaming_utf8_state;
+
 	/**
 	 * Attribute for the current incomplete frame
 	 */
@@ -89,6 +105,25 @@ public class Draft_6455 extends Draft {
 	 */
 	private final Random reuseableRandom = new Random();
 
+	/**
+	 * The GUID which is appended to the Sec-WebSocket-Key before hashing it
+	 */
+	private static final byte[] WEBSOCKET_GUID = Charsetfunctions.asciiBytes( "258EAFA5-E914-47DA-95CA-C5AB0DC85B11" );
+
+	/**
+	 * The reusable SHA-1 digest of each thread which processes handshakes, a draft is copied for every connection so the digest can't be kept per instance
+	 */
+	private static final ThreadLocal<MessageDigest> SHA1 = new ThreadLocal<MessageDigest>() {
+		@Override
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance( "SHA1" );
+			} catch ( NoSuchAlgorithmException e ) {
+				throw new IllegalStateException( e );
+			}
+		}
+	};
+
 	/**
 	 * Constructor for the websocket protocol specified by RFC 6455 with default extensions
 	 * @since 1.3.5
@@ -328,14 +363,16 @@ public class Draft_6455 extends Draft {
 		for( IProtocol protocol : getKnownProtocols() ) {
 			newProtocols.add( protocol.copyInstance() );
 		}
-		return new Draft_6455( newExtensions, newProtocols );
+		Draft_6455 draft = new Draft_6455( newExtensions, newProtocols );
+		draft.setBufferPool( getBufferPool() );
+		return draft;
 	}
 
 	@Override
 	public ByteBuffer createBinaryFrame( Framedata framedata ) {
 		getExtension().encodeFrame( framedata );
 		if( WebSocketImpl.DEBUG )
-			System.out.println( "afterEnconding(" + framedata.getPayloadData().remaining() + "): {" + ( framedata.getPayloadData().remaining() > 1000 ? "too big to display" : new String( framedata.getPayloadData().array() ) ) + '}' );
+			System.out.println( "afterEnconding(" + framedata.getPayloadData().remaining() + "): {" + ( framedata.getPayloadData().remaining() > 1000 ? "too big to display" : new String( ByteBufferUtils.getBytes( framedata.getPayloadData() ) ) ) + '}' );
 		return createByteBufferFromFramedata( framedata );
 	}
 
@@ -343,10 +380,16 @@ public class Draft_6455 extends Draft {
 		ByteBuffer mes = framedata.getPayloadData();
 		boolean mask = role == WebSocket.Role.CLIENT; // framedata.getTransfereMasked();
 		int sizebytes = mes.remaining() <= 125 ? 1 : mes.remaining() <= 65535 ? 2 : 8;
-		ByteBuffer buf = ByteBuffer.allocate( 1 + ( sizebytes > 1 ? sizebytes + 1 : sizebytes ) + ( mask ? 4 : 0 ) + mes.remaining() );
+		ByteBuffer buf = getBufferPool().acquire( 1 + ( sizebytes > 1 ? sizebytes + 1 : sizebytes ) + ( mask ? 4 : 0 ) + mes.remaining() );
 		byte optcode = fromOpcode( framedata.getOpcode() );
 		byte one = ( byte ) ( framedata.isFin() ? -128 : 0 );
 		one |= optcode;
+		if( framedata.isRSV1() )
+			one |= 0x40;
+		if( framedata.isRSV2() )
+			one |= 0x20;
+		if( framedata.isRSV3() )
+			one |= 0x10;
 		buf.put( one );
 		byte[] payloadlengthbytes = toByteArray( mes.remaining(), sizebytes );
 		assert ( payloadlengthbytes.length == sizebytes );
@@ -363,12 +406,9 @@ public class Draft_6455 extends Draft {
 			throw new RuntimeException( "Size representation not supported/specified" );
 
 		if( mask ) {
-			ByteBuffer maskkey = ByteBuffer.allocate( 4 );
-			maskkey.putInt( reuseableRandom.nextInt() );
-			buf.put( maskkey.array() );
-			for( int i = 0; mes.hasRemaining(); i++ ) {
-				buf.put( ( byte ) ( mes.get() ^ maskkey.get( i % 4 ) ) );
-			}
+			int maskkey = reuseableRandom.nextInt();
+			buf.putInt( maskkey );
+			mask( mes, buf, mes.remaining(), maskkey );
 		} else {
 			buf.put( mes );
 			//Reset the position of the bytebuffer e.g. for additional use
@@ -440,16 +480,13 @@ public class Draft_6455 extends Draft {
 		if( maxpacketsize < realpacketsize )
 			throw new IncompleteException( realpacketsize );
 
-		ByteBuffer payload = ByteBuffer.allocate( checkAlloc( payloadlength ) );
+		// text payloads are decoded and released in processFrame, all other payloads may be kept by the application
+		ByteBuffer payload = optcode == Framedata.Opcode.TEXT ? getBufferPool().acquire( checkAlloc( payloadlength ) ) : ByteBuffer.allocate( checkAlloc( payloadlength ) );
 		if( MASK ) {
-			byte[] maskskey = new byte[4];
-			buffer.get( maskskey );
-			for( int i = 0; i < payloadlength; i++ ) {
-				payload.put( ( byte ) ( buffer.get( /*payloadstart + i*/ ) ^ maskskey[i % 4] ) );
-			}
+			int maskskey = ( buffer.get() & 0xFF ) << 24 | ( buffer.get() & 0xFF ) << 16 | ( buffer.get() & 0xFF ) << 8 | ( buffer.get() & 0xFF );
+			mask( buffer, payload, payloadlength, maskskey );
 		} else {
-			payload.put( buffer.array(), buffer.position(), payload.limit() );
-			buffer.position( buffer.position() + payload.limit() );
+			put( buffer, payload, payloadlength );
 		}
 
 		FramedataImpl1 frame = FramedataImpl1.get( optcode );
@@ -461,8 +498,12 @@ public class Draft_6455 extends Draft {
 		frame.setPayload( payload );
 		getExtension().isFrameValid(frame);
 		getExtension().decodeFrame(frame);
+		if( frame.getPayloadData() != payload ) {
+			// the extension replaced the payload, e.g. by the decompressed data
+			getBufferPool().release( payload );
+		}
 		if( WebSocketImpl.DEBUG )
-			System.out.println( "afterDecoding(" + frame.getPayloadData().remaining() + "): {" + ( frame.getPayloadData().remaining() > 1000 ? "too big to display" : new String( frame.getPayloadData().array() ) ) + '}' );
+			System.out.println( "afterDecoding(" + frame.getPayloadData().remaining() + "): {" + ( frame.getPayloadData().remaining() > 1000 ? "too big to display" : new String( ByteBufferUtils.getBytes( frame.getPayloadData() ) ) ) + '}' );
 		frame.isValid();
 		return frame;
 	}
@@ -482,12 +523,10 @@ public class Draft_6455 extends Draft {
 
 					if( expected_next_byte_count > available_next_byte_count ) {
 						// did not receive enough bytes to complete the frame
-						incompleteframe.put( buffer.array(), buffer.position(), available_next_byte_count );
-						buffer.position( buffer.position() + available_next_byte_count );
+						put( buffer, incompleteframe, available_next_byte_count );
 						return Collections.emptyList();
 					}
-					incompleteframe.put( buffer.array(), buffer.position(), expected_next_byte_count );
-					buffer.position( buffer.position() + expected_next_byte_count );
+					put( buffer, incompleteframe, expected_next_byte_count );
 					cur = translateSingleFrame( ( ByteBuffer ) incompleteframe.duplicate().position( 0 ) );
 					frames.add( cur );
 					incompleteframe = null;
@@ -576,14 +615,13 @@ public class Draft_6455 extends Draft {
 	 */
 	private String generateFinalKey( String in ) {
 		String seckey = in.trim();
-		String acc = seckey + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
-		MessageDigest sh1;
-		try {
-			sh1 = MessageDigest.getInstance( "SHA1" );
-		} catch ( NoSuchAlgorithmException e ) {
-			throw new IllegalStateException( e );
+		MessageDigest sh1 = SHA1.get();
+		sh1.reset();
+		for( int i = 0; i < seckey.length(); i++ ) {
+			sh1.update( ( byte ) seckey.charAt( i ) );
 		}
-		return Base64.encodeBytes( sh1.digest( acc.getBytes() ) );
+		sh1.update( WEBSOCKET_GUID );
+		return Base64.encodeBytes( sh1.digest() );
 	}
 
 	private byte[] toByteArray( long val, int bytecount ) {
@@ -660,47 +698,51 @@ public class Draft_6455 extends Draft {
 		} else if( curop == Framedata.Opcode.PONG ) {
 			webSocketImpl.updateLastPong();
 			webSocketImpl.getWebSocketListener().onWebsocketPong( webSocketImpl, frame );
+		} else if( curop == Framedata.Opcode.CONTINUOUS ? streaming_continuous_frame : !frame.isFin() && webSocketImpl.isFragmentStreaming() ) {
+			processFragment( webSocketImpl, frame );
 		} else if( !frame.isFin() || curop == Framedata.Opcode.CONTINUOUS ) {
 			if( curop != Framedata.Opcode.CONTINUOUS ) {
 				if( current_continuous_frame != null )
 					throw new InvalidDataException( CloseFrame.PROTOCOL_ERROR, "Previous continuous frame sequence not completed." );
 				current_continuous_frame = frame;
+			} else if( current_continuous_frame == null ) {
+				throw new InvalidDataException( CloseFrame.PROTOCOL_ERROR, "Continuous frame sequence was not started." );
+			}
+			if( current_continuous_frame.getOpcode() == Framedata.Opcode.TEXT ) {
+				// the text is validated and decoded fragment by fragment, so the payloads are not collected
+				if( textDecoder == null ) {
+					textDecoder = new Utf8Decoder();
+				}
+				try {
+					textDecoder.decode( frame.getPayloadData() );
+				} finally {
+					if( curop == Framedata.Opcode.TEXT ) {
+						getBufferPool().release( frame.getPayloadData() );
+					}
+				}
+			} else {
 				byteBufferList.add( frame.getPayloadData() );
-			} else if( frame.isFin() ) {
-				if( current_continuous_frame == null )
-					throw new InvalidDataException( CloseFrame.PROTOCOL_ERROR, "Continuous frame sequence was not started." );
-				byteBufferList.add( frame.getPayloadData() );
-				if( current_continuous_frame.getOpcode() == Framedata.Opcode.TEXT ) {
-					((FramedataImpl1) current_continuous_frame).setPayload( getPayloadFromByteBufferList() );
-					((FramedataImpl1) current_continuous_frame ).isValid();
+			}
+			if( frame.isFin() ) {
+				Framedata message = current_continuous_frame;
+				current_continuous_frame = null;
+				if( message.getOpcode() == Framedata.Opcode.TEXT ) {
+					String text = textDecoder.finish();
 					try {
-						webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, Charsetfunctions.stringUtf8( current_continuous_frame.getPayloadData() ) );
+						webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, text );
 					} catch ( RuntimeException e ) {
 						webSocketImpl.getWebSocketListener().onWebsocketError( webSocketImpl, e );
 					}
-				} else if( current_continuous_frame.getOpcode() == Framedata.Opcode.BINARY ) {
-					((FramedataImpl1) current_continuous_frame).setPayload( getPayloadFromByteBufferList() );
-					((FramedataImpl1) current_continuous_frame ).isValid();
+				} else if( message.getOpcode() == Framedata.Opcode.BINARY ) {
+					((FramedataImpl1) message).setPayload( getPayloadFromByteBufferList() );
+					byteBufferList.clear();
+					((FramedataImpl1) message ).isValid();
 					try {
-						webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, current_continuous_frame.getPayloadData() );
+						webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, message.getPayloadData() );
 					} catch ( RuntimeException e ) {
 						webSocketImpl.getWebSocketListener().onWebsocketError( webSocketImpl, e );
 					}
 				}
-				current_continuous_frame = null;
-				byteBufferList.clear();
-			} else if( current_continuous_frame == null ) {
-				throw new InvalidDataException( CloseFrame.PROTOCOL_ERROR, "Continuous frame sequence was not started." );
-			}
-			//Check if the whole payload is valid utf8, when the opcode indicates a text
-			if( curop == Framedata.Opcode.TEXT ) {
-				if( !Charsetfunctions.isValidUTF8( frame.getPayloadData() ) ) {
-					throw new InvalidDataException( CloseFrame.NO_UTF8 );
-				}
-			}
-			//Checking if the current continuous frame contains a correct payload with the other frames combined
-			if( curop == Framedata.Opcode.CONTINUOUS && current_continuous_frame != null ) {
-				byteBufferList.add( frame.getPayloadData() );
 			}
 		} else if( current_continuous_frame != null ) {
 			throw new InvalidDataException( CloseFrame.PROTOCOL_ERROR, "Continuous frame sequence not completed." );
@@ -709,6 +751,8 @@ public class Draft_6455 extends Draft {
 				webSocketImpl.getWebSocketListener().onWebsocketMessage( webSocketImpl, Charsetfunctions.stringUtf8( frame.getPayloadData() ) );
 			} catch ( RuntimeException e ) {
 				webSocketImpl.getWebSocketListener().onWebsocketError( webSocketImpl, e );
+			} finally {
+				getBufferPool().release( frame.getPayloadData() );
 			}
 		} else if( curop == Framedata.Opcode.BINARY ) {
 			try {
@@ -721,6 +765,44 @@ public class Draft_6455 extends Draft {
 		}
 	}
 
+	/**
+	 * Delivers a fragment of a fragmented message to the listener without aggregating the payload of the whole message
+	 *
+	 * @param webSocketImpl the websocketimpl used for this draft
+	 * @param frame         the first fragment or a continuous frame
+	 * @throws InvalidDataException if the fragment breaks the fragment sequence or the utf8 encoding of a text message
+	 * @see WebSocketImpl#setFragmentStreaming(boolean)
+	 */
+	private void processFragment( WebSocketImpl webSocketImpl, Framedata frame ) throws InvalidDataException {
+		Framedata.Opcode curop = frame.getOpcode();
+		if( curop != Framedata.Opcode.CONTINUOUS ) {
+			if( current_continuous_frame != null )
+				throw new InvalidDataException( CloseFrame.PROTOCOL_ERROR, "Previous continuous frame sequence not completed." );
+			current_continuous_frame = frame;
+			streaming_continuous_frame = true;
+			streaming_utf8_state = Charsetfunctions.UTF8_ACCEPT;
+		}
+		if( current_continuous_frame.getOpcode() == Framedata.Opcode.TEXT ) {
+			streaming_utf8_state = Charsetfunctions.validateUTF8( frame.getPayloadData(), streaming_utf8_state );
+			if( streaming_utf8_state == Charsetfunctions.UTF8_REJECT || ( frame.isFin() && streaming_utf8_state != Charsetfunctions.UTF8_ACCEPT ) ) {
+				throw new InvalidDataException( CloseFrame.NO_UTF8 );
+			}
+		}
+		if( frame.isFin() ) {
+			current_continuous_frame = null;
+			streaming_continuous_frame = false;
+		}
+		try {
+			webSocketImpl.getWebSocketListener().onWebsocketMessageFragment( webSocketImpl, frame );
+		} catch ( RuntimeException e ) {
+			webSocketImpl.getWebSocketListener().onWebsocketError( webSocketImpl, e );
+		} finally {
+			if( curop == Framedata.Opcode.TEXT ) {
+				getBufferPool().release( frame.getPayloadData() );
+			}
+		}
+	}
+
 	@Override
 	public Draft.CloseHandshakeType getCloseHandshakeType() {
 		return Draft.CloseHandshakeType.TWOWAY;
@@ -775,6 +857,47 @@ public class Draft_6455 extends Draft {
 		return resultingByteBuffer;
 	}
 
+	/**
+	 * Copies length bytes from source to dest and applies the masking algorithm of RFC 6455 section 5.3.
+	 * The bytes are xored 8 at a time with the mask key repeated to a long, the remaining bytes one at a time.
+	 * @param source the buffer to read from, its position is advanced by length
+	 * @param dest the buffer to write to, its position is advanced by length
+	 * @param length the number of bytes to mask
+	 * @param maskkey the 4 byte mask key in network byte order
+	 */
+	static void mask( ByteBuffer source, ByteBuffer dest, int length, int maskkey ) {
+		int sourcepos = source.position();
+		int destpos = dest.position();
+		int i = 0;
+		if( source.order() == dest.order() ) {
+			long widemaskkey = ( maskkey & 0xFFFFFFFFL ) | ( ( long ) maskkey << 32 );
+			if( source.order() == ByteOrder.LITTLE_ENDIAN ) {
+				widemaskkey = Long.reverseBytes( widemaskkey );
+			}
+			for( ; i + 8 <= length; i += 8 ) {
+				dest.putLong( destpos + i, source.getLong( sourcepos + i ) ^ widemaskkey );
+			}
+		}
+		for( ; i < length; i++ ) {
+			dest.put( destpos + i, ( byte ) ( source.get( sourcepos + i ) ^ ( maskkey >>> ( 24 - 8 * ( i & 3 ) ) ) ) );
+		}
+		source.position( sourcepos + length );
+		dest.position( destpos + length );
+	}
+
+	/**
+	 * Copies length bytes from source to dest without copying the source buffer or accessing its backing array
+	 * @param source the buffer to read from, its position is advanced by length
+	 * @param dest the buffer to write to, its position is advanced by length
+	 * @param length the number of bytes to copy
+	 */
+	private static void put( ByteBuffer source, ByteBuffer dest, int length ) {
+		int limit = source.limit();
+		source.limit( source.position() + length );
+		dest.put( source );
+		source.limit( limit );
+	}
+
 	private static void logDebug(Object object) {
 		if (WebSocketImpl.DEBUG) {
 			System.out.println(object);
@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.extensions.permessage_deflate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.exceptions.InvalidFrameException;
+import org.java_websocket.exceptions.LimitExedeedException;
+import org.java_websocket.extensions.CompressionExtension;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+
+/**
+ * The permessage-deflate extension as specified by RFC 7692.
+ * <p>
+ * Pass an instance to {@link org.java_websocket.drafts.Draft_6455#Draft_6455(IExtension)} to offer the extension as
+ * client or to accept offers as server. Every connection works on its own copy of the extension, which keeps one
+ * {@link Deflater} and one {@link Inflater} for all messages of the connection.
+ * <p>
+ * Messages sent as a single frame with at least {@link #getThreshold()} bytes are compressed, smaller messages and
+ * messages sent with {@code sendFragmentedFrame} are sent uncompressed. Received messages are decompressed no matter
+ * how they were fragmented; a message which decompresses to more than {@link #getMaxDecompressedSize()} bytes closes
+ * the connection with {@link CloseFrame#TOOBIG}.
+ * <p>
+ * The window size of {@link Deflater} can't be changed, so offers with a server_max_window_bits below 15 are
+ * declined and client_max_window_bits is never requested. Received messages can use any window size.
+ *
+ * @since 1.3.8
+ */
+public class PerMessageDeflateExtension extends CompressionExtension {
+
+	/**
+	 * The name of the extension in the Sec-WebSocket-Extensions header
+	 */
+	public static final String EXTENSION_NAME = "permessage-deflate";
+
+	private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+	private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+	private static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+	private static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+	/**
+	 * The window size of {@link Deflater}
+	 */
+	private static final int DEFLATER_WINDOW_BITS = 15;
+
+	/**
+	 * The bytes which end a deflate block flushed with {@link Deflater#SYNC_FLUSH}, removed from every compressed message
+	 */
+	private static final byte[] TAIL = { 0x00, 0x00, ( byte ) 0xFF, ( byte ) 0xFF };
+
+	/**
+	 * Attribute for the compression level of the deflater
+	 */
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	/**
+	 * Attribute for the minimum payload size of a message to be compressed
+	 */
+	private int threshold = 1024;
+
+	/**
+	 * Attribute for the maximum size of a decompressed message
+	 */
+	private int maxDecompressedSize = 16 * 1024 * 1024;
+
+	/**
+	 * Attribute whether server_no_context_takeover is requested by this endpoint
+	 */
+	private boolean serverNoContextTakeover = false;
+
+	/**
+	 * Attribute whether client_no_context_takeover is requested by this endpoint
+	 */
+	private boolean clientNoContextTakeover = false;
+
+	/**
+	 * The negotiated response of the server, empty if no offer has been accepted
+	 */
+	private String providedExtensionAsServer = "";
+
+	/**
+	 * Attribute whether the deflater has to be reset after every message
+	 */
+	private boolean deflaterNoContextTakeover;
+
+	/**
+	 * Attribute whether the inflater has to be reset after every message
+	 */
+	private boolean inflaterNoContextTakeover;
+
+	private Deflater deflater;
+	private Inflater inflater;
+
+	/**
+	 * Frames are encoded and decoded on different threads while {@link #reset()} may be called on any thread
+	 */
+	private final Object deflateLock = new Object();
+	private final Object inflateLock = new Object();
+
+	/**
+	 * Attribute whether the currently received message is compressed
+	 */
+	private boolean inflating;
+
+	/**
+	 * The number of decompressed bytes of the currently received message
+	 */
+	private int decompressedSize;
+
+	/**
+	 * Reusable buffers for the input and output of the deflater and the inflater.
+	 * Frames are encoded and decoded on different threads, so each side has its own buffers
+	 */
+	private byte[] deflateInput = new byte[0];
+	private byte[] deflateOutput = new byte[1024];
+	private byte[] inflateInput = new byte[0];
+	private byte[] inflateOutput = new byte[1024];
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Sets the compression level of the deflater
+	 *
+	 * @param compressionLevel the compression level between {@link Deflater#BEST_SPEED} and {@link Deflater#BEST_COMPRESSION}
+	 */
+	public void setCompressionLevel( int compressionLevel ) {
+		if( compressionLevel != Deflater.DEFAULT_COMPRESSION && ( compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION ) ) {
+			throw new IllegalArgumentException( "invalid compression level" );
+		}
+		this.compressionLevel = compressionLevel;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the minimum payload size of a message to be compressed, smaller messages are sent uncompressed
+	 *
+	 * @param threshold the minimum number of bytes
+	 */
+	public void setThreshold( int threshold ) {
+		this.threshold = threshold;
+	}
+
+	public int getMaxDecompressedSize() {
+		return maxDecompressedSize;
+	}
+
+	/**
+	 * Sets the maximum size of a decompressed message
+	 *
+	 * @param maxDecompressedSize the maximum number of bytes
+	 */
+	public void setMaxDecompressedSize( int maxDecompressedSize ) {
+		if( maxDecompressedSize < 1 ) {
+			throw new IllegalArgumentException( "maxDecompressedSize must be positive" );
+		}
+		this.maxDecompressedSize = maxDecompressedSize;
+	}
+
+	public boolean isServerNoContextTakeover() {
+		return serverNoContextTakeover;
+	}
+
+	/**
+	 * Sets whether the server has to reset its compression context after every message
+	 *
+	 * @param serverNoContextTakeover true to request server_no_context_takeover
+	 */
+	public void setServerNoContextTakeover( boolean serverNoContextTakeover ) {
+		this.serverNoContextTakeover = serverNoContextTakeover;
+	}
+
+	public boolean isClientNoContextTakeover() {
+		return clientNoContextTakeover;
+	}
+
+	/**
+	 * Sets whether the client has to reset its compression context after every message
+	 *
+	 * @param clientNoContextTakeover true to request client_no_context_takeover
+	 */
+	public void setClientNoContextTakeover( boolean clientNoContextTakeover ) {
+		this.clientNoContextTakeover = clientNoContextTakeover;
+	}
+
+	@Override
+	public void isFrameValid( Framedata inputFrame ) throws InvalidDataException {
+		super.isFrameValid( inputFrame );
+		if( inputFrame.getOpcode() == Framedata.Opcode.CONTINUOUS && inputFrame.isRSV1() ) {
+			throw new InvalidFrameException( "RSV1 bit must only be set on the first frame of a message" );
+		}
+	}
+
+	@Override
+	public void encodeFrame( Framedata inputFrame ) {
+		// only complete messages are compressed, fragmented messages are sent as they are
+		if( !( inputFrame instanceof DataFrame ) || inputFrame.getOpcode() == Framedata.Opcode.CONTINUOUS || !inputFrame.isFin() ) {
+			return;
+		}
+		if( inputFrame.getPayloadData().remaining() < threshold ) {
+			return;
+		}
+		synchronized( deflateLock ) {
+			deflate( ( FramedataImpl1 ) inputFrame );
+		}
+	}
+
+	private void deflate( FramedataImpl1 frame ) {
+		ByteBuffer payload = frame.getPayloadData();
+		int length = payload.remaining();
+		// the payload may be shared with other frames, so it is read without moving its position
+		byte[] input;
+		int offset;
+		if( payload.hasArray() ) {
+			input = payload.array();
+			offset = payload.arrayOffset() + payload.position();
+		} else {
+			if( deflateInput.length < length ) {
+				deflateInput = new byte[length];
+			}
+			payload.duplicate().get( deflateInput, 0, length );
+			input = deflateInput;
+			offset = 0;
+		}
+		if( deflater == null ) {
+			deflater = new Deflater( compressionLevel, true );
+		}
+		deflater.setInput( input, offset, length );
+		int size = 0;
+		while( true ) {
+			size += deflater.deflate( deflateOutput, size, deflateOutput.length - size, Deflater.SYNC_FLUSH );
+			if( size < deflateOutput.length ) {
+				break;
+			}
+			deflateOutput = Arrays.copyOf( deflateOutput, deflateOutput.length * 2 );
+		}
+		if( endsWithTail( deflateOutput, size ) ) {
+			size -= TAIL.length;
+		}
+		if( deflaterNoContextTakeover ) {
+			deflater.reset();
+		}
+		frame.setPayload( ByteBuffer.wrap( Arrays.copyOf( deflateOutput, size ) ) );
+		frame.setRSV1( true );
+	}
+
+	@Override
+	public void decodeFrame( Framedata inputFrame ) throws InvalidDataException {
+		if( !( inputFrame instanceof DataFrame ) ) {
+			return;
+		}
+		if( inputFrame.getOpcode() != Framedata.Opcode.CONTINUOUS ) {
+			inflating = inputFrame.isRSV1();
+			decompressedSize = 0;
+		}
+		if( !inflating ) {
+			return;
+		}
+		synchronized( inflateLock ) {
+			inflate( ( FramedataImpl1 ) inputFrame );
+		}
+	}
+
+	private void inflate( FramedataImpl1 frame ) throws InvalidDataException {
+		ByteBuffer payload = frame.getPayloadData();
+		int length = payload.remaining();
+		if( inflateInput.length < length ) {
+			inflateInput = new byte[length];
+		}
+		payload.duplicate().get( inflateInput, 0, length );
+		if( inflater == null ) {
+			inflater = new Inflater( true );
+		}
+		int size = 0;
+		try {
+			inflater.setInput( inflateInput, 0, length );
+			size = inflateInput( size );
+			if( frame.isFin() ) {
+				inflater.setInput( TAIL );
+				size = inflateInput( size );
+			}
+		} catch ( DataFormatException e ) {
+			throw new InvalidDataException( CloseFrame.PROTOCOL_ERROR, "Invalid compressed data: " + e.getMessage() );
+		}
+		if( frame.isFin() ) {
+			inflating = false;
+			if( inflaterNoContextTakeover || inflater.finished() ) {
+				inflater.reset();
+			}
+		}
+		frame.setPayload( ByteBuffer.wrap( Arrays.copyOf( inflateOutput, size ) ) );
+		frame.setRSV1( false );
+	}
+
+	/**
+	 * Inflates the whole input of the inflater into {@link #inflateOutput}
+	 *
+	 * @param size the number of bytes already in the output
+	 * @return the number of bytes in the output
+	 */
+	private int inflateInput( int size ) throws DataFormatException, LimitExedeedException {
+		while( true ) {
+			if( size == inflateOutput.length ) {
+				inflateOutput = Arrays.copyOf( inflateOutput, inflateOutput.length * 2 );
+			}
+			int inflated = inflater.inflate( inflateOutput, size, inflateOutput.length - size );
+			size += inflated;
+			decompressedSize += inflated;
+			if( decompressedSize > maxDecompressedSize ) {
+				throw new LimitExedeedException( "Decompressed message exceeds " + maxDecompressedSize + " bytes" );
+			}
+			if( inflated == 0 && ( inflater.needsInput() || inflater.finished() || inflater.needsDictionary() ) ) {
+				return size;
+			}
+		}
+	}
+
+	private static boolean endsWithTail( byte[] bytes, int size ) {
+		if( size < TAIL.length ) {
+			return false;
+		}
+		for( int i = 0; i < TAIL.length; i++ ) {
+			if( bytes[size - TAIL.length + i] != TAIL[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean acceptProvidedExtensionAsServer( String inputExtensionHeader ) {
+		if( inputExtensionHeader == null ) {
+			return false;
+		}
+		for( String offer : inputExtensionHeader.split( "," ) ) {
+			String[] parameters = offer.split( ";" );
+			if( !EXTENSION_NAME.equalsIgnoreCase( parameters[0].trim() ) ) {
+				continue;
+			}
+			boolean serverNoContext = serverNoContextTakeover;
+			boolean clientNoContext = clientNoContextTakeover;
+			boolean serverMaxWindowBits = false;
+			boolean acceptable = true;
+			for( int i = 1; i < parameters.length && acceptable; i++ ) {
+				String name = parameterName( parameters[i] );
+				String value = parameterValue( parameters[i] );
+				if( SERVER_NO_CONTEXT_TAKEOVER.equals( name ) && value == null ) {
+					serverNoContext = true;
+				} else if( CLIENT_NO_CONTEXT_TAKEOVER.equals( name ) && value == null ) {
+					clientNoContext = true;
+				} else if( SERVER_MAX_WINDOW_BITS.equals( name ) ) {
+					// the deflater always uses the largest window
+					serverMaxWindowBits = true;
+					acceptable = windowBits( value ) == DEFLATER_WINDOW_BITS;
+				} else if( CLIENT_MAX_WINDOW_BITS.equals( name ) ) {
+					// the inflater accepts any window, so there is no need to limit the window of the client
+					acceptable = value == null || windowBits( value ) != -1;
+				} else {
+					acceptable = false;
+				}
+			}
+			if( acceptable ) {
+				deflaterNoContextTakeover = serverNoContext;
+				inflaterNoContextTakeover = clientNoContext;
+				StringBuilder response = new StringBuilder( EXTENSION_NAME );
+				if( serverNoContext ) {
+					response.append( "; " ).append( SERVER_NO_CONTEXT_TAKEOVER );
+				}
+				if( clientNoContext ) {
+					response.append( "; " ).append( CLIENT_NO_CONTEXT_TAKEOVER );
+				}
+				if( serverMaxWindowBits ) {
+					response.append( "; " ).append( SERVER_MAX_WINDOW_BITS ).append( '=' ).append( DEFLATER_WINDOW_BITS );
+				}
+				providedExtensionAsServer = response.toString();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean acceptProvidedExtensionAsClient( String inputExtensionHeader ) {
+		if( inputExtensionHeader == null ) {
+			return false;
+		}
+		for( String response : inputExtensionHeader.split( "," ) ) {
+			String[] parameters = response.split( ";" );
+			if( !EXTENSION_NAME.equalsIgnoreCase( parameters[0].trim() ) ) {
+				continue;
+			}
+			boolean serverNoContext = false;
+			boolean clientNoContext = clientNoContextTakeover;
+			for( int i = 1; i < parameters.length; i++ ) {
+				String name = parameterName( parameters[i] );
+				String value = parameterValue( parameters[i] );
+				if( SERVER_NO_CONTEXT_TAKEOVER.equals( name ) && value == null ) {
+					serverNoContext = true;
+				} else if( CLIENT_NO_CONTEXT_TAKEOVER.equals( name ) && value == null ) {
+					clientNoContext = true;
+				} else if( SERVER_MAX_WINDOW_BITS.equals( name ) && windowBits( value ) != -1 ) {
+					// the inflater accepts any window
+				} else {
+					// client_max_window_bits is never offered, so the server must not send it
+					return false;
+				}
+			}
+			deflaterNoContextTakeover = clientNoContext;
+			inflaterNoContextTakeover = serverNoContext;
+			return true;
+		}
+		return false;
+	}
+
+	private static String parameterName( String parameter ) {
+		int index = parameter.indexOf( '=' );
+		return ( index == -1 ? parameter : parameter.substring( 0, index ) ).trim().toLowerCase();
+	}
+
+	private static String parameterValue( String parameter ) {
+		int index = parameter.indexOf( '=' );
+		if( index == -1 ) {
+			return null;
+		}
+		String value = parameter.substring( index + 1 ).trim();
+		if( value.length() >= 2 && value.startsWith( "\"" ) && value.endsWith( "\"" ) ) {
+			value = value.substring( 1, value.length() - 1 );
+		}
+		return value;
+	}
+
+	/**
+	 * Parses the value of a max_window_bits parameter
+	 *
+	 * @return the window bits between 8 and 15 or -1 if the value is invalid
+	 */
+	private static int windowBits( String value ) {
+		if( value == null ) {
+			return -1;
+		}
+		try {
+			int bits = Integer.parseInt( value );
+			return bits >= 8 && bits <= 15 ? bits : -1;
+		} catch ( NumberFormatException e ) {
+			return -1;
+		}
+	}
+
+	@Override
+	public String getProvidedExtensionAsClient() {
+		StringBuilder offer = new StringBuilder( EXTENSION_NAME );
+		if( clientNoContextTakeover ) {
+			offer.append( "; " ).append( CLIENT_NO_CONTEXT_TAKEOVER );
+		}
+		if( serverNoContextTakeover ) {
+			offer.append( "; " ).append( SERVER_NO_CONTEXT_TAKEOVER );
+		}
+		return offer.toString();
+	}
+
+	@Override
+	public String getProvidedExtensionAsServer() {
+		return providedExtensionAsServer;
+	}
+
+	@Override
+	public IExtension copyInstance() {
+		PerMessageDeflateExtension extension = new PerMessageDeflateExtension();
+		extension.compressionLevel = compressionLevel;
+		extension.threshold = threshold;
+		extension.maxDecompressedSize = maxDecompressedSize;
+		extension.serverNoContextTakeover = serverNoContextTakeover;
+		extension.clientNoContextTakeover = clientNoContextTakeover;
+		return extension;
+	}
+
+	@Override
+	public void reset() {
+		// the draft is reset when the connection is closed, so the native resources are freed here
+		synchronized( deflateLock ) {
+			if( deflater != null ) {
+				deflater.end();
+				deflater = null;
+			}
+		}
+		synchronized( inflateLock ) {
+			if( inflater != null ) {
+				inflater.end();
+				inflater = null;
+			}
+			inflating = false;
+			decompressedSize = 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " threshold: " + threshold + " serverNoContextTakeover: " + serverNoContextTakeover + " clientNoContextTakeover: " + clientNoContextTakeover;
+	}
+
+	/**
+	 * A connection which compresses with context takeover has its own context, so frames encoded by it must never be
+	 * reused by another connection and only the same instance is equal. Without context takeover every message is
+	 * compressed from a fresh context, so instances with the same settings encode the same frames and are equal, which
+	 * lets {@code WebSocketServer.broadcast} encode a message once for all of them.
+	 */
+	@Override
+	public boolean equals( Object o ) {
+		if( this == o ) {
+			return true;
+		}
+		if( !( o instanceof PerMessageDeflateExtension ) ) {
+			return false;
+		}
+		PerMessageDeflateExtension that = ( PerMessageDeflateExtension ) o;
+		return deflaterNoContextTakeover && that.deflaterNoContextTakeover && compressionLevel == that.compressionLevel && threshold == that.threshold;
+	}
+
+	@Override
+	public int hashCode() {
+		return deflaterNoContextTakeover ? 31 * compressionLevel + threshold : System.identityHashCode( this );
+	}
+}
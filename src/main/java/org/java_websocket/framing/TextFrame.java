@@ -26,7 +26,6 @@
 package org.java_websocket.framing;
 
 import org.java_websocket.exceptions.InvalidDataException;
-import org.java_websocket.util.Charsetfunctions;
 
 /**
  * Class to represent a text frames
@@ -40,11 +39,14 @@ public class TextFrame extends DataFrame {
         super(Opcode.TEXT);
     }
 
+    /**
+     * The utf8 encoding of the payload is not checked here, a received text is validated while it is decoded
+     * and the fragments of a text message may split a character.
+     *
+     * @see org.java_websocket.util.Utf8Decoder
+     */
     @Override
     public void isValid() throws InvalidDataException {
         super.isValid();
-        if (!Charsetfunctions.isValidUTF8( getPayloadData() )) {
-            throw new InvalidDataException(CloseFrame.NO_UTF8, "Received text is no valid utf8 string!");
-        }
     }
 }
@@ -28,6 +28,7 @@ package org.java_websocket.handshake;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Implementation of a handshake builder
@@ -40,10 +41,15 @@ public class HandshakedataImpl1 implements HandshakeBuilder {
 	private byte[] content;
 
 	/**
-	 * Attribute for the http fields and values
+	 * Attribute for the http fields and values which were put
 	 */
 	private TreeMap<String,String> map;
 
+	/**
+	 * Attribute for the http fields of a received handshake, a field which was put hides the received one
+	 */
+	private HttpFields httpFields;
+
 	/**
 	 * Constructor for handshake implementation
 	 */
@@ -53,18 +59,49 @@ public class HandshakedataImpl1 implements HandshakeBuilder {
 
 	@Override
 	public Iterator<String> iterateHttpFields() {
-		return Collections.unmodifiableSet( map.keySet() ).iterator();// Safety first
+		if( httpFields == null ) {
+			return Collections.unmodifiableSet( map.keySet() ).iterator();// Safety first
+		}
+		TreeSet<String> names = new TreeSet<String>( String.CASE_INSENSITIVE_ORDER );
+		for( int i = 0; i < httpFields.size(); i++ ) {
+			names.add( httpFields.getName( i ) );
+		}
+		names.addAll( map.keySet() );
+		return Collections.unmodifiableSet( names ).iterator();
 	}
 
 	@Override
 	public String getFieldValue( String name ) {
 		String s = map.get( name );
+		if( s == null && httpFields != null ) {
+			s = httpFields.getValue( name );
+		}
 		if ( s == null ) {
 			return "";
 		}
 		return s;
 	}
 
+	/**
+	 * Getter for the http fields of a received handshake
+	 *
+	 * @return the received fields or null if this handshake was built
+	 * @since 1.3.8
+	 */
+	public HttpFields getHttpFields() {
+		return httpFields;
+	}
+
+	/**
+	 * Setter for the http fields of a received handshake
+	 *
+	 * @param httpFields the received fields
+	 * @since 1.3.8
+	 */
+	public void setHttpFields( HttpFields httpFields ) {
+		this.httpFields = httpFields;
+	}
+
 	@Override
 	public byte[] getContent() {
 		return content;
@@ -82,6 +119,6 @@ public class HandshakedataImpl1 implements HandshakeBuilder {
 
 	@Override
 	public boolean hasFieldValue( String name ) {
-		return map.containsKey( name );
+		return map.containsKey( name ) || ( httpFields != null && httpFields.indexOf( name, 0 ) >= 0 );
 	}
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.handshake;
+
+import java.nio.ByteBuffer;
+
+import org.java_websocket.exceptions.IncompleteHandshakeException;
+import org.java_websocket.exceptions.InvalidHandshakeException;
+import org.java_websocket.util.Charsetfunctions;
+
+/**
+ * The http fields of a received handshake.
+ * <p>
+ * {@link #parse(ByteBuffer)} scans the header lines once and only records the offsets of the names and values, the
+ * fields are looked up case-insensitive on the raw bytes and a value becomes a String only when it is requested.
+ *
+ * @since 1.3.8
+ */
+public final class HttpFields {
+
+	/**
+	 * The number of offsets per field: name start, name end, value start and value end
+	 */
+	private static final int OFFSETS_PER_FIELD = 4;
+
+	/**
+	 * Attribute for the bytes of the header lines
+	 */
+	private final byte[] data;
+
+	/**
+	 * Attribute for the offsets of the fields in {@link #data}
+	 */
+	private final int[] offsets;
+
+	/**
+	 * Attribute for the number of fields
+	 */
+	private final int size;
+
+	private HttpFields( byte[] data, int[] offsets, int size ) {
+		this.data = data;
+		this.offsets = offsets;
+		this.size = size;
+	}
+
+	/**
+	 * Parses the header lines from the position of the buffer up to and including the empty line which ends the header.
+	 * The position is moved behind the empty line, the bytes of a following content or frames are not touched.
+	 *
+	 * @param buf the buffer, positioned at the first header line
+	 * @return the parsed fields
+	 * @throws InvalidHandshakeException if a line is no http header
+	 * @throws IncompleteHandshakeException if the buffer ends before the empty line
+	 */
+	public static HttpFields parse( ByteBuffer buf ) throws InvalidHandshakeException, IncompleteHandshakeException {
+		int start = buf.position();
+		int limit = buf.limit();
+		int[] offsets = new int[OFFSETS_PER_FIELD * 16];
+		int size = 0;
+		int lineStart = start;
+		int colon = -1;
+		byte prev = 0;
+		for( int i = start; i < limit; i++ ) {
+			byte cur = buf.get( i );
+			if( cur == '\n' && prev == '\r' ) {
+				int lineEnd = i - 1;
+				if( lineEnd == lineStart ) {
+					byte[] data = new byte[lineStart - start];
+					for( int j = 0; j < data.length; j++ ) {
+						data[j] = buf.get( start + j );
+					}
+					buf.position( i + 1 );
+					return new HttpFields( data, offsets, size );
+				}
+				if( colon < 0 ) {
+					throw new InvalidHandshakeException( "not an http header" );
+				}
+				int valueStart = colon + 1;
+				while( valueStart < lineEnd && buf.get( valueStart ) == ' ' ) {
+					valueStart++;
+				}
+				if( offsets.length == size * OFFSETS_PER_FIELD ) {
+					int[] grown = new int[offsets.length * 2];
+					System.arraycopy( offsets, 0, grown, 0, offsets.length );
+					offsets = grown;
+				}
+				int o = size * OFFSETS_PER_FIELD;
+				offsets[o] = lineStart - start;
+				offsets[o + 1] = colon - start;
+				offsets[o + 2] = valueStart - start;
+				offsets[o + 3] = lineEnd - start;
+				size++;
+				lineStart = i + 1;
+				colon = -1;
+			} else if( cur == ':' && colon < 0 ) {
+				colon = i;
+			}
+			prev = cur;
+		}
+		throw new IncompleteHandshakeException();
+	}
+
+	/**
+	 * Returns the number of fields, a field which was received several times is counted several times
+	 *
+	 * @return the number of fields
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the name of a field
+	 *
+	 * @param index the index of the field
+	 * @return the name as it was received
+	 */
+	public String getName( int index ) {
+		int o = index * OFFSETS_PER_FIELD;
+		return Charsetfunctions.stringAscii( data, offsets[o], offsets[o + 1] - offsets[o] );
+	}
+
+	/**
+	 * Returns the value of a field
+	 *
+	 * @param index the index of the field
+	 * @return the value without leading spaces
+	 */
+	public String getValue( int index ) {
+		int o = index * OFFSETS_PER_FIELD;
+		return Charsetfunctions.stringAscii( data, offsets[o + 2], offsets[o + 3] - offsets[o + 2] );
+	}
+
+	/**
+	 * Returns the value of a field, the values of a field which was received several times are joined with "; "
+	 *
+	 * @param name the case-insensitive name of the field
+	 * @return the value or null if the field was not received
+	 */
+	public String getValue( String name ) {
+		int index = indexOf( name, 0 );
+		if( index < 0 ) {
+			return null;
+		}
+		String value = getValue( index );
+		for( index = indexOf( name, index + 1 ); index >= 0; index = indexOf( name, index + 1 ) ) {
+			value = value + "; " + getValue( index );
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the index of the next field with the provided name, without creating any String
+	 *
+	 * @param name the case-insensitive name of the field
+	 * @param from the index to start from
+	 * @return the index or -1 if there is no further field with the name
+	 */
+	public int indexOf( String name, int from ) {
+		int length = name.length();
+		for( int index = from; index < size; index++ ) {
+			int o = index * OFFSETS_PER_FIELD;
+			if( offsets[o + 1] - offsets[o] == length && regionMatches( offsets[o], name ) ) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private boolean regionMatches( int offset, String name ) {
+		for( int i = 0; i < name.length(); i++ ) {
+			char c = ( char ) ( data[offset + i] & 0xFF );
+			char n = name.charAt( i );
+			if( c != n && toLowerCase( c ) != toLowerCase( n ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char toLowerCase( char c ) {
+		return c >= 'A' && c <= 'Z' ? ( char ) ( c + ( 'a' - 'A' ) ) : c;
+	}
+}
@@ -34,7 +34,6 @@ import java.nio.channels.ByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * WebSocketFactory that can be configured to only support specific protocols and cipher suites.
@@ -53,13 +52,14 @@ public class CustomSSLWebSocketServerFactory extends DefaultSSLWebSocketServerFa
 
     /**
      * New CustomSSLWebSocketServerFactory configured to only support given protocols and given cipher suites.
+     * The delegated tasks of the handshakes run on the {@link SSLSocketChannel2#getSharedExecutor() shared executor}.
      *
      * @param sslContext          - can not be <code>null</code>
      * @param enabledProtocols    - only these protocols are enabled, when <code>null</code> default settings will be used.
      * @param enabledCiphersuites - only these cipher suites are enabled, when <code>null</code> default settings will be used.
      */
     public CustomSSLWebSocketServerFactory(SSLContext sslContext, String[] enabledProtocols, String[] enabledCiphersuites) {
-        this(sslContext, Executors.newSingleThreadScheduledExecutor(), enabledProtocols, enabledCiphersuites);
+        this(sslContext, SSLSocketChannel2.getSharedExecutor(), enabledProtocols, enabledCiphersuites);
     }
 
     /**
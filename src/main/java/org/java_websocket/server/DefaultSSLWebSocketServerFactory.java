@@ -32,7 +32,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -47,8 +46,12 @@ public class DefaultSSLWebSocketServerFactory implements WebSocketServerFactory
 	protected SSLContext sslcontext;
 	protected ExecutorService exec;
 
+	/**
+	 * The delegated tasks of the handshakes run on the {@link SSLSocketChannel2#getSharedExecutor() shared executor}
+	 * @param sslContext the context of the connections
+	 */
 	public DefaultSSLWebSocketServerFactory( SSLContext sslContext ) {
-		this( sslContext, Executors.newSingleThreadScheduledExecutor() );
+		this( sslContext, SSLSocketChannel2.getSharedExecutor() );
 	}
 
 	public DefaultSSLWebSocketServerFactory( SSLContext sslContext , ExecutorService exec ) {
@@ -85,6 +88,8 @@ public class DefaultSSLWebSocketServerFactory implements WebSocketServerFactory
 	}
 	@Override
 	public void close() {
-		exec.shutdown();
+		// the shared executor outlives the server
+		if( exec != SSLSocketChannel2.getSharedExecutor() )
+			exec.shutdown();
 	}
 }
\ No newline at end of file
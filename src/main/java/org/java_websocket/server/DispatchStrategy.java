@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.server;
+
+import org.java_websocket.WebSocketImpl;
+
+/**
+ * Decides which threads run the decoding of incoming data, and with it the <tt>onMessage</tt> callbacks, of a {@link WebSocketServer}.
+ * Implementations must run the tasks of one websocket one after another in the order they were passed to {@link #execute(WebSocketImpl, Runnable)},
+ * tasks of different websockets may run concurrently.
+ *
+ * @see WebSocketServer#setDispatchStrategy(DispatchStrategy)
+ * @since 1.3.8
+ */
+public interface DispatchStrategy {
+
+	/**
+	 * Schedules a task of the given websocket, to run after all tasks previously scheduled for it
+	 *
+	 * @param ws   the websocket the task belongs to
+	 * @param task the task to run
+	 * @throws InterruptedException if interrupted while waiting to schedule the task
+	 */
+	void execute( WebSocketImpl ws, Runnable task ) throws InterruptedException;
+
+	/**
+	 * Returns the number of tasks which may run at the same time, used to size the read buffers of the server
+	 *
+	 * @return the number of tasks which may run concurrently
+	 */
+	int getParallelism();
+
+	/**
+	 * Returns the time spent running tasks, summed over all threads
+	 *
+	 * @return the busy time in nanoseconds
+	 */
+	long getBusyNanos();
+
+	/**
+	 * Returns the number of tasks which have been run
+	 *
+	 * @return the number of completed tasks
+	 */
+	long getCompletedTasks();
+
+	/**
+	 * Returns the number of tasks which have been scheduled but not run yet
+	 *
+	 * @return the number of pending tasks
+	 */
+	int getPendingTasks();
+
+	/**
+	 * Stops the threads of this strategy, called when the server stops
+	 */
+	void shutdown();
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.server;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.java_websocket.WebSocketImpl;
+
+/**
+ * DispatchStrategy which runs the tasks on a shared {@link ExecutorService}.
+ * <p>
+ * Every websocket with pending tasks gets a serial queue, which is run by one thread of the executor at a time, so
+ * the tasks of a websocket keep their order. Unlike the pinned {@link WebSocketServer.WebSocketWorker}s, a slow or
+ * blocking <tt>onMessage</tt> only holds up its own websocket, the other websockets are picked up by the remaining threads.
+ * <p>
+ * By default a work-stealing pool with one thread per processor is used. On runtimes with virtual threads,
+ * passing <code>Executors.newVirtualThreadPerTaskExecutor()</code> runs every busy websocket on its own virtual thread.
+ *
+ * @since 1.3.8
+ */
+public class ExecutorDispatchStrategy implements DispatchStrategy {
+
+	/**
+	 * Number of tasks a serial queue runs before it yields its thread to other websockets
+	 */
+	private static final int TASKS_PER_TURN = 16;
+
+	/**
+	 * The executor running the serial queues
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * The value returned by {@link #getParallelism()}
+	 */
+	private final int parallelism;
+
+	/**
+	 * The serial queues of the websockets with pending or running tasks.
+	 * The tasks of a queue are only accessed within the atomic map operations.
+	 */
+	private final ConcurrentHashMap<WebSocketImpl, SerialQueue> queues = new ConcurrentHashMap<WebSocketImpl, SerialQueue>();
+
+	private final LongAdder busyNanos = new LongAdder();
+	private final LongAdder completedTasks = new LongAdder();
+	private final AtomicInteger pendingTasks = new AtomicInteger();
+
+	/**
+	 * Creates a strategy with a work-stealing pool of one thread per available processor
+	 */
+	public ExecutorDispatchStrategy() {
+		this( Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * Creates a strategy with a work-stealing pool
+	 *
+	 * @param parallelism the number of threads of the pool
+	 */
+	public ExecutorDispatchStrategy( int parallelism ) {
+		this( Executors.newWorkStealingPool( parallelism ), parallelism );
+	}
+
+	/**
+	 * Creates a strategy running on the given executor, which is shut down with the server
+	 *
+	 * @param executor    the executor to run the tasks on
+	 * @param parallelism the number of tasks the executor runs concurrently, used to size the read buffers of the server
+	 */
+	public ExecutorDispatchStrategy( ExecutorService executor, int parallelism ) {
+		if( executor == null || parallelism < 1 ) {
+			throw new IllegalArgumentException( "executor must not be null and parallelism must be at least 1" );
+		}
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @throws RejectedExecutionException if the strategy has been shut down
+	 */
+	@Override
+	public void execute( WebSocketImpl ws, final Runnable task ) {
+		if( executor.isShutdown() ) {
+			throw new RejectedExecutionException( "the dispatch strategy has been shut down" );
+		}
+		final boolean[] start = new boolean[1];
+		SerialQueue queue = queues.compute( ws, ( key, q ) -> {
+			if( q == null ) {
+				q = new SerialQueue( key );
+				start[0] = true;
+			}
+			q.tasks.add( task );
+			return q;
+		} );
+		pendingTasks.incrementAndGet();
+		if( start[0] ) {
+			try {
+				executor.execute( queue );
+			} catch ( RejectedExecutionException e ) {
+				discard( ws );
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@Override
+	public long getBusyNanos() {
+		return busyNanos.sum();
+	}
+
+	@Override
+	public long getCompletedTasks() {
+		return completedTasks.sum();
+	}
+
+	@Override
+	public int getPendingTasks() {
+		return pendingTasks.get();
+	}
+
+	/**
+	 * Stops the executor and discards the pending tasks, running tasks are interrupted.
+	 * Tasks scheduled afterwards are rejected.
+	 */
+	@Override
+	public void shutdown() {
+		executor.shutdownNow();
+		for( WebSocketImpl ws : queues.keySet() ) {
+			discard( ws );
+		}
+	}
+
+	/**
+	 * Unregisters the serial queue of the websocket and drops its pending tasks, a running task completes
+	 */
+	private void discard( WebSocketImpl ws ) {
+		queues.computeIfPresent( ws, ( key, q ) -> {
+			pendingTasks.addAndGet( -q.tasks.size() );
+			return null;
+		} );
+	}
+
+	/**
+	 * The tasks of one websocket, runs them in order on one thread at a time
+	 */
+	private class SerialQueue implements Runnable {
+
+		private final WebSocketImpl ws;
+
+		private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+		SerialQueue( WebSocketImpl ws ) {
+			this.ws = ws;
+		}
+
+		@Override
+		public void run() {
+			for( int i = 0 ; i < TASKS_PER_TURN ; i++ ) {
+				if( executor.isShutdown() ) {
+					discard( ws );
+					return;
+				}
+				Runnable task = poll();
+				if( task == null ) {
+					return;
+				}
+				pendingTasks.decrementAndGet();
+				long start = System.nanoTime();
+				try {
+					task.run();
+				} catch ( RuntimeException e ) {
+					// the queue must keep running for the following tasks
+					System.err.print( "Uncaught exception in thread \"" + Thread.currentThread().getName() + "\":" );
+					e.printStackTrace( System.err );
+				} finally {
+					busyNanos.add( System.nanoTime() - start );
+					completedTasks.increment();
+				}
+			}
+			// give the other websockets a turn, the queue stays registered so new tasks are appended
+			try {
+				executor.execute( this );
+			} catch ( RejectedExecutionException e ) {
+				discard( ws );
+			}
+		}
+
+		/**
+		 * Takes the next task, or unregisters the queue if there is none
+		 */
+		private Runnable poll() {
+			final Runnable[] next = new Runnable[1];
+			queues.computeIfPresent( ws, ( key, q ) -> {
+				next[0] = q.tasks.poll();
+				return next[0] == null ? null : q;
+			} );
+			return next[0];
+		}
+	}
+}
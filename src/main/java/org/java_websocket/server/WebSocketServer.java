@@ -39,6 +39,7 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -53,6 +54,9 @@ import org.java_websocket.framing.Framedata;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.Handshakedata;
 import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.DirectByteBufferPool;
+import org.java_websocket.util.HeapByteBufferPool;
 
 /**
  * <tt>WebSocketServer</tt> is an abstract class that only takes care of the
@@ -95,11 +99,46 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 
 	private List<WebSocketImpl> iqueue;
 	private BlockingQueue<ByteBuffer> buffers;
+	private int maxBuffers;
 	private int queueinvokes = 0;
 	private final AtomicInteger queuesize = new AtomicInteger( 0 );
 
 	private WebSocketServerFactory wsf = new DefaultWebSocketServerFactory();
 
+	/**
+	 * The pool for the read buffers of this server and the frame buffers of its connections
+	 */
+	private ByteBufferPool bufferPool = DirectByteBufferPool.getDefault();
+
+	/**
+	 * The outgoing queue watermarks and backpressure policy of new connections
+	 */
+	private long lowWatermark = Long.MAX_VALUE;
+	private long highWatermark = Long.MAX_VALUE;
+	private WebSocketImpl.BackpressurePolicy backpressurePolicy = WebSocketImpl.BackpressurePolicy.BLOCK;
+
+	/**
+	 * Whether fragmented messages of new connections are delivered fragment by fragment
+	 */
+	private boolean fragmentStreaming = false;
+
+	/**
+	 * The strategy which runs the decoding of incoming data, null to use the pinned decoders
+	 */
+	private DispatchStrategy dispatchStrategy;
+
+	/**
+	 * The number of selector threads which own the reads and writes of the connections, 1 to use the accepting selector thread
+	 */
+	private int selectorCount = 1;
+
+	/**
+	 * The selector threads the accepted connections are distributed to, null if the accepting thread handles all connections
+	 */
+	private volatile List<SelectorThread> selectorThreads;
+
+	private int acceptedCount = 0;
+
 	/**
 	 * Creates a WebSocketServer that will attempt to
 	 * listen on port <var>WebSocket.DEFAULT_PORT</var>.
@@ -198,7 +237,8 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 		iqueue = new LinkedList<WebSocketImpl>();
 
 		decoders = new ArrayList<WebSocketWorker>( decodercount );
-		buffers = new LinkedBlockingQueue<ByteBuffer>();
+		maxBuffers = 2 * decodercount + 1;
+		buffers = new LinkedBlockingQueue<ByteBuffer>( maxBuffers );
 		for( int i = 0 ; i < decodercount ; i++ ) {
 			WebSocketWorker ex = new WebSocketWorker();
 			decoders.add( ex );
@@ -255,6 +295,11 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 		synchronized ( this ) {
 			if( selectorthread != null  && selector != null) {
 				selector.wakeup();
+				if( selectorThreads != null ) {
+					for( SelectorThread st : selectorThreads ) {
+						st.selector.wakeup();
+					}
+				}
 				selectorthread.join( timeout );
 			}
 		}
@@ -300,7 +345,7 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 	 */
 	public int getPort() {
 		int port = getAddress().getPort();
-		if( port == 0 && server != null ) {
+		if( port == 0 && server != null && server.socket().isBound() ) {
 			port = server.socket().getLocalPort();
 		}
 		return port;
@@ -321,6 +366,14 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 			}
 		}
 		selectorthread.setName( "WebSocketSelector-" + selectorthread.getId() );
+		if( dispatchStrategy != null ) {
+			// the decoders are replaced by the strategy
+			for( WebSocketWorker w : decoders ) {
+				w.interrupt();
+			}
+			maxBuffers = 2 * dispatchStrategy.getParallelism() + 1;
+			buffers = new LinkedBlockingQueue<ByteBuffer>( maxBuffers );
+		}
 		try {
 			server = ServerSocketChannel.open();
 			server.configureBlocking( false );
@@ -330,6 +383,14 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 			socket.bind( address );
 			selector = Selector.open();
 			server.register( selector, server.validOps() );
+			if( selectorCount > 1 ) {
+				selectorThreads = new ArrayList<SelectorThread>( selectorCount );
+				for( int i = 0 ; i < selectorCount ; i++ ) {
+					SelectorThread st = new SelectorThread();
+					selectorThreads.add( st );
+					st.start();
+				}
+			}
 			startConnectionLostTimer();
 			onStart();
 		} catch ( IOException ex ) {
@@ -347,7 +408,7 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 						selectTimeout = 5;
 					}
 					int keyCount = selector.select( selectTimeout );
-					if (keyCount == 0 && isclosed.get()) {
+					if (keyCount == 0 && isclosed.get() && isSelectorThreadsIdle()) {
 						iShutdownCount--;
 					}
 					Set<SelectionKey> keys = selector.selectedKeys();
@@ -376,80 +437,21 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 							Socket socket = channel.socket();
 							socket.setTcpNoDelay( isTcpNoDelay() );
 							socket.setKeepAlive( true );
-							WebSocketImpl w = wsf.createWebSocket( this, drafts );
-							w.key = channel.register( selector, SelectionKey.OP_READ, w );
-							try {
-								w.channel = wsf.wrapChannel( channel, w.key );
+							if( selectorThreads != null ) {
+								// the selector thread registers the channel with its own selector
+								selectorThreads.get( acceptedCount++ % selectorThreads.size() ).register( channel );
 								i.remove();
-								allocateBuffers( w );
 								continue;
-							} catch (IOException ex) {
-								if( w.key != null )
-									w.key.cancel();
-
-								handleIOException( w.key, null, ex );
 							}
+							if( registerConnection( channel, selector, null ) )
+								i.remove();
 							continue;
 						}
 
-						if( key.isReadable() ) {
-							conn = (WebSocketImpl) key.attachment();
-							ByteBuffer buf = takeBuffer();
-							if(conn.channel == null){
-								if( key != null )
-									key.cancel();
-								
-								handleIOException( key, conn, new IOException() );
-								continue;
-							}
-							try {
-								if( SocketChannelIOHelper.read( buf, conn, conn.channel ) ) {
-									if( buf.hasRemaining() ) {
-										conn.inQueue.put( buf );
-										queue( conn );
-										i.remove();
-										if( conn.channel instanceof WrappedByteChannel ) {
-											if( ( (WrappedByteChannel) conn.channel ).isNeedRead() ) {
-												iqueue.add( conn );
-											}
-										}
-									} else
-										pushBuffer( buf );
-								} else {
-									pushBuffer( buf );
-								}
-							} catch ( IOException e ) {
-								pushBuffer( buf );
-								throw e;
-							}
-						}
-						if( key.isWritable() ) {
-							conn = (WebSocketImpl) key.attachment();
-							if( SocketChannelIOHelper.batch( conn, conn.channel ) ) {
-								if( key.isValid() )
-									key.interestOps( SelectionKey.OP_READ );
-							}
-						}
-					}
-					while ( !iqueue.isEmpty() ) {
-						conn = iqueue.remove( 0 );
-						WrappedByteChannel c = ( (WrappedByteChannel) conn.channel );
-						ByteBuffer buf = takeBuffer();
-						try {
-							if( SocketChannelIOHelper.readMore( buf, conn, c ) )
-								iqueue.add( conn );
-							if( buf.hasRemaining() ) {
-								conn.inQueue.put( buf );
-								queue( conn );
-							} else {
-								pushBuffer( buf );
-							}
-						} catch ( IOException e ) {
-							pushBuffer( buf );
-							throw e;
-						}
-
+						conn = (WebSocketImpl) key.attachment();
+						handleIO( key, conn, i, iqueue );
 					}
+					readMore( iqueue );
 				} catch ( CancelledKeyException e ) {
 					// an other thread may cancel the key
 				} catch ( ClosedByInterruptException e ) {
@@ -468,11 +470,26 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 			handleFatal( null, e );
 		} finally {
 			stopConnectionLostTimer();
+			if( selectorThreads != null ) {
+				for( SelectorThread st : selectorThreads ) {
+					st.interrupt();
+				}
+				for( SelectorThread st : selectorThreads ) {
+					try {
+						st.join();
+					} catch ( InterruptedException e ) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
 			if( decoders != null ) {
 				for( WebSocketWorker w : decoders ) {
 					w.interrupt();
 				}
 			}
+			if( dispatchStrategy != null ) {
+				dispatchStrategy.shutdown();
+			}
 			if( selector != null ) {
 				try {
 					selector.close();
@@ -489,8 +506,140 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 			}
 		}
 	}
+	/**
+	 * Creates the connection for an accepted channel and registers the channel with the selector
+	 *
+	 * @param channel        the accepted channel
+	 * @param selector       the selector to register the channel with
+	 * @param selectorThread the selector thread owning the selector, null for the accepting thread
+	 * @return whether the connection was registered
+	 */
+	private boolean registerConnection( SocketChannel channel, Selector selector, SelectorThread selectorThread ) throws IOException, InterruptedException {
+		WebSocketImpl w = wsf.createWebSocket( this, drafts );
+		w.setBufferPool( bufferPool );
+		w.setWriteBufferWatermarks( lowWatermark, highWatermark );
+		w.setBackpressurePolicy( backpressurePolicy );
+		w.setFragmentStreaming( fragmentStreaming );
+		w.selectorThread = selectorThread;
+		w.key = channel.register( selector, SelectionKey.OP_READ, w );
+		try {
+			w.channel = wsf.wrapChannel( channel, w.key );
+			allocateBuffers( w );
+			return true;
+		} catch (IOException ex) {
+			if( w.key != null )
+				w.key.cancel();
+
+			handleIOException( w.key, null, ex );
+		}
+		return false;
+	}
+
+	/**
+	 * Reads from and writes to the connection of a selected key. The received data is queued for the decoders.
+	 *
+	 * @param key      the selected key
+	 * @param conn     the connection of the key
+	 * @param i        the iterator of the selected keys, the key is removed if data was read
+	 * @param readMore the connections whose wrapped channel has more data to read
+	 */
+	private void handleIO( SelectionKey key, WebSocketImpl conn, Iterator<SelectionKey> i, List<WebSocketImpl> readMore ) throws IOException, InterruptedException {
+		if( key.isReadable() ) {
+			if(conn.channel == null){
+				key.cancel();
+				handleIOException( key, conn, new IOException() );
+				return;
+			}
+			ByteBuffer buf = takeBuffer();
+			try {
+				if( SocketChannelIOHelper.read( buf, conn, conn.channel ) ) {
+					if( buf.hasRemaining() ) {
+						conn.inQueue.put( buf );
+						queue( conn );
+						i.remove();
+						if( conn.channel instanceof WrappedByteChannel ) {
+							if( ( (WrappedByteChannel) conn.channel ).isNeedRead() ) {
+								readMore.add( conn );
+							}
+						}
+					} else
+						pushBuffer( buf );
+				} else {
+					pushBuffer( buf );
+				}
+			} catch ( IOException e ) {
+				pushBuffer( buf );
+				throw e;
+			}
+		}
+		if( key.isWritable() ) {
+			if( SocketChannelIOHelper.batch( conn, conn.channel ) ) {
+				if( key.isValid() ) {
+					key.interestOps( SelectionKey.OP_READ );
+					// a frame queued after the batch would otherwise wait for the next read
+					if( !conn.outQueue.isEmpty() )
+						key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+				}
+			}
+			// a TLS handshake which is continued by the write may have read data no read event will announce anymore
+			if( conn.channel instanceof WrappedByteChannel && ( (WrappedByteChannel) conn.channel ).isNeedRead() && !readMore.contains( conn ) ) {
+				readMore.add( conn );
+			}
+		}
+	}
+
+	/**
+	 * Reads the data the wrapped channels of the connections have buffered, e.g. decrypted data of a SSL channel
+	 *
+	 * @param readMore the connections whose wrapped channel has more data to read
+	 */
+	private void readMore( List<WebSocketImpl> readMore ) throws InterruptedException {
+		while ( !readMore.isEmpty() ) {
+			WebSocketImpl conn = readMore.remove( 0 );
+			WrappedByteChannel c = ( (WrappedByteChannel) conn.channel );
+			ByteBuffer buf = takeBuffer();
+			try {
+				if( SocketChannelIOHelper.readMore( buf, conn, c ) )
+					readMore.add( conn );
+				if( buf.hasRemaining() ) {
+					conn.inQueue.put( buf );
+					queue( conn );
+				} else {
+					pushBuffer( buf );
+				}
+			} catch ( IOException e ) {
+				pushBuffer( buf );
+				if( conn.key != null )
+					conn.key.cancel();
+				handleIOException( conn.key, conn, e );
+			}
+		}
+	}
+
+	private boolean isSelectorThreadsIdle() {
+		if( selectorThreads != null ) {
+			for( SelectorThread st : selectorThreads ) {
+				if( !st.idle )
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Wakes up the selector which handles the connection
+	 */
+	private void wakeup( WebSocket conn ) {
+		SelectorThread st = conn instanceof WebSocketImpl ? ( (WebSocketImpl) conn ).selectorThread : null;
+		if( st != null ) {
+			st.selector.wakeup();
+		} else if( selector != null ) {
+			selector.wakeup();
+		}
+	}
+
 	protected void allocateBuffers( WebSocket c ) throws InterruptedException {
-		if( queuesize.get() >= 2 * decoders.size() + 1 ) {
+		if( queuesize.get() >= maxBuffers ) {
 			return;
 		}
 		queuesize.incrementAndGet();
@@ -503,10 +652,19 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 	}
 
 	public ByteBuffer createBuffer() {
-		return ByteBuffer.allocate( WebSocketImpl.RCVBUF );
+		return bufferPool.acquire( WebSocketImpl.RCVBUF );
 	}
 
-	protected void queue( WebSocketImpl ws ) throws InterruptedException {
+	protected void queue( final WebSocketImpl ws ) throws InterruptedException {
+		if( dispatchStrategy != null ) {
+			dispatchStrategy.execute( ws, new Runnable() {
+				@Override
+				public void run() {
+					decodeNext( ws );
+				}
+			} );
+			return;
+		}
 		if( ws.workerThread == null ) {
 			ws.workerThread = decoders.get( queueinvokes % decoders.size() );
 			queueinvokes++;
@@ -514,14 +672,33 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 		ws.workerThread.put( ws );
 	}
 
+	/**
+	 * Decodes the oldest buffer received by the websocket, the task scheduled by {@link #queue(WebSocketImpl)} for a {@link DispatchStrategy}
+	 */
+	private void decodeNext( WebSocketImpl ws ) {
+		ByteBuffer buf = ws.inQueue.poll();
+		assert ( buf != null );
+		try {
+			ws.decode( buf );
+		} catch ( Exception e ) {
+			System.err.println( "Error while reading from remote connection: " + e );
+			e.printStackTrace();
+		} finally {
+			try {
+				pushBuffer( buf );
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	private ByteBuffer takeBuffer() throws InterruptedException {
 		return buffers.take();
 	}
 
 	private void pushBuffer( ByteBuffer buf ) throws InterruptedException {
-		if( buffers.size() > queuesize.intValue() )
-			return;
-		buffers.put( buf );
+		if( buffers.size() > queuesize.intValue() || !buffers.offer( buf ) )
+			bufferPool.release( buf );
 	}
 
 	private void handleIOException( SelectionKey key, WebSocket conn, IOException ex ) {
@@ -570,7 +747,6 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 	}
 
 	@Override
-	@Deprecated
 	public/*final*/void onWebsocketMessageFragment( WebSocket conn, Framedata frame ) {// onFragment should be overloaded instead
 		onFragment( conn, frame );
 	}
@@ -589,7 +765,7 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 
 	@Override
 	public final void onWebsocketClose( WebSocket conn, int code, String reason, boolean remote ) {
-		selector.wakeup();
+		wakeup( conn );
 		try {
 			if( removeConnection( conn ) ) {
 				onClose( conn, code, reason, remote );
@@ -641,11 +817,13 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 	 */
 	protected boolean addConnection( WebSocket ws ) {
 		if( !isclosed.get() ) {
+			boolean succ;
 			synchronized ( connections ) {
-				boolean succ = this.connections.add( ws );
+				succ = this.connections.add( ws );
 				assert ( succ );
-				return succ;
 			}
+			scheduleConnectionLostCheck( ws );
+			return succ;
 		} else {
 			// This case will happen when a new connection gets ready while the server is already stopping.
 			ws.close( CloseFrame.GOING_AWAY );
@@ -661,11 +839,15 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 	@Override
 	public final void onWriteDemand( WebSocket w ) {
 		WebSocketImpl conn = (WebSocketImpl) w;
+		if( conn.selectorThread != null ) {
+			conn.selectorThread.writeDemand( conn );
+			return;
+		}
 		try {
 			conn.key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
 		} catch ( CancelledKeyException e ) {
 			// the thread which cancels key is responsible for possible cleanup
-			conn.outQueue.clear();
+			conn.discardOutQueue();
 		}
 		selector.wakeup();
 	}
@@ -688,6 +870,23 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 
 	}
 
+	@Override
+	public void onWebsocketWritabilityChanged( WebSocket conn, boolean writable ) {
+		onWritabilityChanged( conn, writable );
+	}
+
+	/**
+	 * Called when the outgoing queue of a connection crosses its high watermark (not writable) or drains to its low watermark (writable again).
+	 * May be called from any thread, {@link WebSocket#isWritable()} reflects the current state.
+	 * @see #setWriteBufferWatermarks(long, long)
+	 *
+	 * @param conn The <tt>WebSocket</tt> instance this event is occuring on.
+	 * @param writable Whether the connection accepts further messages without backpressure
+	 * @since 1.3.8
+	 */
+	public void onWritabilityChanged( WebSocket conn, boolean writable ) {
+	}
+
 	public final void setWebSocketFactory( WebSocketServerFactory wsf ) {
 		this.wsf = wsf;
 	}
@@ -696,6 +895,198 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 		return wsf;
 	}
 
+	/**
+	 * Sets the pool for the read buffers of this server and the frame buffers of its connections.
+	 * Has to be called before the server is started.
+	 *
+	 * @param bufferPool the buffer pool, e.g. a {@link HeapByteBufferPool} to disable pooling
+	 * @since 1.3.8
+	 */
+	public final void setBufferPool( ByteBufferPool bufferPool ) {
+		if( bufferPool == null ) {
+			throw new IllegalArgumentException( "bufferPool must not be null" );
+		}
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * Returns the pool for the read buffers of this server and the frame buffers of its connections
+	 *
+	 * @return the buffer pool
+	 * @since 1.3.8
+	 */
+	public final ByteBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Sets the watermarks for the outgoing queue of new connections, see {@link WebSocketImpl#setWriteBufferWatermarks(long, long)}.
+	 * Has to be called before the server is started.
+	 *
+	 * @param lowWatermark  the queued bytes at which a connection becomes writable again
+	 * @param highWatermark the queued bytes at which a connection becomes not writable
+	 * @since 1.3.8
+	 */
+	public final void setWriteBufferWatermarks( long lowWatermark, long highWatermark ) {
+		if( lowWatermark < 0 || highWatermark < lowWatermark ) {
+			throw new IllegalArgumentException( "watermarks must satisfy 0 <= lowWatermark <= highWatermark" );
+		}
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+	}
+
+	/**
+	 * Sets the policy for messages sent to a new connection which is not writable.
+	 * Has to be called before the server is started.
+	 * Note that {@link WebSocketImpl.BackpressurePolicy#BLOCK} lets a broadcast wait for the slowest connection.
+	 *
+	 * @param backpressurePolicy the policy
+	 * @since 1.3.8
+	 */
+	public final void setBackpressurePolicy( WebSocketImpl.BackpressurePolicy backpressurePolicy ) {
+		if( backpressurePolicy == null ) {
+			throw new IllegalArgumentException( "backpressurePolicy must not be null" );
+		}
+		this.backpressurePolicy = backpressurePolicy;
+	}
+
+	/**
+	 * @return the policy for messages sent to a connection which is not writable
+	 * @since 1.3.8
+	 */
+	public final WebSocketImpl.BackpressurePolicy getBackpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	/**
+	 * Sets whether fragmented messages of new connections are delivered fragment by fragment through
+	 * {@link #onFragment(WebSocket, Framedata)} instead of being reassembled for {@link #onMessage(WebSocket, String)}.
+	 * Has to be called before the server is started.
+	 *
+	 * @param fragmentStreaming true to deliver fragmented messages fragment by fragment
+	 * @see WebSocketImpl#setFragmentStreaming(boolean)
+	 * @since 1.3.8
+	 */
+	public final void setFragmentStreaming( boolean fragmentStreaming ) {
+		this.fragmentStreaming = fragmentStreaming;
+	}
+
+	/**
+	 * @return whether fragmented messages of new connections are delivered fragment by fragment
+	 * @since 1.3.8
+	 */
+	public final boolean isFragmentStreaming() {
+		return fragmentStreaming;
+	}
+
+	/**
+	 * Sets the strategy which runs the decoding of incoming data and the <tt>onMessage</tt> callbacks.
+	 * By default every connection is pinned to one of the {@link WebSocketWorker}s, so a blocking callback delays
+	 * all connections of its worker. Has to be called before the server is started.
+	 *
+	 * @param dispatchStrategy the strategy, e.g. an {@link ExecutorDispatchStrategy}, or null for the pinned workers
+	 * @since 1.3.8
+	 */
+	public final void setDispatchStrategy( DispatchStrategy dispatchStrategy ) {
+		if( selectorthread != null ) {
+			throw new IllegalStateException( "the dispatch strategy has to be set before the server is started" );
+		}
+		this.dispatchStrategy = dispatchStrategy;
+	}
+
+	/**
+	 * Sets the number of selector threads which read from and write to the connections. With more than one selector
+	 * thread the server thread only accepts connections and distributes them round-robin to the selector threads,
+	 * each connection is then handled by its selector thread only. By default the server thread handles all connections,
+	 * which limits the throughput of a server with many cores. Has to be called before the server is started.
+	 *
+	 * @param selectorCount the number of selector threads, e.g. <code>Runtime.getRuntime().availableProcessors()</code>, or 1 for the server thread
+	 * @since 1.3.8
+	 */
+	public final void setSelectorCount( int selectorCount ) {
+		if( selectorCount < 1 ) {
+			throw new IllegalArgumentException( "you need at least 1 selector" );
+		}
+		if( selectorthread != null ) {
+			throw new IllegalStateException( "the selector count has to be set before the server is started" );
+		}
+		this.selectorCount = selectorCount;
+	}
+
+	/**
+	 * @return the number of selector threads which read from and write to the connections
+	 * @since 1.3.8
+	 */
+	public final int getSelectorCount() {
+		return selectorCount;
+	}
+
+	/**
+	 * @return the strategy which runs the decoding of incoming data, or null for the pinned workers
+	 * @since 1.3.8
+	 */
+	public final DispatchStrategy getDispatchStrategy() {
+		return dispatchStrategy;
+	}
+
+	/**
+	 * Returns the number of threads decoding incoming data, or the parallelism of the dispatch strategy
+	 *
+	 * @return the number of workers
+	 * @since 1.3.8
+	 */
+	public int getWorkerCount() {
+		return dispatchStrategy != null ? dispatchStrategy.getParallelism() : decoders.size();
+	}
+
+	/**
+	 * Returns the time the workers spent decoding incoming data and running the callbacks, summed over all workers.
+	 * The utilization over an interval is the difference of two values divided by the interval and {@link #getWorkerCount()}.
+	 *
+	 * @return the busy time in nanoseconds
+	 * @since 1.3.8
+	 */
+	public long getWorkerBusyNanos() {
+		if( dispatchStrategy != null ) {
+			return dispatchStrategy.getBusyNanos();
+		}
+		long busy = 0;
+		for( WebSocketWorker w : decoders ) {
+			busy += w.getBusyNanos();
+		}
+		return busy;
+	}
+
+	/**
+	 * @return the number of received buffers which have been decoded
+	 * @since 1.3.8
+	 */
+	public long getWorkerCompletedTasks() {
+		if( dispatchStrategy != null ) {
+			return dispatchStrategy.getCompletedTasks();
+		}
+		long completed = 0;
+		for( WebSocketWorker w : decoders ) {
+			completed += w.getCompletedTasks();
+		}
+		return completed;
+	}
+
+	/**
+	 * @return the number of received buffers waiting for a worker
+	 * @since 1.3.8
+	 */
+	public int getWorkerPendingTasks() {
+		if( dispatchStrategy != null ) {
+			return dispatchStrategy.getPendingTasks();
+		}
+		int pending = 0;
+		for( WebSocketWorker w : decoders ) {
+			pending += w.getPendingTasks();
+		}
+		return pending;
+	}
+
 	/**
 	 * Returns whether a new connection shall be accepted or not.<br>
 	 * Therefore method is well suited to implement some kind of connection limitation.<br>
@@ -786,13 +1177,14 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 	}
 
 	/**
-	 * Callback for fragmented frames
+	 * Callback for the fragments of a fragmented message, only called if fragment streaming is enabled.
+	 * The payload of the fragment is only valid during the callback, the last fragment has {@link Framedata#isFin()} set.
+	 * @see #setFragmentStreaming(boolean)
 	 * @see WebSocket#sendFragmentedFrame(org.java_websocket.framing.Framedata.Opcode, ByteBuffer, boolean)
 	 * @param conn
 	 *            The <tt>WebSocket</tt> instance this event is occurring on.
 	 * @param fragment The fragmented frame
 	 */
-	@Deprecated
 	public void onFragment( WebSocket conn, Framedata fragment ) {
 	}
 
@@ -841,23 +1233,7 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 		if (data == null || clients == null) {
 			throw new IllegalArgumentException();
 		}
-		Map<Draft, List<Framedata>> draftFrames = new HashMap<Draft, List<Framedata>>();
-		synchronized( clients ) {
-			for( WebSocket client : clients ) {
-				if( client != null ) {
-					Draft draft = client.getDraft();
-					if( !draftFrames.containsKey( draft ) ) {
-						List<Framedata> frames = draft.createFrames( data, false );
-						draftFrames.put( draft, frames );
-					}
-					try {
-						client.sendFrame( draftFrames.get( draft ) );
-					} catch ( WebsocketNotConnectedException e ) {
-						//Ignore this exception in this case
-					}
-				}
-			}
-		}
+		doBroadcast( data, clients );
 	}
 
 	/**
@@ -869,20 +1245,164 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 		if (text == null || clients == null) {
 			throw new IllegalArgumentException();
 		}
-		Map<Draft, List<Framedata>> draftFrames = new HashMap<Draft, List<Framedata>>();
+		doBroadcast( text, clients );
+	}
+
+	/**
+	 * Sends the data to the clients. The clients are grouped by equal drafts and the frames are created and encoded
+	 * only once per group. The encoded frames are shared by all connections of the group.
+	 *
+	 * @param data    the data to send, a String or a ByteBuffer
+	 * @param clients the clients to send the data to
+	 */
+	private void doBroadcast( Object data, Collection<WebSocket> clients ) {
+		Map<Draft, List<WebSocket>> draftClients = new HashMap<Draft, List<WebSocket>>();
 		synchronized( clients ) {
 			for( WebSocket client : clients ) {
-				if( client != null ) {
+				if( client != null && client.getDraft() != null ) {
 					Draft draft = client.getDraft();
-					if( !draftFrames.containsKey( draft ) ) {
-						List<Framedata> frames = draft.createFrames( text, false );
-						draftFrames.put( draft, frames );
+					if( !draftClients.containsKey( draft ) ) {
+						draftClients.put( draft, new ArrayList<WebSocket>() );
 					}
-					try {
-						client.sendFrame( draftFrames.get( draft ) );
-					} catch ( WebsocketNotConnectedException e ) {
-						//Ignore this exception in this case
+					draftClients.get( draft ).add( client );
+				}
+			}
+		}
+		for( Map.Entry<Draft, List<WebSocket>> entry : draftClients.entrySet() ) {
+			Draft draft = entry.getKey();
+			List<WebSocket> group = entry.getValue();
+			List<Framedata> frames;
+			if( data instanceof String ) {
+				frames = draft.createFrames( ( String ) data, false );
+			} else {
+				frames = draft.createFrames( ( ByteBuffer ) data, false );
+			}
+			if( group.size() == 1 ) {
+				sendFrames( group.get( 0 ), frames );
+				continue;
+			}
+			List<ByteBuffer> encodedFrames = new ArrayList<ByteBuffer>( frames.size() );
+			for( Framedata frame : frames ) {
+				encodedFrames.add( draft.createBinaryFrame( frame ) );
+			}
+			for( WebSocket client : group ) {
+				try {
+					if( client instanceof WebSocketImpl ) {
+						( ( WebSocketImpl ) client ).sendEncodedFrames( encodedFrames );
+					} else {
+						client.sendFrame( frames );
 					}
+				} catch ( WebsocketNotConnectedException e ) {
+					//Ignore this exception in this case
+				}
+			}
+			for( ByteBuffer encodedFrame : encodedFrames ) {
+				draft.getBufferPool().release( encodedFrame );
+			}
+		}
+	}
+
+	private void sendFrames( WebSocket client, List<Framedata> frames ) {
+		try {
+			client.sendFrame( frames );
+		} catch ( WebsocketNotConnectedException e ) {
+			//Ignore this exception in this case
+		}
+	}
+
+	/**
+	 * A selector thread which reads from and writes to the connections the server thread distributed to it.
+	 * Only this thread registers the connections with its selector and changes their interest ops, other threads
+	 * hand over new channels and write demands through queues.
+	 * @see #setSelectorCount(int)
+	 * @since 1.3.8
+	 */
+	public class SelectorThread extends Thread {
+
+		private final Selector selector;
+
+		private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<SocketChannel>();
+
+		private final Queue<WebSocketImpl> writeDemands = new ConcurrentLinkedQueue<WebSocketImpl>();
+
+		private final List<WebSocketImpl> readMore = new LinkedList<WebSocketImpl>();
+
+		/**
+		 * Whether the last select returned no keys, used to shut the server down when all connections are quiet
+		 */
+		private volatile boolean idle = true;
+
+		SelectorThread() throws IOException {
+			selector = Selector.open();
+			setName( "WebSocketSelector-" + getId() );
+		}
+
+		void register( SocketChannel channel ) {
+			registrations.add( channel );
+			selector.wakeup();
+		}
+
+		void writeDemand( WebSocketImpl conn ) {
+			writeDemands.add( conn );
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while ( !isInterrupted() ) {
+					int keyCount = selector.select( isclosed.get() ? 5 : 0 );
+					idle = keyCount == 0 && registrations.isEmpty() && writeDemands.isEmpty();
+					SocketChannel channel;
+					while ( ( channel = registrations.poll() ) != null ) {
+						try {
+							registerConnection( channel, selector, this );
+						} catch ( IOException ex ) {
+							try {
+								channel.close();
+							} catch ( IOException e ) {
+								// there is nothing that must be done here
+							}
+						}
+					}
+					WebSocketImpl conn;
+					while ( ( conn = writeDemands.poll() ) != null ) {
+						try {
+							conn.key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+						} catch ( CancelledKeyException e ) {
+							// the thread which cancels key is responsible for possible cleanup
+							conn.discardOutQueue();
+						}
+					}
+					Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+					while ( i.hasNext() ) {
+						SelectionKey key = i.next();
+						conn = (WebSocketImpl) key.attachment();
+						try {
+							if( key.isValid() )
+								handleIO( key, conn, i, readMore );
+						} catch ( CancelledKeyException e ) {
+							// an other thread may cancel the key
+						} catch ( ClosedByInterruptException e ) {
+							return;
+						} catch ( IOException ex ) {
+							key.cancel();
+							handleIOException( key, conn, ex );
+						}
+					}
+					readMore( readMore );
+				}
+			} catch ( InterruptedException e ) {
+				// the server is stopped
+			} catch ( IOException e ) {
+				handleFatal( null, e );
+			} catch ( RuntimeException e ) {
+				handleFatal( null, e );
+			} finally {
+				try {
+					selector.close();
+				} catch ( IOException e ) {
+					onError( null, e );
 				}
 			}
 		}
@@ -895,6 +1415,9 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 
 		private BlockingQueue<WebSocketImpl> iqueue;
 
+		private volatile long busyNanos;
+		private volatile long completedTasks;
+
 		public WebSocketWorker() {
 			iqueue = new LinkedBlockingQueue<WebSocketImpl>();
 			setName( "WebSocketWorker-" + getId() );
@@ -912,6 +1435,30 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 			iqueue.put( ws );
 		}
 
+		/**
+		 * @return the time this worker spent decoding in nanoseconds
+		 * @since 1.3.8
+		 */
+		public long getBusyNanos() {
+			return busyNanos;
+		}
+
+		/**
+		 * @return the number of buffers this worker decoded
+		 * @since 1.3.8
+		 */
+		public long getCompletedTasks() {
+			return completedTasks;
+		}
+
+		/**
+		 * @return the number of buffers waiting for this worker
+		 * @since 1.3.8
+		 */
+		public int getPendingTasks() {
+			return iqueue.size();
+		}
+
 		@Override
 		public void run() {
 			WebSocketImpl ws = null;
@@ -921,6 +1468,7 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 					ws = iqueue.take();
 					buf = ws.inQueue.poll();
 					assert ( buf != null );
+					long start = System.nanoTime();
 					try {
 						ws.decode( buf );
 					} catch(Exception e){
@@ -929,6 +1477,9 @@ public abstract class WebSocketServer extends AbstractWebSocket implements Runna
 					}
 					
 					finally {
+						// only this thread writes the counters
+						busyNanos += System.nanoTime() - start;
+						completedTasks++;
 						pushBuffer( buf );
 					}
 				}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for a pool of ByteBuffers used for the framing of websocket messages.
+ * <p>
+ * Every buffer returned by {@link #acquire(int)} or {@link #retain(ByteBuffer)} should be handed back with exactly one
+ * call of {@link #release(ByteBuffer)} once it is not used anymore. A buffer which is never released is simply left to
+ * the garbage collector.
+ *
+ * @since 1.3.8
+ */
+public interface ByteBufferPool {
+
+	/**
+	 * Returns a cleared buffer with at least the requested capacity. The limit of the buffer is set to the requested
+	 * capacity, so the buffer can be used like a buffer returned by {@link ByteBuffer#allocate(int)}.
+	 *
+	 * @param capacity the requested capacity
+	 * @return a buffer with {@code remaining() == capacity}
+	 */
+	ByteBuffer acquire( int capacity );
+
+	/**
+	 * Adds a reference to a buffer returned by {@link #acquire(int)}, e.g. to queue the same encoded frame for several
+	 * connections. The returned duplicate shares the content of the buffer but has its own position and limit. The
+	 * underlying memory is only reused after the buffer and all of its duplicates have been released.
+	 *
+	 * @param buffer the buffer to share
+	 * @return a duplicate of the buffer which has to be released separately
+	 */
+	ByteBuffer retain( ByteBuffer buffer );
+
+	/**
+	 * Releases a reference to the buffer. Buffers which were not acquired from this pool are ignored.
+	 *
+	 * @param buffer the buffer to release
+	 */
+	void release( ByteBuffer buffer );
+}
@@ -62,6 +62,18 @@ public class ByteBufferUtils {
 		}
 	}
 
+	/**
+	 * Get the remaining bytes of a ByteBuffer without changing its position
+	 *
+	 * @param buffer the ByteBuffer to read, may be a direct buffer
+	 * @return the remaining bytes
+	 */
+	public static byte[] getBytes( ByteBuffer buffer ) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get( bytes );
+		return bytes;
+	}
+
 	/**
 	 * Get a ByteBuffer with zero capacity
 	 *
@@ -80,11 +80,39 @@ public class Charsetfunctions {
 		}
 	}
 
+	/**
+	 * Decodes the ascii bytes between two absolute indices of the provided ByteBuffer, the position of the buffer is not changed.
+	 *
+	 * @param bytes the ByteBuffer
+	 * @param start the index of the first byte
+	 * @param end   the index behind the last byte
+	 * @return the decoded string
+	 * @since 1.3.8
+	 */
+	public static String stringAscii( ByteBuffer bytes, int start, int end ) {
+		byte[] ascii = new byte[end - start];
+		for( int i = 0; i < ascii.length; i++ ) {
+			ascii[i] = bytes.get( start + i );
+		}
+		return stringAscii( ascii );
+	}
+
 	public static String stringUtf8( byte[] bytes ) throws InvalidDataException {
 		return stringUtf8( ByteBuffer.wrap( bytes ) );
 	}
 
+	/**
+	 * Decodes the remaining bytes of the provided ByteBuffer, the position of the buffer is not changed.
+	 * With the default {@link #codingErrorAction} the bytes are validated and decoded in a single pass by {@link Utf8Decoder}.
+	 *
+	 * @param bytes the ByteBuffer
+	 * @return the decoded string
+	 * @throws InvalidDataException if the bytes are no valid utf8
+	 */
 	public static String stringUtf8( ByteBuffer bytes ) throws InvalidDataException {
+		if( codingErrorAction == CodingErrorAction.REPORT ) {
+			return Utf8Decoder.decodeString( bytes );
+		}
 		CharsetDecoder decode = Charset.forName( "UTF8" ).newDecoder();
 		decode.onMalformedInput( codingErrorAction );
 		decode.onUnmappableCharacter( codingErrorAction );
@@ -104,7 +132,7 @@ public class Charsetfunctions {
 	 * Implementation of the "Flexible and Economical UTF-8 Decoder" algorithm
 	 * by Björn Höhrmann (http://bjoern.hoehrmann.de/utf-8/decoder/dfa/)
 	 */
-	private static final int[] utf8d = {
+	static final int[] utf8d = {
 			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, // 00..1f
 			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, // 20..3f
 			0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, // 40..5f
@@ -135,16 +163,83 @@ public class Charsetfunctions {
 		if( len < off ) {
 			return false;
 		}
-		int state = 0;
+		int state = UTF8_ACCEPT;
 		for( int i = off; i < len; ++i ) {
+			if( state == UTF8_ACCEPT ) {
+				i = skipAscii( data, i, len );
+				if( i == len ) {
+					break;
+				}
+			}
 			state = utf8d[256 + ( state << 4 ) + utf8d[( 0xff & data.get( i ) )]];
-			if( state == 1 ) {
+			if( state == UTF8_REJECT ) {
 				return false;
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * DFA state of {@link #validateUTF8(ByteBuffer, int)} after a complete utf8 sequence
+	 *
+	 * @since 1.3.8
+	 */
+	public static final int UTF8_ACCEPT = 0;
+
+	/**
+	 * DFA state of {@link #validateUTF8(ByteBuffer, int)} after an invalid utf8 sequence
+	 *
+	 * @since 1.3.8
+	 */
+	public static final int UTF8_REJECT = 1;
+
+	/**
+	 * Incrementally validates the remaining bytes of the provided ByteBuffer, so a utf8 encoded string can be validated
+	 * chunk by chunk, e.g. fragment by fragment, even if a character is split across chunks.
+	 * <p>
+	 * Start with {@link #UTF8_ACCEPT} and pass the returned state to the next call. The data is valid if no call returned
+	 * {@link #UTF8_REJECT} and the last call returned {@link #UTF8_ACCEPT}.
+	 *
+	 * @param data  the ByteBuffer, its position is not changed
+	 * @param state the state returned for the previous chunk
+	 * @return the state after the provided chunk
+	 * @since 1.3.8
+	 */
+	public static int validateUTF8( ByteBuffer data, int state ) {
+		int limit = data.limit();
+		for( int i = data.position(); i < limit; ++i ) {
+			if( state == UTF8_ACCEPT ) {
+				i = skipAscii( data, i, limit );
+				if( i == limit ) {
+					break;
+				}
+			}
+			state = utf8d[256 + ( state << 4 ) + utf8d[( 0xff & data.get( i ) )]];
+			if( state == UTF8_REJECT ) {
+				return UTF8_REJECT;
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Skips the ascii bytes starting at the given index, 8 bytes at a time
+	 *
+	 * @param data  the ByteBuffer
+	 * @param i     the index of the first byte
+	 * @param limit the index after the last byte
+	 * @return the index of the first non ascii byte or the limit
+	 */
+	private static int skipAscii( ByteBuffer data, int i, int limit ) {
+		while( i + 8 <= limit && ( data.getLong( i ) & 0x8080808080808080L ) == 0 ) {
+			i += 8;
+		}
+		while( i < limit && data.get( i ) >= 0 ) {
+			i++;
+		}
+		return i;
+	}
+
 	/**
 	 * Calling isValidUTF8 with offset 0
 	 *
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ByteBufferPool of direct buffers.
+ * <p>
+ * The buffers are grouped into size classes of powers of two between {@code minSize} and {@code maxSize}. A request
+ * is served by the smallest size class which is large enough, requests larger than {@code maxSize} get an unpooled
+ * heap buffer. Every size class keeps up to {@code bytesPerSizeClass} bytes of released buffers for reuse.
+ * <p>
+ * Buffers are reference counted: a buffer has one reference after {@link #acquire(int)}, every {@link #retain(ByteBuffer)}
+ * adds one. The buffer goes back to its size class when the last reference has been released.
+ * <p>
+ * Every size class tracks the buffers it allocated by weak references. Releasing a buffer which was not allocated by
+ * the pool, or releasing a buffer again while it is pooled, is ignored, so the buffer is never handed out twice.
+ *
+ * @since 1.3.8
+ */
+public class DirectByteBufferPool implements ByteBufferPool {
+
+	/**
+	 * The pool shared by all drafts and servers which don't have an own pool
+	 */
+	private static final DirectByteBufferPool DEFAULT = new DirectByteBufferPool( 64, 64 * 1024, 4 * 1024 * 1024 );
+
+	/**
+	 * Upper limit of released buffers kept per size class
+	 */
+	private static final int MAX_BUFFERS_PER_SIZE_CLASS = 1024;
+
+	/**
+	 * Attribute for the size classes, index 0 is the smallest class
+	 */
+	private final SizeClass[] sizeClasses;
+
+	/**
+	 * log2 of the smallest size class
+	 */
+	private final int minShift;
+
+	/**
+	 * Attribute for the references of buffers shared with {@link #retain(ByteBuffer)}, keyed by buffer identity
+	 */
+	private final Map<ByteBuffer, Lease> leases = new IdentityHashMap<ByteBuffer, Lease>();
+
+	/**
+	 * Number of entries in {@link #leases}, allows to skip the lookup for buffers which were never shared
+	 */
+	private final AtomicInteger leaseCount = new AtomicInteger();
+
+	/**
+	 * Creates a pool of direct buffers
+	 *
+	 * @param minSize           the size of the smallest size class, rounded up to a power of two
+	 * @param maxSize           the size of the largest size class, rounded up to a power of two
+	 * @param bytesPerSizeClass the number of bytes kept for reuse per size class
+	 */
+	public DirectByteBufferPool( int minSize, int maxSize, int bytesPerSizeClass ) {
+		if( minSize < 1 || maxSize < minSize || bytesPerSizeClass < 0 ) {
+			throw new IllegalArgumentException( "invalid pool sizes" );
+		}
+		minShift = shift( minSize );
+		int maxShift = shift( maxSize );
+		sizeClasses = new SizeClass[maxShift - minShift + 1];
+		for( int i = 0; i < sizeClasses.length; i++ ) {
+			int size = 1 << ( minShift + i );
+			sizeClasses[i] = new SizeClass( size, Math.min( MAX_BUFFERS_PER_SIZE_CLASS, bytesPerSizeClass / size ) );
+		}
+	}
+
+	/**
+	 * Returns the pool which is used by default
+	 *
+	 * @return the default pool
+	 */
+	public static DirectByteBufferPool getDefault() {
+		return DEFAULT;
+	}
+
+	@Override
+	public ByteBuffer acquire( int capacity ) {
+		if( capacity < 0 ) {
+			throw new IllegalArgumentException( "negative capacity" );
+		}
+		SizeClass sizeClass = sizeClassFor( capacity );
+		if( sizeClass == null ) {
+			return ByteBuffer.allocate( capacity );
+		}
+		ByteBuffer buffer = sizeClass.poll();
+		if( buffer == null ) {
+			buffer = ByteBuffer.allocateDirect( sizeClass.size );
+			sizeClass.register( buffer );
+		}
+		buffer.clear();
+		buffer.order( ByteOrder.BIG_ENDIAN );
+		buffer.limit( capacity );
+		return buffer;
+	}
+
+	@Override
+	public ByteBuffer retain( ByteBuffer buffer ) {
+		ByteBuffer duplicate = buffer.duplicate();
+		if( !isPoolable( buffer ) ) {
+			return duplicate;
+		}
+		synchronized( leases ) {
+			Lease lease = leases.get( buffer );
+			if( lease == null ) {
+				lease = new Lease( buffer );
+				leases.put( buffer, lease );
+				leaseCount.incrementAndGet();
+			}
+			lease.references++;
+			leases.put( duplicate, lease );
+			leaseCount.incrementAndGet();
+		}
+		return duplicate;
+	}
+
+	@Override
+	public void release( ByteBuffer buffer ) {
+		if( buffer == null ) {
+			return;
+		}
+		if( leaseCount.get() > 0 ) {
+			synchronized( leases ) {
+				Lease lease = leases.remove( buffer );
+				if( lease != null ) {
+					leaseCount.decrementAndGet();
+					if( --lease.references > 0 ) {
+						return;
+					}
+					buffer = lease.buffer;
+				}
+			}
+		}
+		if( isPoolable( buffer ) ) {
+			sizeClassFor( buffer.capacity() ).offer( buffer );
+		}
+	}
+
+	/**
+	 * Returns the number of released buffers which are currently kept for reuse
+	 *
+	 * @return the number of pooled buffers
+	 */
+	public int getPooledCount() {
+		int count = 0;
+		for( SizeClass sizeClass : sizeClasses ) {
+			count += sizeClass.count();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of references to shared buffers which have not been released yet
+	 *
+	 * @return the number of outstanding references of buffers shared with {@link #retain(ByteBuffer)}
+	 */
+	public int getLeasedCount() {
+		return leaseCount.get();
+	}
+
+	private boolean isPoolable( ByteBuffer buffer ) {
+		if( !buffer.isDirect() || buffer.isReadOnly() ) {
+			return false;
+		}
+		SizeClass sizeClass = sizeClassFor( buffer.capacity() );
+		return sizeClass != null && sizeClass.size == buffer.capacity();
+	}
+
+	private SizeClass sizeClassFor( int capacity ) {
+		int index = capacity <= 1 ? 0 : shift( capacity ) - minShift;
+		if( index < 0 ) {
+			index = 0;
+		}
+		return index < sizeClasses.length ? sizeClasses[index] : null;
+	}
+
+	/**
+	 * Returns log2 of the given size rounded up to the next power of two
+	 */
+	private static int shift( int size ) {
+		return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros( size - 1 );
+	}
+
+	/**
+	 * The buffers of one size allocated by the pool, and the released ones among them
+	 */
+	private static final class SizeClass {
+		private final int size;
+		private final int maxBuffers;
+		private final ArrayDeque<Allocation> buffers = new ArrayDeque<Allocation>();
+
+		/**
+		 * The buffers allocated by the pool which have not been garbage collected, keyed by buffer identity
+		 */
+		private final HashMap<Object, Allocation> allocations = new HashMap<Object, Allocation>();
+
+		private final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<ByteBuffer>();
+
+		SizeClass( int size, int maxBuffers ) {
+			this.size = size;
+			this.maxBuffers = maxBuffers;
+		}
+
+		synchronized ByteBuffer poll() {
+			Allocation allocation = buffers.pollLast();
+			if( allocation == null ) {
+				return null;
+			}
+			ByteBuffer buffer = allocation.pooled;
+			allocation.pooled = null;
+			return buffer;
+		}
+
+		/**
+		 * Starts tracking a buffer allocated by the pool
+		 */
+		synchronized void register( ByteBuffer buffer ) {
+			expunge();
+			Allocation allocation = new Allocation( buffer, collected );
+			allocations.put( allocation, allocation );
+		}
+
+		/**
+		 * Keeps the buffer for reuse, unless it was not allocated by the pool or is pooled already
+		 */
+		synchronized void offer( ByteBuffer buffer ) {
+			Allocation allocation = allocations.get( new Lookup( buffer ) );
+			if( allocation == null || allocation.pooled != null ) {
+				return;
+			}
+			if( buffers.size() < maxBuffers ) {
+				allocation.pooled = buffer;
+				buffers.addLast( allocation );
+			} else {
+				// left to the garbage collector, a later release of it is ignored
+				allocations.remove( allocation );
+			}
+		}
+
+		/**
+		 * Removes the buffers which have been garbage collected without being released
+		 */
+		private void expunge() {
+			Reference<? extends ByteBuffer> reference;
+			while( ( reference = collected.poll() ) != null ) {
+				allocations.remove( reference );
+			}
+		}
+
+		synchronized int count() {
+			return buffers.size();
+		}
+	}
+
+	/**
+	 * A buffer allocated by the pool. Refers to the buffer only weakly, and strongly while the buffer is pooled.
+	 */
+	private static final class Allocation extends WeakReference<ByteBuffer> {
+		private final int hash;
+		private ByteBuffer pooled;
+
+		Allocation( ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue ) {
+			super( buffer, queue );
+			hash = System.identityHashCode( buffer );
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			if( o == this ) {
+				return true;
+			}
+			ByteBuffer buffer = get();
+			return buffer != null && o instanceof Lookup && ( ( Lookup ) o ).buffer == buffer;
+		}
+	}
+
+	/**
+	 * Key to look up the {@link Allocation} of a buffer
+	 */
+	private static final class Lookup {
+		private final ByteBuffer buffer;
+
+		Lookup( ByteBuffer buffer ) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode( buffer );
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			return o instanceof Allocation && ( ( Allocation ) o ).get() == buffer;
+		}
+	}
+
+	/**
+	 * The references of a shared buffer
+	 */
+	private static final class Lease {
+		private final ByteBuffer buffer;
+		private int references = 1;
+
+		Lease( ByteBuffer buffer ) {
+			this.buffer = buffer;
+		}
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A timer for a large number of timeouts with a coarse accuracy, e.g. one ping deadline per connection.
+ * <p>
+ * The timeouts are kept in a wheel of buckets, every bucket holds the timeouts which expire within one tick of it.
+ * A single thread advances the wheel once per tick and runs the expired timeouts of the current bucket, so scheduling
+ * and cancelling a timeout is O(1) and a tick only touches one bucket instead of all timeouts. Timeouts further away
+ * than one round of the wheel stay in their bucket for the remaining rounds.
+ * <p>
+ * Accuracy: a timeout runs up to one tick after its deadline, never before, and later if the tasks of a tick take longer
+ * than the tick. Tasks run on the timer thread and should not block.
+ * <p>
+ * Memory: the wheel takes two references per bucket, every pending timeout one {@link Timeout} of about 40 bytes plus
+ * its task. A cancelled timeout stays in its bucket until the wheel reaches it, at most one round.
+ *
+ * @since 1.3.8
+ */
+public class HashedWheelTimer {
+
+	/**
+	 * The maximum number of new timeouts moved into the wheel per tick, so that a burst of schedules does not delay the tick
+	 */
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	/**
+	 * The duration of a tick in nanoseconds
+	 */
+	private final long tickNanos;
+
+	/**
+	 * The first and the last timeout of every bucket
+	 */
+	private final Timeout[] heads;
+	private final Timeout[] tails;
+
+	/**
+	 * The mask to get the bucket of a tick, the number of buckets is a power of two
+	 */
+	private final int mask;
+
+	/**
+	 * The timeouts scheduled since the last tick, only the timer thread touches the buckets
+	 */
+	private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<Timeout>();
+
+	/**
+	 * The number of scheduled timeouts which have neither run nor been cancelled
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * The thread advancing the wheel
+	 */
+	private final Thread worker;
+
+	/**
+	 * The start of tick 0 in System.nanoTime
+	 */
+	private final long startNanos;
+
+	/**
+	 * The current tick, only written by the timer thread
+	 */
+	private volatile long tick;
+
+	/**
+	 * Whether the timer has been stopped
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Creates and starts a timer
+	 *
+	 * @param threadName    the name of the timer thread
+	 * @param tickDuration  the duration of a tick, the accuracy of the timer
+	 * @param unit          the unit of tickDuration
+	 * @param ticksPerWheel the number of buckets, rounded up to a power of two
+	 */
+	public HashedWheelTimer( String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel ) {
+		if( tickDuration <= 0 ) {
+			throw new IllegalArgumentException( "tickDuration must be positive" );
+		}
+		if( ticksPerWheel <= 0 || ticksPerWheel > 1 << 20 ) {
+			throw new IllegalArgumentException( "ticksPerWheel must be between 1 and 2^20" );
+		}
+		int buckets = Integer.highestOneBit( ticksPerWheel );
+		if( buckets < ticksPerWheel ) {
+			buckets <<= 1;
+		}
+		this.tickNanos = Math.max( unit.toNanos( tickDuration ), TimeUnit.MILLISECONDS.toNanos( 1 ) );
+		this.heads = new Timeout[buckets];
+		this.tails = new Timeout[buckets];
+		this.mask = buckets - 1;
+		this.startNanos = System.nanoTime();
+		this.worker = new Thread( new Runnable() {
+			@Override
+			public void run() {
+				runWheel();
+			}
+		}, threadName );
+		this.worker.setDaemon( true );
+		this.worker.start();
+	}
+
+	/**
+	 * Schedules a task
+	 *
+	 * @param task  the task to run on the timer thread
+	 * @param delay the delay after which the task runs
+	 * @param unit  the unit of delay
+	 * @return the handle to cancel the task, already cancelled if the timer has been stopped
+	 */
+	public Timeout newTimeout( Runnable task, long delay, TimeUnit unit ) {
+		if( task == null ) {
+			throw new IllegalArgumentException( "task must not be null" );
+		}
+		Timeout timeout = new Timeout( this, task, System.nanoTime() - startNanos + Math.max( 0, unit.toNanos( delay ) ) );
+		if( stopped ) {
+			timeout.state = Timeout.CANCELLED;
+			return timeout;
+		}
+		pending.incrementAndGet();
+		scheduled.add( timeout );
+		return timeout;
+	}
+
+	/**
+	 * Stops the timer, the pending timeouts are dropped without running
+	 */
+	public void stop() {
+		stopped = true;
+		worker.interrupt();
+	}
+
+	/**
+	 * @return the number of timeouts which have neither run nor been cancelled
+	 */
+	public int getPendingTimeouts() {
+		return pending.get();
+	}
+
+	/**
+	 * @return the duration of a tick in nanoseconds
+	 */
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	private void runWheel() {
+		while( !stopped ) {
+			long deadline = ( tick + 1 ) * tickNanos;
+			long sleep = deadline - ( System.nanoTime() - startNanos );
+			if( sleep > 0 ) {
+				try {
+					TimeUnit.NANOSECONDS.sleep( sleep );
+				} catch ( InterruptedException e ) {
+					if( stopped ) {
+						break;
+					}
+				}
+				continue;
+			}
+			transferScheduled();
+			expire( ( int ) ( tick & mask ) );
+			tick++;
+		}
+		scheduled.clear();
+	}
+
+	private void transferScheduled() {
+		for( int i = 0; i < MAX_TRANSFERS_PER_TICK; i++ ) {
+			Timeout timeout = scheduled.poll();
+			if( timeout == null ) {
+				return;
+			}
+			if( timeout.state == Timeout.CANCELLED ) {
+				continue;
+			}
+			long expiryTick = Math.max( timeout.deadline / tickNanos, tick );
+			timeout.remainingRounds = ( expiryTick - tick ) / heads.length;
+			int bucket = ( int ) ( expiryTick & mask );
+			timeout.prev = tails[bucket];
+			if( tails[bucket] == null ) {
+				heads[bucket] = timeout;
+			} else {
+				tails[bucket].next = timeout;
+			}
+			tails[bucket] = timeout;
+		}
+	}
+
+	private void expire( int bucket ) {
+		Timeout timeout = heads[bucket];
+		while( timeout != null ) {
+			Timeout next = timeout.next;
+			if( timeout.state == Timeout.CANCELLED ) {
+				remove( bucket, timeout );
+			} else if( timeout.remainingRounds <= 0 ) {
+				remove( bucket, timeout );
+				if( !Timeout.STATE.compareAndSet( timeout, Timeout.PENDING, Timeout.EXPIRED ) ) {
+					// cancelled concurrently
+					timeout = next;
+					continue;
+				}
+				pending.decrementAndGet();
+				try {
+					timeout.task.run();
+				} catch ( RuntimeException e ) {
+					e.printStackTrace();
+				}
+			} else {
+				timeout.remainingRounds--;
+			}
+			timeout = next;
+		}
+	}
+
+	private void remove( int bucket, Timeout timeout ) {
+		if( timeout.prev == null ) {
+			heads[bucket] = timeout.next;
+		} else {
+			timeout.prev.next = timeout.next;
+		}
+		if( timeout.next == null ) {
+			tails[bucket] = timeout.prev;
+		} else {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+	}
+
+	/**
+	 * The handle of a scheduled task
+	 */
+	public static final class Timeout {
+
+		private static final int PENDING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater( Timeout.class, "state" );
+
+		private final HashedWheelTimer timer;
+
+		private final Runnable task;
+
+		/**
+		 * The deadline in nanoseconds since the start of the timer
+		 */
+		private final long deadline;
+
+		private long remainingRounds;
+
+		private Timeout prev;
+
+		private Timeout next;
+
+		private volatile int state = PENDING;
+
+		private Timeout( HashedWheelTimer timer, Runnable task, long deadline ) {
+			this.timer = timer;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Cancels the task if it has not run yet
+		 *
+		 * @return true if the task was cancelled by this call
+		 */
+		public boolean cancel() {
+			if( !STATE.compareAndSet( this, PENDING, CANCELLED ) ) {
+				return false;
+			}
+			timer.pending.decrementAndGet();
+			return true;
+		}
+
+		/**
+		 * @return whether the task has been cancelled
+		 */
+		public boolean isCancelled() {
+			return state == CANCELLED;
+		}
+
+		/**
+		 * @return whether the task has run or is running
+		 */
+		public boolean isExpired() {
+			return state == EXPIRED;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2010-2018 Nathan Rajlich
+ *
+ *  Permission is hereby granted, free of charge, to any person
+ *  obtaining a copy of this software and associated documentation
+ *  files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use,
+ *  copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the
+ *  Software is furnished to do so, subject to the following
+ *  conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ *  OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ *  HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ *  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ *  FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ *  OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.java_websocket.util;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.exceptions.LimitExedeedException;
+import org.java_websocket.framing.CloseFrame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A utf8 decoder which validates and decodes in a single pass, chunk by chunk.
+ * <p>
+ * The chunks, e.g. the fragments of a text message, are decoded as they arrive, a character may be split across chunks.
+ * A payload which is pure ascii, like most JSON, is detected 8 bytes at a time and copied into the string without decoding.
+ * An instance is not thread-safe and can be reused after {@link #finish()} or {@link #reset()}.
+ *
+ * @since 1.3.8
+ */
+public class Utf8Decoder {
+
+	/**
+	 * The high bit of every byte of a long, none of them is set in a run of ascii characters
+	 */
+	private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+	/**
+	 * The number of characters kept after a message, a larger array is released by {@link #reset()}
+	 */
+	private static final int RETAINED_CAPACITY = 16384;
+
+	/**
+	 * The decoded characters
+	 */
+	private char[] chars;
+
+	/**
+	 * The initial number of characters, the array shrinks back to it after a large message
+	 */
+	private final int initialCapacity;
+
+	/**
+	 * The number of decoded characters
+	 */
+	private int length;
+
+	/**
+	 * The state of the utf8 DFA, see {@link Charsetfunctions#UTF8_ACCEPT}
+	 */
+	private int state = Charsetfunctions.UTF8_ACCEPT;
+
+	/**
+	 * The bits of the code point of an incomplete character
+	 */
+	private int codepoint;
+
+	/**
+	 * The copy of the bytes of a direct buffer, created on first use
+	 */
+	private byte[] scratch;
+
+	/**
+	 * Creates a decoder
+	 */
+	public Utf8Decoder() {
+		this( 256 );
+	}
+
+	/**
+	 * Creates a decoder
+	 *
+	 * @param capacity the initial number of characters
+	 */
+	public Utf8Decoder( int capacity ) {
+		initialCapacity = Math.max( 16, capacity );
+		chars = new char[initialCapacity];
+	}
+
+	/**
+	 * Decodes the remaining bytes of the provided ByteBuffer, the position of the buffer is not changed
+	 *
+	 * @param data the chunk to decode
+	 * @throws InvalidDataException if the data is no valid utf8
+	 */
+	public void decode( ByteBuffer data ) throws InvalidDataException {
+		int len = data.remaining();
+		if( data.hasArray() ) {
+			decode( data.array(), data.arrayOffset() + data.position(), len );
+		} else {
+			// the bytes of a direct buffer are copied in bulk, so the decoding loop runs over an array
+			if( scratch == null || scratch.length < len ) {
+				scratch = new byte[Math.max( len, 1024 )];
+			}
+			data.duplicate().get( scratch, 0, len );
+			decode( scratch, 0, len );
+		}
+	}
+
+	/**
+	 * @param src the bytes to decode
+	 * @param i   the index of the first byte in src
+	 * @param len the number of bytes to decode
+	 */
+	private void decode( byte[] src, int i, int len ) throws InvalidDataException {
+		int limit = i + len;
+		// a character never needs more chars than bytes, except a surrogate pair completing the pending bytes of
+		// the previous chunk, which needs two chars for as few as one byte
+		ensureCapacity( len + 1 );
+		char[] out = chars;
+		int n = length;
+		int s = state;
+		int cp = codepoint;
+		while( i < limit ) {
+			int b;
+			if( s == Charsetfunctions.UTF8_ACCEPT ) {
+				// ascii runs between non ascii characters are short, so they are not checked 8 bytes at a time here
+				while( i < limit && src[i] >= 0 ) {
+					out[n++] = ( char ) src[i++];
+				}
+				if( i == limit ) {
+					break;
+				}
+				// complete two and three byte sequences without overlongs or surrogates skip the DFA
+				b = src[i++] & 0xff;
+				if( b >= 0xc2 && b <= 0xdf && i < limit && ( src[i] & 0xc0 ) == 0x80 ) {
+					out[n++] = ( char ) ( ( b & 0x1f ) << 6 | src[i++] & 0x3f );
+					continue;
+				}
+				if( b >= 0xe1 && b <= 0xef && b != 0xed && i + 1 < limit && ( src[i] & 0xc0 ) == 0x80 && ( src[i + 1] & 0xc0 ) == 0x80 ) {
+					out[n++] = ( char ) ( ( b & 0x0f ) << 12 | ( src[i] & 0x3f ) << 6 | src[i + 1] & 0x3f );
+					i += 2;
+					continue;
+				}
+			} else {
+				b = src[i++] & 0xff;
+			}
+			int type = Charsetfunctions.utf8d[b];
+			cp = s != Charsetfunctions.UTF8_ACCEPT ? ( b & 0x3f ) | ( cp << 6 ) : ( 0xff >> type ) & b;
+			s = Charsetfunctions.utf8d[256 + ( s << 4 ) + type];
+			if( s == Charsetfunctions.UTF8_ACCEPT ) {
+				if( cp < Character.MIN_SUPPLEMENTARY_CODE_POINT ) {
+					out[n++] = ( char ) cp;
+				} else {
+					out[n++] = Character.highSurrogate( cp );
+					out[n++] = Character.lowSurrogate( cp );
+				}
+			} else if( s == Charsetfunctions.UTF8_REJECT ) {
+				reset();
+				throw new InvalidDataException( CloseFrame.NO_UTF8 );
+			}
+		}
+		length = n;
+		state = s;
+		codepoint = cp;
+	}
+
+	/**
+	 * Returns the decoded string and resets the decoder
+	 *
+	 * @return the characters decoded since the last reset
+	 * @throws InvalidDataException if the data ended within a character
+	 */
+	public String finish() throws InvalidDataException {
+		if( state != Charsetfunctions.UTF8_ACCEPT ) {
+			reset();
+			throw new InvalidDataException( CloseFrame.NO_UTF8 );
+		}
+		String s = new String( chars, 0, length );
+		reset();
+		return s;
+	}
+
+	/**
+	 * Discards the decoded characters and the state of an incomplete character, the array of a large message is released
+	 */
+	public void reset() {
+		if( chars.length > Math.max( initialCapacity, RETAINED_CAPACITY ) ) {
+			chars = new char[initialCapacity];
+		}
+		length = 0;
+		state = Charsetfunctions.UTF8_ACCEPT;
+		codepoint = 0;
+	}
+
+	/**
+	 * @return the number of characters decoded since the last reset
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the number of characters the decoder can hold without growing
+	 */
+	int capacity() {
+		return chars.length;
+	}
+
+	private void ensureCapacity( int additional ) throws InvalidDataException {
+		long required = ( long ) length + additional;
+		if( required > chars.length ) {
+			if( required > Integer.MAX_VALUE - 8 ) {
+				throw new LimitExedeedException( "Payloadsize is to big..." );
+			}
+			char[] grown = new char[( int ) Math.min( Integer.MAX_VALUE - 8, Math.max( required, 2L * chars.length ) )];
+			System.arraycopy( chars, 0, grown, 0, length );
+			chars = grown;
+		}
+	}
+
+	/**
+	 * Decodes the remaining bytes of the provided ByteBuffer in a single pass, the position of the buffer is not changed.
+	 * Pure ascii data is checked 8 bytes at a time and copied into the string without decoding.
+	 *
+	 * @param data the data to decode
+	 * @return the decoded string
+	 * @throws InvalidDataException if the data is no valid utf8
+	 */
+	public static String decodeString( ByteBuffer data ) throws InvalidDataException {
+		int len = data.remaining();
+		if( asciiPrefix( data ) == len ) {
+			if( data.hasArray() ) {
+				return new String( data.array(), data.arrayOffset() + data.position(), len, StandardCharsets.ISO_8859_1 );
+			}
+			byte[] bytes = new byte[len];
+			data.duplicate().get( bytes );
+			return new String( bytes, StandardCharsets.ISO_8859_1 );
+		}
+		Utf8Decoder decoder = new Utf8Decoder( len );
+		decoder.decode( data );
+		return decoder.finish();
+	}
+
+	/**
+	 * @param data the data to check
+	 * @return the number of ascii bytes at the start of the remaining bytes of the ByteBuffer
+	 */
+	static int asciiPrefix( ByteBuffer data ) {
+		int i = data.position();
+		int limit = data.limit();
+		while( i + 8 <= limit && ( data.getLong( i ) & NON_ASCII_MASK ) == 0 ) {
+			i += 8;
+		}
+		while( i < limit && data.get( i ) >= 0 ) {
+			i++;
+		}
+		return i - data.position();
+	}
+}
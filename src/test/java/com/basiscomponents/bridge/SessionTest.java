@@ -0,0 +1,190 @@
+package com.basiscomponents.bridge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.basiscomponents.db.DataRow;
+import com.basiscomponents.db.ResultSet;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class SessionTest {
+
+	private HttpServer server;
+
+	// the JSON of the requests and the ports they came from
+	private final List<JsonObject> requests = new CopyOnWriteArrayList<>();
+
+	private final List<Integer> ports = new CopyOnWriteArrayList<>();
+
+	private final List<String> contentTypes = new CopyOnWriteArrayList<>();
+
+	private final List<String> transferEncodings = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/bridge", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		InputStream in = exchange.getRequestBody();
+		if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+			in = new GZIPInputStream(in);
+		String body = new String(readAll(in), StandardCharsets.UTF_8);
+		String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+		contentTypes.add(contentType);
+		transferEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Transfer-Encoding")));
+		if (contentType.startsWith("application/x-www-form-urlencoded"))
+			body = URLDecoder.decode(body.substring("ex=".length()), "UTF-8");
+		JsonObject request = new JsonParser().parse(body).getAsJsonObject();
+		requests.add(request);
+		ports.add(exchange.getRemoteAddress().getPort());
+
+		String response;
+		if (request.has("ret") && request.getAsJsonArray("ret").get(0).getAsString().equals("fail"))
+			response = "{\"err\":\"failed\"}";
+		else
+			response = "{\"ses\":\"S1\",\"n\":\"" + requests.size() + "\"}";
+		byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+		if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (OutputStream out = new GZIPOutputStream(compressed)) {
+				out.write(bytes);
+			}
+			bytes = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			bytes.write(buffer, 0, count);
+		}
+		return bytes.toByteArray();
+	}
+
+	private Session session() {
+		return new Session("http://localhost:" + server.getAddress().getPort() + "/bridge");
+	}
+
+	@Test
+	public void testFormRequest() throws Exception {
+		Session session = session();
+		session.pushVar("s", "a \"quoted\" ä€ & b");
+		session.pushVar("n", 42);
+		session.create("obj", "java.lang.StringBuilder");
+		session.invoke("obj", "r", "append", "x\"y");
+		session.pushRet("r");
+		session.exec();
+
+		assertNull(session.getLastError());
+		assertEquals("S1", session.getSessionID());
+		assertEquals("1", session.getResult("n"));
+		assertTrue(contentTypes.get(0).startsWith("application/x-www-form-urlencoded"));
+		assertEquals("null", transferEncodings.get(0));
+		JsonObject request = requests.get(0);
+		assertEquals(null, request.get("ses"));
+		JsonArray vars = request.getAsJsonArray("vars");
+		assertEquals("a \"quoted\" ä€ & b", vars.get(0).getAsJsonObject().get("v").getAsString());
+		assertEquals("str", vars.get(0).getAsJsonObject().get("t").getAsString());
+		assertEquals(42, vars.get(1).getAsJsonObject().get("v").getAsInt());
+		JsonArray ex = request.getAsJsonArray("ex");
+		assertEquals("create", ex.get(0).getAsJsonObject().get("op").getAsString());
+		assertEquals("java.lang.StringBuilder", ex.get(0).getAsJsonObject().get("class").getAsString());
+		assertEquals("x\"y", ex.get(1).getAsJsonObject().getAsJsonArray("args").get(0).getAsString());
+		assertEquals("r", request.getAsJsonArray("ret").get(0).getAsString());
+	}
+
+	@Test
+	public void testRawGzipRequestWithResultSet() throws Exception {
+		ResultSet rs = new ResultSet();
+		for (int i = 0; i < 100; i++) {
+			DataRow dr = new DataRow();
+			dr.setFieldValue("ID", Types.INTEGER, i);
+			dr.setFieldValue("NAME", Types.VARCHAR, "Name " + i);
+			rs.add(dr);
+		}
+		Session session = session();
+		session.setRawJson(true);
+		session.setGzip(true);
+		session.pushVar("rs", rs);
+		session.pushVar("dr", rs.get(1));
+		session.exec();
+
+		assertNull(session.getLastError());
+		assertEquals("application/json; charset=UTF-8", contentTypes.get(0));
+		// the raw JSON is streamed
+		assertEquals("chunked", transferEncodings.get(0));
+		JsonArray vars = requests.get(0).getAsJsonArray("vars");
+		assertEquals(new JsonParser().parse(rs.toJson()), vars.get(0).getAsJsonObject().get("v"));
+		assertEquals("rs", vars.get(0).getAsJsonObject().get("t").getAsString());
+		assertEquals(new JsonParser().parse(rs.get(1).toJson()), vars.get(1).getAsJsonObject().get("v"));
+	}
+
+	@Test
+	public void testPipelinedBatchesOverOneConnection() throws Exception {
+		Session session = session();
+		session.setRawJson(true);
+		CompletableFuture<Map<String, Object>> first = session.execAsync();
+		session.pushRet("a");
+		CompletableFuture<Map<String, Object>> second = session.execAsync();
+		session.pushRet("fail");
+		CompletableFuture<Map<String, Object>> failed = session.execAsync();
+		session.pushRet("b");
+		CompletableFuture<Map<String, Object>> third = session.execAsync();
+
+		assertEquals("1", first.get(5, TimeUnit.SECONDS).get("n"));
+		assertEquals("2", second.get(5, TimeUnit.SECONDS).get("n"));
+		assertTrue(failed.handle((result, error) -> error != null).get(5, TimeUnit.SECONDS));
+		assertEquals("4", third.get(5, TimeUnit.SECONDS).get("n"));
+		assertEquals("4", session.getResult("n"));
+
+		// the session of the first response is sent with the batches queued
+		// before it arrived
+		assertNull(requests.get(0).get("ses"));
+		assertEquals("S1", requests.get(1).get("ses").getAsString());
+		assertEquals("b", requests.get(3).getAsJsonArray("ret").get(0).getAsString());
+		// the connection was kept alive
+		assertEquals(1, ports.stream().distinct().count());
+	}
+
+}
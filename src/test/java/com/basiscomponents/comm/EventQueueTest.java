@@ -0,0 +1,139 @@
+package com.basiscomponents.comm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class EventQueueTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private static String[] poll(BlockingQueue<String> events, int count) throws InterruptedException {
+		String[] result = new String[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = events.poll(5, TimeUnit.SECONDS);
+		}
+		return result;
+	}
+
+	// the counters are updated after the sink returned
+	private static void awaitHandedOff(EventQueue queue, long count) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 5000;
+		while (queue.getHandedOff() < count && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, queue.getHandedOff());
+	}
+
+	@Test
+	public void testKeepsOrderOfConcurrentProducers() throws Exception {
+		BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		EventQueue queue = new EventQueue("tag", (tag, payload) -> events.add(payload), executor);
+		List<Thread> producers = new ArrayList<>();
+		for (int p = 0; p < 4; p++) {
+			final int producer = p;
+			producers.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					queue.offer(producer + ":" + i);
+				}
+			}));
+		}
+		producers.forEach(Thread::start);
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		int[] next = new int[4];
+		for (String payload : poll(events, 4000)) {
+			String[] parts = payload.split(":");
+			int producer = Integer.parseInt(parts[0]);
+			assertEquals(next[producer]++, Integer.parseInt(parts[1]));
+		}
+		awaitHandedOff(queue, 4000);
+		assertEquals(4000, queue.getEvents());
+		assertEquals(0, queue.getDepth());
+		assertEquals(0, queue.getDropped());
+		assertTrue(queue.getMaxLatency() >= queue.getMeanLatency());
+	}
+
+	@Test
+	public void testCoalescesAndDropsWhileTheSinkIsBusy() throws Exception {
+		CountDownLatch busy = new CountDownLatch(1);
+		BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		EventQueue queue = new EventQueue("tag", (tag, payload) -> {
+			busy.await();
+			events.add(tag + "=" + payload);
+		}, executor);
+		queue.setCapacity(4);
+		queue.setBatchSize(3);
+		queue.setCoalescingDelimiter("\n");
+
+		assertTrue(queue.offer("a"));
+		// the drain task took "a" and waits in the sink
+		long timeout = System.currentTimeMillis() + 5000;
+		while (queue.getDepth() > 0 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		for (String payload : new String[] { "b", "c", "d", "e" }) {
+			assertTrue(queue.offer(payload));
+		}
+		assertFalse(queue.offer("f"));
+		assertEquals(4, queue.getDepth());
+		assertEquals(1, queue.getDropped());
+
+		busy.countDown();
+		String[] received = poll(events, 3);
+		assertEquals("tag=a", received[0]);
+		assertEquals("tag=b\nc\nd", received[1]);
+		assertEquals("tag=e", received[2]);
+		assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+		awaitHandedOff(queue, 5);
+		assertEquals(3, queue.getEvents());
+	}
+
+	@Test
+	public void testCountsFailedHandoffs() throws Exception {
+		BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		EventQueue queue = new EventQueue("tag", (tag, payload) -> {
+			if (payload.equals("bad"))
+				throw new IllegalStateException("interpreter gone");
+			events.add(payload);
+		}, executor);
+		queue.offer("bad");
+		queue.offer("good");
+		assertEquals("good", events.poll(5, TimeUnit.SECONDS));
+		awaitHandedOff(queue, 1);
+		assertEquals(1, queue.getFailed());
+	}
+
+	@Test
+	public void testDispatcherHandsOffToRegisteredSink() throws Exception {
+		BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		CrossEventDispatcher dispatcher = new CrossEventDispatcher();
+		String tag = dispatcher.register((t, payload) -> events.add(t + "=" + payload));
+		dispatcher.postPriorityCustomEvent(tag, "hello");
+		dispatcher.postPriorityCustomEvent("unknown", "ignored");
+		assertEquals(tag + "=hello", events.poll(5, TimeUnit.SECONDS));
+		awaitHandedOff(dispatcher.getQueue(tag), 1);
+		assertNull(dispatcher.getQueue("unknown"));
+	}
+
+}
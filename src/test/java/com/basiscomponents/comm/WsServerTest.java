@@ -0,0 +1,272 @@
+package com.basiscomponents.comm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.basiscomponents.db.DataRow;
+import com.basiscomponents.db.ResultSet;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class WsServerTest {
+
+	private WsServer server;
+
+	@BeforeEach
+	public void startServer() throws Exception {
+		server = start(1);
+	}
+
+	private WsServer start(int selectorCount) throws Exception {
+		WsServer server = new WsServer(new InetSocketAddress("localhost", 0));
+		server.setSelectorCount(selectorCount);
+		server.start();
+		long timeout = System.currentTimeMillis() + 5000;
+		while (server.getPort() == 0 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		return server;
+	}
+
+	@AfterEach
+	public void stopServer() throws Exception {
+		server.stop(1000);
+	}
+
+	private WebSocketClient connect(String tag, BlockingQueue<String> messages) throws Exception {
+		WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + server.getPort() + "/" + tag + "?x=1")) {
+			@Override
+			public void onOpen(ServerHandshake handshake) {
+			}
+
+			@Override
+			public void onMessage(String message) {
+				messages.add(message);
+			}
+
+			@Override
+			public void onMessage(ByteBuffer bytes) {
+			}
+
+			@Override
+			public void onClose(int code, String reason, boolean remote) {
+			}
+
+			@Override
+			public void onError(Exception ex) {
+			}
+		};
+		assertTrue(client.connectBlocking());
+		return client;
+	}
+
+	private void awaitCount(String tag, int count) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 5000;
+		while (server.getConnectionCount(tag) != count && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, server.getConnectionCount(tag));
+	}
+
+	@Test
+	public void testSendToTagAndDeregisterOnClose() throws Exception {
+		BlockingQueue<String> first = new LinkedBlockingQueue<>();
+		BlockingQueue<String> second = new LinkedBlockingQueue<>();
+		BlockingQueue<String> other = new LinkedBlockingQueue<>();
+		WebSocketClient c1 = connect("grid", first);
+		WebSocketClient c2 = connect("grid", second);
+		WebSocketClient c3 = connect("chart", other);
+		awaitCount("grid", 2);
+		awaitCount("chart", 1);
+		assertEquals(2, server.getConnectionCounts().get("grid").intValue());
+
+		server.send("grid", "hello");
+		assertEquals("hello", first.poll(5, TimeUnit.SECONDS));
+		assertEquals("hello", second.poll(5, TimeUnit.SECONDS));
+		assertEquals(null, other.poll(100, TimeUnit.MILLISECONDS));
+
+		c1.closeBlocking();
+		awaitCount("grid", 1);
+		c2.closeBlocking();
+		awaitCount("grid", 0);
+		assertEquals(null, server.getConnectionCounts().get("grid"));
+		c3.closeBlocking();
+		awaitCount("chart", 0);
+	}
+
+	@Test
+	public void testSelectorThreads() throws Exception {
+		server.stop(1000);
+		server = start(3);
+		List<BlockingQueue<String>> queues = new ArrayList<>();
+		List<WebSocketClient> clients = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+			queues.add(messages);
+			clients.add(connect("grid", messages));
+		}
+		awaitCount("grid", 7);
+
+		for (int i = 0; i < 100; i++) {
+			server.send("grid", "message " + i);
+		}
+		for (BlockingQueue<String> messages : queues) {
+			for (int i = 0; i < 100; i++) {
+				assertEquals("message " + i, messages.poll(5, TimeUnit.SECONDS));
+			}
+		}
+
+		for (WebSocketClient client : clients) {
+			client.closeBlocking();
+		}
+		awaitCount("grid", 0);
+	}
+
+	@Test
+	public void testSendResultSetAsFragmentedMessage() throws Exception {
+		ResultSet rs = new ResultSet();
+		for (int i = 0; i < 5000; i++) {
+			DataRow dr = new DataRow();
+			dr.setFieldValue("ID", Types.INTEGER, i);
+			dr.setFieldValue("NAME", Types.VARCHAR, "Name \u00e4\u20ac " + i);
+			rs.add(dr);
+		}
+		BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+		BlockingQueue<String> others = new LinkedBlockingQueue<>();
+		WebSocketClient client = connect("grid", messages);
+		WebSocketClient other = connect("grid", others);
+		awaitCount("grid", 2);
+
+		// the JSON is written once for both connections
+		server.send("grid", rs, true);
+		server.send("grid", "after");
+		String json = rs.toJson(true);
+		assertEquals(json, messages.poll(5, TimeUnit.SECONDS));
+		assertEquals("after", messages.poll(5, TimeUnit.SECONDS));
+		assertEquals(json, others.poll(5, TimeUnit.SECONDS));
+		assertEquals("after", others.poll(5, TimeUnit.SECONDS));
+		client.closeBlocking();
+		other.closeBlocking();
+	}
+
+	private static ResultSet rows(String... names) throws Exception {
+		ResultSet rs = new ResultSet();
+		rs.addKeyColumn("ID");
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] == null)
+				continue;
+			DataRow dr = new DataRow();
+			dr.setFieldValue("ID", Types.INTEGER, i);
+			dr.setFieldValue("NAME", Types.VARCHAR, names[i]);
+			rs.add(dr);
+		}
+		return rs;
+	}
+
+	private static JsonObject parse(String message) {
+		return new JsonParser().parse(message).getAsJsonObject();
+	}
+
+	@Test
+	public void testPublishSendsDeltasAndSnapshotsToLateJoiners() throws Exception {
+		server.setCoalescingWindow(0);
+		server.publish("grid", rows("a", "b", "c"));
+
+		BlockingQueue<String> first = new LinkedBlockingQueue<>();
+		WebSocketClient c1 = connect("grid", first);
+		JsonObject snapshot = parse(first.poll(5, TimeUnit.SECONDS));
+		assertEquals("snapshot", snapshot.get("type").getAsString());
+		assertEquals(1, snapshot.get("version").getAsLong());
+		JsonArray rows = snapshot.getAsJsonArray("rows");
+		assertEquals(3, rows.size());
+		assertEquals("1", rows.get(1).getAsJsonObject().get("_key").getAsString());
+		assertEquals("b", rows.get(1).getAsJsonObject().get("NAME").getAsString());
+
+		server.publish("grid", rows("a", "B", null, "d"));
+		JsonObject delta = parse(first.poll(5, TimeUnit.SECONDS));
+		assertEquals("delta", delta.get("type").getAsString());
+		assertEquals(2, delta.get("version").getAsLong());
+		JsonArray inserted = delta.getAsJsonArray("inserted");
+		assertEquals(1, inserted.size());
+		assertEquals("3", inserted.get(0).getAsJsonObject().get("_key").getAsString());
+		assertEquals("d", inserted.get(0).getAsJsonObject().get("NAME").getAsString());
+		JsonArray updated = delta.getAsJsonArray("updated");
+		assertEquals(1, updated.size());
+		JsonObject update = updated.get(0).getAsJsonObject();
+		assertEquals("1", update.get("_key").getAsString());
+		assertEquals("B", update.get("NAME").getAsString());
+		assertNull(update.get("ID"));
+		assertEquals("2", delta.getAsJsonArray("deleted").get(0).getAsString());
+
+		// an unchanged ResultSet isn't sent
+		server.publish("grid", rows("a", "B", null, "d"));
+		BlockingQueue<String> second = new LinkedBlockingQueue<>();
+		WebSocketClient c2 = connect("grid", second);
+		snapshot = parse(second.poll(5, TimeUnit.SECONDS));
+		assertEquals(3, snapshot.get("version").getAsLong());
+		assertEquals(3, snapshot.getAsJsonArray("rows").size());
+		assertNull(first.poll(100, TimeUnit.MILLISECONDS));
+
+		c1.closeBlocking();
+		c2.closeBlocking();
+	}
+
+	@Test
+	public void testPublishCoalescesUpdates() throws Exception {
+		server.setCoalescingWindow(200);
+		server.publish("grid", rows("a"));
+		BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+		long timeout = System.currentTimeMillis() + 5000;
+		while (server.getChannel("grid").getVersion() == 0 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		WebSocketClient client = connect("grid", messages);
+		assertEquals("snapshot", parse(messages.poll(5, TimeUnit.SECONDS)).get("type").getAsString());
+
+		for (int i = 0; i < 10; i++) {
+			server.publish("grid", rows("a" + i));
+		}
+		JsonObject delta = parse(messages.poll(5, TimeUnit.SECONDS));
+		assertEquals(2, delta.get("version").getAsLong());
+		assertEquals("a9", delta.getAsJsonArray("updated").get(0).getAsJsonObject().get("NAME").getAsString());
+		assertNull(messages.poll(400, TimeUnit.MILLISECONDS));
+		client.closeBlocking();
+	}
+
+	@Test
+	public void testDefaults() throws Exception {
+		WsServer server = new WsServer(new InetSocketAddress("localhost", 0));
+		assertEquals(WebSocketImpl.BackpressurePolicy.BLOCK, server.getBackpressurePolicy());
+		assertNull(server.getDispatchStrategy());
+		// the default drafts of WebSocketImpl, i.e. Draft_6455 without extensions
+		assertTrue(server.getDraft().isEmpty());
+		server.limitWriteBuffers();
+		assertEquals(WebSocketImpl.BackpressurePolicy.CLOSE, server.getBackpressurePolicy());
+
+		server = new WsServer(new InetSocketAddress("localhost", 0), true);
+		assertEquals(1, server.getDraft().size());
+		assertTrue(((Draft_6455) server.getDraft().get(0)).getKnownExtensions().get(0) instanceof PerMessageDeflateExtension);
+	}
+
+}
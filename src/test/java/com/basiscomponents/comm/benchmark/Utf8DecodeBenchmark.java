@@ -0,0 +1,97 @@
+package com.basiscomponents.comm.benchmark;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.util.Charsetfunctions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decoding of a received text frame payload by
+ * {@link Charsetfunctions#stringUtf8(ByteBuffer)}. The <code>legacy</code>
+ * benchmark replays the former path, a validation pass through
+ * <code>isValidUTF8</code> followed by a <code>CharsetDecoder</code>, for the
+ * same payload as the baseline.
+ * 
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.basiscomponents.comm.benchmark.Utf8DecodeBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8DecodeBenchmark {
+
+	/**
+	 * ascii: JSON as sent by ResultSet.toJson, mixed: the same JSON with umlauts
+	 * and euro signs in every value
+	 */
+	@Param({ "ascii", "mixed" })
+	private String content;
+
+	@Param({ "direct", "heap" })
+	private String buffer;
+
+	private ByteBuffer payload;
+
+	@Setup
+	public void setUp() {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 1000; i++) {
+			if (i > 0)
+				json.append(',');
+			json.append("{\"ID\":").append(i).append(",\"NAME\":\"")
+					.append("ascii".equals(content) ? "Customer " : "Käufer € ").append(i)
+					.append("\",\"CITY\":\"Springfield\"}");
+		}
+		byte[] bytes = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+		payload = "direct".equals(buffer) ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+		payload.put(bytes).flip();
+	}
+
+	@Benchmark
+	public String singlePass() throws InvalidDataException {
+		return Charsetfunctions.stringUtf8(payload);
+	}
+
+	@Benchmark
+	public String legacy() throws InvalidDataException {
+		if (!Charsetfunctions.isValidUTF8(payload))
+			throw new InvalidDataException(1007);
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.REPORT);
+		decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+		try {
+			payload.mark();
+			String s = decoder.decode(payload).toString();
+			payload.reset();
+			return s;
+		} catch (CharacterCodingException e) {
+			throw new InvalidDataException(1007, e);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(Utf8DecodeBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,533 @@
+package com.basiscomponents.comm.benchmark;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.client.WebSocketClientSelector;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.DefaultSSLWebSocketServerFactory;
+import org.java_websocket.server.WebSocketServer;
+
+import com.basiscomponents.comm.WsServer;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Load generator for {@link WebSocketServer} and {@link WsServer}. Starts an
+ * in-process server and a number of {@link WebSocketClient}s over loopback and
+ * drives text messages of a configurable size and rate through them:
+ * <ul>
+ * <li><b>echo</b> (<code>tags=0</code>): every client sends messages to an
+ * echoing WebSocketServer, the latency is the round trip.</li>
+ * <li><b>fan-out</b> (<code>tags&gt;0</code>): the clients are spread over the
+ * tags of a WsServer and every tag gets messages through
+ * {@link WsServer#send(String, String)}, the latency is from the send to the
+ * arrival at each client of the tag.</li>
+ * </ul>
+ * Every message carries the time it was due to be sent, not the time it was
+ * sent, so a stalled sender does not hide latency (coordinated omission). With
+ * <code>rate=0</code> in echo mode, every client sends its next message as
+ * soon as the previous one came back.
+ * <p>
+ * The report contains the throughput, the p50/p99/p999/max latency, the
+ * allocation rate of all threads of the JVM and the GC pauses.
+ * <code>selectors=n</code> gives the server n selector threads,
+ * <code>clientSelectors=n</code> lets the clients share a
+ * {@link WebSocketClientSelector} with n threads instead of running two
+ * threads each.
+ * <p>
+ * Run the soak test with <code>mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.basiscomponents.comm.benchmark.WsLoadGenerator
+ * -Dexec.args="clients=100 size=1024 rate=50 tags=0 duration=600"</code>.
+ * For <code>tls=true</code> pass a JKS key store with
+ * <code>keystore=... storepass=...</code> or the
+ * <code>javax.net.ssl.keyStore</code> system properties, e.g. one created by
+ * <code>keytool -genkeypair -keyalg RSA -keystore ks.jks</code>; it is used as
+ * trust store by the clients as well.
+ *
+ * @see WsServerBenchmark
+ */
+public class WsLoadGenerator implements Closeable {
+
+	/**
+	 * The settings of a load test, given as <code>key=value</code> arguments.
+	 */
+	public static class Config {
+		int clients = 10;
+		int size = 256;
+		int rate = 100;
+		int tags = 0;
+		int selectors = 1;
+		int clientSelectors = 0;
+		boolean tls = false;
+		String keystore = System.getProperty("javax.net.ssl.keyStore");
+		String storepass = System.getProperty("javax.net.ssl.keyStorePassword");
+		int duration = 60;
+		int report = 10;
+
+		static Config parse(String[] args) {
+			Config config = new Config();
+			for (String arg : args) {
+				int eq = arg.indexOf('=');
+				if (eq < 0)
+					throw new IllegalArgumentException("Expected key=value: " + arg);
+				config.set(arg.substring(0, eq), arg.substring(eq + 1));
+			}
+			return config;
+		}
+
+		Config set(String key, String value) {
+			switch (key) {
+			case "clients":
+				clients = Integer.parseInt(value);
+				break;
+			case "size":
+				size = Integer.parseInt(value);
+				break;
+			case "rate":
+				rate = Integer.parseInt(value);
+				break;
+			case "tags":
+				tags = Integer.parseInt(value);
+				break;
+			case "clientSelectors":
+				clientSelectors = Integer.parseInt(value);
+				break;
+			case "selectors":
+				selectors = Integer.parseInt(value);
+				break;
+			case "tls":
+				tls = Boolean.parseBoolean(value);
+				break;
+			case "keystore":
+				keystore = value;
+				break;
+			case "storepass":
+				storepass = value;
+				break;
+			case "duration":
+				duration = Integer.parseInt(value);
+				break;
+			case "report":
+				report = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown setting: " + key);
+			}
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "clients=" + clients + " size=" + size + " rate=" + rate + " tags=" + tags + " selectors=" + selectors
+					+ " clientSelectors=" + clientSelectors + " tls=" + tls + " duration=" + duration;
+		}
+	}
+
+	/**
+	 * A client which records the latency of every message it receives.
+	 */
+	class LoadClient extends WebSocketClient {
+
+		private LatencyHistogram histogram = new LatencyHistogram();
+
+		private final Semaphore received = new Semaphore(0);
+
+		LoadClient(URI uri) {
+			super(uri);
+		}
+
+		@Override
+		public void onOpen(ServerHandshake handshake) {
+		}
+
+		@Override
+		public void onMessage(String message) {
+			long latency = System.nanoTime() - parseTimestamp(message);
+			synchronized (this) {
+				histogram.record(latency);
+			}
+			received.release();
+			if (closedLoop && running)
+				send(message(System.nanoTime()));
+		}
+
+		@Override
+		public void onMessage(ByteBuffer bytes) {
+		}
+
+		@Override
+		public void onClose(int code, String reason, boolean remote) {
+			if (running && remote)
+				System.err.println("Connection closed by the server: " + code + " " + reason);
+		}
+
+		@Override
+		public void onError(Exception ex) {
+			if (running)
+				ex.printStackTrace();
+		}
+
+		synchronized LatencyHistogram swapHistogram(LatencyHistogram empty) {
+			LatencyHistogram interval = histogram;
+			histogram = empty;
+			return interval;
+		}
+
+		void awaitMessages(int count) throws InterruptedException {
+			if (!received.tryAcquire(count, 30, TimeUnit.SECONDS))
+				throw new IllegalStateException("No message received within 30 seconds");
+		}
+	}
+
+	/**
+	 * Echoes every message back to its sender.
+	 */
+	static class EchoServer extends WebSocketServer {
+
+		EchoServer(InetSocketAddress address) {
+			super(address);
+		}
+
+		@Override
+		public void onOpen(WebSocket conn, ClientHandshake handshake) {
+		}
+
+		@Override
+		public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+		}
+
+		@Override
+		public void onMessage(WebSocket conn, String message) {
+			conn.send(message);
+		}
+
+		@Override
+		public void onError(WebSocket conn, Exception ex) {
+			ex.printStackTrace();
+		}
+
+		@Override
+		public void onStart() {
+		}
+	}
+
+	private final Config config;
+
+	private final boolean closedLoop;
+
+	private final char[] padding;
+
+	private WebSocketServer server;
+
+	private WebSocketClientSelector clientSelector;
+
+	private final List<LoadClient> clients = new ArrayList<>();
+
+	private volatile boolean running;
+
+	private Thread sender;
+
+	private final AtomicLong gcCount = new AtomicLong();
+
+	private final AtomicLong gcMaxPauseMillis = new AtomicLong();
+
+	private final AtomicLong gcPauseMillis = new AtomicLong();
+
+	private final List<NotificationEmitter> gcEmitters = new ArrayList<>();
+
+	private final NotificationListener gcListener = this::onGarbageCollection;
+
+	public WsLoadGenerator(Config config) {
+		this.config = config;
+		this.closedLoop = config.tags == 0 && config.rate <= 0;
+		this.padding = new char[Math.max(0, config.size - 16)];
+		Arrays.fill(this.padding, 'x');
+		if (config.tags > 0 && config.rate <= 0)
+			throw new IllegalArgumentException("The fan-out mode needs a rate");
+	}
+
+	/**
+	 * Starts the server and connects the clients.
+	 *
+	 * @throws Exception if the server could not be started or a client could not
+	 *                   connect
+	 */
+	public void start() throws Exception {
+		InetSocketAddress address = new InetSocketAddress("localhost", 0);
+		server = config.tags > 0 ? new WsServer(address) : new EchoServer(address);
+		SSLContext sslContext = config.tls ? createSSLContext() : null;
+		if (sslContext != null)
+			server.setWebSocketFactory(new DefaultSSLWebSocketServerFactory(sslContext));
+		server.setSelectorCount(config.selectors);
+		server.start();
+		long timeout = System.currentTimeMillis() + 5000;
+		while (server.getPort() <= 0 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		String scheme = config.tls ? "wss" : "ws";
+		if (config.clientSelectors > 0) {
+			clientSelector = new WebSocketClientSelector(config.clientSelectors);
+			clientSelector.setSSLContext(sslContext);
+		}
+		for (int i = 0; i < config.clients; i++) {
+			String path = config.tags > 0 ? "/tag" + (i % config.tags) : "/";
+			LoadClient client = new LoadClient(new URI(scheme + "://localhost:" + server.getPort() + path));
+			client.setConnectionLostTimeout(0);
+			if (clientSelector != null)
+				client.setClientSelector(clientSelector);
+			else if (sslContext != null)
+				client.setSocket(sslContext.getSocketFactory().createSocket());
+			if (!client.connectBlocking())
+				throw new IOException("Client " + i + " could not connect");
+			clients.add(client);
+		}
+		if (server instanceof WsServer) {
+			// the clients are registered for their tag after the handshake
+			for (int i = 0; i < config.tags; i++) {
+				int expected = config.clients / config.tags + (i < config.clients % config.tags ? 1 : 0);
+				while (((WsServer) server).getConnectionCount("tag" + i) < expected)
+					Thread.sleep(10);
+			}
+		}
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (gc instanceof NotificationEmitter) {
+				((NotificationEmitter) gc).addNotificationListener(gcListener, null, null);
+				gcEmitters.add((NotificationEmitter) gc);
+			}
+		}
+		running = true;
+	}
+
+	private SSLContext createSSLContext() throws Exception {
+		if (config.keystore == null || config.storepass == null)
+			throw new IllegalArgumentException("tls=true needs keystore=... and storepass=...");
+		KeyStore ks = KeyStore.getInstance("JKS");
+		try (InputStream in = new FileInputStream(config.keystore)) {
+			ks.load(in, config.storepass.toCharArray());
+		}
+		KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		kmf.init(ks, config.storepass.toCharArray());
+		TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		tmf.init(ks);
+		SSLContext sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+		return sslContext;
+	}
+
+	private void onGarbageCollection(Notification notification, Object handback) {
+		if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+			return;
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData());
+		long duration = info.getGcInfo().getDuration();
+		gcCount.incrementAndGet();
+		gcPauseMillis.addAndGet(duration);
+		gcMaxPauseMillis.accumulateAndGet(duration, Math::max);
+	}
+
+	/**
+	 * Starts sending messages, at the configured rate or in a closed loop.
+	 */
+	public void startSending() {
+		if (closedLoop) {
+			for (LoadClient client : clients) {
+				client.send(message(System.nanoTime()));
+			}
+			return;
+		}
+		sender = new Thread(this::sendAtRate, "WsLoadGenerator-sender");
+		sender.setDaemon(true);
+		sender.start();
+	}
+
+	private void sendAtRate() {
+		int targets = config.tags > 0 ? config.tags : clients.size();
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ((long) config.rate * targets);
+		long due = System.nanoTime();
+		int next = 0;
+		while (running) {
+			long wait = due - System.nanoTime();
+			if (wait > 0) {
+				if (wait > 100000)
+					sleepNanos(wait - 50000);
+				continue;
+			}
+			String message = message(due);
+			if (config.tags > 0)
+				((WsServer) server).send("tag" + next, message);
+			else
+				clients.get(next).send(message);
+			next = (next + 1) % targets;
+			due += intervalNanos;
+		}
+	}
+
+	private static void sleepNanos(long nanos) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	String message(long timestamp) {
+		StringBuilder sb = new StringBuilder(Math.max(16, config.size));
+		String hex = Long.toHexString(timestamp);
+		for (int i = hex.length(); i < 16; i++) {
+			sb.append('0');
+		}
+		return sb.append(hex).append(padding).toString();
+	}
+
+	static long parseTimestamp(String message) {
+		return Long.parseUnsignedLong(message.substring(0, 16), 16);
+	}
+
+	List<LoadClient> getClients() {
+		return clients;
+	}
+
+	WebSocketServer getServer() {
+		return server;
+	}
+
+	/**
+	 * Collects the latencies recorded since the last call.
+	 *
+	 * @return the merged histogram of all clients.
+	 */
+	public LatencyHistogram collectInterval() {
+		LatencyHistogram merged = new LatencyHistogram();
+		for (LoadClient client : clients) {
+			merged.add(client.swapHistogram(new LatencyHistogram()));
+		}
+		return merged;
+	}
+
+	/**
+	 * @return the bytes allocated by all live threads of the JVM so far
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof ThreadMXBean))
+			return 0;
+		long[] ids = threads.getAllThreadIds();
+		long sum = 0;
+		for (long allocated : ((ThreadMXBean) threads).getThreadAllocatedBytes(ids)) {
+			if (allocated > 0)
+				sum += allocated;
+		}
+		return sum;
+	}
+
+	/**
+	 * Runs the load test for the configured duration and prints a report line
+	 * per report interval and a summary.
+	 *
+	 * @return the histogram of the whole run.
+	 * @throws InterruptedException if interrupted
+	 */
+	public LatencyHistogram run() throws InterruptedException {
+		System.out.println("WsLoadGenerator " + config);
+		LatencyHistogram total = new LatencyHistogram();
+		// warm up for one report interval
+		startSending();
+		Thread.sleep(TimeUnit.SECONDS.toMillis(Math.min(config.report, config.duration)));
+		collectInterval();
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(config.duration);
+		long allocatedStart = allocatedBytes();
+		long gcCountStart = gcCount.get();
+		long gcPauseStart = gcPauseMillis.get();
+		gcMaxPauseMillis.set(0);
+		long intervalStart = start;
+		long allocated = allocatedStart;
+		while (System.nanoTime() < end) {
+			Thread.sleep(TimeUnit.SECONDS.toMillis(config.report));
+			long now = System.nanoTime();
+			long allocatedNow = allocatedBytes();
+			LatencyHistogram interval = collectInterval();
+			total.add(interval);
+			print(String.format(Locale.ROOT, "t=%4ds", TimeUnit.NANOSECONDS.toSeconds(now - start)), interval,
+					now - intervalStart, allocatedNow - allocated);
+			intervalStart = now;
+			allocated = allocatedNow;
+		}
+		long elapsed = System.nanoTime() - start;
+		print("total ", total, elapsed, allocatedBytes() - allocatedStart);
+		System.out.println(String.format(Locale.ROOT, "gc: %d collections, %d ms paused, max pause %d ms",
+				gcCount.get() - gcCountStart, gcPauseMillis.get() - gcPauseStart, gcMaxPauseMillis.get()));
+		return total;
+	}
+
+	private void print(String label, LatencyHistogram histogram, long nanos, long allocated) {
+		double seconds = nanos / 1e9;
+		double messages = histogram.getTotalCount() / seconds;
+		System.out.println(String.format(Locale.ROOT,
+				"%s %10.0f msg/s %8.2f MB/s  latency us p50 %8.1f p99 %8.1f p999 %8.1f max %8.1f  alloc %8.1f MB/s",
+				label, messages, messages * config.size / 1e6, histogram.getValueAtPercentile(50) / 1e3,
+				histogram.getValueAtPercentile(99) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+				histogram.getMax() / 1e3, allocated / seconds / 1e6));
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		if (sender != null)
+			sender.interrupt();
+		for (NotificationEmitter emitter : gcEmitters) {
+			try {
+				emitter.removeNotificationListener(gcListener);
+			} catch (Exception e) {
+				// already removed
+			}
+		}
+		try {
+			for (LoadClient client : clients) {
+				client.closeBlocking();
+			}
+			if (clientSelector != null)
+				clientSelector.stop();
+			if (server != null)
+				server.stop(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		try (WsLoadGenerator generator = new WsLoadGenerator(Config.parse(args))) {
+			generator.start();
+			generator.run();
+		}
+	}
+
+}
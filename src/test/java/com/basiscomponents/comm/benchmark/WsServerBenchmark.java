@@ -0,0 +1,129 @@
+package com.basiscomponents.comm.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.server.WebSocketServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.basiscomponents.comm.WsServer;
+
+/**
+ * Measures the latency of a {@link WebSocketServer} and a {@link WsServer}
+ * over loopback with the clients of the {@link WsLoadGenerator}:
+ * <code>echo</code> is the round trip of a message to an echoing server,
+ * <code>fanOut</code> a {@link WsServer#send(String, String)} to a tag until
+ * every client of the tag received the message. The sample time mode reports
+ * the percentiles of the latency; add <code>-prof gc</code> for the allocation
+ * rate and the GC count.
+ *
+ * For <code>tls=true</code> set the <code>javax.net.ssl.keyStore</code> and
+ * <code>javax.net.ssl.keyStorePassword</code> system properties of the forked
+ * JVM, e.g. <code>-jvmArgsAppend -Djavax.net.ssl.keyStore=ks.jks</code>.
+ *
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.basiscomponents.comm.benchmark.WsServerBenchmark</code>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WsServerBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Echo {
+
+		@Param({ "64", "4096" })
+		private int size;
+
+		@Param({ "false" })
+		private boolean tls;
+
+		private WsLoadGenerator generator;
+
+		private WsLoadGenerator.LoadClient client;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			WsLoadGenerator.Config config = new WsLoadGenerator.Config().set("clients", "1")
+					.set("size", Integer.toString(size)).set("tls", Boolean.toString(tls));
+			generator = new WsLoadGenerator(config);
+			generator.start();
+			client = generator.getClients().get(0);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			generator.close();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FanOut {
+
+		@Param({ "256" })
+		private int size;
+
+		@Param({ "10", "100" })
+		private int clients;
+
+		@Param({ "false" })
+		private boolean tls;
+
+		private WsLoadGenerator generator;
+
+		private WsServer server;
+
+		private List<WsLoadGenerator.LoadClient> receivers;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			WsLoadGenerator.Config config = new WsLoadGenerator.Config().set("clients", Integer.toString(clients))
+					.set("tags", "1").set("size", Integer.toString(size)).set("tls", Boolean.toString(tls));
+			generator = new WsLoadGenerator(config);
+			generator.start();
+			server = (WsServer) generator.getServer();
+			receivers = generator.getClients();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			generator.close();
+		}
+	}
+
+	@Benchmark
+	public void echo(Echo state) throws InterruptedException {
+		state.client.send(state.generator.message(System.nanoTime()));
+		state.client.awaitMessages(1);
+	}
+
+	@Benchmark
+	public void fanOut(FanOut state) throws InterruptedException {
+		state.server.send("tag0", state.generator.message(System.nanoTime()));
+		for (WsLoadGenerator.LoadClient receiver : state.receivers) {
+			receiver.awaitMessages(1);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(WsServerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.basiscomponents.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class BeanBindingTest {
+
+	public static class Item {
+
+		private int id;
+
+		private String name;
+
+		private BigDecimal price;
+
+		private boolean active;
+
+		private Date created;
+
+		private Long stock;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public BigDecimal getPrice() {
+			return price;
+		}
+
+		public void setPrice(BigDecimal price) {
+			this.price = price;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public void setActive(boolean active) {
+			this.active = active;
+		}
+
+		public Date getCreated() {
+			return created;
+		}
+
+		public void setCreated(Date created) {
+			this.created = created;
+		}
+
+		public Long getStock() {
+			return stock;
+		}
+
+		public void setStock(Long stock) {
+			this.stock = stock;
+		}
+	}
+
+	// not public, bound with plain MethodHandles
+	static class Hidden {
+
+		private double value;
+
+		public double getValue() {
+			return value;
+		}
+
+		public void setValue(double value) {
+			this.value = value;
+		}
+	}
+
+	public static class NoDefaultConstructor {
+
+		public NoDefaultConstructor(int x) {
+		}
+
+		public int getX() {
+			return 1;
+		}
+	}
+
+	private static Item item(int id) {
+		Item item = new Item();
+		item.setId(id);
+		item.setName("Item " + id);
+		item.setPrice(new BigDecimal("1.50"));
+		item.setActive(id % 2 == 0);
+		item.setCreated(new Date(1000L * id));
+		item.setStock(id == 1 ? null : (long) id);
+		return item;
+	}
+
+	@Test
+	public void testFromBean() throws Exception {
+		DataRow dr = DataRow.fromBean(item(2));
+		assertEquals(Arrays.asList("active", "created", "id", "name", "price", "stock"),
+				BeanBinding.forClass(Item.class).getPropertyNames());
+		assertEquals(2, dr.getFieldValue("id"));
+		assertEquals(Types.INTEGER, dr.getFieldType("id"));
+		assertEquals("Item 2", dr.getFieldValue("name"));
+		assertEquals(Types.VARCHAR, dr.getFieldType("name"));
+		assertEquals(new BigDecimal("1.50"), dr.getFieldValue("price"));
+		assertEquals(Types.NUMERIC, dr.getFieldType("price"));
+		assertEquals(true, dr.getFieldValue("active"));
+		assertEquals(new Timestamp(2000), dr.getFieldValue("created"));
+		assertEquals(Types.TIMESTAMP, dr.getFieldType("created"));
+		assertEquals(2L, dr.getFieldValue("stock"));
+		assertEquals(Types.BIGINT, dr.getFieldType("stock"));
+	}
+
+	@Test
+	public void testToBeanConvertsValues() throws Exception {
+		DataRow dr = new DataRow();
+		dr.setFieldValue("id", Types.NUMERIC, new BigDecimal("7"));
+		dr.setFieldValue("name", Types.VARCHAR, "Seven");
+		dr.setFieldValue("price", Types.DOUBLE, 2.5);
+		dr.setFieldValue("active", Types.VARCHAR, "1");
+		dr.setFieldValue("created", Types.TIMESTAMP, new Timestamp(7000));
+		dr.setFieldValue("stock", Types.INTEGER, 70);
+		dr.setFieldValue("unknown", Types.VARCHAR, "ignored");
+
+		Item item = dr.toBean(Item.class);
+		assertEquals(7, item.getId());
+		assertEquals("Seven", item.getName());
+		assertEquals(new BigDecimal("2.5"), item.getPrice());
+		assertEquals(true, item.isActive());
+		assertEquals(7000, item.getCreated().getTime());
+		assertEquals(Long.valueOf(70), item.getStock());
+
+		DataRow nulls = new DataRow();
+		nulls.setFieldValue("id", Types.INTEGER, null);
+		nulls.setFieldValue("name", Types.VARCHAR, null);
+		item = nulls.toBean(Item.class);
+		assertEquals(0, item.getId());
+		assertNull(item.getName());
+	}
+
+	@Test
+	public void testResultSetRoundTrip() throws Exception {
+		List<Item> items = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			items.add(item(i));
+		}
+		ResultSet rs = ResultSet.fromBeans(items);
+		assertEquals(1000, rs.size());
+		assertEquals(6, rs.getColumnCount());
+		assertEquals(Types.INTEGER, rs.getColumnType(rs.getColumnIndex("id")));
+		assertEquals("Item 999", rs.get(999).getFieldValue("name"));
+		assertNull(rs.get(1).getFieldValue("stock"));
+		assertEquals(rs.get(3).toJson(), DataRow.fromBean(items.get(3)).toJson());
+
+		List<Item> beans = rs.toBeans(Item.class);
+		assertEquals(1000, beans.size());
+		for (int i = 0; i < 1000; i++) {
+			Item expected = items.get(i);
+			Item bean = beans.get(i);
+			assertEquals(expected.getId(), bean.getId());
+			assertEquals(expected.getName(), bean.getName());
+			assertEquals(expected.getPrice(), bean.getPrice());
+			assertEquals(expected.isActive(), bean.isActive());
+			assertEquals(expected.getCreated().getTime(), bean.getCreated().getTime());
+			assertEquals(expected.getStock(), bean.getStock());
+		}
+		assertEquals(0, ResultSet.fromBeans(new ArrayList<>()).size());
+	}
+
+	@Test
+	public void testToBeansWithForeignRowsAndMissingColumns() throws Exception {
+		ResultSet rs = new ResultSet();
+		// the columns in another order than the properties, without stock
+		DataRow first = new DataRow();
+		first.setFieldValue("name", Types.VARCHAR, "first");
+		first.setFieldValue("extra", Types.VARCHAR, "ignored");
+		first.setFieldValue("id", Types.INTEGER, 1);
+		rs.add(first);
+		// a row with its own ResultSet and column order
+		DataRow second = new DataRow();
+		second.setFieldValue("id", Types.INTEGER, 2);
+		second.setFieldValue("name", Types.VARCHAR, "second");
+		rs.add(second);
+		// a row of the ResultSet which lacks a field
+		DataRow third = DataRow.newInstance(rs);
+		third.setFieldValue("id", 3);
+		rs.add(third);
+
+		List<Item> beans = rs.toBeans(Item.class);
+		assertEquals(3, beans.size());
+		assertEquals(1, beans.get(0).getId());
+		assertEquals("first", beans.get(0).getName());
+		assertEquals(2, beans.get(1).getId());
+		assertEquals("second", beans.get(1).getName());
+		assertEquals(3, beans.get(2).getId());
+		assertNull(beans.get(2).getName());
+		assertNull(beans.get(0).getStock());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(rs.get(i).toBean(Item.class).getName(), beans.get(i).getName());
+		}
+	}
+
+	@Test
+	public void testNonPublicBeanAndCache() throws Exception {
+		Hidden hidden = new Hidden();
+		hidden.setValue(1.25);
+		DataRow dr = DataRow.fromBean(hidden);
+		assertEquals(1.25, dr.getFieldValue("value"));
+		assertEquals(1.25, dr.toBean(Hidden.class).getValue());
+		assertSame(BeanBinding.forClass(Hidden.class), BeanBinding.forClass(Hidden.class));
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		DataRow dr = new DataRow();
+		dr.setFieldValue("x", Types.INTEGER, 1);
+		assertThrows(IllegalArgumentException.class, () -> dr.toBean(NoDefaultConstructor.class));
+		DataRow wrong = new DataRow();
+		wrong.setFieldValue("id", Types.VARCHAR, "abc");
+		assertThrows(NumberFormatException.class, () -> wrong.toBean(Item.class));
+		wrong.setFieldValue("id", Types.OTHER, new Object());
+		assertThrows(IllegalArgumentException.class, () -> wrong.toBean(Item.class));
+	}
+
+}
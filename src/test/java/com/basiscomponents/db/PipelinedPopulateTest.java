@@ -0,0 +1,89 @@
+package com.basiscomponents.db;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class PipelinedPopulateTest {
+
+	private static final int ROWS = 1000;
+
+	private static Connection conn;
+
+	@BeforeAll
+	public static void createTable() throws Exception {
+		conn = DriverManager.getConnection("jdbc:h2:mem:pipelinedpopulate", "sa", "sa");
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE TABLE ITEMS (ID INT PRIMARY KEY, NAME VARCHAR(20), PRICE DECIMAL(10,2))");
+		}
+		try (PreparedStatement ps = conn.prepareStatement("INSERT INTO ITEMS VALUES (?, ?, ?)")) {
+			for (int i = 0; i < ROWS; i++) {
+				ps.setInt(1, i);
+				ps.setString(2, "Item " + i);
+				ps.setBigDecimal(3, new java.math.BigDecimal(i).movePointLeft(2));
+				ps.executeUpdate();
+			}
+		}
+	}
+
+	@AfterAll
+	public static void dropTable() throws Exception {
+		conn.close();
+	}
+
+	private ResultSet populate(int threads, ResultSetListener listener) throws Exception {
+		ResultSet result = new ResultSet();
+		result.setKeyColumns(new ArrayList<>(Arrays.asList("ID")));
+		if (listener != null)
+			result.registerResultSetListener(listener);
+		try (Statement stmt = conn.createStatement();
+				java.sql.ResultSet rs = stmt.executeQuery("SELECT * FROM ITEMS ORDER BY ID")) {
+			result.populate(rs, true, threads);
+		}
+		return result;
+	}
+
+	@Test
+	public void testPipelinedMatchesSerial() throws Exception {
+		ResultSet serial = populate(1, null);
+		ResultSet pipelined = populate(4, null);
+		assertEquals(ROWS, serial.size());
+		assertEquals(serial.size(), pipelined.size());
+		assertEquals(serial.getColumnNames(), pipelined.getColumnNames());
+		for (int i = 0; i < serial.size(); i++) {
+			DataRow expected = serial.get(i);
+			DataRow actual = pipelined.get(i);
+			assertEquals(i, actual.getRowID());
+			assertEquals(expected.toString(), actual.toString());
+			assertArrayEquals(expected.getRowKey().getBytes(), actual.getRowKey().getBytes());
+		}
+		assertEquals(serial.get(0).getFieldAttributes("ID"), pipelined.get(0).getFieldAttributes("ID"));
+	}
+
+	@Test
+	public void testPipelinedWithListener() throws Exception {
+		ResultSet pipelined = populate(3, dr -> {
+			try {
+				return dr.getFieldAsNumber("ID") % 2 == 0 ? dr : null;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertEquals(ROWS / 2, pipelined.size());
+		for (int i = 0; i < pipelined.size(); i++) {
+			assertEquals(i, pipelined.get(i).getRowID());
+			assertEquals(i * 2, pipelined.get(i).getFieldAsNumber("ID").intValue());
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.basiscomponents.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Types;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class ResultSetViewTest {
+
+	private ResultSet createResultSet() throws Exception {
+		ResultSet rs = new ResultSet();
+		String[] names = { "C", "A", "D", "B", "E" };
+		for (int i = 0; i < names.length; i++) {
+			DataRow dr = new DataRow();
+			dr.setFieldValue("NAME", Types.VARCHAR, names[i]);
+			dr.setFieldValue("NUM", Types.INTEGER, i);
+			rs.add(dr);
+		}
+		rs.setAttribute(0, "EDITABLE", "1");
+		return rs;
+	}
+
+	@Test
+	public void testOrderByDoesNotCopyRows() throws Exception {
+		ResultSet rs = createResultSet();
+		ResultSetView view = rs.view().orderBy("NAME");
+		assertEquals(5, view.size());
+		assertEquals("A", view.get(0).getFieldAsString("NAME"));
+		assertEquals("E", view.get(4).getFieldAsString("NAME"));
+		assertSame(rs.get(1), view.get(0));
+		assertEquals(1, view.getSourceRow(0));
+
+		ResultSetView desc = view.orderBy("NAME DESC");
+		assertEquals("E", desc.get(0).getFieldAsString("NAME"));
+		// the original order is untouched
+		assertEquals("C", rs.get(0).getFieldAsString("NAME"));
+	}
+
+	@Test
+	public void testOrderByIsStable() throws Exception {
+		ResultSet rs = new ResultSet();
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			DataRow dr = new DataRow();
+			dr.setFieldValue("GROUP", Types.INTEGER, random.nextInt(10));
+			dr.setFieldValue("NUM", Types.INTEGER, i);
+			rs.add(dr);
+		}
+		Comparator<DataRow> byGroup = Comparator.comparingInt(dr -> dr.getFieldAsNumber("GROUP").intValue());
+		ResultSetView view = rs.view().orderBy(byGroup);
+		assertEquals(1000, view.size());
+		for (int i = 1; i < view.size(); i++) {
+			int previous = view.get(i - 1).getFieldAsNumber("GROUP").intValue();
+			int group = view.get(i).getFieldAsNumber("GROUP").intValue();
+			assertTrue(previous <= group);
+			// rows of a group keep their order
+			if (previous == group)
+				assertTrue(view.getSourceRow(i - 1) < view.getSourceRow(i));
+		}
+		// sorting a sorted view again keeps it as is
+		ResultSetView again = view.orderBy(byGroup);
+		for (int i = 0; i < view.size(); i++) {
+			assertEquals(view.getSourceRow(i), again.getSourceRow(i));
+		}
+	}
+
+	@Test
+	public void testFilterAndPage() throws Exception {
+		ResultSet rs = createResultSet();
+		ResultSetView view = rs.view().orderBy("NAME").filterBy("NUM=2 OR NUM=3 OR NUM=4");
+		assertEquals(3, view.size());
+		assertEquals("B", view.get(0).getFieldAsString("NAME"));
+
+		ResultSetView page = view.subView(1, 3);
+		assertEquals(2, page.size());
+		assertEquals("D", page.get(0).getFieldAsString("NAME"));
+		assertEquals("E", page.get(1).getFieldAsString("NAME"));
+
+		DataRow condition = new DataRow();
+		condition.setFieldValue("NAME", "D");
+		assertEquals(1, view.filterBy(condition).size());
+	}
+
+	@Test
+	public void testEditIsCopyOnWrite() throws Exception {
+		ResultSet rs = createResultSet();
+		ResultSetView view = rs.view().orderBy("NAME");
+		DataRow edited = view.edit(0);
+		assertNotSame(rs.get(1), edited);
+		assertSame(edited, view.edit(0));
+		edited.setFieldValue("NAME", "Z");
+		assertEquals("Z", view.get(0).getFieldAsString("NAME"));
+		assertEquals("A", rs.get(1).getFieldAsString("NAME"));
+
+		// views derived from this view see the copy, the source doesn't
+		assertEquals("Z", view.orderBy("NAME DESC").get(0).getFieldAsString("NAME"));
+		assertEquals("E", rs.view().orderBy("NAME DESC").get(0).getFieldAsString("NAME"));
+	}
+
+	@Test
+	public void testMaterialize() throws Exception {
+		ResultSet rs = createResultSet();
+		ResultSet shallow = rs.view().orderBy("NAME").materialize();
+		assertEquals(5, shallow.size());
+		assertSame(rs.get(1), shallow.get(0));
+		assertEquals("1", shallow.getAttribute(0, "EDITABLE"));
+
+		ResultSet ordered = rs.orderBy("NAME");
+		assertNotSame(rs.get(1), ordered.get(0));
+		assertEquals("A", ordered.get(0).getFieldAsString("NAME"));
+		assertEquals("1", ordered.getAttribute(0, "EDITABLE"));
+	}
+
+	@Test
+	public void testStructuralChangeInvalidatesView() throws Exception {
+		ResultSet rs = createResultSet();
+		ResultSetView view = rs.view();
+		rs.remove(0);
+		assertThrows(ConcurrentModificationException.class, () -> view.get(0));
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.basiscomponents.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Types;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+
+public class SchemaTest {
+
+	private ResultSet createResultSet() throws Exception {
+		DataRow dr = new DataRow();
+		dr.setFieldValue("NAME", Types.VARCHAR, "a");
+		dr.setFieldValue("AMOUNT", Types.NUMERIC, 1.5);
+		ResultSet rs = new ResultSet();
+		rs.add(dr);
+		return rs;
+	}
+
+	@Test
+	public void testSchemaReflectsMetaData() throws Exception {
+		ResultSet rs = createResultSet();
+		int amount = rs.getColumnIndex("AMOUNT");
+		rs.setPrecision(amount, 10);
+		rs.setScale(amount, 2);
+		rs.setSigned(amount, true);
+		rs.setAttribute(amount, "EDITABLE", "1");
+
+		Schema schema = rs.getSchema();
+		assertEquals(2, schema.getColumnCount());
+		ColumnMetaData column = schema.getColumn("AMOUNT");
+		assertEquals(Types.NUMERIC, column.getType());
+		assertEquals(10, column.getPrecision());
+		assertEquals(2, column.getScale());
+		assertTrue(column.isSigned());
+		assertFalse(column.isReadOnly());
+		assertEquals("1", column.getAttribute("EDITABLE"));
+		assertEquals(amount, schema.getColumnIndex("AMOUNT"));
+		assertEquals(-1, schema.getColumnIndex("MISSING"));
+		assertNull(schema.getColumn("MISSING"));
+	}
+
+	@Test
+	public void testSchemaIsSharedUntilMetaDataChanges() throws Exception {
+		ResultSet rs = createResultSet();
+		Schema schema = rs.getSchema();
+		assertSame(schema, rs.getSchema());
+
+		rs.setScale(rs.getColumnIndex("AMOUNT"), 0);
+		rs.setColumnType(rs.getColumnIndex("NAME"), Types.CHAR);
+		Schema changed = rs.getSchema();
+		assertNotSame(schema, changed);
+		assertEquals(Types.VARCHAR, schema.getColumn("NAME").getType());
+		assertEquals(Types.CHAR, changed.getColumn("NAME").getType());
+	}
+
+	@Test
+	public void testColumnMetaDataMapChanges() throws Exception {
+		ResultSet rs = createResultSet();
+		assertEquals(Types.VARCHAR, rs.getColumnType(0));
+		HashMap<String, Object> colMap = rs.getColumnMetaData("NAME");
+		colMap.put("ColumnType", "1");
+		assertEquals(Types.CHAR, rs.getColumnType(0));
+
+		rs.addColumn("ADDED");
+		assertEquals(2, rs.getColumnIndex("ADDED"));
+		assertEquals(0, rs.getColumnType(2));
+		rs.removeColumn("NAME");
+		assertEquals(1, rs.getColumnIndex("ADDED"));
+		assertEquals(-1, rs.getColumnIndex("NAME"));
+	}
+
+	@Test
+	public void testEqualAttributesAreInterned() throws Exception {
+		ResultSet rs1 = createResultSet();
+		ResultSet rs2 = createResultSet();
+		assertSame(rs1.getSchema().getColumn("NAME").getAttributes(),
+				rs2.getSchema().getColumn("NAME").getAttributes());
+	}
+
+	@Test
+	public void testAttributeMapsAreAllocatedLazily() throws Exception {
+		DataRow dr = new DataRow();
+		assertNull(dr.getAttribute("BGCOLOR"));
+		assertTrue(dr.getAttributes().isEmpty());
+		dr.removeAttribute("BGCOLOR");
+
+		DataField field = new DataField("x");
+		assertNull(field.getAttribute("EDITABLE"));
+		assertTrue(field.getAttributes().isEmpty());
+		field.setValue("y");
+		field.setAttribute("EDITABLE", "1");
+		assertEquals("1", field.clone().getAttribute("EDITABLE"));
+	}
+
+}
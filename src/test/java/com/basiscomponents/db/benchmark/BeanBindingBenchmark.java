@@ -0,0 +1,139 @@
+package com.basiscomponents.db.benchmark;
+
+import com.basiscomponents.db.BeanBinding;
+import com.basiscomponents.db.DataField;
+import com.basiscomponents.db.DataRow;
+import com.basiscomponents.db.ResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-row cost of the {@link BeanBinding} conversions. The
+ * <code>manual*</code> benchmarks do the same conversions with hand-written
+ * accessor calls, as the baseline.
+ * 
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.basiscomponents.db.benchmark.BeanBindingBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanBindingBenchmark {
+
+	public static class Item {
+
+		private int id;
+
+		private String name;
+
+		private BigDecimal price;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public BigDecimal getPrice() {
+			return price;
+		}
+
+		public void setPrice(BigDecimal price) {
+			this.price = price;
+		}
+	}
+
+	private static final int ROWS = 1000;
+
+	private List<Item> items;
+
+	private ResultSet rs;
+
+	@Setup
+	public void setUp() {
+		items = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			Item item = new Item();
+			item.setId(i);
+			item.setName("Item " + i);
+			item.setPrice(new BigDecimal(i).movePointLeft(2));
+			items.add(item);
+		}
+		rs = ResultSet.fromBeans(items, Item.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public List<Item> toBeans() {
+		return rs.toBeans(Item.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public List<Item> manualToBeans() {
+		List<Item> beans = new ArrayList<>(rs.size());
+		for (DataRow dr : rs.getDataRows()) {
+			Item item = new Item();
+			item.setId((Integer) dr.getDataField("id").getValue());
+			item.setName((String) dr.getDataField("name").getValue());
+			item.setPrice((BigDecimal) dr.getDataField("price").getValue());
+			beans.add(item);
+		}
+		return beans;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public ResultSet fromBeans() {
+		return ResultSet.fromBeans(items, Item.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public ResultSet manualFromBeans() throws Exception {
+		ResultSet result = new ResultSet();
+		for (Item item : items) {
+			DataRow dr = new DataRow();
+			dr.addDataField("id", java.sql.Types.INTEGER, new DataField(item.getId()));
+			dr.addDataField("name", java.sql.Types.VARCHAR, new DataField(item.getName()));
+			dr.addDataField("price", java.sql.Types.NUMERIC, new DataField(item.getPrice()));
+			result.add(dr);
+		}
+		return result;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(BeanBindingBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.basiscomponents.db.benchmark;
+
+import com.basiscomponents.db.util.DataFieldConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-value cost of {@link DataFieldConverter#convertType(Object, int)}.
+ * The <code>legacy*</code> benchmarks replay the former class name based
+ * dispatch (eager <code>getName()</code>/<code>toString()</code> and string
+ * comparisons) for the same inputs, as the baseline.
+ * 
+ * Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.basiscomponents.db.benchmark.DataFieldConverterBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataFieldConverterBenchmark {
+
+	private Object integerValue = 4711;
+	private Object doubleValue = 47.11;
+	private Object stringValue = "4711";
+
+	@Benchmark
+	public Object integerToInteger() {
+		return DataFieldConverter.convertType(integerValue, Types.INTEGER);
+	}
+
+	@Benchmark
+	public Object doubleToInteger() {
+		return DataFieldConverter.convertType(doubleValue, Types.INTEGER);
+	}
+
+	@Benchmark
+	public Object stringToInteger() {
+		return DataFieldConverter.convertType(stringValue, Types.INTEGER);
+	}
+
+	@Benchmark
+	public Object integerToVarchar() {
+		return DataFieldConverter.convertType(integerValue, Types.VARCHAR);
+	}
+
+	@Benchmark
+	public Object stringToVarchar() {
+		return DataFieldConverter.convertType(stringValue, Types.VARCHAR);
+	}
+
+	@Benchmark
+	public Object legacyIntegerToInteger() {
+		return legacyConvert(integerValue, Types.INTEGER);
+	}
+
+	@Benchmark
+	public Object legacyDoubleToInteger() {
+		return legacyConvert(doubleValue, Types.INTEGER);
+	}
+
+	@Benchmark
+	public Object legacyStringToInteger() {
+		return legacyConvert(stringValue, Types.INTEGER);
+	}
+
+	@Benchmark
+	public Object legacyIntegerToVarchar() {
+		return legacyConvert(integerValue, Types.VARCHAR);
+	}
+
+	@Benchmark
+	public Object legacyStringToVarchar() {
+		return legacyConvert(stringValue, Types.VARCHAR);
+	}
+
+	/*
+	 * The INTEGER and VARCHAR branches of the former convertType implementation.
+	 */
+	private static Object legacyConvert(Object o, int targetType) {
+		String classname = o.getClass().getName();
+		String tmpstr = o.toString();
+
+		if (classname.contains("DataField")) {
+			throw new IllegalArgumentException("Setting a DataField into a DataField is not supported");
+		}
+
+		switch (targetType) {
+		case Types.VARCHAR:
+			if (classname.equals("java.lang.Boolean"))
+				return (Boolean) o ? "1" : "0";
+			if (classname.equals("java.math.BigDecimal"))
+				return ((java.math.BigDecimal) o).stripTrailingZeros().toPlainString();
+			if (!classname.equals("java.lang.String"))
+				return o.toString();
+			else
+				return o;
+		case Types.INTEGER:
+			if (classname.equals("java.lang.Integer"))
+				return o;
+			if (classname.equals("java.lang.Boolean"))
+				return (Boolean) o ? 1 : 0;
+			if (classname.equals("java.lang.Double"))
+				return ((Double) o).intValue();
+			if (tmpstr.isEmpty())
+				tmpstr = "0";
+			return (Integer.parseInt(tmpstr));
+		default:
+			return o;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DataFieldConverterBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,124 @@
+package com.basiscomponents.db.datarowtest;
+
+import com.basiscomponents.db.ColumnHandle;
+import com.basiscomponents.db.DataRow;
+import com.basiscomponents.db.ResultSet;
+import com.basiscomponents.db.exception.DataFieldNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrimitiveAccessTest {
+
+	@Test
+	public void setAndGetPrimitivesByName() {
+		DataRow dr = new DataRow();
+		dr.setInt("QTY", 3);
+		dr.setLong("ID", 4711L);
+		dr.setDouble("PRICE", 9.95);
+		dr.setBoolean("ACTIVE", true);
+
+		assertEquals(Types.INTEGER, dr.getFieldType("QTY"));
+		assertEquals(Types.BIGINT, dr.getFieldType("ID"));
+		assertEquals(Types.DOUBLE, dr.getFieldType("PRICE"));
+		assertEquals(Types.BOOLEAN, dr.getFieldType("ACTIVE"));
+
+		assertEquals(3, dr.getInt(dr.getColumnIndex("QTY")));
+		assertEquals(4711L, dr.getLong(dr.getColumnIndex("ID")));
+		assertEquals(9.95, dr.getDouble(dr.getColumnIndex("PRICE")));
+		assertTrue(dr.getBoolean(dr.getColumnIndex("ACTIVE")));
+	}
+
+	@Test
+	public void setConvertsToColumnType() throws Exception {
+		DataRow dr = new DataRow();
+		dr.setFieldValue("PRICE", Types.NUMERIC, new BigDecimal("1.5"));
+		dr.setDouble("PRICE", 2.25);
+		assertEquals(new BigDecimal("2.25"), dr.getField("PRICE").getBigDecimal());
+		assertEquals(2.25, dr.getDouble(dr.getColumnHandle("PRICE")));
+	}
+
+	@Test
+	public void handleAccessOverResultSet() throws Exception {
+		ResultSet rs = new ResultSet();
+		for (int i = 0; i < 3; i++) {
+			DataRow dr = new DataRow(rs);
+			dr.setInt("QTY", i);
+			dr.setDouble("PRICE", i * 1.5);
+			rs.add(dr);
+		}
+
+		ColumnHandle qty = rs.getColumnHandle("QTY");
+		ColumnHandle price = rs.getColumnHandle("PRICE");
+		double total = 0;
+		rs.beforeFirst();
+		while (rs.next()) {
+			rs.setDouble(price, rs.getDouble(price) * 2);
+			total += rs.getInt(qty) * rs.getDouble(price);
+		}
+		assertEquals(15.0, total);
+		assertEquals(6.0, rs.get(2).getDouble(price));
+	}
+
+	@Test
+	public void nullAndStringValues() throws Exception {
+		DataRow dr = new DataRow();
+		dr.setFieldValue("N", Types.INTEGER, null);
+		dr.setFieldValue("S", "12.5");
+		assertEquals(0, dr.getInt(dr.getColumnHandle("N")));
+		assertFalse(dr.getBoolean(dr.getColumnHandle("N")));
+		assertEquals(12.5, dr.getDouble(dr.getColumnHandle("S")));
+		assertThrows(DataFieldNotFoundException.class, () -> dr.getColumnHandle("MISSING"));
+	}
+
+	@Test
+	public void handlesAreCachedAndFollowColumnChanges() throws Exception {
+		ResultSet rs = new ResultSet();
+		DataRow first = new DataRow(rs);
+		first.setInt("A", 1);
+		first.setInt("B", 2);
+		first.setInt("C", 3);
+		rs.add(first);
+		DataRow second = new DataRow(rs);
+		second.setInt("A", 10);
+		second.setInt("B", 20);
+		second.setInt("C", 30);
+		rs.add(second);
+
+		ColumnHandle c = rs.getColumnHandle("C");
+		assertSame(c, rs.getColumnHandle("C"));
+		assertSame(c, first.getColumnHandle("C"));
+		assertEquals(3, first.getInt(c));
+		assertEquals(30, second.getInt(c));
+
+		// a changed type is a new handle
+		rs.setColumnType(2, Types.BIGINT);
+		ColumnHandle bigint = rs.getColumnHandle("C");
+		assertNotSame(c, bigint);
+		assertEquals(Types.BIGINT, bigint.getType());
+
+		// a column added by one row
+		second.setInt("D", 40);
+		assertEquals(40, second.getInt(rs.getColumnHandle("D")));
+		assertThrows(DataFieldNotFoundException.class, () -> first.getInt(rs.getColumnHandle("D")));
+		first.setInt(rs.getColumnHandle("D"), 4);
+		assertEquals(4, first.getInt(rs.getColumnHandle("D")));
+
+		// removing a column moves the following ones, the handles are re-resolved
+		first.removeField("A");
+		c = rs.getColumnHandle("C");
+		assertEquals(1, c.getColumn());
+		assertEquals(3, first.getInt(c));
+		assertEquals(30, second.getInt(c));
+		assertEquals(40, second.getInt(rs.getColumnHandle("D")));
+	}
+
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 import java.sql.Types;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class DataFieldConverterTest {
     @Test
@@ -20,4 +22,25 @@ public class DataFieldConverterTest {
         java.sql.Timestamp ts = (java.sql.Timestamp) DataFieldConverter.convertType(timestamp, Types.TIMESTAMP);
 
     }
+
+    @Test
+    public void testIdentityConversionReturnsSameInstance() {
+        Integer i = 4711;
+        String s = "4711";
+        java.math.BigDecimal bd = new java.math.BigDecimal("47.110");
+        assertSame(i, DataFieldConverter.convertType(i, Types.INTEGER));
+        assertSame(s, DataFieldConverter.convertType(s, Types.VARCHAR));
+        assertSame(bd, DataFieldConverter.convertType(bd, Types.NUMERIC));
+    }
+
+    @Test
+    public void testConversionIsStableAcrossCalls() {
+        // the converter table is resolved per class, make sure it is not mixed up between targets
+        assertEquals(1, DataFieldConverter.convertType(true, Types.INTEGER));
+        assertEquals("1", DataFieldConverter.convertType(true, Types.VARCHAR));
+        assertEquals(1.0, DataFieldConverter.convertType(true, Types.DOUBLE));
+        assertEquals(0, DataFieldConverter.convertType("", Types.INTEGER));
+        assertEquals(0.0, DataFieldConverter.convertType("", Types.DOUBLE));
+        assertFalse(DataFieldConverter.isBBjNumber(Double.class));
+    }
 }
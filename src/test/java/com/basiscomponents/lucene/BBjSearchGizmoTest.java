@@ -0,0 +1,200 @@
+package com.basiscomponents.lucene;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BBjSearchGizmoTest {
+
+	private static final String[] FIELDS = { "name", "city" };
+
+	private Path directory;
+
+	@BeforeEach
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("BBjSearchGizmoTest");
+	}
+
+	@AfterEach
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	private static BBjSearchGizmoDoc doc(String id, String name, String city) {
+		BBjSearchGizmoDoc doc = new BBjSearchGizmoDoc(id);
+		doc.addField("name", name);
+		doc.addField("city", city);
+		return doc;
+	}
+
+	private int committedDocs() throws IOException {
+		try (FSDirectory dir = FSDirectory.open(directory);
+				DirectoryReader reader = DirectoryReader.open(dir)) {
+			return reader.numDocs();
+		}
+	}
+
+	@Test
+	public void testSearchSeesUncommittedChanges() throws Exception {
+		try (BBjSearchGizmo gizmo = new BBjSearchGizmo(directory.toString())) {
+			gizmo.setCommitInterval(0);
+			gizmo.addDocument(doc("1", "Alice Smith", "Boston"));
+			gizmo.addDocument(doc("2", "Bob Jones", "Denver"));
+			assertEquals(Arrays.asList("1"), gizmo.doSearch("alice", FIELDS));
+			assertEquals(Arrays.asList("2"), gizmo.doSearch("Denver", FIELDS));
+
+			// the id is the update term, the old document is replaced
+			gizmo.addDocument(doc("1", "Alice Miller", "Chicago"));
+			assertEquals(Collections.emptyList(), gizmo.doSearch("smith", FIELDS));
+			assertEquals(Arrays.asList("1"), gizmo.doSearch("chicago", FIELDS));
+
+			gizmo.removeDocument("2");
+			assertEquals(Collections.emptyList(), gizmo.doSearch("bob", FIELDS));
+			assertEquals(Arrays.asList("1"), gizmo.doSearch("*i*", FIELDS));
+
+			assertEquals(0, committedDocs());
+			gizmo.commit();
+			assertEquals(1, committedDocs());
+		}
+	}
+
+	@Test
+	public void testCloseCommits() throws Exception {
+		BBjSearchGizmo gizmo = new BBjSearchGizmo(directory.toString());
+		gizmo.setCommitInterval(0);
+		for (int i = 0; i < 100; i++) {
+			gizmo.addDocument(doc(String.valueOf(i), "Name" + i, "City"));
+		}
+		gizmo.close();
+		gizmo.close();
+		assertThrows(IllegalStateException.class, () -> gizmo.doSearch("city", FIELDS));
+		assertEquals(100, committedDocs());
+
+		try (BBjSearchGizmo reopened = new BBjSearchGizmo(directory.toString())) {
+			assertEquals(100, reopened.doSearch("city", FIELDS).size());
+			assertEquals(Arrays.asList("42"), reopened.doSearch("name42", FIELDS));
+		}
+	}
+
+	@Test
+	public void testPeriodicCommit() throws Exception {
+		try (BBjSearchGizmo gizmo = new BBjSearchGizmo(directory.toString())) {
+			gizmo.setCommitInterval(20);
+			gizmo.addDocument(doc("1", "Alice", "Boston"));
+			long deadline = System.currentTimeMillis() + 5000;
+			while (committedDocs() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, committedDocs());
+		}
+	}
+
+	@Test
+	public void testGizmosShareTheWriter() throws Exception {
+		BBjSearchGizmo first = new BBjSearchGizmo(directory.toString());
+		BBjSearchGizmo second = new BBjSearchGizmo(directory.toString() + "/.");
+		first.setCommitInterval(0);
+		first.addDocument(doc("1", "Alice", "Boston"));
+		second.addDocument(doc("2", "Bob", "Boston"));
+		assertEquals(2, first.doSearch("boston", FIELDS).size());
+
+		first.close();
+		assertEquals(2, second.doSearch("boston", FIELDS).size());
+		assertEquals(0, committedDocs());
+		second.close();
+		assertEquals(2, committedDocs());
+	}
+
+	@Test
+	public void testConcurrentSearch() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (BBjSearchGizmo gizmo = new BBjSearchGizmo(directory.toString())) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 2; t++) {
+				int offset = t * 500;
+				futures.add(executor.submit(() -> {
+					for (int i = offset; i < offset + 500; i++) {
+						gizmo.addDocument(doc(String.valueOf(i), "Name" + i, "Springfield"));
+					}
+					return null;
+				}));
+				futures.add(executor.submit(() -> {
+					int last = 0;
+					for (int i = 0; i < 50; i++) {
+						int hits = gizmo.doSearch("springfield", FIELDS).size();
+						assertTrue(hits <= 1000);
+						last = hits;
+					}
+					return last;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			assertEquals(1000, gizmo.doSearch("springfield", FIELDS).size());
+			assertEquals(Arrays.asList("777"), gizmo.doSearch("name777", FIELDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSearchAfterWriteWhileRefreshing() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		try (BBjSearchGizmo gizmo = new BBjSearchGizmo(directory.toString())) {
+			gizmo.setCommitInterval(0);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 2; t++) {
+				int offset = t * 300;
+				// each document is searched right after it was written
+				futures.add(executor.submit(() -> {
+					try {
+						for (int i = offset; i < offset + 300; i++) {
+							gizmo.addDocument(doc(String.valueOf(i), "Name" + i, "Shelbyville"));
+							assertEquals(Arrays.asList(String.valueOf(i)), gizmo.doSearch("name" + i, FIELDS));
+						}
+					} finally {
+						writing.set(false);
+					}
+					return null;
+				}));
+				// and the other threads refresh the searcher meanwhile
+				futures.add(executor.submit(() -> {
+					while (writing.get()) {
+						gizmo.doSearch("shelbyville", FIELDS);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.basiscomponents.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.basiscomponents.db.DataRow;
+import com.basiscomponents.db.ResultSet;
+import com.basiscomponents.db.util.ResultSetJsonMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class RestClientTest {
+
+	private HttpServer server;
+
+	private ExecutorService serverExecutor;
+
+	private ResultSet records;
+
+	private boolean totalCount;
+
+	private final List<Integer> ports = new CopyOnWriteArrayList<>();
+
+	private final List<String> encodings = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@BeforeEach
+	public void startServer() throws Exception {
+		records = new ResultSet();
+		for (int i = 0; i < 1050; i++) {
+			DataRow dr = new DataRow();
+			dr.setFieldValue("ID", i);
+			dr.setFieldValue("NAME", "Name ä " + i);
+			records.add(dr);
+		}
+		serverExecutor = Executors.newFixedThreadPool(8);
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/records", this::handle);
+		server.setExecutor(serverExecutor);
+		server.start();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		int n = inFlight.incrementAndGet();
+		maxInFlight.accumulateAndGet(n, Math::max);
+		try {
+			ports.add(exchange.getRemoteAddress().getPort());
+			Map<String,String> parms = new HashMap<>();
+			String query = exchange.getRequestURI().getQuery();
+			if (query != null) {
+				for (String parm : query.split("&")) {
+					String[] pair = parm.split("=", 2);
+					parms.put(pair[0], pair.length > 1 ? pair[1] : "");
+				}
+			}
+			if (parms.containsKey("fail")) {
+				byte[] bytes = "{\"error\":\"failed\"}".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(500, bytes.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+				return;
+			}
+
+			int offset = Integer.parseInt(parms.getOrDefault("offset", "0"));
+			int limit = Integer.parseInt(parms.getOrDefault("limit", String.valueOf(records.size())));
+			ResultSet page = new ResultSet();
+			for (int i = offset; i < Math.min(records.size(), offset + limit); i++) {
+				page.add(records.get(i));
+			}
+			// give the client the time to send the next requests
+			Thread.sleep(20);
+
+			byte[] bytes = page.toJson(true).getBytes(StandardCharsets.UTF_8);
+			String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			encodings.add(String.valueOf(encoding));
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+			if (totalCount)
+				exchange.getResponseHeaders().set("X-Total-Count", String.valueOf(records.size()));
+			if ("gzip".equals(encoding)) {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				try (OutputStream out = new GZIPOutputStream(compressed)) {
+					out.write(bytes);
+				}
+				bytes = compressed.toByteArray();
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		} catch (IOException e) {
+			throw e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			throw new IOException(e);
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	private RestClient createClient() {
+		RestClient client = new RestClient();
+		client.setEndpoint("http://localhost:" + server.getAddress().getPort());
+		client.setUsername("admin");
+		client.setPassword("admin123");
+		return client;
+	}
+
+	private static void assertSameRecords(ResultSet expected, ResultSet actual) throws Exception {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getFieldAsNumber("ID"), actual.get(i).getFieldAsNumber("ID"));
+			assertEquals(expected.get(i).getFieldAsString("NAME"), actual.get(i).getFieldAsString("NAME"));
+		}
+	}
+
+	@Test
+	public void testGet() throws Exception {
+		RestClient client = createClient();
+		ResultSet rs = client.get("/records", "offset=0&limit=10");
+		ResultSet expected = new ResultSet();
+		for (DataRow dr : ResultSetJsonMapper.fromJson(records.toJson(true)).getDataRows().subList(0, 10)) {
+			expected.add(dr);
+		}
+		assertSameRecords(expected, rs);
+		assertEquals(expected.getColumnNames(), rs.getColumnNames());
+		assertEquals("gzip", encodings.get(0));
+
+		client.setGzip(false);
+		assertSameRecords(rs, client.get("/records", "offset=0&limit=10"));
+		assertEquals("null", encodings.get(1));
+	}
+
+	@Test
+	public void testGetKeepsTheConnectionAlive() throws Exception {
+		RestClient client = createClient();
+		for (int i = 0; i < 5; i++) {
+			assertEquals(10, client.get("/records", "offset=" + (i * 10) + "&limit=10").size());
+		}
+		assertEquals(1, ports.stream().distinct().count(), "ports " + ports);
+
+		// an error response is read, the connection stays usable
+		assertThrows(RuntimeException.class, () -> client.get("/records", "fail"));
+		assertEquals(10, client.get("/records", "offset=0&limit=10").size());
+		assertEquals(1, ports.stream().distinct().count(), "ports " + ports);
+	}
+
+	@Test
+	public void testGetEmpty() throws Exception {
+		ResultSet rs = createClient().get("/records", "offset=2000&limit=10");
+		assertEquals(0, rs.size());
+	}
+
+	@Test
+	public void testGetPagedWithTotalCount() throws Exception {
+		totalCount = true;
+		RestClient client = createClient();
+		client.setMaxConcurrentRequests(3);
+		ResultSet rs = client.getPaged("/records", null, 100);
+		assertSameRecords(records, rs);
+		assertEquals(11, ports.size());
+		assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+		assertTrue(maxInFlight.get() > 1, "max in flight " + maxInFlight.get());
+	}
+
+	@Test
+	public void testGetPagedWithoutTotalCount() throws Exception {
+		RestClient client = createClient();
+		client.setMaxConcurrentRequests(2);
+		ResultSet rs = client.getPaged("/records", null, 100);
+		assertSameRecords(records, rs);
+		// at most one request is sent after the short page
+		assertTrue(ports.size() <= 12, "requests " + ports.size());
+		assertTrue(maxInFlight.get() <= 2, "max in flight " + maxInFlight.get());
+	}
+
+	@Test
+	public void testGetPagedSinglePage() throws Exception {
+		totalCount = true;
+		ResultSet rs = createClient().getPaged("/records", null, 2000);
+		assertSameRecords(records, rs);
+		assertEquals(1, ports.size());
+	}
+
+	@Test
+	public void testGetPagedCustomParameters() throws Exception {
+		RestClient client = createClient();
+		client.setPagingParameters("skip", "top");
+		// the server ignores the unknown parameters and returns all records
+		ResultSet rs = client.getPaged("/records", "x=1", 2000);
+		assertSameRecords(records, rs);
+		assertThrows(IllegalArgumentException.class, () -> client.getPaged("/records", null, 0));
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.basiscomponents.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class HttpHelperTest {
+
+	@Test
+	public void testGetCharset() {
+		assertEquals(StandardCharsets.ISO_8859_1, HttpHelper.getCharset("text/plain; charset=ISO-8859-1", StandardCharsets.UTF_8));
+		assertEquals(StandardCharsets.UTF_16, HttpHelper.getCharset("application/json;Charset=\"utf-16\"; x=y", StandardCharsets.UTF_8));
+		assertEquals(StandardCharsets.UTF_8, HttpHelper.getCharset("application/json", StandardCharsets.UTF_8));
+		assertEquals(StandardCharsets.UTF_8, HttpHelper.getCharset(null, StandardCharsets.UTF_8));
+		assertEquals(StandardCharsets.US_ASCII, HttpHelper.getCharset("text/plain; charset=no-such-charset", StandardCharsets.US_ASCII));
+		assertEquals(StandardCharsets.US_ASCII, HttpHelper.getCharset("text/plain; charset=", StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void testDaemonThreadPool() throws Exception {
+		ExecutorService executor = HttpHelper.newDaemonThreadPool("HttpHelperTest");
+		try {
+			Thread thread = executor.submit(Thread::currentThread).get();
+			assertTrue(thread.isDaemon());
+			assertEquals("HttpHelperTest-1", thread.getName());
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.java_websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.handshake.Handshakedata;
+
+/**
+ * A listener which records the callbacks of websockets driven by the tests without a socket: the bytes read are fed
+ * to {@link WebSocketImpl#decode(ByteBuffer)}, the bytes written are taken from the outQueue.
+ */
+public class RecordingWebSocketListener extends WebSocketAdapter {
+
+	public final List<String> messages = new CopyOnWriteArrayList<>();
+
+	public final List<ByteBuffer> binaryMessages = new CopyOnWriteArrayList<>();
+
+	public final List<Framedata> fragments = new CopyOnWriteArrayList<>();
+
+	public final List<Boolean> writabilityChanges = new CopyOnWriteArrayList<>();
+
+	public final List<Exception> errors = new CopyOnWriteArrayList<>();
+
+	public final List<Integer> closeCodes = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Opens a server websocket with a client handshake
+	 *
+	 * @param listener   the listener of the websocket
+	 * @param draft      the draft of the server
+	 * @param extensions the Sec-WebSocket-Extensions offered by the client, null for none
+	 * @return the open websocket, the handshake response has been taken off the outQueue
+	 */
+	public static WebSocketImpl openServer( WebSocketListener listener, Draft draft, String extensions ) {
+		List<Draft> drafts = new ArrayList<>();
+		drafts.add( draft == null ? new Draft_6455() : draft );
+		WebSocketImpl conn = new WebSocketImpl( listener, drafts );
+		String handshake = "GET /test HTTP/1.1\r\n" +
+				"Host: localhost\r\n" +
+				"Upgrade: websocket\r\n" +
+				"Connection: Upgrade\r\n" +
+				"Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+				"Sec-WebSocket-Version: 13\r\n" +
+				( extensions == null ? "" : "Sec-WebSocket-Extensions: " + extensions + "\r\n" ) +
+				"\r\n";
+		conn.decode( ByteBuffer.wrap( handshake.getBytes( StandardCharsets.US_ASCII ) ) );
+		if( !conn.isOpen() ) {
+			throw new IllegalStateException( "the handshake failed" );
+		}
+		written( conn );
+		return conn;
+	}
+
+	/**
+	 * Takes the queued buffers off the outQueue, as a channel write would
+	 *
+	 * @param conn the websocket
+	 * @return the bytes which were queued
+	 */
+	public static byte[] written( WebSocketImpl conn ) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		synchronized( conn.outQueueLock ) {
+			ByteBuffer buffer;
+			while( ( buffer = conn.outQueue.poll() ) != null ) {
+				int remaining = buffer.remaining();
+				byte[] bytes = new byte[remaining];
+				buffer.duplicate().get( bytes );
+				out.write( bytes, 0, remaining );
+				conn.onBytesWritten( remaining );
+				conn.getBufferPool().release( buffer );
+			}
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public void onWebsocketMessage( WebSocket conn, String message ) {
+		messages.add( message );
+	}
+
+	@Override
+	public void onWebsocketMessage( WebSocket conn, ByteBuffer blob ) {
+		binaryMessages.add( blob );
+	}
+
+	@Override
+	public void onWebsocketMessageFragment( WebSocket conn, Framedata frame ) {
+		fragments.add( frame );
+	}
+
+	@Override
+	public void onWebsocketOpen( WebSocket conn, Handshakedata d ) {
+	}
+
+	@Override
+	public void onWebsocketClose( WebSocket ws, int code, String reason, boolean remote ) {
+		closeCodes.add( code );
+	}
+
+	@Override
+	public void onWebsocketClosing( WebSocket ws, int code, String reason, boolean remote ) {
+	}
+
+	@Override
+	public void onWebsocketCloseInitiated( WebSocket ws, int code, String reason ) {
+	}
+
+	@Override
+	public void onWebsocketError( WebSocket conn, Exception ex ) {
+		errors.add( ex );
+	}
+
+	@Override
+	public void onWebsocketWritabilityChanged( WebSocket conn, boolean writable ) {
+		writabilityChanges.add( writable );
+	}
+
+	@Override
+	public void onWriteDemand( WebSocket conn ) {
+	}
+
+	@Override
+	public InetSocketAddress getLocalSocketAddress( WebSocket conn ) {
+		return null;
+	}
+
+	@Override
+	public InetSocketAddress getRemoteSocketAddress( WebSocket conn ) {
+		return null;
+	}
+
+}
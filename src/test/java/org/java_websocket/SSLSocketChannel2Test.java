@@ -0,0 +1,473 @@
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.client.WebSocketClientSelector;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.DefaultSSLWebSocketServerFactory;
+import org.java_websocket.server.WebSocketServer;
+import org.java_websocket.util.ByteBufferPool;
+import org.java_websocket.util.DirectByteBufferPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class SSLSocketChannel2Test {
+
+	private static SSLContext sslContext;
+
+	private static ExecutorService exec;
+
+	/**
+	 * Creates a context which trusts its own self-signed certificate, the key pair is generated by the keytool of the
+	 * running JDK
+	 */
+	@BeforeAll
+	public static void createSSLContext() throws Exception {
+		File keystore = File.createTempFile( "SSLSocketChannel2Test", ".p12" );
+		keystore.delete();
+		try {
+			String keytool = System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "keytool";
+			Process process = new ProcessBuilder( keytool, "-genkeypair", "-alias", "test", "-keyalg", "RSA", "-keysize", "2048",
+					"-dname", "CN=localhost", "-validity", "1", "-storetype", "PKCS12", "-keystore", keystore.getPath(),
+					"-storepass", "password", "-keypass", "password" ).redirectErrorStream( true ).start();
+			while( process.getInputStream().read() != -1 ) {
+			}
+			assertEquals( 0, process.waitFor() );
+			KeyStore ks = KeyStore.getInstance( "PKCS12" );
+			try( InputStream in = new FileInputStream( keystore ) ) {
+				ks.load( in, "password".toCharArray() );
+			}
+			KeyManagerFactory kmf = KeyManagerFactory.getInstance( KeyManagerFactory.getDefaultAlgorithm() );
+			kmf.init( ks, "password".toCharArray() );
+			TrustManagerFactory tmf = TrustManagerFactory.getInstance( TrustManagerFactory.getDefaultAlgorithm() );
+			tmf.init( ks );
+			sslContext = SSLContext.getInstance( "TLS" );
+			sslContext.init( kmf.getKeyManagers(), tmf.getTrustManagers(), null );
+		} finally {
+			keystore.delete();
+		}
+		exec = Executors.newSingleThreadExecutor();
+	}
+
+	@AfterAll
+	public static void shutdown() {
+		exec.shutdown();
+	}
+
+	/**
+	 * A pool which counts the buffers which have not been released yet
+	 */
+	private static class CountingPool implements ByteBufferPool {
+
+		final DirectByteBufferPool pool = new DirectByteBufferPool( 64, 64 * 1024, 1024 * 1024 );
+
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		@Override
+		public ByteBuffer acquire( int capacity ) {
+			outstanding.incrementAndGet();
+			return pool.acquire( capacity );
+		}
+
+		@Override
+		public ByteBuffer retain( ByteBuffer buffer ) {
+			outstanding.incrementAndGet();
+			return pool.retain( buffer );
+		}
+
+		@Override
+		public void release( ByteBuffer buffer ) {
+			outstanding.decrementAndGet();
+			pool.release( buffer );
+		}
+	}
+
+	/**
+	 * One end of a loopback connection
+	 */
+	private static class End {
+
+		final SSLEngine engine;
+
+		final SocketChannel socket;
+
+		SSLSocketChannel2 channel;
+
+		final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+		final ByteBuffer readBuffer = ByteBuffer.allocate( 4096 );
+
+		End( SocketChannel socket, boolean client ) throws Exception {
+			this.socket = socket;
+			engine = sslContext.createSSLEngine( "localhost", 0 );
+			engine.setUseClientMode( client );
+			socket.configureBlocking( false );
+		}
+
+		void open( ByteBufferPool pool ) throws Exception {
+			channel = new SSLSocketChannel2( socket, engine, exec, null, pool );
+		}
+
+		boolean isHandshakeComplete() {
+			HandshakeStatus status = engine.getHandshakeStatus();
+			return status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED;
+		}
+
+		/**
+		 * Continues the handshake or writes pending data and reads what has arrived, as the selector of a server does
+		 */
+		void pump() throws Exception {
+			if( channel.isNeedWrite() ) {
+				channel.writeMore();
+			}
+			read();
+		}
+
+		void read() throws Exception {
+			readBuffer.clear();
+			int read = channel.read( readBuffer );
+			while( read > 0 ) {
+				received.write( readBuffer.array(), 0, read );
+				readBuffer.clear();
+				read = channel.isNeedRead() ? channel.readMore( readBuffer ) : 0;
+			}
+		}
+	}
+
+	private End client;
+
+	private End server;
+
+	private ServerSocketChannel listener;
+
+	private void connect() throws Exception {
+		connect( DirectByteBufferPool.getDefault() );
+	}
+
+	private void connect( ByteBufferPool pool ) throws Exception {
+		listener = ServerSocketChannel.open();
+		listener.bind( new InetSocketAddress( "localhost", 0 ) );
+		SocketChannel clientSocket = SocketChannel.open( listener.getLocalAddress() );
+		// a small send buffer, so a large write does not fit into the socket at once
+		clientSocket.setOption( StandardSocketOptions.SO_SNDBUF, 8192 );
+		// the records written one after the other are sent without waiting for an acknowledgement
+		clientSocket.setOption( StandardSocketOptions.TCP_NODELAY, true );
+		SocketChannel serverSocket = listener.accept();
+		client = new End( clientSocket, true );
+		server = new End( serverSocket, false );
+		client.open( pool );
+		server.open( pool );
+	}
+
+	@AfterEach
+	public void disconnect() throws Exception {
+		if( client != null ) {
+			client.socket.close();
+			server.socket.close();
+			listener.close();
+		}
+	}
+
+	private interface Condition {
+		boolean isMet() throws Exception;
+	}
+
+	private static void await( Condition condition, Runnable step ) throws Exception {
+		long timeout = System.currentTimeMillis() + 10000;
+		while( !condition.isMet() ) {
+			if( System.currentTimeMillis() > timeout ) {
+				fail( "timed out" );
+			}
+			step.run();
+			Thread.sleep( 1 );
+		}
+	}
+
+	private interface Step {
+		void run() throws Exception;
+	}
+
+	private static Runnable step( final Step step ) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					step.run();
+				} catch ( Exception e ) {
+					throw new IllegalStateException( e );
+				}
+			}
+		};
+	}
+
+	private void handshake() throws Exception {
+		await( () -> client.isHandshakeComplete() && server.isHandshakeComplete(), step( () -> {
+			client.pump();
+			server.pump();
+		} ) );
+	}
+
+	/**
+	 * Completes the handshake of the client, while the server stops once it waits for the last message of the client.
+	 * So the server has not read the last message of the client yet.
+	 */
+	private void finishClientHandshake() throws Exception {
+		await( client::isHandshakeComplete, step( () -> {
+			// the server has a handshake session once it read the hello of the client
+			if( server.engine.getHandshakeSession() == null || server.engine.getHandshakeStatus() != HandshakeStatus.NEED_UNWRAP ) {
+				server.pump();
+			}
+			client.pump();
+		} ) );
+	}
+
+	private static byte[] bytes( String s ) {
+		return s.getBytes( StandardCharsets.US_ASCII );
+	}
+
+	@Test
+	public void testHandshakeAndTransfer() throws Exception {
+		connect();
+		handshake();
+		client.channel.write( ByteBuffer.wrap( bytes( "hello" ) ) );
+		await( () -> server.received.size() == 5, step( server::pump ) );
+		assertArrayEquals( bytes( "hello" ), server.received.toByteArray() );
+
+		server.channel.write( ByteBuffer.wrap( bytes( "world" ) ) );
+		await( () -> client.received.size() == 5, step( client::pump ) );
+		assertArrayEquals( bytes( "world" ), client.received.toByteArray() );
+	}
+
+	/**
+	 * Idle channels keep no buffer, closing does not keep the buffer of the close_notify
+	 */
+	@Test
+	public void testBuffersAreReleased() throws Exception {
+		CountingPool pool = new CountingPool();
+		connect( pool );
+		handshake();
+		client.channel.write( ByteBuffer.wrap( bytes( "hello" ) ) );
+		await( () -> server.received.size() == 5, step( server::pump ) );
+		server.channel.write( ByteBuffer.wrap( bytes( "world" ) ) );
+		await( () -> client.received.size() == 5, step( client::pump ) );
+		assertEquals( 0, pool.outstanding.get() );
+		assertTrue( pool.pool.getPooledCount() > 0 );
+
+		client.channel.close();
+		server.channel.close();
+		assertEquals( 0, pool.outstanding.get() );
+	}
+
+	/**
+	 * The encrypted data is written as it is, writeMore must not wrap it a second time
+	 */
+	@Test
+	public void testWriteMoreWritesOnlyThePendingData() throws Exception {
+		connect();
+		handshake();
+		client.channel.writeMore();
+		client.channel.write( ByteBuffer.wrap( bytes( "hello" ) ) );
+		client.channel.writeMore();
+		await( () -> server.received.size() >= 5, step( server::pump ) );
+		Thread.sleep( 50 );
+		server.pump();
+		assertArrayEquals( bytes( "hello" ), server.received.toByteArray() );
+	}
+
+	/**
+	 * The server receives the data together with the last message of the handshake, which it must not discard
+	 */
+	@Test
+	public void testDataSentRightAfterTheHandshake() throws Exception {
+		connect();
+		finishClientHandshake();
+		client.channel.write( ByteBuffer.wrap( bytes( "GET / HTTP/1.1" ) ) );
+		await( () -> server.received.size() == 14, step( () -> {
+			server.pump();
+			client.pump();
+		} ) );
+		assertArrayEquals( bytes( "GET / HTTP/1.1" ), server.received.toByteArray() );
+	}
+
+	/**
+	 * A handshake which is finished by {@link SSLSocketChannel2#writeMore()} reads the data sent right after it, which
+	 * has to be announced by {@link SSLSocketChannel2#isNeedRead()} since the socket won't signal it anymore
+	 */
+	@Test
+	public void testNeedReadAfterTheHandshakeIsFinishedByAWrite() throws Exception {
+		connect();
+		finishClientHandshake();
+		client.channel.write( ByteBuffer.wrap( bytes( "GET / HTTP/1.1" ) ) );
+		await( server::isHandshakeComplete, step( server.channel::writeMore ) );
+		while( server.channel.isNeedWrite() ) {
+			server.channel.writeMore();
+		}
+		assertTrue( server.channel.isNeedRead() );
+		ByteBuffer buffer = ByteBuffer.allocate( 100 );
+		while( server.channel.isNeedRead() ) {
+			server.channel.readMore( buffer );
+		}
+		buffer.flip();
+		assertEquals( "GET / HTTP/1.1", StandardCharsets.US_ASCII.decode( buffer ).toString() );
+	}
+
+	/**
+	 * A gathering write of many records which does not fit into the socket, the rest is written by
+	 * {@link SSLSocketChannel2#writeMore()} once the server has read
+	 */
+	@Test
+	public void testLargeWrite() throws Exception {
+		connect();
+		handshake();
+		Random random = new Random( 42 );
+		final ByteBuffer[] buffers = new ByteBuffer[64];
+		ByteArrayOutputStream sent = new ByteArrayOutputStream();
+		for( int i = 0; i < buffers.length; i++ ) {
+			byte[] data = new byte[1000 + random.nextInt( 40000 )];
+			random.nextBytes( data );
+			sent.write( data, 0, data.length );
+			buffers[i] = ByteBuffer.wrap( data );
+		}
+		final int total = sent.size();
+
+		// write until the socket takes no more
+		await( client.channel::isNeedWrite, step( () -> client.channel.write( buffers ) ) );
+		final int[] writeMores = new int[1];
+		await( () -> server.received.size() == total, step( () -> {
+			server.read();
+			if( client.channel.isNeedWrite() ) {
+				writeMores[0]++;
+				client.channel.writeMore();
+			} else {
+				client.channel.write( buffers );
+			}
+		} ) );
+		assertTrue( writeMores[0] > 0 );
+		assertArrayEquals( sent.toByteArray(), server.received.toByteArray() );
+	}
+
+	/**
+	 * A server which echoes the received messages
+	 */
+	private static class EchoServer extends WebSocketServer {
+
+		EchoServer() {
+			super( new InetSocketAddress( "localhost", 0 ) );
+		}
+
+		@Override
+		public void onOpen( WebSocket conn, ClientHandshake handshake ) {
+		}
+
+		@Override
+		public void onClose( WebSocket conn, int code, String reason, boolean remote ) {
+		}
+
+		@Override
+		public void onMessage( WebSocket conn, String message ) {
+			conn.send( message );
+		}
+
+		@Override
+		public void onError( WebSocket conn, Exception ex ) {
+		}
+
+		@Override
+		public void onStart() {
+		}
+	}
+
+	/**
+	 * Several TLS clients of a selector connect to one server at once, each sends its upgrade request right after its
+	 * handshake
+	 */
+	@Test
+	public void testWssClients() throws Exception {
+		EchoServer echo = new EchoServer();
+		echo.setWebSocketFactory( new DefaultSSLWebSocketServerFactory( sslContext, Executors.newSingleThreadExecutor() ) );
+		echo.start();
+		WebSocketClientSelector selector = new WebSocketClientSelector( 2 );
+		selector.setSSLContext( sslContext );
+		try {
+			long timeout = System.currentTimeMillis() + 5000;
+			while( echo.getPort() == 0 && System.currentTimeMillis() < timeout ) {
+				Thread.sleep( 10 );
+			}
+			final BlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+			List<WebSocketClient> clients = new ArrayList<WebSocketClient>();
+			for( int i = 0; i < 10; i++ ) {
+				final String text = "hello " + i;
+				WebSocketClient client = new WebSocketClient( new URI( "wss://localhost:" + echo.getPort() + "/" ) ) {
+					@Override
+					public void onOpen( ServerHandshake handshakedata ) {
+						send( text );
+					}
+
+					@Override
+					public void onMessage( String message ) {
+						messages.add( message );
+					}
+
+					@Override
+					public void onClose( int code, String reason, boolean remote ) {
+					}
+
+					@Override
+					public void onError( Exception ex ) {
+					}
+				};
+				client.setClientSelector( selector );
+				clients.add( client );
+				client.connect();
+			}
+			List<String> received = new ArrayList<String>();
+			for( int i = 0; i < clients.size(); i++ ) {
+				String message = messages.poll( 10, TimeUnit.SECONDS );
+				assertTrue( message != null, "echo " + i + " not received" );
+				received.add( message );
+			}
+			for( int i = 0; i < clients.size(); i++ ) {
+				assertTrue( received.contains( "hello " + i ) );
+			}
+		} finally {
+			selector.stop();
+			echo.stop( 1000 );
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.java_websocket.util.DirectByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+public class SocketChannelIOHelperTest {
+
+	/**
+	 * A channel which takes at most limit bytes per write and records the number of buffers of each write
+	 */
+	private static class RecordingChannel implements ByteChannel, GatheringByteChannel {
+
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+		final List<Integer> writes = new ArrayList<>();
+
+		int limit = Integer.MAX_VALUE;
+
+		@Override
+		public long write( ByteBuffer[] srcs, int offset, int length ) {
+			writes.add( length );
+			long total = 0;
+			for( int i = offset; i < offset + length && total < limit; i++ ) {
+				total += take( srcs[i], ( int ) ( limit - total ) );
+			}
+			limit -= total;
+			return total;
+		}
+
+		@Override
+		public long write( ByteBuffer[] srcs ) {
+			return write( srcs, 0, srcs.length );
+		}
+
+		@Override
+		public int write( ByteBuffer src ) {
+			writes.add( 1 );
+			int n = take( src, limit );
+			limit -= n;
+			return n;
+		}
+
+		private int take( ByteBuffer src, int max ) {
+			int n = Math.min( src.remaining(), max );
+			byte[] bytes = new byte[n];
+			src.get( bytes );
+			written.write( bytes, 0, n );
+			return n;
+		}
+
+		@Override
+		public int read( ByteBuffer dst ) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * A channel which only supports single buffer writes
+	 */
+	private static class PlainChannel implements ByteChannel {
+
+		final RecordingChannel delegate = new RecordingChannel();
+
+		@Override
+		public int write( ByteBuffer src ) {
+			return delegate.write( src );
+		}
+
+		@Override
+		public int read( ByteBuffer dst ) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static WebSocketImpl open( DirectByteBufferPool pool ) {
+		WebSocketImpl conn = RecordingWebSocketListener.openServer( new RecordingWebSocketListener(), null, null );
+		conn.setBufferPool( pool );
+		return conn;
+	}
+
+	/**
+	 * Queues text frames of 10 bytes and returns the bytes they are encoded to
+	 */
+	private static byte[] queue( WebSocketImpl conn, int count ) {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		for( int i = 0; i < count; i++ ) {
+			String text = String.format( "msg %04d", i );
+			conn.send( text );
+			expected.write( 0x81 );
+			expected.write( text.length() );
+			byte[] bytes = text.getBytes();
+			expected.write( bytes, 0, bytes.length );
+		}
+		return expected.toByteArray();
+	}
+
+	@Test
+	public void testSmallFramesShareOneWrite() throws Exception {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 65536 );
+		WebSocketImpl conn = open( pool );
+		byte[] expected = queue( conn, 10 );
+		assertEquals( 100, conn.getQueuedBytes() );
+
+		RecordingChannel channel = new RecordingChannel();
+		assertTrue( SocketChannelIOHelper.batch( conn, channel ) );
+		assertEquals( Arrays.asList( 10 ), channel.writes );
+		assertArrayEquals( expected, channel.written.toByteArray() );
+		assertEquals( 0, conn.getQueuedFrames() );
+		assertEquals( 0, conn.getQueuedBytes() );
+		// the written buffers are returned to the pool
+		assertEquals( 10, pool.getPooledCount() );
+	}
+
+	@Test
+	public void testWritesAreLimitedToMaxBuffers() throws Exception {
+		WebSocketImpl conn = open( new DirectByteBufferPool( 64, 1024, 65536 ) );
+		int count = SocketChannelIOHelper.GATHER_MAX_BUFFERS + 10;
+		byte[] expected = queue( conn, count );
+
+		RecordingChannel channel = new RecordingChannel();
+		assertTrue( SocketChannelIOHelper.batch( conn, channel ) );
+		assertEquals( Arrays.asList( SocketChannelIOHelper.GATHER_MAX_BUFFERS, 10 ), channel.writes );
+		assertArrayEquals( expected, channel.written.toByteArray() );
+	}
+
+	@Test
+	public void testPartialWrite() throws Exception {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 65536 );
+		WebSocketImpl conn = open( pool );
+		byte[] expected = queue( conn, 10 );
+
+		// the socket buffer takes three and a half frames
+		RecordingChannel channel = new RecordingChannel();
+		channel.limit = 35;
+		assertFalse( SocketChannelIOHelper.batch( conn, channel ) );
+		assertEquals( 7, conn.getQueuedFrames() );
+		assertEquals( 65, conn.getQueuedBytes() );
+		assertEquals( 3, pool.getPooledCount() );
+
+		channel.limit = Integer.MAX_VALUE;
+		assertTrue( SocketChannelIOHelper.batch( conn, channel ) );
+		assertArrayEquals( expected, channel.written.toByteArray() );
+		assertEquals( 0, conn.getQueuedBytes() );
+		assertEquals( 10, pool.getPooledCount() );
+	}
+
+	@Test
+	public void testChannelWithoutGatheringWrites() throws Exception {
+		WebSocketImpl conn = open( new DirectByteBufferPool( 64, 1024, 65536 ) );
+		byte[] expected = queue( conn, 5 );
+
+		PlainChannel channel = new PlainChannel();
+		assertTrue( SocketChannelIOHelper.batch( conn, channel ) );
+		assertEquals( Arrays.asList( 1, 1, 1, 1, 1 ), channel.delegate.writes );
+		assertArrayEquals( expected, channel.delegate.written.toByteArray() );
+		assertEquals( 0, conn.getQueuedBytes() );
+	}
+
+}
@@ -0,0 +1,200 @@
+package org.java_websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.java_websocket.WebSocketImpl.BackpressurePolicy;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.util.DirectByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+public class WebSocketImplTest {
+
+	/**
+	 * Encodes an unmasked text frame into a buffer of the pool, as a broadcast does
+	 */
+	static ByteBuffer textFrame( DirectByteBufferPool pool, String text ) {
+		byte[] payload = text.getBytes( StandardCharsets.UTF_8 );
+		ByteBuffer frame = pool.acquire( payload.length + 2 );
+		frame.put( ( byte ) 0x81 ).put( ( byte ) payload.length ).put( payload ).flip();
+		return frame;
+	}
+
+	@Test
+	public void testDiscardedFramesReleaseSharedBuffers() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 65536 );
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl closed = RecordingWebSocketListener.openServer( listener, null, null );
+		WebSocketImpl cleared = RecordingWebSocketListener.openServer( listener, null, null );
+		closed.setBufferPool( pool );
+		cleared.setBufferPool( pool );
+
+		ByteBuffer frame = textFrame( pool, "shared" );
+		closed.sendEncodedFrames( Collections.singletonList( frame ) );
+		cleared.sendEncodedFrames( Collections.singletonList( frame ) );
+		pool.release( frame );
+		assertEquals( 2, pool.getLeasedCount() );
+		assertEquals( 0, pool.getPooledCount() );
+
+		// a connection closed with pending output
+		closed.closeConnection( CloseFrame.ABNORMAL_CLOSE, "gone", true );
+		assertEquals( 0, closed.getQueuedFrames() );
+		assertEquals( 1, pool.getLeasedCount() );
+
+		// the queue of a connection whose key was cancelled
+		cleared.discardOutQueue();
+		assertEquals( 0, pool.getLeasedCount() );
+		assertEquals( 1, pool.getPooledCount() );
+	}
+
+	/**
+	 * A message of 98 characters, 100 bytes as an unmasked frame
+	 */
+	private static String message( int i ) {
+		StringBuilder sb = new StringBuilder( "message " ).append( i ).append( ' ' );
+		while( sb.length() < 98 ) {
+			sb.append( 'x' );
+		}
+		return sb.toString();
+	}
+
+	private static WebSocketImpl openWithWatermarks( RecordingWebSocketListener listener, BackpressurePolicy policy ) {
+		WebSocketImpl conn = RecordingWebSocketListener.openServer( listener, null, null );
+		conn.setWriteBufferWatermarks( 100, 300 );
+		conn.setBackpressurePolicy( policy );
+		return conn;
+	}
+
+	@Test
+	public void testWatermarkTransitions() {
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl conn = openWithWatermarks( listener, BackpressurePolicy.DROP_NEWEST );
+		conn.send( message( 1 ) );
+		conn.send( message( 2 ) );
+		assertTrue( conn.isWritable() );
+		assertEquals( 200, conn.getQueuedBytes() );
+		conn.send( message( 3 ) );
+		assertFalse( conn.isWritable() );
+		assertEquals( Arrays.asList( false ), listener.writabilityChanges );
+
+		// writing down to the low watermark makes the websocket writable again
+		synchronized( conn.outQueueLock ) {
+			conn.getBufferPool().release( conn.outQueue.poll() );
+			conn.onBytesWritten( 100 );
+			assertFalse( conn.isWritable() );
+			conn.getBufferPool().release( conn.outQueue.poll() );
+			conn.onBytesWritten( 100 );
+		}
+		assertTrue( conn.isWritable() );
+		assertEquals( Arrays.asList( false, true ), listener.writabilityChanges );
+		assertEquals( 300, conn.getPeakQueuedBytes() );
+
+		RecordingWebSocketListener.written( conn );
+		assertEquals( 0, conn.getQueuedBytes() );
+		assertEquals( Arrays.asList( false, true ), listener.writabilityChanges );
+	}
+
+	@Test
+	public void testDropNewest() {
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl conn = openWithWatermarks( listener, BackpressurePolicy.DROP_NEWEST );
+		for( int i = 0; i < 5; i++ ) {
+			conn.send( message( i ) );
+		}
+		assertEquals( 3, conn.getQueuedFrames() );
+		assertEquals( 2, conn.getDroppedFrames() );
+		// control frames are never dropped
+		conn.sendPing();
+		assertEquals( 4, conn.getQueuedFrames() );
+		String written = new String( RecordingWebSocketListener.written( conn ), StandardCharsets.UTF_8 );
+		assertTrue( written.contains( message( 2 ) ) );
+		assertFalse( written.contains( message( 3 ) ) );
+	}
+
+	@Test
+	public void testDropOldest() {
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl conn = openWithWatermarks( listener, BackpressurePolicy.DROP_OLDEST );
+		for( int i = 0; i < 5; i++ ) {
+			conn.send( message( i ) );
+		}
+		assertEquals( 2, conn.getDroppedFrames() );
+		String written = new String( RecordingWebSocketListener.written( conn ), StandardCharsets.UTF_8 );
+		// the head of the queue may be partially written, so it is kept
+		assertTrue( written.contains( message( 0 ) ) );
+		assertFalse( written.contains( message( 1 ) ) );
+		assertFalse( written.contains( message( 2 ) ) );
+		assertTrue( written.contains( message( 4 ) ) );
+	}
+
+	@Test
+	public void testDropOldestWithExtensionDropsNewest() {
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		PerMessageDeflateExtension deflate = new PerMessageDeflateExtension();
+		deflate.setThreshold( 0 );
+		WebSocketImpl conn = RecordingWebSocketListener.openServer( listener, new Draft_6455( deflate ), "permessage-deflate" );
+		conn.setWriteBufferWatermarks( 0, 1 );
+		conn.setBackpressurePolicy( BackpressurePolicy.DROP_OLDEST );
+		conn.send( message( 1 ) );
+		conn.send( message( 2 ) );
+		conn.send( message( 3 ) );
+		// the frames queued with the compression context stay in the queue
+		assertEquals( 1, conn.getQueuedFrames() );
+		assertEquals( 2, conn.getDroppedFrames() );
+	}
+
+	@Test
+	public void testClose() {
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl conn = openWithWatermarks( listener, BackpressurePolicy.CLOSE );
+		for( int i = 0; i < 4; i++ ) {
+			conn.send( message( i ) );
+		}
+		assertEquals( 1, conn.getDroppedFrames() );
+		assertTrue( conn.isClosing() || conn.isClosed() );
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl conn = openWithWatermarks( listener, BackpressurePolicy.BLOCK );
+		for( int i = 0; i < 3; i++ ) {
+			conn.send( message( i ) );
+		}
+		Thread sender = new Thread( () -> conn.send( message( 3 ) ) );
+		sender.start();
+		sender.join( 200 );
+		assertTrue( sender.isAlive() );
+		assertEquals( 3, conn.getQueuedFrames() );
+
+		// the sender may queue its message while the queue is still drained
+		String written = new String( RecordingWebSocketListener.written( conn ), StandardCharsets.UTF_8 );
+		sender.join( 5000 );
+		assertFalse( sender.isAlive() );
+		written += new String( RecordingWebSocketListener.written( conn ), StandardCharsets.UTF_8 );
+		assertTrue( written.contains( message( 3 ) ) );
+		assertEquals( 0, conn.getDroppedFrames() );
+	}
+
+	@Test
+	public void testDiscardAccountsTheQueuedBytes() {
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl conn = openWithWatermarks( listener, BackpressurePolicy.DROP_NEWEST );
+		for( int i = 0; i < 3; i++ ) {
+			conn.send( message( i ) );
+		}
+		assertFalse( conn.isWritable() );
+		conn.discardOutQueue();
+		assertEquals( 0, conn.getQueuedBytes() );
+		assertTrue( conn.isWritable() );
+	}
+
+}
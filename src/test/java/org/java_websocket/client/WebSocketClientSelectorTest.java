@@ -0,0 +1,247 @@
+package org.java_websocket.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WebSocketClientSelectorTest {
+
+	/**
+	 * A server which echoes the received messages
+	 */
+	private static class EchoServer extends WebSocketServer {
+
+		EchoServer() {
+			super( new InetSocketAddress( "localhost", 0 ) );
+		}
+
+		@Override
+		public void onOpen( WebSocket conn, ClientHandshake handshake ) {
+		}
+
+		@Override
+		public void onClose( WebSocket conn, int code, String reason, boolean remote ) {
+		}
+
+		@Override
+		public void onMessage( WebSocket conn, String message ) {
+			conn.send( message );
+		}
+
+		@Override
+		public void onMessage( WebSocket conn, ByteBuffer message ) {
+			conn.send( message );
+		}
+
+		@Override
+		public void onError( WebSocket conn, Exception ex ) {
+		}
+
+		@Override
+		public void onStart() {
+		}
+	}
+
+	/**
+	 * A client which records its messages, close codes and the threads its callbacks run on
+	 */
+	private static class RecordingClient extends WebSocketClient {
+
+		final BlockingQueue<Object> messages = new LinkedBlockingQueue<Object>();
+
+		final BlockingQueue<Integer> closeCodes = new LinkedBlockingQueue<Integer>();
+
+		final List<Thread> callbackThreads = new ArrayList<Thread>();
+
+		final CountDownLatch opened = new CountDownLatch( 1 );
+
+		RecordingClient( URI uri ) {
+			super( uri );
+		}
+
+		private synchronized void record() {
+			callbackThreads.add( Thread.currentThread() );
+		}
+
+		@Override
+		public void onOpen( ServerHandshake handshakedata ) {
+			record();
+			opened.countDown();
+		}
+
+		@Override
+		public void onMessage( String message ) {
+			record();
+			messages.add( message );
+		}
+
+		@Override
+		public void onMessage( ByteBuffer bytes ) {
+			record();
+			byte[] data = new byte[bytes.remaining()];
+			bytes.get( data );
+			messages.add( data );
+		}
+
+		@Override
+		public void onClose( int code, String reason, boolean remote ) {
+			record();
+			closeCodes.add( code );
+		}
+
+		@Override
+		public void onError( Exception ex ) {
+		}
+	}
+
+	private EchoServer server;
+
+	private WebSocketClientSelector selector;
+
+	@BeforeEach
+	public void startServer() throws Exception {
+		server = new EchoServer();
+		server.start();
+		long timeout = System.currentTimeMillis() + 5000;
+		while ( server.getPort() == 0 && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+	}
+
+	@AfterEach
+	public void stop() throws Exception {
+		if( selector != null ) {
+			selector.stop();
+		}
+		server.stop( 1000 );
+	}
+
+	private RecordingClient client( int port ) throws Exception {
+		RecordingClient client = new RecordingClient( new URI( "ws://localhost:" + port + "/" ) );
+		client.setClientSelector( selector );
+		return client;
+	}
+
+	@Test
+	public void testClientsShareTheSelectorThreads() throws Exception {
+		selector = new WebSocketClientSelector( 2 );
+		assertEquals( 2, selector.getThreadCount() );
+		List<RecordingClient> clients = new ArrayList<RecordingClient>();
+		for( int i = 0 ; i < 6 ; i++ ) {
+			RecordingClient client = client( server.getPort() );
+			clients.add( client );
+			client.connect();
+		}
+		for( int i = 0 ; i < clients.size() ; i++ ) {
+			RecordingClient client = clients.get( i );
+			assertTrue( client.opened.await( 5, TimeUnit.SECONDS ) );
+			client.send( "hello " + i );
+		}
+		for( int i = 0 ; i < clients.size() ; i++ ) {
+			assertEquals( "hello " + i, clients.get( i ).messages.poll( 5, TimeUnit.SECONDS ) );
+		}
+		for( RecordingClient client : clients ) {
+			client.closeBlocking();
+			assertEquals( Integer.valueOf( CloseFrame.NORMAL ), client.closeCodes.poll( 5, TimeUnit.SECONDS ) );
+		}
+
+		// the callbacks of a client run on one selector thread, the clients are assigned round-robin
+		List<Thread> threads = new ArrayList<Thread>();
+		for( RecordingClient client : clients ) {
+			Thread thread = client.callbackThreads.get( 0 );
+			assertTrue( selector.isSelectorThread( thread ) );
+			for( Thread t : client.callbackThreads ) {
+				assertEquals( thread, t );
+			}
+			if( !threads.contains( thread ) ) {
+				threads.add( thread );
+			}
+		}
+		assertEquals( 2, threads.size() );
+	}
+
+	@Test
+	public void testLargeMessages() throws Exception {
+		selector = new WebSocketClientSelector( 1 );
+		RecordingClient client = client( server.getPort() );
+		assertTrue( client.connectBlocking( 5, TimeUnit.SECONDS ) );
+		Random random = new Random( 42 );
+		List<byte[]> sent = new ArrayList<byte[]>();
+		// larger than the read buffer of the selector thread
+		for( int size : new int[]{ 1, 70000, 300000 } ) {
+			byte[] data = new byte[size];
+			random.nextBytes( data );
+			sent.add( data );
+			client.send( data );
+		}
+		for( byte[] data : sent ) {
+			assertArrayEquals( data, ( byte[] ) client.messages.poll( 5, TimeUnit.SECONDS ) );
+		}
+		client.closeBlocking();
+	}
+
+	@Test
+	public void testConnectionRefused() throws Exception {
+		selector = new WebSocketClientSelector( 1 );
+		int port;
+		ServerSocket socket = new ServerSocket( 0 );
+		try {
+			port = socket.getLocalPort();
+		} finally {
+			socket.close();
+		}
+		RecordingClient client = client( port );
+		assertFalse( client.connectBlocking( 5, TimeUnit.SECONDS ) );
+		assertEquals( Integer.valueOf( CloseFrame.NEVER_CONNECTED ), client.closeCodes.poll( 5, TimeUnit.SECONDS ) );
+	}
+
+	@Test
+	public void testStopClosesTheConnections() throws Exception {
+		selector = new WebSocketClientSelector( 1 );
+		RecordingClient client = client( server.getPort() );
+		assertTrue( client.connectBlocking( 5, TimeUnit.SECONDS ) );
+		selector.stop();
+		assertEquals( Integer.valueOf( CloseFrame.ABNORMAL_CLOSE ), client.closeCodes.poll( 5, TimeUnit.SECONDS ) );
+		assertTrue( client.isClosed() );
+
+		// a stopped selector does not take new clients
+		RecordingClient late = client( server.getPort() );
+		assertFalse( late.connectBlocking( 5, TimeUnit.SECONDS ) );
+		assertEquals( Integer.valueOf( CloseFrame.NEVER_CONNECTED ), late.closeCodes.poll( 5, TimeUnit.SECONDS ) );
+		selector = null;
+	}
+
+	@Test
+	public void testArguments() throws Exception {
+		assertThrows( IllegalArgumentException.class, () -> new WebSocketClientSelector( 0 ) );
+		selector = new WebSocketClientSelector( 1 );
+		RecordingClient client = client( server.getPort() );
+		assertTrue( client.connectBlocking( 5, TimeUnit.SECONDS ) );
+		assertThrows( IllegalStateException.class, () -> client.setClientSelector( null ) );
+		client.closeBlocking();
+	}
+
+}
@@ -0,0 +1,202 @@
+package org.java_websocket.extensions.permessage_deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.java_websocket.RecordingWebSocketListener;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.ContinuousFrame;
+import org.java_websocket.framing.FramedataImpl1;
+import org.java_websocket.framing.TextFrame;
+import org.java_websocket.util.DirectByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+public class PerMessageDeflateExtensionTest {
+
+	private static final String MESSAGE;
+
+	static {
+		StringBuilder sb = new StringBuilder( "[" );
+		for( int i = 0; i < 100; i++ ) {
+			sb.append( "{\"ID\":" ).append( i ).append( ",\"NAME\":\"Name " ).append( i ).append( "\"}," );
+		}
+		MESSAGE = sb.append( "{}]" ).toString();
+	}
+
+	private static void negotiate( PerMessageDeflateExtension server, PerMessageDeflateExtension client ) {
+		assertTrue( server.acceptProvidedExtensionAsServer( client.getProvidedExtensionAsClient() ) );
+		assertTrue( client.acceptProvidedExtensionAsClient( server.getProvidedExtensionAsServer() ) );
+	}
+
+	private static byte[] bytes( ByteBuffer buffer ) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get( bytes );
+		return bytes;
+	}
+
+	private static byte[] compress( PerMessageDeflateExtension extension, String text ) {
+		TextFrame frame = new TextFrame();
+		frame.setPayload( ByteBuffer.wrap( text.getBytes( StandardCharsets.UTF_8 ) ) );
+		extension.encodeFrame( frame );
+		assertTrue( frame.isRSV1() );
+		return bytes( frame.getPayloadData() );
+	}
+
+	private static String decompress( PerMessageDeflateExtension extension, byte[] compressed ) throws InvalidDataException {
+		TextFrame frame = new TextFrame();
+		frame.setRSV1( true );
+		frame.setPayload( ByteBuffer.wrap( compressed ) );
+		extension.decodeFrame( frame );
+		assertFalse( frame.isRSV1() );
+		return new String( bytes( frame.getPayloadData() ), StandardCharsets.UTF_8 );
+	}
+
+	@Test
+	public void testRoundTripWithContextTakeover() throws InvalidDataException {
+		PerMessageDeflateExtension server = new PerMessageDeflateExtension();
+		PerMessageDeflateExtension client = new PerMessageDeflateExtension();
+		negotiate( server, client );
+		assertEquals( "permessage-deflate", server.getProvidedExtensionAsServer() );
+
+		byte[] first = compress( server, MESSAGE );
+		byte[] second = compress( server, MESSAGE );
+		assertTrue( first.length < MESSAGE.length() / 2 );
+		// the second message refers to the first one
+		assertTrue( second.length < first.length / 2, first.length + " " + second.length );
+		assertEquals( MESSAGE, decompress( client, first ) );
+		assertEquals( MESSAGE, decompress( client, second ) );
+
+		// and the other direction
+		assertEquals( MESSAGE, decompress( server, compress( client, MESSAGE ) ) );
+		assertEquals( MESSAGE, decompress( server, compress( client, MESSAGE ) ) );
+	}
+
+	@Test
+	public void testRoundTripWithoutContextTakeover() throws InvalidDataException {
+		PerMessageDeflateExtension server = new PerMessageDeflateExtension();
+		server.setServerNoContextTakeover( true );
+		PerMessageDeflateExtension client = new PerMessageDeflateExtension();
+		client.setClientNoContextTakeover( true );
+		negotiate( server, client );
+		assertEquals( "permessage-deflate; server_no_context_takeover; client_no_context_takeover", server.getProvidedExtensionAsServer() );
+
+		byte[] first = compress( server, MESSAGE );
+		byte[] second = compress( server, MESSAGE );
+		assertArrayEquals( first, second );
+		// a fresh decompressor can decode each message
+		assertEquals( MESSAGE, decompress( client, second ) );
+		PerMessageDeflateExtension other = new PerMessageDeflateExtension();
+		negotiate( new PerMessageDeflateExtension(), other );
+		assertEquals( MESSAGE, decompress( other, second ) );
+
+		assertArrayEquals( compress( client, MESSAGE ), compress( client, MESSAGE ) );
+		assertEquals( MESSAGE, decompress( server, compress( client, MESSAGE ) ) );
+	}
+
+	@Test
+	public void testSmallMessagesAreNotCompressed() {
+		PerMessageDeflateExtension server = new PerMessageDeflateExtension();
+		negotiate( server, new PerMessageDeflateExtension() );
+		TextFrame frame = new TextFrame();
+		frame.setPayload( ByteBuffer.wrap( "small".getBytes( StandardCharsets.UTF_8 ) ) );
+		server.encodeFrame( frame );
+		assertFalse( frame.isRSV1() );
+		assertEquals( "small", new String( bytes( frame.getPayloadData() ), StandardCharsets.UTF_8 ) );
+	}
+
+	@Test
+	public void testFragmentedMessage() throws InvalidDataException {
+		PerMessageDeflateExtension server = new PerMessageDeflateExtension();
+		PerMessageDeflateExtension client = new PerMessageDeflateExtension();
+		negotiate( server, client );
+		byte[] compressed = compress( client, MESSAGE );
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int split = compressed.length / 3;
+		FramedataImpl1[] frames = { new TextFrame(), new ContinuousFrame(), new ContinuousFrame() };
+		frames[0].setRSV1( true );
+		for( int i = 0; i < frames.length; i++ ) {
+			frames[i].setFin( i == frames.length - 1 );
+			int to = i == frames.length - 1 ? compressed.length : ( i + 1 ) * split;
+			frames[i].setPayload( ByteBuffer.wrap( Arrays.copyOfRange( compressed, i * split, to ) ) );
+			server.isFrameValid( frames[i] );
+			server.decodeFrame( frames[i] );
+			byte[] inflated = bytes( frames[i].getPayloadData() );
+			out.write( inflated, 0, inflated.length );
+		}
+		assertEquals( MESSAGE, new String( out.toByteArray(), StandardCharsets.UTF_8 ) );
+	}
+
+	@Test
+	public void testMaxDecompressedSize() {
+		PerMessageDeflateExtension server = new PerMessageDeflateExtension();
+		server.setMaxDecompressedSize( 1000 );
+		PerMessageDeflateExtension client = new PerMessageDeflateExtension();
+		negotiate( server, client );
+		assertThrows( InvalidDataException.class, () -> decompress( server, compress( client, MESSAGE ) ) );
+	}
+
+	@Test
+	public void testEquality() {
+		PerMessageDeflateExtension takeover1 = new PerMessageDeflateExtension();
+		PerMessageDeflateExtension takeover2 = new PerMessageDeflateExtension();
+		negotiate( takeover1, new PerMessageDeflateExtension() );
+		negotiate( takeover2, new PerMessageDeflateExtension() );
+		assertNotEquals( takeover1, takeover2 );
+
+		PerMessageDeflateExtension fresh1 = new PerMessageDeflateExtension();
+		fresh1.setServerNoContextTakeover( true );
+		PerMessageDeflateExtension fresh2 = ( PerMessageDeflateExtension ) fresh1.copyInstance();
+		negotiate( fresh1, new PerMessageDeflateExtension() );
+		negotiate( fresh2, new PerMessageDeflateExtension() );
+		assertEquals( fresh1, fresh2 );
+		assertEquals( fresh1.hashCode(), fresh2.hashCode() );
+		fresh2.setThreshold( 10 );
+		assertNotEquals( fresh1, fresh2 );
+	}
+
+	@Test
+	public void testConnectionsWithoutContextTakeoverShareTheDraft() {
+		PerMessageDeflateExtension deflate = new PerMessageDeflateExtension();
+		deflate.setServerNoContextTakeover( true );
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl first = RecordingWebSocketListener.openServer( listener, new Draft_6455( deflate ), "permessage-deflate" );
+		WebSocketImpl second = RecordingWebSocketListener.openServer( listener, new Draft_6455( deflate ), "permessage-deflate; client_max_window_bits" );
+		assertEquals( first.getDraft(), second.getDraft() );
+
+		WebSocketImpl takeover1 = RecordingWebSocketListener.openServer( listener, new Draft_6455( new PerMessageDeflateExtension() ), "permessage-deflate" );
+		WebSocketImpl takeover2 = RecordingWebSocketListener.openServer( listener, new Draft_6455( new PerMessageDeflateExtension() ), "permessage-deflate" );
+		assertNotEquals( takeover1.getDraft(), takeover2.getDraft() );
+	}
+
+	@Test
+	public void testCompressedPayloadIsReleased() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 65536 );
+		RecordingWebSocketListener listener = new RecordingWebSocketListener();
+		WebSocketImpl conn = RecordingWebSocketListener.openServer( listener, new Draft_6455( new PerMessageDeflateExtension() ), "permessage-deflate" );
+		conn.setBufferPool( pool );
+
+		PerMessageDeflateExtension client = new PerMessageDeflateExtension();
+		assertTrue( client.acceptProvidedExtensionAsClient( "permessage-deflate" ) );
+		byte[] compressed = compress( client, MESSAGE );
+		assertTrue( compressed.length > 125 && compressed.length < 1024 );
+		// a masked client frame with a 16 bit length and a zero mask key
+		ByteBuffer frame = ByteBuffer.allocate( 8 + compressed.length );
+		frame.put( ( byte ) 0xC1 ).put( ( byte ) ( 0x80 | 126 ) ).putShort( ( short ) compressed.length ).putInt( 0 ).put( compressed ).flip();
+		conn.decode( frame );
+
+		assertEquals( Arrays.asList( MESSAGE ), listener.messages );
+		assertEquals( 1, pool.getPooledCount() );
+	}
+
+}
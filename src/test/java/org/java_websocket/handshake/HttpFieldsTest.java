@@ -0,0 +1,138 @@
+package org.java_websocket.handshake;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.java_websocket.WebSocket.Role;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.IncompleteHandshakeException;
+import org.java_websocket.exceptions.InvalidHandshakeException;
+import org.junit.jupiter.api.Test;
+
+public class HttpFieldsTest {
+
+	private static final String REQUEST = "GET /chat?x=1 HTTP/1.1\r\n" +
+			"Host: server.example.com\r\n" +
+			"Upgrade: websocket\r\n" +
+			"connection:Upgrade\r\n" +
+			"Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+			"Sec-WebSocket-Extensions: permessage-deflate\r\n" +
+			"Sec-WebSocket-Extensions: x-other\r\n" +
+			"X-Empty:\r\n" +
+			"X-Time:  12:30:00\r\n" +
+			"\r\n";
+
+	private static ByteBuffer buffer( String s ) {
+		return ByteBuffer.wrap( s.getBytes( StandardCharsets.ISO_8859_1 ) );
+	}
+
+	private static HttpFields parse( String s ) throws Exception {
+		return HttpFields.parse( buffer( s ) );
+	}
+
+	@Test
+	public void testParse() throws Exception {
+		ByteBuffer buf = buffer( REQUEST.substring( REQUEST.indexOf( "\r\n" ) + 2 ) );
+		HttpFields fields = HttpFields.parse( buf );
+		assertEquals( buf.limit(), buf.position() );
+		assertEquals( 8, fields.size() );
+		assertEquals( "Host", fields.getName( 0 ) );
+		assertEquals( "server.example.com", fields.getValue( 0 ) );
+		assertEquals( "connection", fields.getName( 2 ) );
+		assertEquals( "Upgrade", fields.getValue( 2 ) );
+		// the value starts behind the first colon and its leading spaces
+		assertEquals( "12:30:00", fields.getValue( "X-Time" ) );
+		assertEquals( "", fields.getValue( "X-Empty" ) );
+	}
+
+	@Test
+	public void testLookupIsCaseInsensitive() throws Exception {
+		HttpFields fields = parse( REQUEST.substring( REQUEST.indexOf( "\r\n" ) + 2 ) );
+		assertEquals( "websocket", fields.getValue( "upgrade" ) );
+		assertEquals( "Upgrade", fields.getValue( "CONNECTION" ) );
+		assertEquals( "dGhlIHNhbXBsZSBub25jZQ==", fields.getValue( "sec-websocket-key" ) );
+		assertNull( fields.getValue( "Sec-WebSocket-Protocol" ) );
+		// a prefix or a longer name does not match
+		assertNull( fields.getValue( "Hos" ) );
+		assertNull( fields.getValue( "Hostname" ) );
+		assertEquals( -1, fields.indexOf( "Host", 1 ) );
+	}
+
+	@Test
+	public void testRepeatedFieldsAreJoined() throws Exception {
+		HttpFields fields = parse( REQUEST.substring( REQUEST.indexOf( "\r\n" ) + 2 ) );
+		assertEquals( 4, fields.indexOf( "sec-websocket-extensions", 0 ) );
+		assertEquals( 5, fields.indexOf( "sec-websocket-extensions", 5 ) );
+		assertEquals( "permessage-deflate; x-other", fields.getValue( "Sec-WebSocket-Extensions" ) );
+	}
+
+	@Test
+	public void testFollowingBytesAreNotConsumed() throws Exception {
+		ByteBuffer buf = buffer( "Host: a\r\n\r\n\u0081\u0002hi" );
+		HttpFields fields = HttpFields.parse( buf );
+		assertEquals( 1, fields.size() );
+		assertEquals( 4, buf.remaining() );
+		assertEquals( ( byte ) 0x81, buf.get() );
+	}
+
+	@Test
+	public void testEmptyHeader() throws Exception {
+		assertEquals( 0, parse( "\r\n" ).size() );
+	}
+
+	@Test
+	public void testIncompleteAndInvalid() {
+		assertThrows( IncompleteHandshakeException.class, () -> parse( "Host: a\r\n" ) );
+		assertThrows( IncompleteHandshakeException.class, () -> parse( "Host: a\r\n\r" ) );
+		assertThrows( IncompleteHandshakeException.class, () -> parse( "" ) );
+		assertThrows( InvalidHandshakeException.class, () -> parse( "Host: a\r\nno header line\r\n\r\n" ) );
+	}
+
+	@Test
+	public void testTranslateClientHandshake() throws Exception {
+		ByteBuffer buf = buffer( REQUEST + "\u0081" );
+		Handshakedata handshake = Draft.translateHandshakeHttp( buf, Role.SERVER );
+		assertTrue( handshake instanceof ClientHandshake );
+		assertEquals( "/chat?x=1", ( ( ClientHandshake ) handshake ).getResourceDescriptor() );
+		assertEquals( "websocket", handshake.getFieldValue( "upgrade" ) );
+		assertEquals( "", handshake.getFieldValue( "Sec-WebSocket-Protocol" ) );
+		assertTrue( handshake.hasFieldValue( "Sec-WebSocket-Key" ) );
+		assertEquals( 1, buf.remaining() );
+
+		List<String> names = new ArrayList<>();
+		for( Iterator<String> it = handshake.iterateHttpFields(); it.hasNext(); ) {
+			names.add( it.next() );
+		}
+		// sorted and without duplicates
+		assertEquals( Arrays.asList( "connection", "Host", "Sec-WebSocket-Extensions", "Sec-WebSocket-Key", "Upgrade", "X-Empty", "X-Time" ), names );
+	}
+
+	@Test
+	public void testTranslateServerHandshake() throws Exception {
+		String response = "HTTP/1.1 101 Switching Protocols\r\n" +
+				"Upgrade: websocket\r\n" +
+				"Connection: Upgrade\r\n" +
+				"Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n" +
+				"\r\n";
+		Handshakedata handshake = Draft.translateHandshakeHttp( buffer( response ), Role.CLIENT );
+		assertTrue( handshake instanceof ServerHandshake );
+		assertEquals( 101, ( ( ServerHandshake ) handshake ).getHttpStatus() );
+		assertEquals( "Switching Protocols", ( ( ServerHandshake ) handshake ).getHttpStatusMessage() );
+		assertEquals( "s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", handshake.getFieldValue( "sec-websocket-accept" ) );
+
+		assertThrows( InvalidHandshakeException.class, () -> Draft.translateHandshakeHttp( buffer( "HTTP/1.1 200 OK\r\n\r\n" ), Role.CLIENT ) );
+		assertThrows( InvalidHandshakeException.class, () -> Draft.translateHandshakeHttp( buffer( "POST / HTTP/1.1\r\n\r\n" ), Role.SERVER ) );
+		assertThrows( InvalidHandshakeException.class, () -> Draft.translateHandshakeHttp( buffer( "GET /\r\n\r\n" ), Role.SERVER ) );
+		assertThrows( IncompleteHandshakeException.class, () -> Draft.translateHandshakeHttp( buffer( "GET / HTTP/1.1" ), Role.SERVER ) );
+	}
+
+}
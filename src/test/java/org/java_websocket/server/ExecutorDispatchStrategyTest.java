@@ -0,0 +1,302 @@
+package org.java_websocket.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.java_websocket.RecordingWebSocketListener;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ExecutorDispatchStrategyTest {
+
+	/**
+	 * A server which records the messages per connection and echoes them, a message "block" waits for {@link #release}
+	 */
+	private static class RecordingServer extends WebSocketServer {
+
+		final Map<WebSocket, List<String>> messages = new ConcurrentHashMap<WebSocket, List<String>>();
+
+		final CountDownLatch release = new CountDownLatch( 1 );
+
+		final AtomicBoolean concurrentCallbacks = new AtomicBoolean();
+
+		private final Map<WebSocket, AtomicInteger> running = new ConcurrentHashMap<WebSocket, AtomicInteger>();
+
+		RecordingServer() {
+			super( new InetSocketAddress( "localhost", 0 ) );
+		}
+
+		@Override
+		public void onOpen( WebSocket conn, ClientHandshake handshake ) {
+			messages.put( conn, new CopyOnWriteArrayList<String>() );
+			running.put( conn, new AtomicInteger() );
+		}
+
+		@Override
+		public void onClose( WebSocket conn, int code, String reason, boolean remote ) {
+		}
+
+		@Override
+		public void onMessage( WebSocket conn, String message ) {
+			AtomicInteger count = running.get( conn );
+			if( count.incrementAndGet() != 1 ) {
+				concurrentCallbacks.set( true );
+			}
+			try {
+				if( message.equals( "block" ) ) {
+					release.await( 10, TimeUnit.SECONDS );
+				}
+				messages.get( conn ).add( message );
+				conn.send( message );
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			} finally {
+				count.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void onError( WebSocket conn, Exception ex ) {
+		}
+
+		@Override
+		public void onStart() {
+		}
+	}
+
+	/**
+	 * A client which queues the received messages
+	 */
+	private static class QueueingClient extends WebSocketClient {
+
+		final BlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+
+		QueueingClient( int port ) throws Exception {
+			super( new URI( "ws://localhost:" + port + "/" ) );
+		}
+
+		@Override
+		public void onOpen( ServerHandshake handshakedata ) {
+		}
+
+		@Override
+		public void onMessage( String message ) {
+			messages.add( message );
+		}
+
+		@Override
+		public void onMessage( ByteBuffer bytes ) {
+		}
+
+		@Override
+		public void onClose( int code, String reason, boolean remote ) {
+		}
+
+		@Override
+		public void onError( Exception ex ) {
+		}
+	}
+
+	private RecordingServer server;
+
+	private ExecutorDispatchStrategy strategy;
+
+	@AfterEach
+	public void stop() throws Exception {
+		if( server != null ) {
+			server.release.countDown();
+			server.stop( 1000 );
+		}
+		if( strategy != null ) {
+			strategy.shutdown();
+		}
+	}
+
+	private void startServer( int parallelism ) throws Exception {
+		server = new RecordingServer();
+		server.setDispatchStrategy( new ExecutorDispatchStrategy( parallelism ) );
+		server.start();
+		long timeout = System.currentTimeMillis() + 5000;
+		while( server.getPort() == 0 && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+	}
+
+	private static WebSocketImpl websocket() {
+		return new WebSocketImpl( new RecordingWebSocketListener(), new Draft_6455() );
+	}
+
+	private static void await( CountDownLatch latch ) throws InterruptedException {
+		assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+	}
+
+	@Test
+	public void testMessagesOfAConnectionKeepTheirOrder() throws Exception {
+		startServer( 2 );
+		List<QueueingClient> clients = new ArrayList<QueueingClient>();
+		for( int i = 0 ; i < 6 ; i++ ) {
+			QueueingClient client = new QueueingClient( server.getPort() );
+			assertTrue( client.connectBlocking( 5, TimeUnit.SECONDS ) );
+			clients.add( client );
+		}
+		for( int m = 0 ; m < 200 ; m++ ) {
+			for( QueueingClient client : clients ) {
+				client.send( String.valueOf( m ) );
+			}
+		}
+		for( QueueingClient client : clients ) {
+			for( int m = 0 ; m < 200 ; m++ ) {
+				assertEquals( String.valueOf( m ), client.messages.poll( 5, TimeUnit.SECONDS ) );
+			}
+		}
+		assertEquals( 6, server.messages.size() );
+		for( List<String> received : server.messages.values() ) {
+			assertEquals( 200, received.size() );
+		}
+		// the callbacks of a connection never overlap, although they run on different threads
+		assertFalse( server.concurrentCallbacks.get() );
+		for( QueueingClient client : clients ) {
+			client.closeBlocking();
+		}
+	}
+
+	@Test
+	public void testSlowConnectionDoesNotDelayOthers() throws Exception {
+		startServer( 2 );
+		QueueingClient slow = new QueueingClient( server.getPort() );
+		QueueingClient fast = new QueueingClient( server.getPort() );
+		assertTrue( slow.connectBlocking( 5, TimeUnit.SECONDS ) );
+		assertTrue( fast.connectBlocking( 5, TimeUnit.SECONDS ) );
+
+		slow.send( "block" );
+		slow.send( "after" );
+		for( int m = 0 ; m < 50 ; m++ ) {
+			fast.send( String.valueOf( m ) );
+		}
+		for( int m = 0 ; m < 50 ; m++ ) {
+			assertEquals( String.valueOf( m ), fast.messages.poll( 5, TimeUnit.SECONDS ) );
+		}
+		// the slow connection is still blocked, its second message waits behind the first
+		assertEquals( null, slow.messages.poll( 100, TimeUnit.MILLISECONDS ) );
+
+		server.release.countDown();
+		assertEquals( "block", slow.messages.poll( 5, TimeUnit.SECONDS ) );
+		assertEquals( "after", slow.messages.poll( 5, TimeUnit.SECONDS ) );
+		slow.closeBlocking();
+		fast.closeBlocking();
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		strategy = new ExecutorDispatchStrategy( Executors.newSingleThreadExecutor(), 1 );
+		assertEquals( 1, strategy.getParallelism() );
+		WebSocketImpl first = websocket();
+		WebSocketImpl second = websocket();
+		CountDownLatch started = new CountDownLatch( 1 );
+		CountDownLatch release = new CountDownLatch( 1 );
+		CountDownLatch done = new CountDownLatch( 6 );
+
+		strategy.execute( first, () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		} );
+		await( started );
+		for( int i = 0 ; i < 3 ; i++ ) {
+			strategy.execute( first, done::countDown );
+		}
+		for( int i = 0 ; i < 2 ; i++ ) {
+			strategy.execute( second, done::countDown );
+		}
+		// the running task is not pending anymore
+		assertEquals( 5, strategy.getPendingTasks() );
+		assertEquals( 0, strategy.getCompletedTasks() );
+
+		Thread.sleep( 50 );
+		release.countDown();
+		await( done );
+		long timeout = System.currentTimeMillis() + 5000;
+		while( strategy.getCompletedTasks() < 6 && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 1 );
+		}
+		assertEquals( 6, strategy.getCompletedTasks() );
+		assertEquals( 0, strategy.getPendingTasks() );
+		// the blocked task ran for at least the sleep
+		assertTrue( strategy.getBusyNanos() >= TimeUnit.MILLISECONDS.toNanos( 50 ) );
+	}
+
+	@Test
+	public void testFailingTaskDoesNotStopTheQueue() throws Exception {
+		strategy = new ExecutorDispatchStrategy( Executors.newSingleThreadExecutor(), 1 );
+		WebSocketImpl ws = websocket();
+		CountDownLatch done = new CountDownLatch( 1 );
+		strategy.execute( ws, () -> {
+			throw new IllegalStateException( "expected by the test" );
+		} );
+		strategy.execute( ws, done::countDown );
+		await( done );
+	}
+
+	@Test
+	public void testShutdownDiscardsPendingTasks() throws Exception {
+		strategy = new ExecutorDispatchStrategy( Executors.newSingleThreadExecutor(), 1 );
+		WebSocketImpl first = websocket();
+		WebSocketImpl second = websocket();
+		CountDownLatch started = new CountDownLatch( 1 );
+		CountDownLatch interrupted = new CountDownLatch( 1 );
+		AtomicInteger ran = new AtomicInteger();
+
+		strategy.execute( first, () -> {
+			started.countDown();
+			try {
+				new CountDownLatch( 1 ).await();
+			} catch ( InterruptedException e ) {
+				interrupted.countDown();
+			}
+		} );
+		await( started );
+		strategy.execute( first, ran::incrementAndGet );
+		strategy.execute( second, ran::incrementAndGet );
+		assertEquals( 2, strategy.getPendingTasks() );
+
+		strategy.shutdown();
+		// the running task is interrupted, the pending ones are dropped
+		await( interrupted );
+		assertEquals( 0, strategy.getPendingTasks() );
+		assertThrows( RejectedExecutionException.class, () -> strategy.execute( first, ran::incrementAndGet ) );
+		assertThrows( RejectedExecutionException.class, () -> strategy.execute( websocket(), ran::incrementAndGet ) );
+		assertEquals( 0, strategy.getPendingTasks() );
+		Thread.sleep( 50 );
+		assertEquals( 0, ran.get() );
+	}
+
+}
@@ -0,0 +1,139 @@
+package org.java_websocket.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class DirectByteBufferPoolTest {
+
+	@Test
+	public void testAcquireRelease() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 8192 );
+		ByteBuffer buffer = pool.acquire( 100 );
+		assertTrue( buffer.isDirect() );
+		assertEquals( 128, buffer.capacity() );
+		assertEquals( 100, buffer.limit() );
+		assertEquals( 0, pool.getPooledCount() );
+
+		pool.release( buffer );
+		assertEquals( 1, pool.getPooledCount() );
+		ByteBuffer reused = pool.acquire( 120 );
+		assertSame( buffer, reused );
+		assertEquals( 0, reused.position() );
+		assertEquals( 120, reused.limit() );
+		assertEquals( 0, pool.getPooledCount() );
+
+		// smaller than the smallest size class
+		assertEquals( 64, pool.acquire( 1 ).capacity() );
+		assertEquals( 64, pool.acquire( 0 ).capacity() );
+		assertThrows( IllegalArgumentException.class, () -> pool.acquire( -1 ) );
+		pool.release( null );
+	}
+
+	@Test
+	public void testUnpooledBuffers() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 8192 );
+		ByteBuffer large = pool.acquire( 2000 );
+		assertFalse( large.isDirect() );
+		assertEquals( 2000, large.capacity() );
+		pool.release( large );
+		pool.release( ByteBuffer.allocateDirect( 100 ) );
+		pool.release( ByteBuffer.allocateDirect( 128 ).asReadOnlyBuffer() );
+		assertEquals( 0, pool.getPooledCount() );
+	}
+
+	@Test
+	public void testBytesPerSizeClass() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 256 );
+		ByteBuffer[] buffers = new ByteBuffer[6];
+		for( int i = 0; i < buffers.length; i++ ) {
+			buffers[i] = pool.acquire( 64 );
+		}
+		for( ByteBuffer buffer : buffers ) {
+			pool.release( buffer );
+		}
+		assertEquals( 4, pool.getPooledCount() );
+	}
+
+	@Test
+	public void testRetainRelease() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 8192 );
+		ByteBuffer buffer = pool.acquire( 64 );
+		buffer.put( ( byte ) 1 ).flip();
+		ByteBuffer first = pool.retain( buffer );
+		ByteBuffer second = pool.retain( buffer );
+		assertNotSame( buffer, first );
+		assertEquals( 1, first.remaining() );
+		// the duplicates have independent positions
+		first.get();
+		assertEquals( 1, second.remaining() );
+		assertEquals( 3, pool.getLeasedCount() );
+
+		pool.release( buffer );
+		pool.release( first );
+		assertEquals( 0, pool.getPooledCount() );
+		assertEquals( 1, pool.getLeasedCount() );
+		pool.release( second );
+		assertEquals( 1, pool.getPooledCount() );
+		assertEquals( 0, pool.getLeasedCount() );
+		assertSame( buffer, pool.acquire( 64 ) );
+
+		// a heap buffer is duplicated, but not tracked
+		ByteBuffer heap = ByteBuffer.allocate( 64 );
+		pool.release( pool.retain( heap ) );
+		assertEquals( 0, pool.getLeasedCount() );
+	}
+
+	@Test
+	public void testForeignAndRepeatedReleasesAreIgnored() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 8192 );
+		// a direct buffer of a size class, but not allocated by the pool
+		pool.release( ByteBuffer.allocateDirect( 128 ) );
+		assertEquals( 0, pool.getPooledCount() );
+		// another pool's buffer
+		pool.release( new DirectByteBufferPool( 64, 1024, 8192 ).acquire( 64 ) );
+		assertEquals( 0, pool.getPooledCount() );
+
+		ByteBuffer buffer = pool.acquire( 64 );
+		pool.release( buffer );
+		pool.release( buffer );
+		assertEquals( 1, pool.getPooledCount() );
+		// the buffer is handed out once only
+		assertSame( buffer, pool.acquire( 64 ) );
+		assertNotSame( buffer, pool.acquire( 64 ) );
+
+		// a duplicate released more often than it was retained
+		ByteBuffer shared = pool.acquire( 64 );
+		ByteBuffer duplicate = pool.retain( shared );
+		pool.release( duplicate );
+		pool.release( duplicate );
+		assertEquals( 0, pool.getPooledCount() );
+		assertEquals( 1, pool.getLeasedCount() );
+		pool.release( shared );
+		pool.release( shared );
+		assertEquals( 1, pool.getPooledCount() );
+		assertEquals( 0, pool.getLeasedCount() );
+	}
+
+	@Test
+	public void testBuffersBeyondTheLimitAreForgotten() {
+		DirectByteBufferPool pool = new DirectByteBufferPool( 64, 1024, 64 );
+		ByteBuffer first = pool.acquire( 64 );
+		ByteBuffer second = pool.acquire( 64 );
+		pool.release( first );
+		// the size class is full, second is left to the garbage collector
+		pool.release( second );
+		assertEquals( 1, pool.getPooledCount() );
+		assertSame( first, pool.acquire( 64 ) );
+		pool.release( second );
+		assertEquals( 0, pool.getPooledCount() );
+	}
+
+}
@@ -0,0 +1,128 @@
+package org.java_websocket.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.util.HashedWheelTimer.Timeout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class HashedWheelTimerTest {
+
+	private HashedWheelTimer timer;
+
+	@AfterEach
+	public void stopTimer() {
+		if( timer != null ) {
+			timer.stop();
+		}
+	}
+
+	@Test
+	public void testRunsNotBeforeTheDeadline() throws Exception {
+		timer = new HashedWheelTimer( "HashedWheelTimerTest", 10, TimeUnit.MILLISECONDS, 64 );
+		CountDownLatch latch = new CountDownLatch( 1 );
+		AtomicLong ranAt = new AtomicLong();
+		long start = System.nanoTime();
+		Timeout timeout = timer.newTimeout( () -> {
+			ranAt.set( System.nanoTime() );
+			latch.countDown();
+		}, 50, TimeUnit.MILLISECONDS );
+		assertEquals( 1, timer.getPendingTimeouts() );
+		assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+		assertTrue( ranAt.get() - start >= TimeUnit.MILLISECONDS.toNanos( 50 ) );
+		assertTrue( timeout.isExpired() );
+		assertFalse( timeout.cancel() );
+		assertEquals( 0, timer.getPendingTimeouts() );
+	}
+
+	@Test
+	public void testDelayLongerThanOneRound() throws Exception {
+		// a round of the wheel takes 40ms
+		timer = new HashedWheelTimer( "HashedWheelTimerTest", 10, TimeUnit.MILLISECONDS, 3 );
+		CountDownLatch latch = new CountDownLatch( 1 );
+		long start = System.nanoTime();
+		timer.newTimeout( latch::countDown, 130, TimeUnit.MILLISECONDS );
+		assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+		assertTrue( System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos( 130 ) );
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		timer = new HashedWheelTimer( "HashedWheelTimerTest", 10, TimeUnit.MILLISECONDS, 64 );
+		AtomicBoolean ran = new AtomicBoolean();
+		Timeout cancelled = timer.newTimeout( () -> ran.set( true ), 20, TimeUnit.MILLISECONDS );
+		CountDownLatch latch = new CountDownLatch( 1 );
+		timer.newTimeout( latch::countDown, 60, TimeUnit.MILLISECONDS );
+		assertEquals( 2, timer.getPendingTimeouts() );
+		assertTrue( cancelled.cancel() );
+		assertFalse( cancelled.cancel() );
+		assertTrue( cancelled.isCancelled() );
+		assertEquals( 1, timer.getPendingTimeouts() );
+
+		assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+		assertFalse( ran.get() );
+		assertFalse( cancelled.isExpired() );
+		assertEquals( 0, timer.getPendingTimeouts() );
+	}
+
+	@Test
+	public void testManyTimeouts() throws Exception {
+		timer = new HashedWheelTimer( "HashedWheelTimerTest", 5, TimeUnit.MILLISECONDS, 16 );
+		Random random = new Random( 42 );
+		int count = 10000;
+		CountDownLatch latch = new CountDownLatch( count / 2 );
+		AtomicBoolean cancelledRan = new AtomicBoolean();
+		for( int i = 0; i < count; i++ ) {
+			if( i % 2 == 0 ) {
+				timer.newTimeout( latch::countDown, random.nextInt( 200 ), TimeUnit.MILLISECONDS );
+			} else {
+				timer.newTimeout( () -> cancelledRan.set( true ), random.nextInt( 200 ), TimeUnit.MILLISECONDS ).cancel();
+			}
+		}
+		assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+		assertFalse( cancelledRan.get() );
+		assertEquals( 0, timer.getPendingTimeouts() );
+	}
+
+	@Test
+	public void testFailingTaskDoesNotStopTheTimer() throws Exception {
+		timer = new HashedWheelTimer( "HashedWheelTimerTest", 10, TimeUnit.MILLISECONDS, 64 );
+		timer.newTimeout( () -> {
+			throw new IllegalStateException( "expected by the test" );
+		}, 0, TimeUnit.MILLISECONDS );
+		CountDownLatch latch = new CountDownLatch( 1 );
+		timer.newTimeout( latch::countDown, 30, TimeUnit.MILLISECONDS );
+		assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+	}
+
+	@Test
+	public void testStop() throws Exception {
+		timer = new HashedWheelTimer( "HashedWheelTimerTest", 10, TimeUnit.MILLISECONDS, 64 );
+		AtomicBoolean ran = new AtomicBoolean();
+		timer.newTimeout( () -> ran.set( true ), 30, TimeUnit.MILLISECONDS );
+		timer.stop();
+		assertTrue( timer.newTimeout( () -> ran.set( true ), 0, TimeUnit.MILLISECONDS ).isCancelled() );
+		Thread.sleep( 100 );
+		assertFalse( ran.get() );
+	}
+
+	@Test
+	public void testArguments() {
+		assertThrows( IllegalArgumentException.class, () -> new HashedWheelTimer( "HashedWheelTimerTest", 0, TimeUnit.MILLISECONDS, 64 ) );
+		assertThrows( IllegalArgumentException.class, () -> new HashedWheelTimer( "HashedWheelTimerTest", 10, TimeUnit.MILLISECONDS, 0 ) );
+		timer = new HashedWheelTimer( "HashedWheelTimerTest", 10, TimeUnit.MICROSECONDS, 64 );
+		// ticks are at least one millisecond
+		assertEquals( TimeUnit.MILLISECONDS.toNanos( 1 ), timer.getTickNanos() );
+		assertThrows( IllegalArgumentException.class, () -> timer.newTimeout( null, 0, TimeUnit.MILLISECONDS ) );
+	}
+
+}
@@ -0,0 +1,111 @@
+package org.java_websocket.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.CloseFrame;
+import org.junit.jupiter.api.Test;
+
+public class Utf8DecoderTest {
+
+	// a 2-, 3- and 4-byte character between ascii
+	private static final String TEXT = "abäcd€😀ef";
+
+	private static String decode( Utf8Decoder decoder, byte[] bytes, boolean direct, int... splits ) throws InvalidDataException {
+		int from = 0;
+		for( int i = 0; i <= splits.length; i++ ) {
+			int to = i < splits.length ? splits[i] : bytes.length;
+			byte[] chunk = Arrays.copyOfRange( bytes, from, to );
+			ByteBuffer buffer;
+			if( direct ) {
+				buffer = ByteBuffer.allocateDirect( chunk.length );
+				buffer.put( chunk ).flip();
+			} else {
+				buffer = ByteBuffer.wrap( chunk );
+			}
+			decoder.decode( buffer );
+			assertEquals( 0, buffer.position() );
+			from = to;
+		}
+		return decoder.finish();
+	}
+
+	@Test
+	public void testSplitAtEveryOffset() throws InvalidDataException {
+		byte[] bytes = TEXT.getBytes( StandardCharsets.UTF_8 );
+		for( boolean direct : new boolean[]{ false, true } ) {
+			Utf8Decoder decoder = new Utf8Decoder();
+			assertEquals( TEXT, decode( decoder, bytes, direct ) );
+			for( int i = 0; i <= bytes.length; i++ ) {
+				assertEquals( TEXT, decode( decoder, bytes, direct, i ), "split at " + i );
+				for( int j = i; j <= bytes.length; j++ ) {
+					assertEquals( TEXT, decode( decoder, bytes, direct, i, j ), "split at " + i + ", " + j );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testByteByByte() throws InvalidDataException {
+		byte[] bytes = TEXT.getBytes( StandardCharsets.UTF_8 );
+		int[] splits = new int[bytes.length - 1];
+		for( int i = 0; i < splits.length; i++ ) {
+			splits[i] = i + 1;
+		}
+		assertEquals( TEXT, decode( new Utf8Decoder(), bytes, false, splits ) );
+	}
+
+	@Test
+	public void testSurrogatePairCompletedAtFullCapacity() throws InvalidDataException {
+		// the pending bytes of the 4-byte character are completed by a chunk which fills the capacity
+		StringBuilder expected = new StringBuilder( "😀" );
+		for( int i = 0; i < 255; i++ ) {
+			expected.append( 'x' );
+		}
+		byte[] bytes = expected.toString().getBytes( StandardCharsets.UTF_8 );
+		for( int split = 1; split < 4; split++ ) {
+			assertEquals( expected.toString(), decode( new Utf8Decoder(), bytes, false, split ), "split at " + split );
+			assertEquals( expected.toString(), decode( new Utf8Decoder(), bytes, true, split ), "split at " + split );
+		}
+	}
+
+	@Test
+	public void testInvalid() throws InvalidDataException {
+		Utf8Decoder decoder = new Utf8Decoder();
+		InvalidDataException e = assertThrows( InvalidDataException.class, () -> decoder.decode( ByteBuffer.wrap( new byte[]{ 'a', ( byte ) 0xc0, ( byte ) 0x80 } ) ) );
+		assertEquals( CloseFrame.NO_UTF8, e.getCloseCode() );
+		// an encoded surrogate
+		assertThrows( InvalidDataException.class, () -> decoder.decode( ByteBuffer.wrap( new byte[]{ ( byte ) 0xed, ( byte ) 0xa0, ( byte ) 0x80 } ) ) );
+		// the decoder is reset after an error
+		assertEquals( "ok", decode( decoder, "ok".getBytes( StandardCharsets.UTF_8 ), false ) );
+
+		byte[] truncated = Arrays.copyOf( "😀".getBytes( StandardCharsets.UTF_8 ), 3 );
+		assertThrows( InvalidDataException.class, () -> decode( decoder, truncated, false ) );
+		assertEquals( "ok", decode( decoder, "ok".getBytes( StandardCharsets.UTF_8 ), false ) );
+	}
+
+	@Test
+	public void testShrinksAfterLargeMessage() throws InvalidDataException {
+		Utf8Decoder decoder = new Utf8Decoder();
+		char[] large = new char[1 << 20];
+		Arrays.fill( large, 'ä' );
+		String text = new String( large );
+		assertEquals( text, decode( decoder, text.getBytes( StandardCharsets.UTF_8 ), false, 1000, 500000 ) );
+		assertEquals( 256, decoder.capacity() );
+		assertEquals( TEXT, decode( decoder, TEXT.getBytes( StandardCharsets.UTF_8 ), false ) );
+	}
+
+	@Test
+	public void testDecodeString() throws InvalidDataException {
+		assertEquals( TEXT, Utf8Decoder.decodeString( ByteBuffer.wrap( TEXT.getBytes( StandardCharsets.UTF_8 ) ) ) );
+		assertEquals( "plain ascii text", Utf8Decoder.decodeString( ByteBuffer.wrap( "plain ascii text".getBytes( StandardCharsets.UTF_8 ) ) ) );
+		assertTrue( Utf8Decoder.decodeString( ByteBuffer.allocate( 0 ) ).isEmpty() );
+	}
+
+}